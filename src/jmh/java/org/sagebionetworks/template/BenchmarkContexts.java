@@ -0,0 +1,185 @@
+package org.sagebionetworks.template;
+
+import static org.sagebionetworks.template.Constants.ETL_DESCRIPTORS;
+import static org.sagebionetworks.template.Constants.EXCEPTION_THROWER;
+import static org.sagebionetworks.template.Constants.GLUE_DATABASE_NAME;
+import static org.sagebionetworks.template.Constants.PEERING_ROLE_ARN_PREFIX;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_BEANSTALK_NUMBER;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_BEANSTALK_VERSION;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_BIND_RECORD_TO_STACK;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_COLORS;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DATAWAREHOUSE_GLUE_DATABASE_NAME;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DATA_CDN_CERTIFICATE_ARN;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DATA_CDN_KEYPAIR_ID;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DATA_CDN_PUBLIC_KEY;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_ID_GENERATOR_HOSTED_ZONE_ID;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_INSTANCE;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_IP_ADDRESS_POOL_NUMBER_AZ_PER_NLB;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_NLB_RECORDS_CSV;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_OLD_VPC_CIDR;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_ROUTE_53_HOSTED_ZONE;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_STACK;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_STACK_INSTANCE_ALIAS;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_TABLES_INSTANCE_COUNT;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_VPC_AVAILABILITY_ZONES;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_VPC_PEERING_ACCEPT_ROLE_ARN;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_VPC_SUBNET_COLOR;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_VPC_SUBNET_PREFIX;
+import static org.sagebionetworks.template.Constants.STACK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.velocity.VelocityContext;
+import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.datawarehouse.EtlJobConfig;
+import org.sagebionetworks.template.ip.address.IpAddressPoolBuilderImpl;
+import org.sagebionetworks.template.nlb.BindNetworkLoadBalancerBuilderImpl;
+import org.sagebionetworks.template.nlb.Listener;
+import org.sagebionetworks.template.nlb.NetworkLoadBalancer;
+import org.sagebionetworks.template.nlb.RecordName;
+import org.sagebionetworks.template.nlb.RecordToStackMapping;
+import org.sagebionetworks.template.repo.VelocityExceptionThrower;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * Representative configuration and the contexts of the templates whose
+ * builders create them inline. The contexts are created the same way as the
+ * builders do, with the values that the builders read from AWS or GitHub
+ * replaced with representative values.
+ *
+ */
+public class BenchmarkContexts {
+
+	// the number of tables databases in a production sized stack
+	public static final int TABLES_INSTANCE_COUNT = 10;
+
+	private static final String GLUE_STUDIO_SCRIPTS = "s3://aws-glue-studio-transforms-510798373988-prod-us-east-1/gs_explode.py"
+			+ ",s3://aws-glue-studio-transforms-510798373988-prod-us-east-1/gs_common.py";
+
+	/**
+	 * Create an injector whose configuration describes a representative stack.
+	 * Any property already set on the command line is kept.
+	 *
+	 * @return
+	 */
+	public static Injector createInjector() {
+		setDefault(PROPERTY_KEY_STACK, "dev");
+		setDefault(PROPERTY_KEY_INSTANCE, "101");
+		setDefault(PROPERTY_KEY_TABLES_INSTANCE_COUNT, "" + TABLES_INSTANCE_COUNT);
+		setDefault(PROPERTY_KEY_VPC_SUBNET_COLOR, "Green");
+		setDefault(PROPERTY_KEY_VPC_SUBNET_PREFIX, "10.24");
+		setDefault(PROPERTY_KEY_VPC_AVAILABILITY_ZONES, "us-east-1a,us-east-1b,us-east-1c,us-east-1d,us-east-1e,us-east-1f");
+		setDefault(PROPERTY_KEY_COLORS, "Red,Green,Blue,Orange");
+		setDefault(PROPERTY_KEY_VPC_PEERING_ACCEPT_ROLE_ARN, PEERING_ROLE_ARN_PREFIX + "/peering");
+		setDefault(PROPERTY_KEY_OLD_VPC_CIDR, "10.20.0.0/16");
+		setDefault(PROPERTY_KEY_STACK_INSTANCE_ALIAS, "dev");
+		setDefault(PROPERTY_KEY_DATA_CDN_PUBLIC_KEY, "MIIBIjANBgkqhkiG9w0BAQEFAAOCAQ8AMIIBCgKCAQEA");
+		setDefault(PROPERTY_KEY_DATA_CDN_CERTIFICATE_ARN, "arn:aws:acm:us-east-1:123456789012:certificate/data-cdn");
+		setDefault(PROPERTY_KEY_DATA_CDN_KEYPAIR_ID, "K1A2B3C4D5E6F7");
+		setDefault(PROPERTY_KEY_NLB_RECORDS_CSV, "www.synapse.org,staging.synapse.org,tst.synapse.org,repo-prod.prod.sagebase.org,repo-staging.prod.sagebase.org");
+		setDefault(PROPERTY_KEY_IP_ADDRESS_POOL_NUMBER_AZ_PER_NLB, "2");
+		setDefault(PROPERTY_KEY_BIND_RECORD_TO_STACK, "www.synapse.org->portal-prod-101-0,staging.synapse.org->portal-prod-102-0"
+				+ ",repo-prod.prod.sagebase.org->repo-prod-101-0,repo-staging.prod.sagebase.org->repo-prod-102-0,tst.synapse.org->none");
+		setDefault(PROPERTY_KEY_ID_GENERATOR_HOSTED_ZONE_ID, "Z0123456789ABCDEFGHIJ");
+		setDefault(PROPERTY_KEY_DATAWAREHOUSE_GLUE_DATABASE_NAME, "synapsedatawarehouse");
+		setDefault(PROPERTY_KEY_BEANSTALK_NUMBER + "repo", "0");
+		setDefault(PROPERTY_KEY_BEANSTALK_VERSION + "repo", "101.0");
+		setDefault(PROPERTY_KEY_ROUTE_53_HOSTED_ZONE + "repo", "synapse.org");
+		return Guice.createInjector(new TemplateGuiceModule());
+	}
+
+	private static void setDefault(String key, String value) {
+		if (System.getProperty(key) == null) {
+			System.setProperty(key, value);
+		}
+	}
+
+	public static VelocityContext createIpAddressPoolContext(Injector injector) {
+		Configuration config = injector.getInstance(Configuration.class);
+		int numberAzPerNlb = config.getIntegerProperty(PROPERTY_KEY_IP_ADDRESS_POOL_NUMBER_AZ_PER_NLB);
+		List<String> names = new ArrayList<>();
+		for (String record : config.getComaSeparatedProperty(PROPERTY_KEY_NLB_RECORDS_CSV)) {
+			for (int az = 0; az < numberAzPerNlb; az++) {
+				names.add(IpAddressPoolBuilderImpl.ipAddressName(new RecordName(record).getShortName(), az));
+			}
+		}
+		VelocityContext context = new VelocityContext();
+		context.put("poolSize", names.size());
+		context.put("numberAzPerNlb", numberAzPerNlb);
+		context.put(STACK, config.getProperty(PROPERTY_KEY_STACK));
+		context.put("names", names);
+		return context;
+	}
+
+	public static VelocityContext createNetworkLoadBalancersContext(Injector injector) {
+		Configuration config = injector.getInstance(Configuration.class);
+		int numberAzPerNlb = config.getIntegerProperty(PROPERTY_KEY_IP_ADDRESS_POOL_NUMBER_AZ_PER_NLB);
+		List<NetworkLoadBalancer> nlbs = Arrays.stream(config.getComaSeparatedProperty(PROPERTY_KEY_NLB_RECORDS_CSV))
+				.map(record -> new NetworkLoadBalancer(new RecordName(record), numberAzPerNlb))
+				.collect(Collectors.toList());
+		VelocityContext context = new VelocityContext();
+		context.put("nlbs", nlbs);
+		context.put(STACK, config.getProperty(PROPERTY_KEY_STACK));
+		return context;
+	}
+
+	public static VelocityContext createRecordToStackMappingContext(Injector injector) {
+		Configuration config = injector.getInstance(Configuration.class);
+		List<RecordToStackMapping> mappings = Arrays
+				.stream(config.getComaSeparatedProperty(PROPERTY_KEY_BIND_RECORD_TO_STACK))
+				.map(s -> RecordToStackMapping.builder().withMapping(s).build()).collect(Collectors.toList());
+		List<Listener> listeners = new ArrayList<>(mappings.size() * 2);
+		for (RecordToStackMapping mapping : mappings) {
+			listeners.add(new Listener(80, mapping));
+			listeners.add(new Listener(443, mapping));
+		}
+		VelocityContext context = new VelocityContext();
+		context.put(BindNetworkLoadBalancerBuilderImpl.MAPPINGS_CSV,
+				mappings.stream().map(RecordToStackMapping::getMapping).collect(Collectors.joining(",")));
+		context.put("listeners", listeners);
+		context.put(STACK, config.getProperty(PROPERTY_KEY_STACK));
+		return context;
+	}
+
+	public static VelocityContext createEtlJobsContext(Injector injector) {
+		EtlJobConfig etlJobConfig = injector.getInstance(EtlJobConfig.class);
+		VelocityContext context = createGlueContext(injector, etlJobConfig);
+		String scriptLocationPrefix = (String) context.get("scriptLocationPrefix");
+		context.put(ETL_DESCRIPTORS, etlJobConfig.getEtlJobDescriptors());
+		List<String> extraScripts = etlJobConfig.getExtraScripts().stream()
+				.map(s -> "s3://" + scriptLocationPrefix + s).collect(Collectors.toList());
+		extraScripts.add(GLUE_STUDIO_SCRIPTS);
+		context.put("extraScripts", String.join(",", extraScripts));
+		return context;
+	}
+
+	public static VelocityContext createBackfillEtlJobsContext(Injector injector) {
+		VelocityContext context = createGlueContext(injector, injector.getInstance(EtlJobConfig.class));
+		context.put("backfillDatabaseName", "backfill");
+		context.put("extraScripts",
+				String.join(",", "s3://" + context.get("scriptLocationPrefix") + "backfill_utils.py", GLUE_STUDIO_SCRIPTS));
+		return context;
+	}
+
+	/**
+	 * The part of the context shared by the data warehouse builders, with the
+	 * scripts at the location they are copied to from GitHub.
+	 */
+	private static VelocityContext createGlueContext(Injector injector, EtlJobConfig etlJobConfig) {
+		Configuration config = injector.getInstance(Configuration.class);
+		String stack = config.getProperty(PROPERTY_KEY_STACK);
+		VelocityContext context = new VelocityContext();
+		context.put(GLUE_DATABASE_NAME, config.getProperty(PROPERTY_KEY_DATAWAREHOUSE_GLUE_DATABASE_NAME).toLowerCase());
+		context.put(EXCEPTION_THROWER, new VelocityExceptionThrower());
+		context.put(STACK, stack);
+		context.put("scriptLocationPrefix",
+				stack + ".aws-glue.sagebase.org/scripts/v" + etlJobConfig.getVersion() + "/");
+		return context;
+	}
+
+}
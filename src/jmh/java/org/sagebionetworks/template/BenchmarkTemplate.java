@@ -0,0 +1,89 @@
+package org.sagebionetworks.template;
+
+import static org.sagebionetworks.template.Constants.TEMPALTE_BEAN_STALK_ENVIRONMENT;
+import static org.sagebionetworks.template.Constants.TEMPALTE_SHARED_RESOUCES_MAIN_JSON_VTP;
+import static org.sagebionetworks.template.Constants.TEMPLATES_VPC_MAIN_VPC_JSON_VTP;
+import static org.sagebionetworks.template.Constants.TEMPLATES_VPC_PRIVATE_SUBNET_JSON_VTP;
+import static org.sagebionetworks.template.Constants.TEMPLATES_VPC_PUBLIC_SUBNETS_JSON_VTP;
+import static org.sagebionetworks.template.Constants.TEMPLATE_ETL_GLUE_JOB_RESOURCES;
+import static org.sagebionetworks.template.Constants.TEMPLATE_GLOBAL_RESOURCES;
+import static org.sagebionetworks.template.Constants.TEMPLATE_ID_GENERATOR;
+import static org.sagebionetworks.template.Constants.TEMPLATE_S3_BUCKET_POLICY;
+import static org.sagebionetworks.template.Constants.TEMPLATE_S3_VIRUS_SCANNER;
+
+import java.util.function.Function;
+
+import org.apache.velocity.VelocityContext;
+import org.sagebionetworks.template.cdn.CdnBenchmarkContexts;
+import org.sagebionetworks.template.global.GlobalResourcesBuilderImpl;
+import org.sagebionetworks.template.redirectors.userdocs.UserDocsBenchmarkContexts;
+import org.sagebionetworks.template.repo.RepoBenchmarkContexts;
+import org.sagebionetworks.template.repo.beanstalk.ssl.ElasticBeanstalkExtentionBuilderImpl;
+import org.sagebionetworks.template.s3.S3BenchmarkContexts;
+import org.sagebionetworks.template.vpc.VpcBenchmarkContexts;
+
+import com.google.inject.Injector;
+
+/**
+ * Each template rendered by a builder, with its context and whether the
+ * builder renders it as JSON. The templates included with #parse are rendered
+ * as part of the templates that include them.
+ *
+ */
+public enum BenchmarkTemplate {
+
+	MAIN_VPC(TEMPLATES_VPC_MAIN_VPC_JSON_VTP, true, VpcBenchmarkContexts::createVpcContext),
+	PUBLIC_SUBNETS(TEMPLATES_VPC_PUBLIC_SUBNETS_JSON_VTP, true, VpcBenchmarkContexts::createPublicSubnetsContext),
+	PRIVATE_SUBNET(TEMPLATES_VPC_PRIVATE_SUBNET_JSON_VTP, true, VpcBenchmarkContexts::createPrivateSubnetContext),
+	GLOBAL_RESOURCES(TEMPLATE_GLOBAL_RESOURCES, true,
+			injector -> injector.getInstance(GlobalResourcesBuilderImpl.class).createContext()),
+	IP_ADDRESS_POOL("templates/global/ip-address-pool.json.vpt", true, BenchmarkContexts::createIpAddressPoolContext),
+	NETWORK_LOAD_BALANCERS("templates/global/domain-network-load-balancer.json.vpt", true,
+			BenchmarkContexts::createNetworkLoadBalancersContext),
+	RECORD_TO_STACK_MAPPING("templates/global/dns-record-to-stack-mapping.json.vpt", true,
+			BenchmarkContexts::createRecordToStackMappingContext),
+	REPO_SHARED_RESOURCES(TEMPALTE_SHARED_RESOUCES_MAIN_JSON_VTP, true, RepoBenchmarkContexts::createSharedContext),
+	REPO_ENVIRONMENT(TEMPALTE_BEAN_STALK_ENVIRONMENT, true, RepoBenchmarkContexts::createEnvironmentContext),
+	ID_GENERATOR(TEMPLATE_ID_GENERATOR, true, RepoBenchmarkContexts::createIdGeneratorContext),
+	RESTART_SERVICES(ElasticBeanstalkExtentionBuilderImpl.TEMPLATES_REPO_RESTART_SERVICES, false,
+			injector -> new VelocityContext()),
+	PORTAL_CDN("templates/cdn/synapse_cdn.yaml.vtp", false, CdnBenchmarkContexts::createPortalContext),
+	DATA_CDN("templates/cdn/synapse-data-cdn.json.vtp", false, CdnBenchmarkContexts::createDataContext),
+	USER_DOCS_REDIRECTOR("templates/redirectors/user_docs_redirector.yaml.vtp", false,
+			UserDocsBenchmarkContexts::createRedirectorContext),
+	ETL_JOBS(TEMPLATE_ETL_GLUE_JOB_RESOURCES, true, BenchmarkContexts::createEtlJobsContext),
+	BACKFILL_ETL_JOBS("templates/datewarehouse/backfill/backfill-etl-jobs-template.json.vpt", true,
+			BenchmarkContexts::createBackfillEtlJobsContext),
+	S3_BUCKET_POLICY(TEMPLATE_S3_BUCKET_POLICY, true, S3BenchmarkContexts::createBucketPolicyContext),
+	S3_VIRUS_SCANNER(TEMPLATE_S3_VIRUS_SCANNER, true, S3BenchmarkContexts::createVirusScannerContext);
+
+	private final String templatePath;
+	private final boolean json;
+	private final Function<Injector, VelocityContext> contextFactory;
+
+	private BenchmarkTemplate(String templatePath, boolean json, Function<Injector, VelocityContext> contextFactory) {
+		this.templatePath = templatePath;
+		this.json = json;
+		this.contextFactory = contextFactory;
+	}
+
+	public String getTemplatePath() {
+		return templatePath;
+	}
+
+	public VelocityContext createContext(Injector injector) {
+		return contextFactory.apply(injector);
+	}
+
+	/**
+	 * Render this template the same way as its builder.
+	 *
+	 * @param renderer
+	 * @param context
+	 * @return
+	 */
+	public String render(TemplateRenderer renderer, VelocityContext context) {
+		return json ? renderer.renderJson(templatePath, context) : renderer.render(templatePath, context);
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.sagebionetworks.template;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.velocity.VelocityContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
+import org.sagebionetworks.template.timing.TimingSpan;
+
+import com.google.inject.Injector;
+
+/**
+ * The throughput of rendering each template with a representative context.
+ * The benchmark profile runs it with the gc profiler, which also reports the
+ * bytes allocated per render (gc.alloc.rate.norm):
+ *
+ * <pre>
+ * mvn -P benchmark verify
+ * </pre>
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateRenderingBenchmark {
+
+	@Param
+	public BenchmarkTemplate template;
+
+	private TemplateRenderer renderer;
+	private VelocityContext context;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Injector injector = BenchmarkContexts.createInjector();
+		renderer = new TemplateRendererImpl(new TemplateGuiceModule().velocityEngineProvider(),
+				new NoOpDeploymentTimeline());
+		context = template.createContext(injector);
+		// Fail before measuring if the context is missing anything the template uses.
+		template.render(renderer, new VelocityContext(context));
+	}
+
+	/**
+	 * Each render gets its own context on top of the shared one, as variables set
+	 * by the template are put in the outer context.
+	 */
+	@Benchmark
+	public String render() {
+		return template.render(renderer, new VelocityContext(context));
+	}
+
+	/**
+	 * Records nothing, so only the render is measured.
+	 */
+	private static class NoOpDeploymentTimeline implements DeploymentTimeline {
+
+		@Override
+		public Span start(Phase phase, String name) {
+			return () -> {
+			};
+		}
+
+		@Override
+		public List<TimingSpan> drain() {
+			return Collections.emptyList();
+		}
+	}
+
+}
@@ -0,0 +1,21 @@
+package org.sagebionetworks.template.cdn;
+
+import org.apache.velocity.VelocityContext;
+
+import com.google.inject.Injector;
+
+/**
+ * The contexts of the CDN templates as created by their builder.
+ *
+ */
+public class CdnBenchmarkContexts {
+
+	public static VelocityContext createPortalContext(Injector injector) {
+		return injector.getInstance(CdnBuilderImpl.class).createContext(CdnBuilder.Type.PORTAL);
+	}
+
+	public static VelocityContext createDataContext(Injector injector) {
+		return injector.getInstance(CdnBuilderImpl.class).createContext(CdnBuilder.Type.DATA);
+	}
+
+}
@@ -0,0 +1,17 @@
+package org.sagebionetworks.template.redirectors.userdocs;
+
+import org.apache.velocity.VelocityContext;
+
+import com.google.inject.Injector;
+
+/**
+ * The context of the user docs redirector template as created by its builder.
+ *
+ */
+public class UserDocsBenchmarkContexts {
+
+	public static VelocityContext createRedirectorContext(Injector injector) {
+		return injector.getInstance(UserDocsRedirectorBuilderImpl.class).createContext();
+	}
+
+}
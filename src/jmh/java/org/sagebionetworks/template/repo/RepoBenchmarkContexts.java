@@ -0,0 +1,74 @@
+package org.sagebionetworks.template.repo;
+
+import static org.sagebionetworks.template.Constants.DATABASE_IDENTIFIER;
+import static org.sagebionetworks.template.Constants.GLOBAL_RESOURCES_EXPORT_PREFIX;
+import static org.sagebionetworks.template.Constants.HOSTED_ZONE;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_ID_GENERATOR_HOSTED_ZONE_ID;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_OLD_VPC_CIDR;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_STACK;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_VPC_SUBNET_COLOR;
+import static org.sagebionetworks.template.Constants.STACK;
+import static org.sagebionetworks.template.Constants.TEMP_VPC_CIDR;
+import static org.sagebionetworks.template.Constants.VPC_EXPORT_PREFIX;
+import static org.sagebionetworks.template.Constants.VPC_SUBNET_COLOR;
+
+import java.util.List;
+
+import org.apache.velocity.VelocityContext;
+import org.sagebionetworks.template.Constants;
+import org.sagebionetworks.template.config.RepoConfiguration;
+import org.sagebionetworks.template.repo.beanstalk.EnvironmentDescriptor;
+import org.sagebionetworks.template.repo.beanstalk.EnvironmentType;
+import org.sagebionetworks.template.repo.beanstalk.SourceBundle;
+
+import com.google.inject.Injector;
+
+/**
+ * The contexts of the repository templates. The shared resources and
+ * environment contexts are created by their builder with the real context
+ * providers. The values that the builders read from AWS are replaced with
+ * representative values.
+ *
+ */
+public class RepoBenchmarkContexts {
+
+	public static VelocityContext createSharedContext(Injector injector) {
+		return injector.getInstance(RepositoryTemplateBuilderImpl.class).createSharedContext();
+	}
+
+	/**
+	 * The context of the repository environment, as created by
+	 * {@link RepositoryTemplateBuilderImpl#createEnvironmentContext}.
+	 */
+	public static VelocityContext createEnvironmentContext(Injector injector) {
+		RepositoryTemplateBuilderImpl builder = injector.getInstance(RepositoryTemplateBuilderImpl.class);
+		String stack = injector.getInstance(RepoConfiguration.class).getProperty(PROPERTY_KEY_STACK);
+		// planning uses the S3 location of the artifact without copying it.
+		EnvironmentDescriptor environment = builder.createEnvironmentDescriptor(EnvironmentType.REPOSITORY_SERVICES, true);
+		environment.withSecretsSource(
+				new SourceBundle(stack + "-configuration.sagebase.org", "secrets/" + environment.getName() + ".properties"));
+		return builder.createEnvironmentContext(environment, "abcdefghijkl.us-east-1.rds.amazonaws.com",
+				"64bit Amazon Linux 2 v4.3.0 running Tomcat 8.5 Corretto 11",
+				List.of("subnet-0a1b2c3d", "subnet-1a2b3c4d", "subnet-2a3b4c5d"));
+	}
+
+	/**
+	 * The context of the ID generator, as created by
+	 * {@link IdGeneratorBuilderImpl#buildAndDeploy()}.
+	 */
+	public static VelocityContext createIdGeneratorContext(Injector injector) {
+		RepoConfiguration config = injector.getInstance(RepoConfiguration.class);
+		String color = config.getProperty(PROPERTY_KEY_VPC_SUBNET_COLOR);
+		String stack = config.getProperty(PROPERTY_KEY_STACK);
+		VelocityContext context = new VelocityContext();
+		context.put(STACK, stack);
+		context.put(GLOBAL_RESOURCES_EXPORT_PREFIX, Constants.createGlobalResourcesExportPrefix(stack));
+		context.put(VPC_EXPORT_PREFIX, Constants.createVpcExportPrefix(stack));
+		context.put(VPC_SUBNET_COLOR, color);
+		context.put(DATABASE_IDENTIFIER, stack + "-id-generator-db-" + color.toLowerCase());
+		context.put(HOSTED_ZONE, config.getProperty(PROPERTY_KEY_ID_GENERATOR_HOSTED_ZONE_ID));
+		context.put(TEMP_VPC_CIDR, config.getProperty(PROPERTY_KEY_OLD_VPC_CIDR));
+		return context;
+	}
+
+}
@@ -0,0 +1,46 @@
+package org.sagebionetworks.template.s3;
+
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_STACK;
+import static org.sagebionetworks.template.Constants.STACK;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.velocity.VelocityContext;
+import org.sagebionetworks.template.TemplateUtils;
+import org.sagebionetworks.template.config.RepoConfiguration;
+
+import com.google.inject.Injector;
+
+/**
+ * The contexts of the S3 templates, as created by
+ * {@link S3BucketBuilderImpl#buildAllBuckets()} from the bucket configuration.
+ *
+ */
+public class S3BenchmarkContexts {
+
+	public static VelocityContext createBucketPolicyContext(Injector injector) {
+		VelocityContext context = new VelocityContext();
+		context.put(STACK, injector.getInstance(RepoConfiguration.class).getProperty(PROPERTY_KEY_STACK));
+		return context;
+	}
+
+	public static VelocityContext createVirusScannerContext(Injector injector) {
+		String stack = injector.getInstance(RepoConfiguration.class).getProperty(PROPERTY_KEY_STACK);
+		S3Config s3Config = injector.getInstance(S3Config.class);
+		List<String> buckets = s3Config.getBuckets().stream().filter(S3BucketDescriptor::isVirusScanEnabled)
+				.map(bucket -> TemplateUtils.replaceStackVariable(bucket.getName(), stack)).collect(Collectors.toList());
+		S3VirusScannerConfig virusScannerConfig = s3Config.getVirusScannerConfig();
+
+		VelocityContext context = new VelocityContext();
+		context.put(STACK, stack);
+		context.put(S3BucketBuilderImpl.CF_PROPERTY_BUCKETS, buckets);
+		context.put(S3BucketBuilderImpl.CF_PROPERTY_NOTIFICATION_EMAIL, virusScannerConfig.getNotificationEmail());
+		context.put(S3BucketBuilderImpl.CF_PROPERTY_LAMBDA_BUCKET,
+				TemplateUtils.replaceStackVariable(virusScannerConfig.getLambdaArtifactBucket(), stack));
+		context.put(S3BucketBuilderImpl.CF_PROPERTY_LAMBDA_KEY,
+				String.format(S3BucketBuilderImpl.VIRUS_SCANNER_KEY_TEMPLATE, "lambda-virus-scanner.zip"));
+		return context;
+	}
+
+}
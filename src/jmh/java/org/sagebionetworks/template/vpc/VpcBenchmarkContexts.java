@@ -0,0 +1,32 @@
+package org.sagebionetworks.template.vpc;
+
+import static org.sagebionetworks.template.Constants.PRIVATE_SUBNET_IDX;
+
+import org.apache.velocity.VelocityContext;
+
+import com.google.inject.Injector;
+
+/**
+ * The contexts of the VPC templates as created by their builders.
+ *
+ */
+public class VpcBenchmarkContexts {
+
+	public static VelocityContext createVpcContext(Injector injector) {
+		return injector.getInstance(VpcTemplateBuilderImpl.class).createContext();
+	}
+
+	public static VelocityContext createPublicSubnetsContext(Injector injector) {
+		return injector.getInstance(SubnetTemplateBuilderImpl.class).createContext();
+	}
+
+	/**
+	 * The context of the first color, as the builder creates for each color.
+	 */
+	public static VelocityContext createPrivateSubnetContext(Injector injector) {
+		VelocityContext context = new VelocityContext(createPublicSubnetsContext(injector));
+		context.put(PRIVATE_SUBNET_IDX, 0);
+		return context;
+	}
+
+}
@@ -0,0 +1,29 @@
+package org.sagebionetworks.template;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+
+/**
+ * An {@link AsyncHandler} that is also the future of the call, so the calls of
+ * an asynchronous AWS client can be composed. The future completes on the
+ * thread of the client that made the call.
+ *
+ * @param <Q> The request type.
+ * @param <R> The result type.
+ */
+public class AsyncHandlerFuture<Q extends AmazonWebServiceRequest, R> extends CompletableFuture<R>
+		implements AsyncHandler<Q, R> {
+
+	@Override
+	public void onError(Exception exception) {
+		completeExceptionally(exception);
+	}
+
+	@Override
+	public void onSuccess(Q request, R result) {
+		complete(result);
+	}
+
+}
@@ -1,10 +1,15 @@
 package org.sagebionetworks.template;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Stream;
 
 import com.amazonaws.services.cloudformation.model.AmazonCloudFormationException;
 import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackStatus;
+import com.amazonaws.services.cloudformation.model.StackSummary;
 
 /**
  * Abstraction for CloudFormation Client operations
@@ -31,6 +36,15 @@ public interface CloudFormationClient {
 	 */
 	public Optional<Stack> describeStack(String stackName);
 
+	/**
+	 * Describe a stack given its name without blocking.
+	 * 
+	 * @param stackName
+	 * @return A future that completes with the stack, or empty if it does not
+	 *         exist.
+	 */
+	public CompletableFuture<Optional<Stack>> describeStackAsync(String stackName);
+
 	/**
 	 * Update a stack with the given name using the provided template body.
 	 * 
@@ -58,6 +72,15 @@ public interface CloudFormationClient {
 	 * @return StackId
 	 */
 	public void createOrUpdateStack(CreateOrUpdateStackRequest request);
+
+	/**
+	 * Start a create or update of the given stack without blocking. The planning
+	 * state of the calling thread applies to the request.
+	 * 
+	 * @param request
+	 * @return A future that completes once the create or update has been started.
+	 */
+	public CompletableFuture<Void> createOrUpdateStackAsync(CreateOrUpdateStackRequest request);
 	
 	/**
 	 * Wait for the given stack to complete.
@@ -80,10 +103,50 @@ public interface CloudFormationClient {
 	 */
 	public Stream<Stack> streamOverAllStacks();
 
+	/**
+	 * Stream over the summaries of all stacks with one of the given status. A
+	 * summary is much cheaper to list than a full stack description.
+	 * @param statusFilter
+	 * @return
+	 */
+	public Stream<StackSummary> streamOverStackSummaries(StackStatus... statusFilter);
+
 	/**
 	 * Delete a stack by name
 	 * @param stackName
 	 */
 	public void deleteStack(String stackName);
 
+	/**
+	 * Start planning on the current thread. While planning,
+	 * {@link #createOrUpdateStack(CreateOrUpdateStackRequest)} only records how
+	 * the request differs from the deployed stack and waiting returns the
+	 * deployed stack. Work handed to other threads must be run on an executor
+	 * from {@link #propagatePlanning(Executor)}, a stack cannot be created or
+	 * updated from a thread that is not planning while any thread is planning.
+	 */
+	public void startPlanning();
+
+	/**
+	 * Is the current thread planning?
+	 * @return
+	 */
+	public boolean isPlanning();
+
+	/**
+	 * Stop planning on the current thread.
+	 * @return The changes recorded since planning started, in order.
+	 */
+	public List<StackChange> stopPlanning();
+
+	/**
+	 * Wrap the given executor so each task runs with the planning state of the
+	 * thread that submitted it. The changes planned by the task are recorded with
+	 * the changes of the submitting thread.
+	 * 
+	 * @param executor
+	 * @return
+	 */
+	public Executor propagatePlanning(Executor executor);
+
 }
@@ -0,0 +1,50 @@
+package org.sagebionetworks.template;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import com.amazonaws.services.cloudformation.model.Stack;
+
+/**
+ * Non-blocking variant of the {@link CloudFormationClient}. Calls are made on
+ * the bounded executor of the asynchronous AWS client so a builder can start a
+ * stack and keep preparing the next one.
+ *
+ */
+public interface CloudFormationClientAsync {
+
+	/**
+	 * Start a create or update of the given stack.
+	 * 
+	 * @param request
+	 * @return A future that completes once the create or update has been started.
+	 */
+	public CompletableFuture<Void> createOrUpdateStackAsync(CreateOrUpdateStackRequest request);
+
+	/**
+	 * Wait for the given stack to complete.
+	 * 
+	 * @param stackName
+	 * @return A future that completes with the stack once it reaches a complete
+	 *         status, or completes exceptionally if the stack fails, times out or
+	 *         does not exist.
+	 */
+	public CompletableFuture<Stack> waitAsync(String stackName);
+
+	/**
+	 * Describe the stack with the given name.
+	 * 
+	 * @param stackName
+	 * @return
+	 */
+	public CompletableFuture<Optional<Stack>> describeAsync(String stackName);
+
+	/**
+	 * Start a create or update of the given stack and wait for it to complete.
+	 * 
+	 * @param request
+	 * @return
+	 */
+	public CompletableFuture<Stack> createOrUpdateStackAndWaitAsync(CreateOrUpdateStackRequest request);
+
+}
@@ -0,0 +1,75 @@
+package org.sagebionetworks.template;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
+
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.google.inject.Inject;
+
+/**
+ * The calls of the {@link CloudFormationClient} are made with the
+ * AmazonCloudFormationAsync client, whose bounded executor runs every request
+ * through the AwsRequestGovernor. Waiting does not hold a thread, all waits are
+ * resolved by the single poll loop of the {@link StackWatcher}.
+ *
+ */
+public class CloudFormationClientAsyncImpl implements CloudFormationClientAsync {
+
+	private final CloudFormationClient cloudFormationClient;
+	private final StackWatcher stackWatcher;
+	private final DeploymentTimeline timeline;
+
+	@Inject
+	public CloudFormationClientAsyncImpl(CloudFormationClient cloudFormationClient, StackWatcher stackWatcher,
+			DeploymentTimeline timeline) {
+		super();
+		this.cloudFormationClient = cloudFormationClient;
+		this.stackWatcher = stackWatcher;
+		this.timeline = timeline;
+	}
+
+	@Override
+	public CompletableFuture<Void> createOrUpdateStackAsync(CreateOrUpdateStackRequest request) {
+		return cloudFormationClient.createOrUpdateStackAsync(request);
+	}
+
+	@Override
+	public CompletableFuture<Stack> waitAsync(String stackName) {
+		return waitAsync(stackName, cloudFormationClient.isPlanning());
+	}
+
+	/**
+	 * Wait for the given stack, or only describe it when planning.
+	 * 
+	 * @param stackName
+	 * @param planning
+	 * @return
+	 */
+	CompletableFuture<Stack> waitAsync(String stackName, boolean planning) {
+		if (planning) {
+			// nothing was changed so there is nothing to wait for.
+			return cloudFormationClient.describeStackAsync(stackName).thenApply(
+					stack -> stack.orElseThrow(() -> new IllegalStateException("Stack does not exist: " + stackName)));
+		}
+		DeploymentTimeline.Span span = timeline.start(Phase.WAIT, stackName);
+		CompletableFuture<Stack> future = stackWatcher.watch(stackName);
+		future.whenComplete((stack, error) -> span.close());
+		return future;
+	}
+
+	@Override
+	public CompletableFuture<Optional<Stack>> describeAsync(String stackName) {
+		return cloudFormationClient.describeStackAsync(stackName);
+	}
+
+	@Override
+	public CompletableFuture<Stack> createOrUpdateStackAndWaitAsync(CreateOrUpdateStackRequest request) {
+		// the planning state is read on the calling thread, not the thread that completes the update.
+		boolean planning = cloudFormationClient.isPlanning();
+		return createOrUpdateStackAsync(request).thenCompose(v -> waitAsync(request.getStackName(), planning));
+	}
+
+}
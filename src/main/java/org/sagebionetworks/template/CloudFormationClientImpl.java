@@ -1,22 +1,42 @@
 package org.sagebionetworks.template;
 
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_STACK_WAIT_FAIL_FAST;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_STACK_WAIT_LOG_EVENTS;
+import static org.sagebionetworks.template.Constants.TAG_KEY_NESTED_STACK_SPLIT;
+import static org.sagebionetworks.template.Constants.TAG_KEY_STACK_FINGERPRINT;
+import static org.sagebionetworks.template.FutureUtils.join;
+
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Spliterator;
-import java.util.Spliterators;
-import java.util.UUID;
-import java.util.function.Function;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.HttpStatus;
 import org.apache.logging.log4j.Logger;
 import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.nested.TemplateSizeGuard;
 import org.sagebionetworks.template.repo.beanstalk.SourceBundle;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
+import org.sagebionetworks.util.Clock;
 
-import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.cloudformation.AmazonCloudFormationAsync;
 import com.amazonaws.services.cloudformation.model.AmazonCloudFormationException;
 import com.amazonaws.services.cloudformation.model.CreateStackRequest;
 import com.amazonaws.services.cloudformation.model.CreateStackResult;
@@ -24,14 +44,19 @@ import com.amazonaws.services.cloudformation.model.DeleteStackRequest;
 import com.amazonaws.services.cloudformation.model.DeleteStackResult;
 import com.amazonaws.services.cloudformation.model.DescribeStacksRequest;
 import com.amazonaws.services.cloudformation.model.DescribeStacksResult;
-import com.amazonaws.services.cloudformation.model.Output;
+import com.amazonaws.services.cloudformation.model.ListStacksRequest;
+import com.amazonaws.services.cloudformation.model.ListStacksResult;
 import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackEvent;
 import com.amazonaws.services.cloudformation.model.StackStatus;
+import com.amazonaws.services.cloudformation.model.StackSummary;
+import com.amazonaws.services.cloudformation.model.Tag;
 import com.amazonaws.services.cloudformation.model.UpdateStackRequest;
 import com.amazonaws.services.cloudformation.model.UpdateStackResult;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 
 /**
@@ -44,23 +69,68 @@ public class CloudFormationClientImpl implements CloudFormationClient {
 
 	public static final long TIMEOUT_MS = 60 * 60 * 1000; // one hour.
 
-	public static final int SLEEP_TIME = 10 * 1000;
 	public static final String NO_UPDATES_ARE_TO_BE_PERFORMED = "No updates are to be performed";
-	AmazonCloudFormation cloudFormationClient;
+
+	/**
+	 * The largest template body that CloudFormation accepts inline, larger
+	 * templates must be passed by S3 URL.
+	 */
+	public static final int MAX_INLINE_TEMPLATE_BYTES = 51_200;
+
+	/**
+	 * How long a stack description is reused before the stack is described again.
+	 */
+	public static final long DESCRIBE_CACHE_TTL_MS = 2 * 1000;
+
+	public static final String TEMPLATE_KEY_PREFIX = "templates/";
+	/**
+	 * An existing template older than this is uploaded again so it cannot be
+	 * garbage collected while a stack operation is using it.
+	 */
+	public static final long TEMPLATE_REFRESH_MS = 24 * 60 * 60 * 1000; // one day.
+
+	/**
+	 * Runs the blocking work of an asynchronous create or update, such as
+	 * uploading its template to S3.
+	 */
+	private static final ExecutorService TEMPLATE_EXECUTOR = Executors.newCachedThreadPool(
+			new ThreadFactoryBuilder().setNameFormat("cloudformation-template-%d").setDaemon(true).build());
+
+	AmazonCloudFormationAsync cloudFormationClient;
 	AmazonS3 s3Client;
 	Configuration configuration;
 	Logger logger;
 	ThreadProvider threadProvider;
+	StackWaitStrategy waitStrategy;
+	Clock clock;
+	StackEventTailer eventTailer;
+	DeploymentTimeline timeline;
+	TemplateSizeGuard sizeGuard;
+	private final Map<String, CachedDescription> describeCache = new ConcurrentHashMap<>();
+	private final OutputsIndex outputsIndex;
+	private final ThreadLocal<List<StackChange>> plannedChanges = new ThreadLocal<>();
+	/**
+	 * The number of planning sessions that have started but not stopped.
+	 */
+	private final AtomicInteger activePlans = new AtomicInteger();
 
 	@Inject
-	public CloudFormationClientImpl(AmazonCloudFormation cloudFormationClient, AmazonS3 s3Client,
-			Configuration configuration, LoggerFactory loggerFactory, ThreadProvider threadProvider) {
+	public CloudFormationClientImpl(AmazonCloudFormationAsync cloudFormationClient, AmazonS3 s3Client,
+			Configuration configuration, LoggerFactory loggerFactory, ThreadProvider threadProvider,
+			StackWaitStrategy waitStrategy, Clock clock, StackEventTailer eventTailer, DeploymentTimeline timeline,
+			TemplateSizeGuard sizeGuard) {
 		super();
 		this.cloudFormationClient = cloudFormationClient;
 		this.s3Client = s3Client;
 		this.configuration = configuration;
 		this.logger = loggerFactory.getLogger(CloudFormationClientImpl.class);
 		this.threadProvider = threadProvider;
+		this.waitStrategy = waitStrategy;
+		this.clock = clock;
+		this.eventTailer = eventTailer;
+		this.timeline = timeline;
+		this.sizeGuard = sizeGuard;
+		this.outputsIndex = new OutputsIndex(cloudFormationClient, this::describeStack, clock, logger);
 	}
 
 	@Override
@@ -70,13 +140,25 @@ public class CloudFormationClientImpl implements CloudFormationClient {
 
 	@Override
 	public void updateStack(final CreateOrUpdateStackRequest requestInput) {
-		// Temporarily upload the template to S3.
-		executeWithS3Template(requestInput, new Function<String, String>() {
+		join(updateStackAsync(requestInput, TemplateUtils.minifyJson(requestInput.getTemplateBody())));
+	}
+
+	/**
+	 * Start an update of the stack with the given template, which is already
+	 * minified.
+	 * 
+	 * @param requestInput
+	 * @param template
+	 * @return A future that completes once the update has been started.
+	 */
+	CompletableFuture<Void> updateStackAsync(final CreateOrUpdateStackRequest requestInput, String template) {
+		return executeWithTemplate(requestInput, template, new BiFunction<String, String, CompletableFuture<String>>() {
 
 			@Override
-			public String apply(String templateUrl) {
+			public CompletableFuture<String> apply(String templateBody, String templateUrl) {
 				UpdateStackRequest request = new UpdateStackRequest();
 				request.setStackName(requestInput.getStackName());
+				request.setTemplateBody(templateBody);
 				request.setTemplateURL(templateUrl);
 				if (requestInput.getParameters() != null) {
 					request.withParameters(requestInput.getParameters());
@@ -87,21 +169,35 @@ public class CloudFormationClientImpl implements CloudFormationClient {
 				if (requestInput.getTags() != null) {
 					request.withTags(requestInput.getTags());
 				}
-				UpdateStackResult results = cloudFormationClient.updateStack(request);
-				return results.getStackId();
+				AsyncHandlerFuture<UpdateStackRequest, UpdateStackResult> results = new AsyncHandlerFuture<>();
+				cloudFormationClient.updateStackAsync(request, results);
+				return results.whenComplete((result, error) -> invalidateDescribeCache(requestInput.getStackName()))
+						.thenApply(UpdateStackResult::getStackId);
 			}
 		});
 	}
 
 	@Override
 	public void createStack(final CreateOrUpdateStackRequest requestInput) {
-		// Temporarily upload the template to S3.
-		executeWithS3Template(requestInput, new Function<String, String>() {
+		join(createStackAsync(requestInput, TemplateUtils.minifyJson(requestInput.getTemplateBody())));
+	}
+
+	/**
+	 * Start a create of the stack with the given template, which is already
+	 * minified.
+	 * 
+	 * @param requestInput
+	 * @param template
+	 * @return A future that completes once the create has been started.
+	 */
+	CompletableFuture<Void> createStackAsync(final CreateOrUpdateStackRequest requestInput, String template) {
+		return executeWithTemplate(requestInput, template, new BiFunction<String, String, CompletableFuture<String>>() {
 
 			@Override
-			public String apply(String templateUrl) {
+			public CompletableFuture<String> apply(String templateBody, String templateUrl) {
 				CreateStackRequest request = new CreateStackRequest();
 				request.setStackName(requestInput.getStackName());
+				request.setTemplateBody(templateBody);
 				request.setTemplateURL(templateUrl);
 				if (requestInput.getParameters() != null) {
 					request.withParameters(requestInput.getParameters());
@@ -115,70 +211,343 @@ public class CloudFormationClientImpl implements CloudFormationClient {
 				if (requestInput.getEnableTerminationProtection() != null) {
 					request.withEnableTerminationProtection(requestInput.getEnableTerminationProtection());
 				}
-				CreateStackResult result = cloudFormationClient.createStack(request);
-				return result.getStackId();
+				AsyncHandlerFuture<CreateStackRequest, CreateStackResult> results = new AsyncHandlerFuture<>();
+				cloudFormationClient.createStackAsync(request, results);
+				return results.whenComplete((result, error) -> invalidateDescribeCache(requestInput.getStackName()))
+						.thenApply(CreateStackResult::getStackId);
 			}
 		});
 	}
 
 	/**
-	 * Execute a create or update using a template that is temporarily uploaded to
-	 * S3.
+	 * Execute a create or update with the minified template. A template that fits
+	 * within the inline limit is passed as the template body, while larger
+	 * templates are uploaded to S3 and passed as a URL.
 	 * 
-	 * @param function
-	 * @return
+	 * @param template The minified template.
+	 * @param function Called with the template body and the template URL, exactly
+	 *                 one of which will be null, and returns the future of the
+	 *                 call.
+	 * @return A future that completes once the create or update has been started.
 	 */
-	void executeWithS3Template(final CreateOrUpdateStackRequest requestInput, Function<String, String> function) {
-		// save the template file to S3
-		SourceBundle bundle = saveTempalteToS3(requestInput.getStackName(), requestInput.getTemplateBody());
-		try {
+	CompletableFuture<Void> executeWithTemplate(final CreateOrUpdateStackRequest requestInput, String template,
+			BiFunction<String, String, CompletableFuture<String>> function) {
+		String templateBody = null;
+		String templateUrl = null;
+		if (template.getBytes(StandardCharsets.UTF_8).length <= MAX_INLINE_TEMPLATE_BYTES) {
+			templateBody = template;
+		} else {
+			// save the template file to S3
+			SourceBundle bundle;
+			try (DeploymentTimeline.Span span = timeline.start(Phase.S3_UPLOAD, requestInput.getStackName())) {
+				bundle = saveTempalteToS3(requestInput.getStackName(), template);
+			}
 			// provide an pre-signed URL to the template in S3
-			String templateUrl = createS3Url(bundle);
-			// the function executes the create or update.
-			try {
-				function.apply(templateUrl);
-			} catch (AmazonCloudFormationException e) {
-				if (e.getMessage().contains(NO_UPDATES_ARE_TO_BE_PERFORMED)) {
-					logger.info("There were no updates for stack: " + requestInput.getStackName());
-				} else {
-					throw new RuntimeException(e);
+			templateUrl = createS3Url(bundle);
+		}
+		// the function starts the create or update.
+		DeploymentTimeline.Span span = timeline.start(Phase.CREATE_OR_UPDATE, requestInput.getStackName());
+		CompletableFuture<String> started;
+		try {
+			started = function.apply(templateBody, templateUrl);
+		} catch (RuntimeException e) {
+			started = CompletableFuture.failedFuture(e);
+		}
+		started.whenComplete((stackId, error) -> span.close());
+		return started.handle((stackId, error) -> {
+			if (error == null) {
+				return null;
+			}
+			Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+			if (!(cause instanceof AmazonCloudFormationException)) {
+				throw new CompletionException(cause);
+			}
+			if (cause.getMessage().contains(NO_UPDATES_ARE_TO_BE_PERFORMED)) {
+				logger.info("There were no updates for stack: " + requestInput.getStackName());
+				return null;
+			}
+			throw new RuntimeException(cause);
+		});
+	}
+
+	@Override
+	public void createOrUpdateStack(CreateOrUpdateStackRequest request) {
+		join(createOrUpdateStackAsync(request));
+	}
+
+	/**
+	 * The rest of the work runs on the template executor once the describe
+	 * completes, so the planning state of the calling thread is read before the
+	 * describe starts. The caller's request is not changed.
+	 */
+	@Override
+	public CompletableFuture<Void> createOrUpdateStackAsync(CreateOrUpdateStackRequest requestInput) {
+		String fingerprint = StackFingerprint.create(requestInput);
+		CreateOrUpdateStackRequest request = requestInput.copy()
+				.withTags(addFingerprintTag(requestInput.getTags(), fingerprint));
+		List<StackChange> planned = plannedChanges.get();
+		if (planned == null && activePlans.get() > 0) {
+			return CompletableFuture.failedFuture(new IllegalStateException("Cannot create or update stack: '"
+					+ request.getStackName() + "' while planning, the work was handed to a thread that is not planning"));
+		}
+		// minifying, guarding and uploading the template block, so they must not run on the threads of the AWS client.
+		return describeStackAsync(request.getStackName(), false).thenComposeAsync(existing -> {
+			if (planned != null) {
+				StackChange.Type type = existing.isEmpty() ? StackChange.Type.CREATE
+						: isUnchanged(existing.get(), fingerprint) ? StackChange.Type.UNCHANGED : StackChange.Type.UPDATE;
+				logger.info("Planned: " + type + " of stack: '" + request.getStackName() + "'");
+				planned.add(new StackChange(request.getStackName(), type, fingerprint));
+				return CompletableFuture.completedFuture(null);
+			}
+			if (existing.isPresent()) {
+				if (isUnchanged(existing.get(), fingerprint)) {
+					logger.info("Stack: '" + request.getStackName() + "' is unchanged (fingerprint: " + fingerprint
+							+ "), skipping the update.");
+					return CompletableFuture.completedFuture(null);
 				}
 			}
-		} finally {
-			// Delete the template from S3
-			deleteTemplate(bundle);
+			// minified once for both the size guard and the create or update
+			String template = TemplateUtils.minifyJson(request.getTemplateBody());
+			Optional<String> parentTemplate = sizeGuard.guard(request.getStackName(), template, existing,
+					this::uploadNestedTemplate);
+			if (parentTemplate.isPresent()) {
+				template = parentTemplate.get();
+				request.withTemplateBody(template).withTags(addSplitTag(request.getTags()));
+			}
+			if (existing.isPresent()) {
+				return updateStackAsync(request, template);
+			}
+			return createStackAsync(request, template);
+		}, TEMPLATE_EXECUTOR);
+	}
+
+	/**
+	 * Upload the template of a nested stack to S3.
+	 * 
+	 * @param name
+	 * @param template
+	 * @return The URL of the uploaded template.
+	 */
+	String uploadNestedTemplate(String name, String template) {
+		try (DeploymentTimeline.Span span = timeline.start(Phase.S3_UPLOAD, name)) {
+			return createS3Url(saveTempalteToS3(name, template));
 		}
 	}
 
 	@Override
-	public void createOrUpdateStack(CreateOrUpdateStackRequest request) {
-		if (doesStackNameExist(request.getStackName())) {
-			updateStack(request);
-		} else {
-			createStack(request);
+	public void startPlanning() {
+		if (plannedChanges.get() == null) {
+			activePlans.incrementAndGet();
+		}
+		// tasks from propagatePlanning() add to the same list from other threads.
+		plannedChanges.set(Collections.synchronizedList(new LinkedList<>()));
+	}
+
+	@Override
+	public boolean isPlanning() {
+		return plannedChanges.get() != null;
+	}
+
+	@Override
+	public List<StackChange> stopPlanning() {
+		List<StackChange> planned = plannedChanges.get();
+		if (planned == null) {
+			return Collections.emptyList();
+		}
+		plannedChanges.remove();
+		activePlans.decrementAndGet();
+		synchronized (planned) {
+			return new ArrayList<>(planned);
 		}
 	}
 
+	@Override
+	public Executor propagatePlanning(Executor executor) {
+		return task -> {
+			List<StackChange> planned = plannedChanges.get();
+			executor.execute(() -> {
+				List<StackChange> previous = plannedChanges.get();
+				plannedChanges.set(planned);
+				try {
+					task.run();
+				} finally {
+					plannedChanges.set(previous);
+				}
+			});
+		};
+	}
+
 	/**
-	 * Describe the stack with the given name
+	 * Create a copy of the given tags with the fingerprint tag replaced.
+	 * 
+	 * @param tags
+	 * @param fingerprint
+	 * @return
+	 */
+	static List<Tag> addFingerprintTag(List<Tag> tags, String fingerprint) {
+		List<Tag> results = new LinkedList<>();
+		if (tags != null) {
+			tags.stream().filter(t -> !TAG_KEY_STACK_FINGERPRINT.equals(t.getKey())).forEach(results::add);
+		}
+		results.add(new Tag().withKey(TAG_KEY_STACK_FINGERPRINT).withValue(fingerprint));
+		return results;
+	}
+
+	/**
+	 * Create a copy of the given tags that marks the stack as split into nested
+	 * stacks.
+	 * 
+	 * @param tags
+	 * @return
+	 */
+	static List<Tag> addSplitTag(List<Tag> tags) {
+		List<Tag> results = new LinkedList<>();
+		if (tags != null) {
+			tags.stream().filter(t -> !TAG_KEY_NESTED_STACK_SPLIT.equals(t.getKey())).forEach(results::add);
+		}
+		results.add(new Tag().withKey(TAG_KEY_NESTED_STACK_SPLIT).withValue(Boolean.TRUE.toString()));
+		return results;
+	}
+
+	/**
+	 * A stack is unchanged when its last create or update succeeded with the same
+	 * fingerprint.
+	 * 
+	 * @param stack
+	 * @param fingerprint
+	 * @return
+	 */
+	static boolean isUnchanged(Stack stack, String fingerprint) {
+		boolean isComplete = StackStatus.CREATE_COMPLETE.toString().equals(stack.getStackStatus())
+				|| StackStatus.UPDATE_COMPLETE.toString().equals(stack.getStackStatus());
+		return isComplete && StackFingerprint.getFingerprintTag(stack).map(fingerprint::equals).orElse(false);
+	}
+
+	/**
+	 * Describe the stack with the given name. Recent results are served from the
+	 * cache and concurrent requests for the same stack share a single call.
 	 */
 	@Override
 	public Optional<Stack> describeStack(String stackName) throws AmazonCloudFormationException {
+		return describeStack(stackName, false);
+	}
+
+	@Override
+	public CompletableFuture<Optional<Stack>> describeStackAsync(String stackName) {
+		return describeStackAsync(stackName, false);
+	}
+
+	/**
+	 * Describe the stack with the given name.
+	 * 
+	 * @param stackName
+	 * @param forceRefresh When true, the stack is always described and the cache
+	 *                     is updated with the result.
+	 * @return
+	 */
+	Optional<Stack> describeStack(String stackName, boolean forceRefresh) {
+		return join(describeStackAsync(stackName, forceRefresh));
+	}
+
+	/**
+	 * Describe the stack with the given name without blocking.
+	 * 
+	 * @param stackName
+	 * @param forceRefresh When true, the stack is always described and the cache
+	 *                     is updated with the result.
+	 * @return
+	 */
+	CompletableFuture<Optional<Stack>> describeStackAsync(String stackName, boolean forceRefresh) {
+		long now = clock.currentTimeMillis();
+		CachedDescription loader = new CachedDescription();
+		CachedDescription cached = describeCache.compute(stackName, (name, existing) -> {
+			if (!forceRefresh && existing != null && !existing.isExpired(now)) {
+				return existing;
+			}
+			return loader;
+		});
+		if (cached == loader) {
+			describeStackUncachedAsync(stackName).whenComplete((result, error) -> {
+				if (error == null) {
+					loader.complete(result, clock.currentTimeMillis());
+				} else {
+					// failures are not cached.
+					describeCache.remove(stackName, loader);
+					loader.future.completeExceptionally(error);
+				}
+			});
+		}
+		// a copy, so a caller cannot complete the cached future.
+		return cached.future.copy();
+	}
+
+	/**
+	 * Describe the stack with the given name without using the cache.
+	 * 
+	 * @param stackName
+	 * @return
+	 */
+	CompletableFuture<Optional<Stack>> describeStackUncachedAsync(String stackName) {
 		DescribeStacksRequest request = new DescribeStacksRequest().withStackName(stackName);
+		AsyncHandlerFuture<DescribeStacksRequest, DescribeStacksResult> results = new AsyncHandlerFuture<>();
 		try {
-			// throws an exception if it does not exist
-			DescribeStacksResult results = cloudFormationClient.describeStacks(request);
-			if (results.getStacks().size() > 1) {
+			cloudFormationClient.describeStacksAsync(request, results);
+		} catch (RuntimeException e) {
+			results.completeExceptionally(e);
+		}
+		return results.handle((result, error) -> {
+			if (error instanceof AmazonCloudFormationException) {
+				// thrown if it does not exist
+				return Optional.empty();
+			}
+			if (error != null) {
+				throw new CompletionException(error);
+			}
+			if (result.getStacks().size() > 1) {
 				throw new IllegalStateException("More than one stack found for name: " + stackName);
 			}
-			return Optional.of(results.getStacks().get(0));
-		} catch (AmazonCloudFormationException e) {
-			return Optional.empty();
+			return Optional.of(result.getStacks().get(0));
+		});
+	}
+
+	/**
+	 * Remove the given stack from the describe cache and outputs index. Called
+	 * whenever the stack is changed.
+	 * 
+	 * @param stackName
+	 */
+	void invalidateDescribeCache(String stackName) {
+		describeCache.remove(stackName);
+		outputsIndex.invalidate(stackName);
+	}
+
+	/**
+	 * A cached result of describing a single stack. The entry is added before the
+	 * call is made so that concurrent requests wait for the same result.
+	 *
+	 */
+	private static class CachedDescription {
+
+		private final CompletableFuture<Optional<Stack>> future = new CompletableFuture<>();
+		private volatile long loadedOn = -1;
+
+		void complete(Optional<Stack> result, long now) {
+			loadedOn = now;
+			future.complete(result);
+		}
+
+		/**
+		 * A description that is still loading is never expired.
+		 */
+		boolean isExpired(long now) {
+			return loadedOn >= 0 && now - loadedOn > DESCRIBE_CACHE_TTL_MS;
 		}
 	}
 
 	/**
-	 * Save the given template to to S3.
+	 * Save the given template to to S3. Templates are keyed by the hash of their
+	 * content so a template that is already in the bucket is not uploaded again.
+	 * Old templates are removed by the TemplateGarbageCollector.
 	 * 
 	 * @param tempalte
 	 * @return
@@ -186,8 +555,11 @@ public class CloudFormationClientImpl implements CloudFormationClient {
 	SourceBundle saveTempalteToS3(String stackName, String tempalte) {
 		try {
 			String bucket = configuration.getConfigurationBucket();
-			String key = "templates/" + stackName + "-" + UUID.randomUUID() + ".json";
 			byte[] bytes = tempalte.getBytes("UTF-8");
+			String key = TEMPLATE_KEY_PREFIX + stackName + "-" + DigestUtils.sha256Hex(bytes) + ".json";
+			if (isTemplateCurrent(bucket, key)) {
+				return new SourceBundle(bucket, key);
+			}
 			ByteArrayInputStream input = new ByteArrayInputStream(bytes);
 			ObjectMetadata metadata = new ObjectMetadata();
 			metadata.setContentLength(bytes.length);
@@ -199,22 +571,38 @@ public class CloudFormationClientImpl implements CloudFormationClient {
 	}
 
 	/**
-	 * Create a pre-signed URL for the given file.
+	 * A template is current if it exists and was written recently enough that it
+	 * will not be garbage collected while it is in use. Older templates are
+	 * written again to reset their age.
 	 * 
-	 * @param bundle
+	 * @param bucket
+	 * @param key
 	 * @return
 	 */
-	String createS3Url(SourceBundle bundle) {
-		return String.format(S3_URL_TEMPLATE, bundle.getBucket(), bundle.getKey());
+	boolean isTemplateCurrent(String bucket, String key) {
+		ObjectMetadata existing;
+		try {
+			existing = s3Client.getObjectMetadata(bucket, key);
+		} catch (AmazonServiceException e) {
+			if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+				return false;
+			}
+			throw e;
+		}
+		if (existing == null || existing.getLastModified() == null) {
+			return false;
+		}
+		return clock.currentTimeMillis() - existing.getLastModified().getTime() < TEMPLATE_REFRESH_MS;
 	}
 
 	/**
-	 * Delete the template file for the given bundle.
+	 * Create a pre-signed URL for the given file.
 	 * 
 	 * @param bundle
+	 * @return
 	 */
-	void deleteTemplate(SourceBundle bundle) {
-		s3Client.deleteObject(bundle.getBucket(), bundle.getKey());
+	String createS3Url(SourceBundle bundle) {
+		return String.format(S3_URL_TEMPLATE, bundle.getBucket(), bundle.getKey());
 	}
 
 	public boolean isStartedInUpdateRollbackComplete(String stackName) {
@@ -225,14 +613,40 @@ public class CloudFormationClientImpl implements CloudFormationClient {
 
 	@Override
 	public Optional<Stack> waitForStackToComplete(String stackName) throws InterruptedException {
+		if (isPlanning()) {
+			// nothing was changed so there is nothing to wait for.
+			return describeStack(stackName);
+		}
+		try (DeploymentTimeline.Span span = timeline.start(Phase.WAIT, stackName)) {
+			return pollUntilComplete(stackName);
+		}
+	}
+
+	/**
+	 * Poll the given stack until it reaches a complete or failed status.
+	 * 
+	 * @param stackName
+	 * @return
+	 * @throws InterruptedException
+	 */
+	Optional<Stack> pollUntilComplete(String stackName) throws InterruptedException {
 		boolean startedInUpdateRollbackComplete = isStartedInUpdateRollbackComplete(stackName); // Initial state
+		boolean failFast = isFailFast();
+		// each tail reads the events of the stack, so only tail when they are used.
+		boolean tailEvents = failFast || isLogEvents();
+		if (tailEvents) {
+			eventTailer.reset(stackName);
+		}
 		long start = threadProvider.currentTimeMillis();
+		long lastCheckElapse = 0;
+		int attempt = 0;
 		while (true) {
 			long elapse = threadProvider.currentTimeMillis() - start;
 			if (elapse > TIMEOUT_MS) {
 				throw new RuntimeException("Timed out waiting for stack: '" + stackName + "' status to complete");
 			}
-			Optional<Stack> optional = describeStack(stackName);
+			// each poll must see the latest status.
+			Optional<Stack> optional = describeStack(stackName, true);
 			if (optional.isEmpty()) {
 				return Optional.empty();
 			}
@@ -248,9 +662,21 @@ public class CloudFormationClientImpl implements CloudFormationClient {
 			case UPDATE_IN_PROGRESS:
 			case DELETE_IN_PROGRESS:
 			case UPDATE_COMPLETE_CLEANUP_IN_PROGRESS:
+				Optional<StackEvent> failure = tailEvents ? eventTailer.tail(stackName) : Optional.empty();
+				if (failure.isPresent() && failFast) {
+					StackEvent rootCause = failure.get();
+					throw new RuntimeException("Stack '" + stackName + "' failed.  Resource: "
+							+ rootCause.getLogicalResourceId() + " status: " + rootCause.getResourceStatus()
+							+ " with reason: " + rootCause.getResourceStatusReason());
+				}
+				long waitMS = waitStrategy.getWaitTimeMS(stackName, attempt);
+				// The time since the last check is the actual length of the previous wait.
 				logger.info("Waiting for stack: '" + stackName + "' to complete.  Current status: " + status.name()
-						+ "...");
-				threadProvider.sleep(SLEEP_TIME);
+						+ " (" + (elapse - lastCheckElapse) + " ms since last check, attempt: " + attempt
+						+ ", next check in: " + waitMS + " ms)...");
+				lastCheckElapse = elapse;
+				attempt++;
+				threadProvider.sleep(waitMS);
 				break;
 			case UPDATE_ROLLBACK_COMPLETE:
 				if (startedInUpdateRollbackComplete) { // There was nothing to do, state unchanged
@@ -263,29 +689,61 @@ public class CloudFormationClientImpl implements CloudFormationClient {
 		}
 	}
 
-	@Override
-	public String getOutput(String stackName, String outputKey) {
-		String res = null;
-		Stack stack = describeStack(stackName)
-				.orElseThrow(() -> new IllegalStateException("Stack does not exist: " + stackName));
-		List<Output> outputs = stack.getOutputs();
-		for (Output output : outputs) {
-			if (output.getOutputKey().equals(outputKey)) {
-				res = output.getOutputValue();
-				break;
-			}
+	/**
+	 * When true, a wait fails as soon as any resource of the stack fails rather
+	 * than when the stack reaches a terminal status.
+	 * 
+	 * @return
+	 */
+	boolean isFailFast() {
+		return isFailFast(configuration);
+	}
+
+	/**
+	 * Is fail fast enabled in the given configuration?
+	 * 
+	 * @param configuration
+	 * @return
+	 */
+	static boolean isFailFast(Configuration configuration) {
+		try {
+			return configuration.getBooleanProperty(PROPERTY_KEY_STACK_WAIT_FAIL_FAST);
+		} catch (ConfigurationPropertyNotFound e) {
+			return false;
 		}
-		if (res == null) {
-			throw new IllegalArgumentException("The output key " + outputKey + " was not found.");
+	}
+
+	/**
+	 * When true, the events of a stack are logged while it is waited on.
+	 * 
+	 * @return
+	 */
+	boolean isLogEvents() {
+		return isLogEvents(configuration);
+	}
+
+	/**
+	 * Is event logging enabled in the given configuration?
+	 * 
+	 * @param configuration
+	 * @return
+	 */
+	static boolean isLogEvents(Configuration configuration) {
+		try {
+			return configuration.getBooleanProperty(PROPERTY_KEY_STACK_WAIT_LOG_EVENTS);
+		} catch (ConfigurationPropertyNotFound e) {
+			return false;
 		}
-		return res;
+	}
+
+	@Override
+	public String getOutput(String stackName, String outputKey) {
+		return outputsIndex.getOutput(stackName, outputKey);
 	}
 
 	@Override
 	public Stream<Stack> streamOverAllStacks() {
-		return StreamSupport.stream(
-				Spliterators.spliteratorUnknownSize(new PageIterator<>(new StackPageProvider()), Spliterator.ORDERED),
-				false);
+		return PrefetchingPageSpliterator.stream(new StackPageProvider());
 	}
 
 	/**
@@ -297,22 +755,69 @@ public class CloudFormationClientImpl implements CloudFormationClient {
 		private boolean isDone = false;
 		private String nextPageToken;
 		
+		/**
+		 * An empty page ends the stream, so keep fetching past any empty page that
+		 * still has a next token.
+		 */
 		public List<Stack> nextPage() {
-			if(isDone) {
-				return Collections.emptyList();
+			List<Stack> page = Collections.emptyList();
+			while (!isDone && page.isEmpty()) {
+				DescribeStacksResult r = cloudFormationClient.describeStacks(new DescribeStacksRequest().withNextToken(nextPageToken));
+				nextPageToken = r.getNextToken();
+				if (nextPageToken == null) {
+					isDone = true;
+				}
+				page = r.getStacks();
 			}
-			DescribeStacksResult r = cloudFormationClient.describeStacks(new DescribeStacksRequest().withNextToken(nextPageToken));
-			nextPageToken = r.getNextToken();
-			if(nextPageToken == null) {
-				isDone = true;
+			return page;
+		}
+	}
+
+	@Override
+	public Stream<StackSummary> streamOverStackSummaries(StackStatus... statusFilter) {
+		return PrefetchingPageSpliterator.stream(new StackSummaryPageProvider(statusFilter));
+	}
+
+	/**
+	 * Stateful stack summary PageProvider for listing stacks using pagination.
+	 *
+	 */
+	private class StackSummaryPageProvider implements PageIterator.PageProvider<StackSummary> {
+
+		private final StackStatus[] statusFilter;
+		private boolean isDone = false;
+		private String nextPageToken;
+
+		StackSummaryPageProvider(StackStatus[] statusFilter) {
+			this.statusFilter = statusFilter;
+		}
+
+		/**
+		 * A status filter can leave a page empty while more pages follow, so keep
+		 * fetching past any empty page that still has a next token.
+		 */
+		public List<StackSummary> nextPage() {
+			List<StackSummary> page = Collections.emptyList();
+			while (!isDone && page.isEmpty()) {
+				ListStacksResult r = cloudFormationClient.listStacks(
+						new ListStacksRequest().withStackStatusFilters(statusFilter).withNextToken(nextPageToken));
+				nextPageToken = r.getNextToken();
+				if (nextPageToken == null) {
+					isDone = true;
+				}
+				page = r.getStackSummaries();
 			}
-			return r.getStacks();
+			return page;
 		}
 	}
 
 	@Override
 	public void deleteStack(String stackName) {
-		cloudFormationClient.deleteStack(new DeleteStackRequest().withStackName(stackName));
+		try {
+			cloudFormationClient.deleteStack(new DeleteStackRequest().withStackName(stackName));
+		} finally {
+			invalidateDescribeCache(stackName);
+		}
 	}
 
 }
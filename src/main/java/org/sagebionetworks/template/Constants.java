@@ -70,9 +70,33 @@ public class Constants {
 	public static final String PROPERTY_KEY_VPC_PEERING_ACCEPT_ROLE_ARN = "org.sagebionetworks.vpc.peering.accept.role.arn";
 	public static final String PROPERTY_KEY_OLD_VPC_ID = "org.sagebionetworks.vpc.old.vpc.id";
 	public static final String PROPERTY_KEY_OLD_VPC_CIDR = "org.sagebionetworks.vpc.old.vpc.cidr";
+	// When true, all private subnet color stacks are deployed at the same time (default false).
+	public static final String PROPERTY_KEY_VPC_PRIVATE_SUBNETS_PARALLEL = "org.sagebionetworks.vpc.private.subnets.parallel";
 	// repo
 	public static final String PROPERTY_KEY_STACK = "org.sagebionetworks.stack";
 	public static final String PROPERTY_KEY_INSTANCE = "org.sagebionetworks.instance";
+	// When true, waiting on a stack fails on the first failed resource event (default false).
+	public static final String PROPERTY_KEY_STACK_WAIT_FAIL_FAST = "org.sagebionetworks.stack.wait.fail.fast";
+	// When true, the events of each stack are logged while it is waited on (default false).
+	public static final String PROPERTY_KEY_STACK_WAIT_LOG_EVENTS = "org.sagebionetworks.stack.wait.log.events";
+	// The maximum number of deployment graph nodes that are deployed at the same time (default 4).
+	public static final String PROPERTY_KEY_DEPLOYMENT_MAX_PARALLELISM = "org.sagebionetworks.deployment.max.parallelism";
+	// The number of deployment graph nodes whose templates are rendered at the same time before deploying (default the number of processors).
+	public static final String PROPERTY_KEY_DEPLOYMENT_PRERENDER_PARALLELISM = "org.sagebionetworks.deployment.prerender.parallelism";
+	// When true, deployment steps that already succeeded with the same inputs are skipped (default false).
+	public static final String PROPERTY_KEY_DEPLOYMENT_RESUME = "org.sagebionetworks.deployment.resume";
+	// The file of the deployment checkpoint journal (default stack-builder-journal.log).
+	public static final String PROPERTY_KEY_DEPLOYMENT_JOURNAL_FILE = "org.sagebionetworks.deployment.journal.file";
+	// The directory where the deployment timeline and trace are written (default the working directory).
+	public static final String PROPERTY_KEY_DEPLOYMENT_TIMING_DIRECTORY = "org.sagebionetworks.deployment.timing.directory";
+	// The sustained rate of requests to an AWS service, followed by '.' and the service name without spaces, such as: org.sagebionetworks.aws.requests.per.second.AmazonS3 (default depends on the service).
+	public static final String PROPERTY_KEY_AWS_REQUESTS_PER_SECOND_PREFIX = "org.sagebionetworks.aws.requests.per.second";
+	// The maximum number of concurrent requests to each AWS service (default 16).
+	public static final String PROPERTY_KEY_AWS_MAX_CONCURRENT_REQUESTS = "org.sagebionetworks.aws.max.concurrent.requests";
+	// The percentage of a CloudFormation template limit at which a template is split into nested stacks (default 80).
+	public static final String PROPERTY_KEY_TEMPLATE_SPLIT_THRESHOLD_PERCENT = "org.sagebionetworks.template.split.threshold.percent";
+	// When true, an existing stack that was never split may be split, which replaces the moved resources (default false).
+	public static final String PROPERTY_KEY_TEMPLATE_SPLIT_EXISTING_STACKS = "org.sagebionetworks.template.split.existing.stacks";
 
 	// CDNs
 	//	aliases for a stack are: prod, staging, tst (i.e. used to identify corresponding instances of a stack)
@@ -153,6 +177,10 @@ public class Constants {
 	public static final String TAG_KEY_DEPARTMENT = "Department";
 	public static final String TAG_KEY_PROJECT = "Project";
 	public static final String TAG_KEY_OWNER_EMAIL = "OwnerEmail";
+	// SHA-256 of the template, parameters and tags last deployed by the builder.
+	public static final String TAG_KEY_STACK_FINGERPRINT = "StackBuilderFingerprint";
+	// Marks a stack whose resource groups were split into nested stacks by the builder.
+	public static final String TAG_KEY_NESTED_STACK_SPLIT = "StackBuilderNestedSplit";
 
 	// templates
 	public static final String TEMPLATES_VPC_MAIN_VPC_JSON_VTP = "templates/vpc/main-vpc.json.vtp";
@@ -137,6 +137,17 @@ public class CreateOrUpdateStackRequest {
 		return this;
 	}
 
+	/**
+	 * A copy of this request that can be changed without changing this request.
+	 * 
+	 * @return
+	 */
+	public CreateOrUpdateStackRequest copy() {
+		return new CreateOrUpdateStackRequest().withStackName(stackName).withTemplateBody(templateBody)
+				.withParameters(parameters).withCapabilities(capabilities).withTags(tags)
+				.withEnableTerminationProtection(enableTerminationProtection);
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
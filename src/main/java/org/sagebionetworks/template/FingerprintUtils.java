@@ -0,0 +1,41 @@
+package org.sagebionetworks.template;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Builds the canonical forms that stack and checkpoint fingerprints are
+ * computed from.
+ *
+ */
+public class FingerprintUtils {
+
+	/**
+	 * Create a fingerprint of the given input values.
+	 *
+	 * @param values
+	 * @return Hex encoded SHA-256 of the values.
+	 */
+	public static String fingerprint(String... values) {
+		StringBuilder canonical = new StringBuilder();
+		for (String value : values) {
+			append(canonical, value);
+		}
+		return DigestUtils.sha256Hex(canonical.toString());
+	}
+
+	/**
+	 * Append a single value to a canonical form. Each value is length prefixed
+	 * so that no two different lists of values share a canonical form.
+	 *
+	 * @param canonical
+	 * @param value
+	 */
+	public static void append(StringBuilder canonical, String value) {
+		if (value == null) {
+			canonical.append("null");
+		} else {
+			canonical.append(value.length()).append(':').append(value);
+		}
+		canonical.append('\n');
+	}
+}
@@ -0,0 +1,31 @@
+package org.sagebionetworks.template;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helpers for waiting on the {@link CompletableFuture}s of background tasks
+ * and asynchronous AWS calls.
+ *
+ */
+public class FutureUtils {
+
+	/**
+	 * Wait for the given future and throw the cause of its failure, so a caller
+	 * sees the same exception as it would from the blocking call.
+	 * 
+	 * @param <T>
+	 * @param future
+	 * @return
+	 */
+	public static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+}
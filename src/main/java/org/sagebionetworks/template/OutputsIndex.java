@@ -0,0 +1,171 @@
+package org.sagebionetworks.template;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.util.Clock;
+
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.model.AmazonCloudFormationException;
+import com.amazonaws.services.cloudformation.model.Export;
+import com.amazonaws.services.cloudformation.model.ListExportsRequest;
+import com.amazonaws.services.cloudformation.model.ListExportsResult;
+import com.amazonaws.services.cloudformation.model.Output;
+import com.amazonaws.services.cloudformation.model.Stack;
+
+/**
+ * In-memory index of stack outputs. All exports are loaded with a single
+ * paginated ListExports sweep the first time an output is requested. Outputs
+ * that are not exported under the region-stack-key naming convention used by
+ * the templates are loaded from a single describe of the
+ * stack, after which every output of that stack is served from memory.
+ * Everything is loaded again once it is older than {@link #TIME_TO_LIVE_MS}, so
+ * stacks changed by another process are eventually seen.
+ *
+ */
+public class OutputsIndex {
+
+	public static final String EXPORT_REGION_PREFIX = "us-east-1";
+	/**
+	 * How long the loaded exports and stack outputs are used before they are
+	 * loaded again.
+	 */
+	public static final long TIME_TO_LIVE_MS = 5 * 60 * 1000;
+
+	private final AmazonCloudFormation cloudFormationClient;
+	private final Function<String, Optional<Stack>> stackDescriber;
+	private final Clock clock;
+	private final Logger logger;
+	private Map<String, Export> exports;
+	private long exportsLoadedOn;
+	private final Map<String, Map<String, String>> stackOutputs = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 * @param cloudFormationClient
+	 * @param stackDescriber       Used to describe a stack when its outputs are
+	 *                             not exported.
+	 * @param clock
+	 * @param logger
+	 */
+	public OutputsIndex(AmazonCloudFormation cloudFormationClient, Function<String, Optional<Stack>> stackDescriber,
+			Clock clock, Logger logger) {
+		super();
+		this.cloudFormationClient = cloudFormationClient;
+		this.stackDescriber = stackDescriber;
+		this.clock = clock;
+		this.logger = logger;
+	}
+
+	/**
+	 * Get the value of an output of the given stack.
+	 *
+	 * @param stackName
+	 * @param outputKey
+	 * @return
+	 * @throws IllegalStateException    If the stack does not exist.
+	 * @throws IllegalArgumentException If the stack does not have the output.
+	 */
+	public String getOutput(String stackName, String outputKey) {
+		Export export = getExports().get(createExportName(stackName, outputKey));
+		if (export != null) {
+			return export.getValue();
+		}
+		Map<String, String> outputs = stackOutputs.computeIfAbsent(stackName, this::loadStackOutputs);
+		String value = outputs.get(outputKey);
+		if (value == null) {
+			throw new IllegalArgumentException("The output key " + outputKey + " was not found.");
+		}
+		return value;
+	}
+
+	/**
+	 * Forget everything known about the outputs of the given stack. Called
+	 * whenever the stack is changed.
+	 *
+	 * @param stackName
+	 */
+	public synchronized void invalidate(String stackName) {
+		stackOutputs.remove(stackName);
+		if (exports != null) {
+			exports.values().removeIf(e -> stackName.equals(getStackName(e.getExportingStackId())));
+		}
+	}
+
+	/**
+	 * The name an output is exported under by the templates.
+	 *
+	 * @param stackName
+	 * @param outputKey
+	 * @return
+	 */
+	static String createExportName(String stackName, String outputKey) {
+		return EXPORT_REGION_PREFIX + "-" + stackName + "-" + outputKey;
+	}
+
+	/**
+	 * Extract the stack name from a stack ID of the form:
+	 * arn:aws:cloudformation:&lt;region&gt;:&lt;account&gt;:stack/&lt;name&gt;/&lt;uuid&gt;
+	 *
+	 * @param stackId
+	 * @return
+	 */
+	static String getStackName(String stackId) {
+		if (stackId == null) {
+			return null;
+		}
+		String[] split = stackId.split("/");
+		return split.length > 1 ? split[1] : stackId;
+	}
+
+	/**
+	 * Lazily load all of the exports of the account, loading them again once they
+	 * expire. The outputs read from stacks expire with the exports.
+	 *
+	 * @return
+	 */
+	synchronized Map<String, Export> getExports() {
+		long now = clock.currentTimeMillis();
+		if (exports == null || now - exportsLoadedOn > TIME_TO_LIVE_MS) {
+			stackOutputs.clear();
+			exports = loadExports();
+			exportsLoadedOn = now;
+		}
+		return exports;
+	}
+
+	Map<String, Export> loadExports() {
+		Map<String, Export> results = new ConcurrentHashMap<>();
+		try {
+			String nextToken = null;
+			do {
+				ListExportsResult page = cloudFormationClient
+						.listExports(new ListExportsRequest().withNextToken(nextToken));
+				page.getExports().forEach(e -> results.put(e.getName(), e));
+				nextToken = page.getNextToken();
+			} while (nextToken != null);
+		} catch (AmazonCloudFormationException e) {
+			// Outputs will be read from each stack instead.
+			logger.warn("Failed to list exports: " + e.getMessage());
+			results.clear();
+		}
+		return results;
+	}
+
+	Map<String, String> loadStackOutputs(String stackName) {
+		Stack stack = stackDescriber.apply(stackName)
+				.orElseThrow(() -> new IllegalStateException("Stack does not exist: " + stackName));
+		Map<String, String> outputs = new HashMap<>();
+		List<Output> list = stack.getOutputs();
+		if (list != null) {
+			list.forEach(o -> outputs.put(o.getOutputKey(), o.getOutputValue()));
+		}
+		return outputs;
+	}
+
+}
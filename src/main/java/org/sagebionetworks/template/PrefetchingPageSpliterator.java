@@ -0,0 +1,157 @@
+package org.sagebionetworks.template;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A Spliterator driven by a PageProvider that fetches the following pages on a
+ * background thread while the current page is being consumed. Page providers
+ * are stateful so the pages are always fetched one after the other, and at
+ * most 'lookahead' pages are fetched ahead of the consumer.
+ *
+ * @param <T>
+ */
+public class PrefetchingPageSpliterator<T> implements Spliterator<T> {
+
+	/**
+	 * The default number of pages fetched ahead of the consumer.
+	 */
+	public static final int DEFAULT_LOOKAHEAD = 2;
+
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(
+			new ThreadFactoryBuilder().setNameFormat("page-prefetch-%d").setDaemon(true).build());
+
+	private final PageIterator.PageProvider<T> provider;
+	private final Executor executor;
+	private final int lookahead;
+	private final Deque<CompletableFuture<List<T>>> pending;
+	private Iterator<T> page;
+	private boolean isDone;
+
+	/**
+	 *
+	 * @param provider
+	 * @param executor  The executor used to fetch the pages.
+	 * @param lookahead The maximum number of pages fetched ahead of the consumer.
+	 */
+	public PrefetchingPageSpliterator(PageIterator.PageProvider<T> provider, Executor executor, int lookahead) {
+		if (lookahead < 1) {
+			throw new IllegalArgumentException("Lookahead must be at least one");
+		}
+		this.provider = provider;
+		this.executor = executor;
+		this.lookahead = lookahead;
+		this.pending = new ArrayDeque<>(lookahead);
+		this.isDone = false;
+	}
+
+	/**
+	 * Create a sequential Stream over all of the pages of the given provider
+	 * using the default executor and lookahead.
+	 *
+	 * @param <T>
+	 * @param provider
+	 * @return
+	 */
+	public static <T> Stream<T> stream(PageIterator.PageProvider<T> provider) {
+		PrefetchingPageSpliterator<T> spliterator = new PrefetchingPageSpliterator<>(provider, DEFAULT_EXECUTOR,
+				DEFAULT_LOOKAHEAD);
+		return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		while (page == null || !page.hasNext()) {
+			if (isDone) {
+				return false;
+			}
+			fillPending();
+			List<T> newPage = join(pending.poll());
+			if (newPage.isEmpty()) {
+				close();
+				return false;
+			}
+			// start the next fetch before the page is consumed.
+			fillPending();
+			page = newPage.iterator();
+		}
+		action.accept(page.next());
+		return true;
+	}
+
+	/**
+	 * Start fetching pages until the lookahead is full. Each fetch is chained to
+	 * the previous fetch and the provider is never called after it returns an
+	 * empty page.
+	 */
+	void fillPending() {
+		while (pending.size() < lookahead) {
+			CompletableFuture<List<T>> previous = pending.peekLast();
+			CompletableFuture<List<T>> next;
+			if (previous == null) {
+				next = CompletableFuture.supplyAsync(provider::nextPage, executor);
+			} else {
+				next = previous.thenApplyAsync(p -> p.isEmpty() ? p : provider.nextPage(), executor);
+			}
+			pending.add(next);
+		}
+	}
+
+	/**
+	 * Stop fetching pages.
+	 */
+	public void close() {
+		isDone = true;
+		page = null;
+		pending.forEach(f -> f.cancel(false));
+		pending.clear();
+	}
+
+	/**
+	 * Wait for the given page, re-throwing any failure of the provider.
+	 *
+	 * @param future
+	 * @return
+	 */
+	List<T> join(CompletableFuture<List<T>> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			close();
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	@Override
+	public Spliterator<T> trySplit() {
+		// pages must be fetched in order.
+		return null;
+	}
+
+	@Override
+	public long estimateSize() {
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED;
+	}
+
+}
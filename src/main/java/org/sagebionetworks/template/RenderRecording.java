@@ -0,0 +1,47 @@
+package org.sagebionetworks.template;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The templates rendered on a single thread while the {@link TemplateRenderer}
+ * was recording, in the order they were rendered.
+ *
+ */
+public class RenderRecording {
+
+	private final List<RenderedTemplate> templates = new ArrayList<>();
+	private String failedTemplate;
+
+	public RenderRecording add(RenderedTemplate template) {
+		templates.add(template);
+		return this;
+	}
+
+	/**
+	 * Record that the given template failed to render.
+	 * 
+	 * @param templatePath
+	 * @return
+	 */
+	public RenderRecording failed(String templatePath) {
+		if (failedTemplate == null) {
+			failedTemplate = templatePath;
+		}
+		return this;
+	}
+
+	public List<RenderedTemplate> getTemplates() {
+		return Collections.unmodifiableList(templates);
+	}
+
+	/**
+	 * @return The path of the first template that failed to render.
+	 */
+	public Optional<String> getFailedTemplate() {
+		return Optional.ofNullable(failedTemplate);
+	}
+
+}
@@ -0,0 +1,63 @@
+package org.sagebionetworks.template;
+
+import java.util.Objects;
+
+/**
+ * The result of rendering a single template.
+ *
+ */
+public class RenderedTemplate {
+
+	private final String templatePath;
+	private final boolean json;
+	private final String output;
+
+	/**
+	 * @param templatePath The class path of the template.
+	 * @param json         True if the template was rendered as minified JSON.
+	 * @param output
+	 */
+	public RenderedTemplate(String templatePath, boolean json, String output) {
+		super();
+		this.templatePath = templatePath;
+		this.json = json;
+		this.output = output;
+	}
+
+	public String getTemplatePath() {
+		return templatePath;
+	}
+
+	public boolean isJson() {
+		return json;
+	}
+
+	public String getOutput() {
+		return output;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(templatePath, json, output);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		RenderedTemplate other = (RenderedTemplate) obj;
+		return Objects.equals(templatePath, other.templatePath) && json == other.json
+				&& Objects.equals(output, other.output);
+	}
+
+	@Override
+	public String toString() {
+		return "RenderedTemplate [templatePath=" + templatePath + ", json=" + json + ", length="
+				+ (output == null ? 0 : output.length()) + "]";
+	}
+
+}
@@ -0,0 +1,67 @@
+package org.sagebionetworks.template;
+
+import java.util.Objects;
+
+/**
+ * A change to a single stack that was planned rather than made.
+ *
+ */
+public class StackChange {
+
+	public enum Type {
+		CREATE, UPDATE, UNCHANGED
+	}
+
+	private final String stackName;
+	private final Type type;
+	private final String fingerprint;
+
+	/**
+	 *
+	 * @param stackName
+	 * @param type
+	 * @param fingerprint The fingerprint of the request that would be sent.
+	 */
+	public StackChange(String stackName, Type type, String fingerprint) {
+		super();
+		this.stackName = stackName;
+		this.type = type;
+		this.fingerprint = fingerprint;
+	}
+
+	public String getStackName() {
+		return stackName;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(fingerprint, stackName, type);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		StackChange other = (StackChange) obj;
+		return Objects.equals(fingerprint, other.fingerprint) && Objects.equals(stackName, other.stackName)
+				&& type == other.type;
+	}
+
+	@Override
+	public String toString() {
+		return type + " " + stackName;
+	}
+
+}
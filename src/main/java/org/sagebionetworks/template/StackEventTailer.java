@@ -0,0 +1,33 @@
+package org.sagebionetworks.template;
+
+import java.util.Optional;
+
+import com.amazonaws.services.cloudformation.model.StackEvent;
+
+/**
+ * Incrementally reads and logs the events of stacks while they are waited on.
+ *
+ */
+public interface StackEventTailer {
+
+	/**
+	 * Read and log the events of the given stack that are newer than the events
+	 * read by the previous call for the same stack. The first call for a stack
+	 * reads back to the start of the stack's current operation.
+	 * 
+	 * @param stackName
+	 * @return The oldest of the new events that reports a resource that failed
+	 *         to create or update, if any. This is the root cause of the
+	 *         failure.
+	 */
+	public Optional<StackEvent> tail(String stackName);
+
+	/**
+	 * Forget which events of the given stack have been read so that the next call
+	 * to {@link #tail(String)} starts at the current operation.
+	 * 
+	 * @param stackName
+	 */
+	public void reset(String stackName);
+
+}
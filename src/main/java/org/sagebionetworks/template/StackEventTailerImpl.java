@@ -0,0 +1,140 @@
+package org.sagebionetworks.template;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.model.DescribeStackEventsRequest;
+import com.amazonaws.services.cloudformation.model.DescribeStackEventsResult;
+import com.amazonaws.services.cloudformation.model.ResourceStatus;
+import com.amazonaws.services.cloudformation.model.StackEvent;
+import com.google.inject.Inject;
+
+/**
+ * DescribeStackEvents returns the newest events first, so each call reads
+ * pages only until it reaches the newest event of the previous call (the
+ * high-water mark) and never reads an old event twice.
+ *
+ */
+public class StackEventTailerImpl implements StackEventTailer {
+
+	public static final String STACK_RESOURCE_TYPE = "AWS::CloudFormation::Stack";
+	public static final String FAILED_SUFFIX = "_FAILED";
+
+	/**
+	 * The failed status of a resource that fails the operation. A resource that
+	 * fails to delete, such as during the cleanup of an update, does not.
+	 */
+	static final Set<String> FAILURE_STATUS = Set.of(ResourceStatus.CREATE_FAILED.toString(),
+			ResourceStatus.UPDATE_FAILED.toString());
+
+	/**
+	 * The status of the event on the stack itself that starts an operation.
+	 */
+	static final Set<String> OPERATION_START_STATUS = Set.of(ResourceStatus.CREATE_IN_PROGRESS.toString(),
+			ResourceStatus.UPDATE_IN_PROGRESS.toString(), ResourceStatus.DELETE_IN_PROGRESS.toString(),
+			ResourceStatus.IMPORT_IN_PROGRESS.toString());
+
+	private final AmazonCloudFormation cloudFormationClient;
+	private final Logger logger;
+	private final Map<String, String> highWaterMarks = new ConcurrentHashMap<>();
+
+	@Inject
+	public StackEventTailerImpl(AmazonCloudFormation cloudFormationClient, LoggerFactory loggerFactory) {
+		super();
+		this.cloudFormationClient = cloudFormationClient;
+		this.logger = loggerFactory.getLogger(StackEventTailerImpl.class);
+	}
+
+	@Override
+	public Optional<StackEvent> tail(String stackName) {
+		List<StackEvent> newEvents;
+		try {
+			newEvents = readNewEvents(stackName, highWaterMarks.get(stackName));
+		} catch (AmazonClientException e) {
+			// The events are informational so a failure to read them must not stop the wait.
+			logger.warn("Failed to read the events of stack: '" + stackName + "': " + e.getMessage());
+			return Optional.empty();
+		}
+		if (newEvents.isEmpty()) {
+			return Optional.empty();
+		}
+		highWaterMarks.put(stackName, newEvents.get(0).getEventId());
+		// log in the order the events occurred.
+		Collections.reverse(newEvents);
+		Optional<StackEvent> rootCause = Optional.empty();
+		for (StackEvent event : newEvents) {
+			String message = "Stack: '" + stackName + "' resource: " + event.getLogicalResourceId() + " ("
+					+ event.getResourceType() + ") " + event.getResourceStatus()
+					+ (event.getResourceStatusReason() == null ? "" : " reason: " + event.getResourceStatusReason());
+			if (event.getResourceStatus() != null && event.getResourceStatus().endsWith(FAILED_SUFFIX)) {
+				logger.warn(message);
+				if (rootCause.isEmpty() && isResourceFailure(stackName, event)) {
+					rootCause = Optional.of(event);
+				}
+			} else {
+				logger.info(message);
+			}
+		}
+		return rootCause;
+	}
+
+	@Override
+	public void reset(String stackName) {
+		highWaterMarks.remove(stackName);
+	}
+
+	/**
+	 * Read the events that are newer than the given high-water mark.
+	 * 
+	 * @param stackName
+	 * @param highWaterMark The ID of the newest event that has already been read.
+	 *                      When null, events are read back to the start of the
+	 *                      current operation.
+	 * @return The new events, newest first.
+	 */
+	List<StackEvent> readNewEvents(String stackName, String highWaterMark) {
+		List<StackEvent> newEvents = new LinkedList<>();
+		String nextToken = null;
+		do {
+			DescribeStackEventsResult result = cloudFormationClient.describeStackEvents(
+					new DescribeStackEventsRequest().withStackName(stackName).withNextToken(nextToken));
+			for (StackEvent event : result.getStackEvents()) {
+				if (highWaterMark != null && highWaterMark.equals(event.getEventId())) {
+					return newEvents;
+				}
+				newEvents.add(event);
+				if (highWaterMark == null && isOperationStart(stackName, event)) {
+					return newEvents;
+				}
+			}
+			nextToken = result.getNextToken();
+		} while (nextToken != null);
+		return newEvents;
+	}
+
+	static boolean isStackEvent(String stackName, StackEvent event) {
+		return STACK_RESOURCE_TYPE.equals(event.getResourceType()) && stackName.equals(event.getLogicalResourceId());
+	}
+
+	static boolean isOperationStart(String stackName, StackEvent event) {
+		return isStackEvent(stackName, event) && OPERATION_START_STATUS.contains(event.getResourceStatus());
+	}
+
+	/**
+	 * A resource of the stack, rather than the stack itself, failed to create or
+	 * update.
+	 */
+	static boolean isResourceFailure(String stackName, StackEvent event) {
+		return FAILURE_STATUS.contains(event.getResourceStatus()) && !isStackEvent(stackName, event);
+	}
+
+}
@@ -0,0 +1,84 @@
+package org.sagebionetworks.template;
+
+import static org.sagebionetworks.template.Constants.TAG_KEY_STACK_FINGERPRINT;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.amazonaws.services.cloudformation.model.Parameter;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.Tag;
+
+/**
+ * Computes a SHA-256 fingerprint of everything that is sent to CloudFormation
+ * for a stack so an unchanged stack can be detected without calling
+ * UpdateStack.
+ *
+ */
+public class StackFingerprint {
+
+	/**
+	 * Create the fingerprint of the given request. The fingerprint covers the
+	 * template body, parameters, capabilities, tags (other than the fingerprint
+	 * tag itself) and termination protection. Parameters, capabilities and tags
+	 * are sorted so their order does not change the fingerprint.
+	 *
+	 * @param request
+	 * @return Hex encoded SHA-256 of the canonical form of the request.
+	 */
+	public static String create(CreateOrUpdateStackRequest request) {
+		if (request == null) {
+			throw new IllegalArgumentException("Request cannot be null");
+		}
+		StringBuilder canonical = new StringBuilder();
+		append(canonical, "stackName", request.getStackName());
+		append(canonical, "templateBody", request.getTemplateBody());
+		if (request.getParameters() != null) {
+			Arrays.stream(request.getParameters())
+					.sorted(Comparator.comparing(Parameter::getParameterKey, Comparator.nullsFirst(Comparator.naturalOrder())))
+					.forEach(p -> {
+						append(canonical, "parameterKey", p.getParameterKey());
+						append(canonical, "parameterValue", p.getParameterValue());
+						append(canonical, "usePreviousValue", String.valueOf(p.getUsePreviousValue()));
+					});
+		}
+		if (request.getCapabilities() != null) {
+			Arrays.stream(request.getCapabilities()).sorted().forEach(c -> append(canonical, "capability", c));
+		}
+		if (request.getTags() != null) {
+			request.getTags().stream().filter(t -> !TAG_KEY_STACK_FINGERPRINT.equals(t.getKey()))
+					.sorted(Comparator.comparing(Tag::getKey, Comparator.nullsFirst(Comparator.naturalOrder())))
+					.forEach(t -> {
+						append(canonical, "tagKey", t.getKey());
+						append(canonical, "tagValue", t.getValue());
+					});
+		}
+		append(canonical, "enableTerminationProtection", String.valueOf(request.getEnableTerminationProtection()));
+		return DigestUtils.sha256Hex(canonical.toString());
+	}
+
+	/**
+	 * Get the fingerprint tag of a deployed stack.
+	 *
+	 * @param stack
+	 * @return {@link Optional#empty()} if the stack does not have a fingerprint
+	 *         tag.
+	 */
+	public static Optional<String> getFingerprintTag(Stack stack) {
+		List<Tag> tags = stack.getTags();
+		if (tags == null) {
+			return Optional.empty();
+		}
+		return tags.stream().filter(t -> TAG_KEY_STACK_FINGERPRINT.equals(t.getKey())).map(Tag::getValue)
+				.findFirst();
+	}
+
+	private static void append(StringBuilder builder, String name, String value) {
+		builder.append(name).append(':');
+		FingerprintUtils.append(builder, value);
+	}
+}
@@ -0,0 +1,21 @@
+package org.sagebionetworks.template;
+
+/**
+ * Abstraction for deciding how long to wait between status checks of a stack
+ * that is still in progress.
+ *
+ */
+public interface StackWaitStrategy {
+
+	/**
+	 * Get the number of milliseconds to wait before the next status check of the
+	 * given stack.
+	 *
+	 * @param stackName The name of the stack being waited on.
+	 * @param attempt   The zero based number of checks that have already found the
+	 *                  stack in progress.
+	 * @return
+	 */
+	public long getWaitTimeMS(String stackName, int attempt);
+
+}
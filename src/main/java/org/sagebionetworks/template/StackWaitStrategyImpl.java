@@ -0,0 +1,83 @@
+package org.sagebionetworks.template;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import com.google.inject.Inject;
+
+/**
+ * Exponential backoff with jitter. The floor and ceiling of the wait depend on
+ * the type of stack being waited on, since a stack with databases takes far
+ * longer to settle than a stack of security groups.
+ *
+ */
+public class StackWaitStrategyImpl implements StackWaitStrategy {
+
+	/**
+	 * The wait bounds for each type of stack. The first type with a matching name
+	 * pattern is used.
+	 */
+	enum StackType {
+		// The shared resources include the RDS instances.
+		SHARED_RESOURCES(".*-shared-resources", 15_000L, 60_000L),
+		// repo, workers and portal Elastic Beanstalk environments.
+		BEANSTALK_ENVIRONMENT("(repo|workers|portal)-.+-\\d+", 10_000L, 30_000L),
+		DEFAULT(".*", 2_000L, 20_000L);
+
+		Pattern namePattern;
+		long floorMS;
+		long ceilingMS;
+
+		StackType(String nameRegex, long floorMS, long ceilingMS) {
+			this.namePattern = Pattern.compile(nameRegex);
+			this.floorMS = floorMS;
+			this.ceilingMS = ceilingMS;
+		}
+
+		/**
+		 * Find the type of the stack with the given name.
+		 *
+		 * @param stackName
+		 * @return
+		 */
+		static StackType fromStackName(String stackName) {
+			for (StackType type : values()) {
+				if (type.namePattern.matcher(stackName).matches()) {
+					return type;
+				}
+			}
+			return DEFAULT;
+		}
+	}
+
+	private final Random random;
+
+	@Inject
+	public StackWaitStrategyImpl() {
+		this(new Random());
+	}
+
+	StackWaitStrategyImpl(Random random) {
+		this.random = random;
+	}
+
+	@Override
+	public long getWaitTimeMS(String stackName, int attempt) {
+		if (stackName == null) {
+			throw new IllegalArgumentException("Stack name cannot be null");
+		}
+		if (attempt < 0) {
+			throw new IllegalArgumentException("Attempt cannot be negative");
+		}
+		StackType type = StackType.fromStackName(stackName);
+		// floor * 2^attempt without overflowing.
+		long backoff = type.floorMS << Math.min(attempt, 20);
+		long capped = Math.min(type.ceilingMS, backoff);
+		// Equal jitter: keep half of the backoff and randomize the other half so
+		// watchers that started together do not poll together.
+		long half = capped / 2;
+		long jittered = half + (long) (random.nextDouble() * (capped - half));
+		return Math.max(type.floorMS, jittered);
+	}
+
+}
@@ -0,0 +1,25 @@
+package org.sagebionetworks.template;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.amazonaws.services.cloudformation.model.Stack;
+
+/**
+ * Watches any number of stacks until they complete, resolving all of them from
+ * a single shared poll loop.
+ *
+ */
+public interface StackWatcher {
+
+	/**
+	 * Start watching the stack with the given name. Watching a stack that is
+	 * already being watched returns the same future.
+	 *
+	 * @param stackName
+	 * @return A future that is completed with the stack once it reaches a complete
+	 *         status, or completed exceptionally if the stack fails, times out or
+	 *         does not exist.
+	 */
+	public CompletableFuture<Stack> watch(String stackName);
+
+}
@@ -0,0 +1,275 @@
+package org.sagebionetworks.template;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.template.config.Configuration;
+
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackEvent;
+import com.amazonaws.services.cloudformation.model.StackStatus;
+import com.google.inject.Inject;
+
+/**
+ * A StackWatcher that uses a single background thread to poll all of the
+ * watched stacks. Each stack is checked on its own cadence, given by the
+ * {@link StackWaitStrategy}, and every tick that finds at least one stack due
+ * makes a single paginated DescribeStacks sweep whose results serve all of the
+ * due stacks. Like
+ * {@link CloudFormationClient#waitForStackToComplete(String)}, the events of
+ * each stack are tailed while it is in progress when fail fast or event
+ * logging is configured.
+ *
+ */
+public class StackWatcherImpl implements StackWatcher {
+
+	/**
+	 * The time between ticks of the poll loop. A tick without a due stack makes
+	 * no calls.
+	 */
+	public static final long TICK_MS = 1000;
+
+	private final CloudFormationClient cloudFormationClient;
+	private final ThreadProvider threadProvider;
+	private final StackWaitStrategy waitStrategy;
+	private final StackEventTailer eventTailer;
+	private final Configuration configuration;
+	private final Logger logger;
+	private final Map<String, Watch> watches = new ConcurrentHashMap<>();
+	private Thread pollThread;
+
+	@Inject
+	public StackWatcherImpl(CloudFormationClient cloudFormationClient, ThreadProvider threadProvider,
+			StackWaitStrategy waitStrategy, StackEventTailer eventTailer, Configuration configuration,
+			LoggerFactory loggerFactory) {
+		super();
+		this.cloudFormationClient = cloudFormationClient;
+		this.threadProvider = threadProvider;
+		this.waitStrategy = waitStrategy;
+		this.eventTailer = eventTailer;
+		this.configuration = configuration;
+		this.logger = loggerFactory.getLogger(StackWatcherImpl.class);
+	}
+
+	@Override
+	public synchronized CompletableFuture<Stack> watch(String stackName) {
+		CompletableFuture<Stack> future = register(stackName);
+		if (pollThread == null) {
+			pollThread = new Thread(this::runPollLoop, "stack-watcher");
+			pollThread.setDaemon(true);
+			pollThread.start();
+		}
+		return future;
+	}
+
+	/**
+	 * Add the given stack to the watch list without starting the poll loop.
+	 *
+	 * @param stackName
+	 * @return
+	 */
+	CompletableFuture<Stack> register(String stackName) {
+		if (stackName == null) {
+			throw new IllegalArgumentException("Stack name cannot be null");
+		}
+		return watches.computeIfAbsent(stackName, this::createWatch).future;
+	}
+
+	/**
+	 * Create the watch of the given stack, which is due immediately.
+	 *
+	 * @param stackName
+	 * @return
+	 */
+	private Watch createWatch(String stackName) {
+		boolean failFast = CloudFormationClientImpl.isFailFast(configuration);
+		// each tail reads the events of the stack, so only tail when they are used.
+		boolean tailEvents = failFast || CloudFormationClientImpl.isLogEvents(configuration);
+		if (tailEvents) {
+			eventTailer.reset(stackName);
+		}
+		return new Watch(stackName, threadProvider.currentTimeMillis(), failFast, tailEvents);
+	}
+
+	/**
+	 * The poll loop runs until there is nothing left to watch.
+	 */
+	void runPollLoop() {
+		try {
+			while (true) {
+				synchronized (this) {
+					if (watches.isEmpty()) {
+						pollThread = null;
+						return;
+					}
+				}
+				pollOnce();
+				threadProvider.sleep(TICK_MS);
+			}
+		} catch (InterruptedException e) {
+			synchronized (this) {
+				pollThread = null;
+				watches.values().forEach(w -> w.future.completeExceptionally(e));
+				watches.clear();
+			}
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Check the status of every watched stack that is due.
+	 */
+	void pollOnce() {
+		long now = threadProvider.currentTimeMillis();
+		Map<String, Watch> due = new HashMap<>();
+		watches.forEach((stackName, watch) -> {
+			if (watch.isDue(now)) {
+				due.put(stackName, watch);
+			}
+		});
+		if (due.isEmpty()) {
+			return;
+		}
+		Map<String, Stack> found;
+		try {
+			found = describeStacks(due.keySet());
+		} catch (RuntimeException e) {
+			// A failed poll, such as a throttling error, is retried on the next tick.
+			logger.warn("Failed to poll the status of stacks: " + due.keySet(), e);
+			return;
+		}
+		for (Watch watch : due.values()) {
+			try {
+				watch.update(found.get(watch.stackName), now);
+			} catch (RuntimeException e) {
+				// The watch is still due, so a failed tail is retried on the next tick.
+				logger.warn("Failed to read the events of stack: " + watch.stackName, e);
+			}
+			if (watch.future.isDone()) {
+				watches.remove(watch.stackName, watch);
+			}
+		}
+	}
+
+	/**
+	 * Describe all of the stacks with the given names with a single paginated
+	 * sweep, which stops as soon as every stack has been found. A deleted stack
+	 * is not included in a sweep so any stack that was not found is described by
+	 * name.
+	 *
+	 * @param stackNames
+	 * @return Map of the stack name to the stack for each stack that was found.
+	 */
+	Map<String, Stack> describeStacks(Set<String> stackNames) {
+		Map<String, Stack> found = new HashMap<>(stackNames.size());
+		Iterator<Stack> sweep = cloudFormationClient.streamOverAllStacks().iterator();
+		while (found.size() < stackNames.size() && sweep.hasNext()) {
+			Stack stack = sweep.next();
+			if (stackNames.contains(stack.getStackName())) {
+				found.put(stack.getStackName(), stack);
+			}
+		}
+		for (String stackName : stackNames) {
+			if (!found.containsKey(stackName)) {
+				cloudFormationClient.describeStack(stackName).ifPresent(s -> found.put(stackName, s));
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * The state of a single watched stack.
+	 *
+	 */
+	private class Watch {
+
+		private final String stackName;
+		private final long start;
+		private final boolean failFast;
+		private final boolean tailEvents;
+		private final CompletableFuture<Stack> future;
+		private boolean isFirstCheck;
+		private int attempt;
+		private long lastCheck;
+		private long nextCheck;
+
+		Watch(String stackName, long start, boolean failFast, boolean tailEvents) {
+			this.stackName = stackName;
+			this.start = start;
+			this.failFast = failFast;
+			this.tailEvents = tailEvents;
+			this.future = new CompletableFuture<>();
+			this.isFirstCheck = true;
+			this.attempt = 0;
+			this.lastCheck = start;
+			this.nextCheck = start;
+		}
+
+		boolean isDue(long now) {
+			return now >= nextCheck;
+		}
+
+		/**
+		 * Update this watch with the latest state of its stack.
+		 *
+		 * @param stack The stack or null if the stack was not found.
+		 * @param now
+		 */
+		void update(Stack stack, long now) {
+			boolean firstCheck = isFirstCheck;
+			isFirstCheck = false;
+			if (stack == null) {
+				future.completeExceptionally(new IllegalStateException("Stack does not exist: " + stackName));
+				return;
+			}
+			StackStatus status = StackStatus.fromValue(stack.getStackStatus());
+			switch (status) {
+			case CREATE_COMPLETE:
+			case UPDATE_COMPLETE:
+			case DELETE_COMPLETE:
+				future.complete(stack);
+				return;
+			case CREATE_IN_PROGRESS:
+			case UPDATE_IN_PROGRESS:
+			case DELETE_IN_PROGRESS:
+			case UPDATE_COMPLETE_CLEANUP_IN_PROGRESS:
+				if (now - start > CloudFormationClientImpl.TIMEOUT_MS) {
+					future.completeExceptionally(
+							new RuntimeException("Timed out waiting for stack: '" + stackName + "' status to complete"));
+					return;
+				}
+				Optional<StackEvent> failure = tailEvents ? eventTailer.tail(stackName) : Optional.empty();
+				if (failure.isPresent() && failFast) {
+					StackEvent rootCause = failure.get();
+					future.completeExceptionally(new RuntimeException("Stack '" + stackName + "' failed.  Resource: "
+							+ rootCause.getLogicalResourceId() + " status: " + rootCause.getResourceStatus()
+							+ " with reason: " + rootCause.getResourceStatusReason()));
+					return;
+				}
+				long waitMS = waitStrategy.getWaitTimeMS(stackName, attempt);
+				logger.info("Waiting for stack: '" + stackName + "' to complete.  Current status: " + status.name()
+						+ " (" + (now - lastCheck) + " ms since last check, attempt: " + attempt
+						+ ", next check in: " + waitMS + " ms)...");
+				lastCheck = now;
+				nextCheck = now + waitMS;
+				attempt++;
+				return;
+			case UPDATE_ROLLBACK_COMPLETE:
+				if (firstCheck) { // There was nothing to do, state unchanged
+					future.complete(stack);
+					return;
+				}
+			default:
+				future.completeExceptionally(new RuntimeException("Stack '" + stackName
+						+ "' did not complete.  Status: " + status.name() + " with reason: " + stack.getStackStatusReason()));
+			}
+		}
+	}
+
+}
@@ -1,11 +1,13 @@
 package org.sagebionetworks.template;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.athena.AmazonAthena;
 import com.amazonaws.services.athena.AmazonAthenaClientBuilder;
 import com.amazonaws.services.cloudformation.AmazonCloudFormation;
-import com.amazonaws.services.cloudformation.AmazonCloudFormationClientBuilder;
+import com.amazonaws.services.cloudformation.AmazonCloudFormationAsync;
+import com.amazonaws.services.cloudformation.AmazonCloudFormationAsyncClientBuilder;
 import com.amazonaws.services.ec2.AmazonEC2;
 import com.amazonaws.services.ec2.AmazonEC2ClientBuilder;
 import com.amazonaws.services.elasticbeanstalk.AWSElasticBeanstalk;
@@ -28,7 +30,9 @@ import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClientBuilder;
 import com.amazonaws.services.simpleemail.AmazonSimpleEmailService;
 import com.amazonaws.services.simpleemail.AmazonSimpleEmailServiceClientBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import com.google.inject.multibindings.Multibinder;
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
@@ -49,22 +53,41 @@ import org.sagebionetworks.template.config.TimeToLive;
 import org.sagebionetworks.template.config.TimeToLiveImpl;
 import org.sagebionetworks.template.cron.ExpiredStackTeardown;
 import org.sagebionetworks.template.cron.ExpiredStackTeardownImpl;
+import org.sagebionetworks.template.cron.TemplateGarbageCollector;
+import org.sagebionetworks.template.cron.TemplateGarbageCollectorImpl;
 import org.sagebionetworks.template.datawarehouse.DataWarehouseBuilder;
 import org.sagebionetworks.template.datawarehouse.DataWarehouseBuilderImpl;
 import org.sagebionetworks.template.datawarehouse.EtlJobConfig;
 import org.sagebionetworks.template.datawarehouse.EtlJobConfigValidator;
 import org.sagebionetworks.template.datawarehouse.backfill.BackfillDataWarehouseBuilder;
 import org.sagebionetworks.template.datawarehouse.backfill.BackfillDataWarehouseBuilderImpl;
+import org.sagebionetworks.template.deploy.CheckpointJournal;
+import org.sagebionetworks.template.deploy.CheckpointJournalImpl;
+import org.sagebionetworks.template.deploy.DeploymentGraphFactory;
+import org.sagebionetworks.template.deploy.DeploymentGraphFactoryImpl;
+import org.sagebionetworks.template.deploy.DeploymentPlanner;
+import org.sagebionetworks.template.deploy.DeploymentPlannerImpl;
+import org.sagebionetworks.template.deploy.DeploymentScheduler;
+import org.sagebionetworks.template.deploy.DeploymentSchedulerImpl;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporterImpl;
+import org.sagebionetworks.template.deploy.TemplatePrerenderer;
+import org.sagebionetworks.template.deploy.TemplatePrerendererImpl;
 import org.sagebionetworks.template.dns.DnsBuilder;
 import org.sagebionetworks.template.dns.DnsBuilderImpl;
 import org.sagebionetworks.template.docs.SynapseDocsBuilder;
 import org.sagebionetworks.template.docs.SynapseDocsBuilderImpl;
 import org.sagebionetworks.template.global.GlobalResourcesBuilder;
 import org.sagebionetworks.template.global.GlobalResourcesBuilderImpl;
+import org.sagebionetworks.template.governor.AwsRequestGovernor;
+import org.sagebionetworks.template.governor.AwsRequestGovernorImpl;
+import org.sagebionetworks.template.governor.GovernorRequestHandler;
 import org.sagebionetworks.template.ip.address.IpAddressPoolBuilder;
 import org.sagebionetworks.template.ip.address.IpAddressPoolBuilderImpl;
 import org.sagebionetworks.template.jobs.AsynchAdminJobExecutor;
 import org.sagebionetworks.template.jobs.AsynchAdminJobExecutorImpl;
+import org.sagebionetworks.template.nested.TemplateSizeGuard;
+import org.sagebionetworks.template.nested.TemplateSizeGuardImpl;
 import org.sagebionetworks.template.nlb.BindNetworkLoadBalancerBuilder;
 import org.sagebionetworks.template.nlb.BindNetworkLoadBalancerBuilderImpl;
 import org.sagebionetworks.template.nlb.NetworkLoadBalancerBuilder;
@@ -106,6 +129,8 @@ import org.sagebionetworks.template.s3.S3Config;
 import org.sagebionetworks.template.s3.S3ConfigValidator;
 import org.sagebionetworks.template.s3.S3TransferManagerFactory;
 import org.sagebionetworks.template.s3.S3TransferManagerFactoryImpl;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.DeploymentTimelineImpl;
 import org.sagebionetworks.template.utils.ArtifactDownload;
 import org.sagebionetworks.template.utils.ArtifactDownloadImpl;
 import org.sagebionetworks.template.vpc.SubnetTemplateBuilder;
@@ -118,6 +143,7 @@ import org.sagebionetworks.war.WarAppender;
 import org.sagebionetworks.war.WarAppenderImpl;
 
 import java.io.IOException;
+import java.util.concurrent.Executors;
 
 import static org.sagebionetworks.template.Constants.ATHENA_QUERIES_CONFIG_FILE;
 import static org.sagebionetworks.template.Constants.CLOUDWATCH_LOGS_CONFIG_FILE;
@@ -137,7 +163,7 @@ public class TemplateGuiceModule extends com.google.inject.AbstractModule {
 
 	@Override
 	protected void configure() {
-		bind(CloudFormationClient.class).to(CloudFormationClientImpl.class);
+		bind(CloudFormationClient.class).to(CloudFormationClientImpl.class).in(Singleton.class);
 		bind(VpcTemplateBuilder.class).to(VpcTemplateBuilderImpl.class);
 		bind(SubnetTemplateBuilder.class).to(SubnetTemplateBuilderImpl.class);
 		bind(Configuration.class).to(ConfigurationImpl.class);
@@ -148,6 +174,10 @@ public class TemplateGuiceModule extends com.google.inject.AbstractModule {
 		bind(ArtifactCopy.class).to(ArtifactCopyImpl.class);
 		bind(FileProvider.class).to(FileProviderImpl.class);
 		bind(ThreadProvider.class).to(ThreadProviderImp.class);
+		bind(StackWaitStrategy.class).to(StackWaitStrategyImpl.class);
+		bind(StackEventTailer.class).to(StackEventTailerImpl.class).in(Singleton.class);
+		bind(StackWatcher.class).to(StackWatcherImpl.class).in(Singleton.class);
+		bind(CloudFormationClientAsync.class).to(CloudFormationClientAsyncImpl.class).in(Singleton.class);
 		bind(IdGeneratorBuilder.class).to(IdGeneratorBuilderImpl.class);
 		bind(SecretBuilder.class).to(SecretBuilderImpl.class);
 		bind(CertificateBuilder.class).to(CertificateBuilderImpl.class);
@@ -173,8 +203,19 @@ public class TemplateGuiceModule extends com.google.inject.AbstractModule {
 		bind(TimeToLive.class).to(TimeToLiveImpl.class);
 		bind(Clock.class).to(DefaultClock.class);
 		bind(ExpiredStackTeardown.class).to(ExpiredStackTeardownImpl.class);
+		bind(TemplateGarbageCollector.class).to(TemplateGarbageCollectorImpl.class);
 		bind(DataWarehouseBuilder.class).to(DataWarehouseBuilderImpl.class);
 		bind(BackfillDataWarehouseBuilder.class).to(BackfillDataWarehouseBuilderImpl.class);
+		bind(DeploymentGraphFactory.class).to(DeploymentGraphFactoryImpl.class);
+		bind(DeploymentScheduler.class).to(DeploymentSchedulerImpl.class);
+		bind(DeploymentPlanner.class).to(DeploymentPlannerImpl.class);
+		bind(TemplatePrerenderer.class).to(TemplatePrerendererImpl.class);
+		bind(CheckpointJournal.class).to(CheckpointJournalImpl.class).in(Singleton.class);
+		bind(DeploymentTimeline.class).to(DeploymentTimelineImpl.class).in(Singleton.class);
+		bind(DeploymentTimingReporter.class).to(DeploymentTimingReporterImpl.class);
+		bind(AwsRequestGovernor.class).to(AwsRequestGovernorImpl.class).in(Singleton.class);
+		bind(TemplateRenderer.class).to(TemplateRendererImpl.class).in(Singleton.class);
+		bind(TemplateSizeGuard.class).to(TemplateSizeGuardImpl.class);
 
 		Multibinder<VelocityContextProvider> velocityContextProviderMultibinder = Multibinder.newSetBinder(binder(), VelocityContextProvider.class);
 		
@@ -184,120 +225,163 @@ public class TemplateGuiceModule extends com.google.inject.AbstractModule {
 	}
 	
 	/**
-	 * Create a AmazonCloudFormation client that uses the  {@link DefaultAWSCredentialsProviderChain}.
+	 * Create a AmazonCloudFormationAsync client that uses the  {@link DefaultAWSCredentialsProviderChain}.
+	 * Its requests run on a bounded pool of daemon threads and each goes through the governor.
 	 * @return
 	 */
 	@Provides
-	public AmazonCloudFormation provideAmazonCloudFormationClient() {
-		AmazonCloudFormationClientBuilder builder = AmazonCloudFormationClientBuilder.standard();
+	@Singleton
+	public AmazonCloudFormationAsync provideAmazonCloudFormationAsyncClient(GovernorRequestHandler governorHandler) {
+		AmazonCloudFormationAsyncClientBuilder builder = AmazonCloudFormationAsyncClientBuilder.standard();
 		builder.withCredentials(new DefaultAWSCredentialsProviderChain());
+		builder.withRequestHandlers(governorHandler);
 		builder.withRegion(Regions.US_EAST_1);
+		builder.withExecutorFactory(() -> Executors.newFixedThreadPool(ClientConfiguration.DEFAULT_MAX_CONNECTIONS,
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("cloudformation-async-%d").build()));
 		return builder.build();
 	}
+
+	/**
+	 * The synchronous calls share the client, and so the connection pool, of the
+	 * asynchronous calls.
+	 * @param client
+	 * @return
+	 */
+	@Provides
+	@Singleton
+	public AmazonCloudFormation provideAmazonCloudFormationClient(AmazonCloudFormationAsync client) {
+		return client;
+	}
 	
 	@Provides
-	public AmazonS3 provideAmazonS3Client() {
+	@Singleton
+	public AmazonS3 provideAmazonS3Client(GovernorRequestHandler governorHandler) {
 		AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard();
 		builder.withCredentials(new DefaultAWSCredentialsProviderChain());
+		builder.withRequestHandlers(governorHandler);
 		builder.withRegion(Regions.US_EAST_1);
 		return builder.build();
 	}
 	
 	@Provides
-	public AWSLambda provideAWSLambdaClient() {
+	@Singleton
+	public AWSLambda provideAWSLambdaClient(GovernorRequestHandler governorHandler) {
 		AWSLambdaClientBuilder builder = AWSLambdaClientBuilder.standard();
 		builder.withCredentials(new DefaultAWSCredentialsProviderChain());
+		builder.withRequestHandlers(governorHandler);
 		builder.withRegion(Regions.US_EAST_1);
 		return builder.build();
 	}
 
 	@Provides
-	public AWSGlue provideAmazonAWSGlueClient() {
+	@Singleton
+	public AWSGlue provideAmazonAWSGlueClient(GovernorRequestHandler governorHandler) {
 		AWSGlueClientBuilder builder = AWSGlueClientBuilder.standard();
 		builder.withCredentials(new DefaultAWSCredentialsProviderChain());
+		builder.withRequestHandlers(governorHandler);
 		builder.withRegion(Regions.US_EAST_1);
 		return builder.build();
 	}
 
 	@Provides
-	public AmazonAthena provideAmazonAmazonAthenaClient() {
+	@Singleton
+	public AmazonAthena provideAmazonAmazonAthenaClient(GovernorRequestHandler governorHandler) {
 		AmazonAthenaClientBuilder builder = AmazonAthenaClientBuilder.standard();
 		builder.withCredentials(new DefaultAWSCredentialsProviderChain());
+		builder.withRequestHandlers(governorHandler);
 		builder.withRegion(Regions.US_EAST_1);
 		return builder.build();
 	}
 
 	@Provides
-	public AmazonSimpleEmailService provideAmazonSimpleEmalService() {
+	@Singleton
+	public AmazonSimpleEmailService provideAmazonSimpleEmalService(GovernorRequestHandler governorHandler) {
 		AmazonSimpleEmailServiceClientBuilder builder = AmazonSimpleEmailServiceClientBuilder.standard();
 		builder.withCredentials(new DefaultAWSCredentialsProviderChain());
+		builder.withRequestHandlers(governorHandler);
 		builder.withRegion(Regions.US_EAST_1);
 		return builder.build();
 	}
 
- 	@Provides
+	@Provides
+	@Singleton
 	public HttpClient provideHttpClient() {
 		HttpClientBuilder builder = HttpClientBuilder.create();
 		return builder.build();
 	}
 	
 	@Provides
-	public AWSSecretsManager provideAWSSecretsManager() {
+	@Singleton
+	public AWSSecretsManager provideAWSSecretsManager(GovernorRequestHandler governorHandler) {
 	    AWSSecretsManagerClientBuilder builder = AWSSecretsManagerClientBuilder.standard();
 		builder.withCredentials(new DefaultAWSCredentialsProviderChain());
+		builder.withRequestHandlers(governorHandler);
 		builder.withRegion(Regions.US_EAST_1);
 	    return builder.build();
 	}
 	
 	@Provides
-	public AWSKMS provideAWSKMSClient() {
+	@Singleton
+	public AWSKMS provideAWSKMSClient(GovernorRequestHandler governorHandler) {
 		AWSKMSAsyncClientBuilder builder = AWSKMSAsyncClientBuilder.standard();
 		builder.withCredentials(new DefaultAWSCredentialsProviderChain());
+		builder.withRequestHandlers(governorHandler);
 		builder.withRegion(Regions.US_EAST_1);
 		return builder.build();
 	}
 	
 	@Provides
-	public AmazonElasticLoadBalancing provideAmazonElasticLoadBalancing() {
+	@Singleton
+	public AmazonElasticLoadBalancing provideAmazonElasticLoadBalancing(GovernorRequestHandler governorHandler) {
 		AmazonElasticLoadBalancingClientBuilder builder = AmazonElasticLoadBalancingClientBuilder.standard();
 		builder.withCredentials(new DefaultAWSCredentialsProviderChain());
+		builder.withRequestHandlers(governorHandler);
 		builder.withRegion(Regions.US_EAST_1);
 		return builder.build();
 	}
 
 	@Provides
-	public AmazonEC2 provideAmazonEc2(){
+	@Singleton
+	public AmazonEC2 provideAmazonEc2(GovernorRequestHandler governorHandler) {
 		AmazonEC2ClientBuilder builder = AmazonEC2ClientBuilder.standard();
 		builder.withCredentials(new DefaultAWSCredentialsProviderChain());
+		builder.withRequestHandlers(governorHandler);
 		builder.withRegion(Regions.US_EAST_1);
 		return builder.build();
 	}
 
 	@Provides
-	public AWSElasticBeanstalk provideAmazonElasticBeanstalk(){
+	@Singleton
+	public AWSElasticBeanstalk provideAmazonElasticBeanstalk(GovernorRequestHandler governorHandler) {
 		AWSElasticBeanstalkClientBuilder builder = AWSElasticBeanstalkClientBuilder.standard();
 		builder.withCredentials(new DefaultAWSCredentialsProviderChain());
+		builder.withRequestHandlers(governorHandler);
 		builder.withRegion(Regions.US_EAST_1);
 		return builder.build();
 	}
 	
 	@Provides
-	public AWSSecurityTokenService provideAmazonSts() {
+	@Singleton
+	public AWSSecurityTokenService provideAmazonSts(GovernorRequestHandler governorHandler) {
 		AWSSecurityTokenServiceClientBuilder builder = AWSSecurityTokenServiceClientBuilder.standard();
 		builder.withCredentials(new DefaultAWSCredentialsProviderChain());
+		builder.withRequestHandlers(governorHandler);
 		builder.withRegion(Regions.US_EAST_1);
 		return builder.build();
 	}
 
 	@Provides
-	public AmazonRoute53 provideAmazonRoute53() {
+	@Singleton
+	public AmazonRoute53 provideAmazonRoute53(GovernorRequestHandler governorHandler) {
 		AmazonRoute53ClientBuilder builder = AmazonRoute53ClientBuilder.standard();
 		builder.withCredentials(new DefaultAWSCredentialsProviderChain());
+		builder.withRequestHandlers(governorHandler);
 		builder.withRegion(Regions.US_EAST_1);
 		return builder.build();
 	}
 	
 	@Provides
+	@Singleton
 	public VelocityEngine velocityEngineProvider() {
 		VelocityEngine engine = new VelocityEngine();
 		engine.setProperty(RuntimeConstants.RESOURCE_LOADER, CLASSPATH_AND_FILE); 
@@ -308,6 +392,7 @@ public class TemplateGuiceModule extends com.google.inject.AbstractModule {
 	}
 
 	@Provides
+	@Singleton
 	public SnsAndSqsConfig snsAndSqsConfigProvider() throws IOException {
 		return loadFromJsonFile(SNS_AND_SQS_CONFIG_FILE, SnsAndSqsConfig.class);
 	}
@@ -333,6 +418,7 @@ public class TemplateGuiceModule extends com.google.inject.AbstractModule {
 	}
 	
 	@Provides
+	@Singleton
 	public LoadBalancerAlarmsConfig loadBalanacerConfigProvider() throws IOException {
 		return new LoadBalancerAlarmsConfigValidator(loadFromJsonFile(LOAD_BALANCER_ALARM_CONFIG_FILE, LoadBalancerAlarmsConfig.class)).validate();
 	}
@@ -343,11 +429,13 @@ public class TemplateGuiceModule extends com.google.inject.AbstractModule {
 	}
 	
 	@Provides
+	@Singleton
 	public S3TransferManagerFactory provideS3TransferManagerFactory(AmazonS3 s3Client) {
 		return new S3TransferManagerFactoryImpl(s3Client);
 	}
 
 	@Provides
+	@Singleton
 	public EtlJobConfig etlConfigProvider() throws IOException {
 		return new EtlJobConfigValidator(loadFromJsonFile(ETL_CONFIG_FILE, EtlJobConfig.class)).validate();
 	}
@@ -0,0 +1,73 @@
+package org.sagebionetworks.template;
+
+import java.io.Writer;
+import java.util.List;
+
+import org.apache.velocity.VelocityContext;
+
+/**
+ * Renders the Velocity templates of the builders. Each template is parsed once
+ * and reused for every render. Renders can be recorded on one thread and later
+ * replayed on another, so templates rendered ahead of time are not rendered
+ * again.
+ *
+ */
+public interface TemplateRenderer {
+
+	/**
+	 * Render a JSON template into a buffer, validating that the result is a JSON
+	 * object as the buffer is streamed through a minifier.
+	 * 
+	 * @param templatePath The class path of the template.
+	 * @param context
+	 * @return The rendered JSON with all insignificant whitespace removed.
+	 * @throws IllegalArgumentException If the result is not a valid JSON object.
+	 */
+	String renderJson(String templatePath, VelocityContext context);
+
+	/**
+	 * Render a template as text, such as a YAML template.
+	 * 
+	 * @param templatePath The class path of the template.
+	 * @param context
+	 * @return
+	 */
+	String render(String templatePath, VelocityContext context);
+
+	/**
+	 * Render a template directly to the given writer.
+	 * 
+	 * @param templatePath The class path of the template.
+	 * @param context
+	 * @param writer
+	 */
+	void render(String templatePath, VelocityContext context, Writer writer);
+
+	/**
+	 * Start recording every template rendered on the calling thread.
+	 */
+	void startRecording();
+
+	/**
+	 * Stop recording on the calling thread.
+	 * 
+	 * @return The templates rendered on the calling thread since recording
+	 *         started.
+	 */
+	RenderRecording stopRecording();
+
+	/**
+	 * Replay the given templates on the calling thread. While replaying, a render
+	 * of the next recorded template returns the recorded result without merging
+	 * the template. The first render that does not match the recording ends the
+	 * replay and is rendered as usual.
+	 * 
+	 * @param templates
+	 */
+	void startReplay(List<RenderedTemplate> templates);
+
+	/**
+	 * Stop replaying on the calling thread.
+	 */
+	void stopReplay();
+}
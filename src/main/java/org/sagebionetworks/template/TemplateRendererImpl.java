@@ -0,0 +1,159 @@
+package org.sagebionetworks.template;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.apache.commons.io.input.CharSequenceReader;
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.app.VelocityEngine;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
+
+import com.google.inject.Inject;
+
+/**
+ * A parsed Velocity template is thread safe, so the parsed templates are kept
+ * for the life of the renderer and shared by all threads. Recording and replay
+ * are per thread.
+ *
+ */
+public class TemplateRendererImpl implements TemplateRenderer {
+
+	private final VelocityEngine velocityEngine;
+	private final DeploymentTimeline timeline;
+	private final Map<String, Template> templates = new ConcurrentHashMap<>();
+	private final ThreadLocal<RenderRecording> recording = new ThreadLocal<>();
+	private final ThreadLocal<Deque<RenderedTemplate>> replay = new ThreadLocal<>();
+
+	@Inject
+	public TemplateRendererImpl(VelocityEngine velocityEngine, DeploymentTimeline timeline) {
+		super();
+		this.velocityEngine = velocityEngine;
+		this.timeline = timeline;
+	}
+
+	@Override
+	public String renderJson(String templatePath, VelocityContext context) {
+		return renderRecorded(templatePath, true, () -> {
+			try (DeploymentTimeline.Span span = timeline.start(Phase.RENDER, templatePath)) {
+				// The whole template is buffered before it is minified. Velocity pushes to a
+				// writer while the parser pulls from a reader, so streaming one into the
+				// other would need a second thread and a pipe per render, or encoding every
+				// character to UTF-8 for the slower non-blocking byte parser. The buffer is
+				// read in place and is no larger than the returned string.
+				StringWriter rendered = new StringWriter();
+				getTemplate(templatePath).merge(context, rendered);
+				StringWriter minified = new StringWriter(rendered.getBuffer().length());
+				TemplateUtils.minifyJson(new CharSequenceReader(rendered.getBuffer()), minified);
+				return minified.toString();
+			} catch (IOException e) {
+				throw new IllegalArgumentException(
+						"Template: " + templatePath + " did not render valid JSON: " + e.getMessage(), e);
+			}
+		});
+	}
+
+	@Override
+	public String render(String templatePath, VelocityContext context) {
+		return renderRecorded(templatePath, false, () -> {
+			StringWriter writer = new StringWriter();
+			merge(templatePath, context, writer);
+			return writer.toString();
+		});
+	}
+
+	@Override
+	public void render(String templatePath, VelocityContext context, Writer writer) {
+		if (recording.get() == null && replay.get() == null) {
+			merge(templatePath, context, writer);
+			return;
+		}
+		try {
+			writer.write(render(templatePath, context));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void startRecording() {
+		recording.set(new RenderRecording());
+	}
+
+	@Override
+	public RenderRecording stopRecording() {
+		RenderRecording recorded = recording.get();
+		recording.remove();
+		return recorded == null ? new RenderRecording() : recorded;
+	}
+
+	@Override
+	public void startReplay(List<RenderedTemplate> templates) {
+		replay.set(new ArrayDeque<>(templates));
+	}
+
+	@Override
+	public void stopReplay() {
+		replay.remove();
+	}
+
+	/**
+	 * Render a template with the given renderer unless it is the next template of
+	 * the replay, recording the result when the calling thread is recording.
+	 * 
+	 * @param templatePath
+	 * @param json
+	 * @param renderer
+	 * @return
+	 */
+	String renderRecorded(String templatePath, boolean json, Supplier<String> renderer) {
+		Deque<RenderedTemplate> replaying = replay.get();
+		if (replaying != null) {
+			RenderedTemplate next = replaying.peek();
+			if (next != null && next.getTemplatePath().equals(templatePath) && next.isJson() == json) {
+				return replaying.pop().getOutput();
+			}
+			// the renders no longer follow the recording.
+			replay.remove();
+		}
+		RenderRecording recorded = recording.get();
+		try {
+			String output = renderer.get();
+			if (recorded != null) {
+				recorded.add(new RenderedTemplate(templatePath, json, output));
+			}
+			return output;
+		} catch (RuntimeException e) {
+			if (recorded != null) {
+				recorded.failed(templatePath);
+			}
+			throw e;
+		}
+	}
+
+	void merge(String templatePath, VelocityContext context, Writer writer) {
+		try (DeploymentTimeline.Span span = timeline.start(Phase.RENDER, templatePath)) {
+			getTemplate(templatePath).merge(context, writer);
+		}
+	}
+
+	/**
+	 * Get the parsed template, parsing it on first use.
+	 * 
+	 * @param templatePath
+	 * @return
+	 */
+	Template getTemplate(String templatePath) {
+		return templates.computeIfAbsent(templatePath, velocityEngine::getTemplate);
+	}
+
+}
@@ -4,8 +4,21 @@ import static org.sagebionetworks.template.Constants.STACK;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import org.apache.commons.io.IOUtils;
 
@@ -16,6 +29,17 @@ public class TemplateUtils {
 	
 	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 	
+	// Accepts the relaxed syntax org.json allowed when it parsed the rendered templates
+	private static final JsonFactory TEMPLATE_JSON_FACTORY = JsonFactory.builder()
+			.enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+			.enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+			.enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+			.enable(StreamReadFeature.STRICT_DUPLICATE_DETECTION)
+			.disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+			.disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+			.disable(StreamWriteFeature.AUTO_CLOSE_CONTENT)
+			.build();
+	
 	public static String replaceStackVariable(String input, String stack) {
 		if (input == null) {
 			return null;
@@ -45,6 +69,70 @@ public class TemplateUtils {
 		}
 	}
 
+	/**
+	 * Remove all insignificant whitespace from the given JSON template.
+	 * 
+	 * @param template
+	 * @return The minified template or the input unchanged if it is not a JSON
+	 *         object, such as a YAML template.
+	 * @throws IllegalArgumentException If the template starts like a JSON object
+	 *                                  but is not well formed.
+	 */
+	public static String minifyJson(String template) {
+		if (template == null) {
+			return null;
+		}
+		if (!isJsonObject(template)) {
+			return template;
+		}
+		StringWriter writer = new StringWriter(template.length());
+		try {
+			minifyJson(new StringReader(template), writer);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Malformed JSON template: " + e.getMessage(), e);
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * @param template
+	 * @return True if the first non-whitespace character of the given template
+	 *         starts a JSON object.
+	 */
+	static boolean isJsonObject(String template) {
+		for (int i = 0; i < template.length(); i++) {
+			char c = template.charAt(i);
+			if (!Character.isWhitespace(c)) {
+				return c == '{';
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Stream a single JSON object from the given reader to the given writer one
+	 * token at a time, validating it and removing all insignificant whitespace.
+	 * No tree of the object is built. Neither the reader nor the writer is closed.
+	 * 
+	 * @param reader
+	 * @param writer
+	 * @throws JsonProcessingException If the input is not a single well formed
+	 *                                 JSON object or has a duplicate key.
+	 * @throws IOException
+	 */
+	public static void minifyJson(Reader reader, Writer writer) throws IOException {
+		try (JsonParser parser = TEMPLATE_JSON_FACTORY.createParser(reader);
+				JsonGenerator generator = TEMPLATE_JSON_FACTORY.createGenerator(writer)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException(parser, "Expected a JSON object");
+			}
+			generator.copyCurrentStructure(parser);
+			if (parser.nextToken() != null) {
+				throw new JsonParseException(parser, "Unexpected content after the JSON object");
+			}
+		}
+	}
+
 	public static String prettyPrint(Object obj) throws IOException {
 		OBJECT_MAPPER.enable(SerializationFeature.INDENT_OUTPUT);
 		return OBJECT_MAPPER.writeValueAsString(obj);
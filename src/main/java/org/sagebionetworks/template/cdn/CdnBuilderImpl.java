@@ -5,16 +5,14 @@ import com.google.inject.Inject;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.sagebionetworks.template.CloudFormationClient;
 import org.sagebionetworks.template.Constants;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.StackTagsProvider;
+import org.sagebionetworks.template.TemplateRenderer;
 import org.sagebionetworks.template.config.RepoConfiguration;
 
-import java.io.StringWriter;
 import java.util.Optional;
 
 import static org.sagebionetworks.template.Constants.CTXT_KEY_SUBDOMAIN_NAME;
@@ -39,16 +37,16 @@ public class CdnBuilderImpl implements CdnBuilder {
 	private static final String TEMPLATE_STACK_DATA_CDN = "templates/cdn/synapse-data-cdn.json.vtp";
 
 	private RepoConfiguration config;
-	private VelocityEngine velocity;
+	private TemplateRenderer templateRenderer;
 	private CloudFormationClient cloudFormationClient;
 	private StackTagsProvider tagsProvider;
 
 	@Inject
-	public CdnBuilderImpl(RepoConfiguration config, CloudFormationClient cloudFormationClient, StackTagsProvider tagsProvider, VelocityEngine velocity) {
+	public CdnBuilderImpl(RepoConfiguration config, CloudFormationClient cloudFormationClient, StackTagsProvider tagsProvider, TemplateRenderer templateRenderer) {
 		this.config = config;
 		this.cloudFormationClient = cloudFormationClient;
 		this.tagsProvider = tagsProvider;
-		this.velocity = velocity;
+		this.templateRenderer = templateRenderer;
 	}
 
 	@Override
@@ -84,23 +82,21 @@ public class CdnBuilderImpl implements CdnBuilder {
 	}
 
 	Optional<Stack> buildCdnStack(Type type) {
-		Template template;
+		String templatePath;
 		String cfStackName;
 		VelocityContext context = createContext(type);
 
 		if (Type.PORTAL.equals(type)) {
-			template = velocity.getTemplate(TEMPLATE_STACK_PORTAL_CDN);
+			templatePath = TEMPLATE_STACK_PORTAL_CDN;
 			cfStackName = String.format("cdn-%s-synapse", context.get(CTXT_KEY_SUBDOMAIN_NAME));
 		} else if (Type.DATA.equals(type)){
-			template = velocity.getTemplate(TEMPLATE_STACK_DATA_CDN);
+			templatePath = TEMPLATE_STACK_DATA_CDN;
 			cfStackName = String.format("cdn-%s-data-synapse", context.get(STACK));
 		} else {
 			throw new IllegalArgumentException("A valid CdnBuilder Type must be used.");
 		}
 
-		StringWriter writer = new StringWriter();
-		template.merge(context, writer);
-		String cfTemplate = writer.toString();
+		String cfTemplate = templateRenderer.render(templatePath, context);
 		logger.info(cfTemplate);
 		CreateOrUpdateStackRequest cfStackRequest = new CreateOrUpdateStackRequest()
 				.withStackName(cfStackName)
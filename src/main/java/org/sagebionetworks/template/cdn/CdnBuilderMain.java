@@ -3,14 +3,18 @@ package org.sagebionetworks.template.cdn;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 
 public class CdnBuilderMain {
 
 	public static void main(String[] args) {
 
 		Injector injector = Guice.createInjector(new TemplateGuiceModule());
-		CdnBuilder builder = injector.getInstance(CdnBuilder.class);
-		builder.buildCdn(CdnBuilder.Type.PORTAL);
-
+		try {
+			CdnBuilder builder = injector.getInstance(CdnBuilder.class);
+			builder.buildCdn(CdnBuilder.Type.PORTAL);
+		} finally {
+			injector.getInstance(DeploymentTimingReporter.class).writeReport();
+		}
 	}
 }
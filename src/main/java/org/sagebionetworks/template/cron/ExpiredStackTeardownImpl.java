@@ -1,7 +1,12 @@
 package org.sagebionetworks.template.cron;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Logger;
@@ -11,10 +16,26 @@ import org.sagebionetworks.template.config.TimeToLive;
 
 import com.amazonaws.services.cloudformation.model.Stack;
 import com.amazonaws.services.cloudformation.model.StackStatus;
+import com.amazonaws.services.cloudformation.model.StackSummary;
 import com.google.inject.Inject;
 
 public class ExpiredStackTeardownImpl implements ExpiredStackTeardown {
 
+	/**
+	 * The maximum number of candidate stacks that are described at the same time.
+	 */
+	public static final int MAX_PARALLEL_DESCRIBE = 4;
+
+	/**
+	 * Only the shared resources and environment stacks of the repository builder
+	 * are given a time-to-live.
+	 */
+	public static final List<Pattern> TIME_TO_LIVE_STACK_NAME_PATTERNS = List.of(
+			Pattern.compile(".+-shared-resources"), Pattern.compile("(repo|workers|portal)-.+-\\d+"));
+
+	public static final Set<StackStatus> DELETABLE_STATUS = Set.of(StackStatus.CREATE_COMPLETE,
+			StackStatus.UPDATE_COMPLETE, StackStatus.UPDATE_ROLLBACK_COMPLETE, StackStatus.DELETE_FAILED);
+
 	private final CloudFormationClient cloudFormationClient;
 	private final TimeToLive timeToLive;
 	private final Logger logger;
@@ -32,12 +53,15 @@ public class ExpiredStackTeardownImpl implements ExpiredStackTeardown {
 	public void findAndDeleteExpiredStacks() {
 
 		try {
-			Set<StackStatus> deletableStatus = Set.of(StackStatus.CREATE_COMPLETE, StackStatus.UPDATE_COMPLETE,
-					StackStatus.UPDATE_ROLLBACK_COMPLETE, StackStatus.DELETE_FAILED);
+			// Listing summaries is cheap so only candidates are described.
+			List<String> candidates = cloudFormationClient
+					.streamOverStackSummaries(DELETABLE_STATUS.toArray(new StackStatus[DELETABLE_STATUS.size()]))
+					.map(StackSummary::getStackName).filter(ExpiredStackTeardownImpl::isTimeToLiveStackName)
+					.collect(Collectors.toList());
 
 			// find any stack that is expired and can be deleted.
-			List<Stack> toDelete = cloudFormationClient.streamOverAllStacks()
-					.filter(s -> deletableStatus.contains(StackStatus.valueOf(s.getStackStatus())))
+			List<Stack> toDelete = describeStacks(candidates).stream()
+					.filter(s -> DELETABLE_STATUS.contains(StackStatus.valueOf(s.getStackStatus())))
 					.filter(s -> timeToLive.isTimeToLiveExpired(s.getParameters()))
 					.filter(s -> s.getEnableTerminationProtection() == null
 							|| Boolean.FALSE.equals(s.getEnableTerminationProtection()))
@@ -57,4 +81,36 @@ public class ExpiredStackTeardownImpl implements ExpiredStackTeardown {
 		}
 	}
 
+	/**
+	 * Can the stack with the given name have a time-to-live?
+	 * 
+	 * @param stackName
+	 * @return
+	 */
+	static boolean isTimeToLiveStackName(String stackName) {
+		return TIME_TO_LIVE_STACK_NAME_PATTERNS.stream().anyMatch(p -> p.matcher(stackName).matches());
+	}
+
+	/**
+	 * Describe the given stacks in parallel.
+	 * 
+	 * @param stackNames
+	 * @return The stacks that still exist, in the same order as the names.
+	 */
+	List<Stack> describeStacks(List<String> stackNames) {
+		if (stackNames.isEmpty()) {
+			return List.of();
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_PARALLEL_DESCRIBE, stackNames.size()));
+		try {
+			List<CompletableFuture<Optional<Stack>>> futures = stackNames.stream()
+					.map(name -> CompletableFuture.supplyAsync(() -> cloudFormationClient.describeStack(name), executor))
+					.collect(Collectors.toList());
+			return futures.stream().map(CompletableFuture::join).filter(Optional::isPresent).map(Optional::get)
+					.collect(Collectors.toList());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 }
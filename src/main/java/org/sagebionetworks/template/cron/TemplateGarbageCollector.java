@@ -0,0 +1,15 @@
+package org.sagebionetworks.template.cron;
+
+/**
+ * Removes old CloudFormation templates from the configuration bucket.
+ *
+ */
+public interface TemplateGarbageCollector {
+
+	/**
+	 * Delete each template that has not been written for longer than the
+	 * retention period.
+	 */
+	void deleteExpiredTemplates();
+
+}
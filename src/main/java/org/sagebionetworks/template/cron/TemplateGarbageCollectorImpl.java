@@ -0,0 +1,66 @@
+package org.sagebionetworks.template.cron;
+
+import static org.sagebionetworks.template.CloudFormationClientImpl.TEMPLATE_KEY_PREFIX;
+
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.util.Clock;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.google.inject.Inject;
+
+public class TemplateGarbageCollectorImpl implements TemplateGarbageCollector {
+
+	/**
+	 * Must be longer than CloudFormationClientImpl.TEMPLATE_REFRESH_MS plus the
+	 * longest stack operation so a template is never deleted while in use.
+	 */
+	public static final long TEMPLATE_RETENTION_MS = 7 * 24 * 60 * 60 * 1000L; // one week.
+
+	private final AmazonS3 s3Client;
+	private final Configuration configuration;
+	private final Clock clock;
+	private final Logger logger;
+
+	@Inject
+	public TemplateGarbageCollectorImpl(AmazonS3 s3Client, Configuration configuration, Clock clock,
+			LoggerFactory loggerFactory) {
+		super();
+		this.s3Client = s3Client;
+		this.configuration = configuration;
+		this.clock = clock;
+		this.logger = loggerFactory.getLogger(getClass());
+	}
+
+	@Override
+	public void deleteExpiredTemplates() {
+		try {
+			String bucket = configuration.getConfigurationBucket();
+			long expiresOn = clock.currentTimeMillis() - TEMPLATE_RETENTION_MS;
+			ListObjectsV2Request request = new ListObjectsV2Request().withBucketName(bucket)
+					.withPrefix(TEMPLATE_KEY_PREFIX);
+			ListObjectsV2Result result;
+			do {
+				result = s3Client.listObjectsV2(request);
+				for (S3ObjectSummary summary : result.getObjectSummaries()) {
+					if (summary.getLastModified() != null && summary.getLastModified().getTime() < expiresOn) {
+						logger.info(String.format("Deleting template: '%s'...", summary.getKey()));
+						try {
+							s3Client.deleteObject(bucket, summary.getKey());
+						} catch (Exception e) {
+							logger.error(String.format("Failed to delete template: '%s'", summary.getKey()), e);
+						}
+					}
+				}
+				request.setContinuationToken(result.getNextContinuationToken());
+			} while (result.isTruncated());
+		} catch (Exception e) {
+			logger.error("Failed: ", e);
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package org.sagebionetworks.template.cron;
 
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -8,9 +9,19 @@ import com.google.inject.Injector;
 public class TimeToLiveCronJob {
 
 	public static void main(String[] args) {
-        Injector injector = Guice.createInjector(new TemplateGuiceModule());
+		Injector injector = Guice.createInjector(new TemplateGuiceModule());
+		try {
+			run(injector, args);
+		} finally {
+			injector.getInstance(DeploymentTimingReporter.class).writeReport();
+		}
+	}
+
+	public static void run(Injector injector, String[] args) {
         ExpiredStackTeardown runner = injector.getInstance(ExpiredStackTeardown.class);
         runner.findAndDeleteExpiredStacks();
+        TemplateGarbageCollector collector = injector.getInstance(TemplateGarbageCollector.class);
+        collector.deleteExpiredTemplates();
 	}
 
 }
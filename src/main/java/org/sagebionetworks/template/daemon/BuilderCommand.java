@@ -0,0 +1,20 @@
+package org.sagebionetworks.template.daemon;
+
+import com.google.inject.Injector;
+
+/**
+ * A command of the builder daemon, run against the daemon's warm injector.
+ *
+ */
+@FunctionalInterface
+public interface BuilderCommand {
+
+	/**
+	 * Run the command.
+	 *
+	 * @param injector The injector shared by all commands of the daemon.
+	 * @param args     The arguments of the command.
+	 * @throws Exception
+	 */
+	void execute(Injector injector, String[] args) throws Exception;
+}
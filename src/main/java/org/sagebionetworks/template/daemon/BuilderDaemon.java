@@ -0,0 +1,305 @@
+package org.sagebionetworks.template.daemon;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.cron.TimeToLiveCronJob;
+import org.sagebionetworks.template.datawarehouse.backfill.BackfillDataWarehouseBuilderMain;
+import org.sagebionetworks.template.deploy.DeploymentMain;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
+import org.sagebionetworks.template.dns.DnsBuilderMain;
+import org.sagebionetworks.template.dns.DnsListerMain;
+import org.sagebionetworks.template.jobs.AsyncAdminJobExecutorMain;
+
+import com.google.inject.Injector;
+
+/**
+ * Runs builder commands against a single, long-lived injector so that the AWS
+ * clients, templates and configuration are only created once.
+ * <p>
+ * The protocol is line based: each request is a command name followed by its
+ * arguments separated by whitespace. Arguments containing whitespace can be
+ * wrapped in single quotes. Each request is answered with a single line that
+ * starts with either {@value #RESPONSE_OK} or {@value #RESPONSE_ERROR}.
+ * Commands are run one at a time.
+ * <p>
+ * When listening on a port, each request must start with the token that the
+ * daemon wrote to its token file when it started. The file can only be read by
+ * the user that started the daemon, so other local users cannot run commands.
+ *
+ */
+public class BuilderDaemon {
+
+	public static final String RESPONSE_OK = "OK";
+	public static final String RESPONSE_ERROR = "ERROR";
+
+	public static final String COMMAND_PING = "ping";
+	public static final String COMMAND_SHUTDOWN = "shutdown";
+
+	public static final String COMMAND_DEPLOY = "deploy";
+	public static final String COMMAND_DNS = "dns";
+	public static final String COMMAND_DNS_LIST = "dns-list";
+	public static final String COMMAND_TIME_TO_LIVE = "time-to-live";
+	public static final String COMMAND_ADMIN_JOB = "admin-job";
+	public static final String COMMAND_BACKFILL_DATA_WAREHOUSE = "backfill-data-warehouse";
+
+	public static final String RESPONSE_UNAUTHORIZED = RESPONSE_ERROR + " Unauthorized";
+	public static final int TOKEN_BYTES = 32;
+
+	private final Injector injector;
+	private final Map<String, BuilderCommand> commands;
+	private final DeploymentTimingReporter timingReporter;
+	private final Logger logger;
+
+	/**
+	 *
+	 * @param injector The injector shared by all commands.
+	 * @param commands The commands by name.
+	 */
+	public BuilderDaemon(Injector injector, Map<String, BuilderCommand> commands) {
+		super();
+		this.injector = injector;
+		this.commands = commands;
+		this.timingReporter = injector.getInstance(DeploymentTimingReporter.class);
+		this.logger = injector.getInstance(LoggerFactory.class).getLogger(BuilderDaemon.class);
+	}
+
+	/**
+	 * The commands of the daemon. Each command does the same work as the main of
+	 * the same operation. Individual stacks are built with: 'deploy &lt;node&gt;...'.
+	 *
+	 * @return
+	 */
+	public static Map<String, BuilderCommand> createDefaultCommands() {
+		Map<String, BuilderCommand> commands = new LinkedHashMap<>();
+		commands.put(COMMAND_DEPLOY, DeploymentMain::run);
+		commands.put(COMMAND_DNS, DnsBuilderMain::run);
+		commands.put(COMMAND_DNS_LIST, DnsListerMain::run);
+		commands.put(COMMAND_TIME_TO_LIVE, TimeToLiveCronJob::run);
+		commands.put(COMMAND_ADMIN_JOB, AsyncAdminJobExecutorMain::run);
+		commands.put(COMMAND_BACKFILL_DATA_WAREHOUSE, BackfillDataWarehouseBuilderMain::run);
+		return commands;
+	}
+
+	/**
+	 * Handle a single request.
+	 *
+	 * @param line
+	 * @return The response, or null if the line is blank.
+	 */
+	public String handle(String line) {
+		List<String> tokens;
+		try {
+			tokens = tokenize(line);
+		} catch (IllegalArgumentException e) {
+			return RESPONSE_ERROR + " " + e.getMessage();
+		}
+		if (tokens.isEmpty()) {
+			return null;
+		}
+		String name = tokens.get(0);
+		if (COMMAND_PING.equals(name) || COMMAND_SHUTDOWN.equals(name)) {
+			return RESPONSE_OK + " " + name;
+		}
+		BuilderCommand command = commands.get(name);
+		if (command == null) {
+			return RESPONSE_ERROR + " Unknown command: '" + name + "'.  Known commands: " + commands.keySet();
+		}
+		String[] args = tokens.subList(1, tokens.size()).toArray(new String[0]);
+		logger.info("Running: " + name + " " + Arrays.toString(args) + "...");
+		long start = System.currentTimeMillis();
+		try {
+			command.execute(injector, args);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error("Interrupted: " + name, e);
+			return RESPONSE_ERROR + " " + name + ": interrupted";
+		} catch (Exception e) {
+			logger.error("Failed: " + name, e);
+			return RESPONSE_ERROR + " " + name + ": " + singleLine(e.getMessage());
+		} finally {
+			// the timeline is shared by every command so each command reports its own spans.
+			timingReporter.writeReport();
+		}
+		long elapsedMS = System.currentTimeMillis() - start;
+		logger.info("Finished: " + name + " in " + elapsedMS + " ms");
+		return RESPONSE_OK + " " + name + " " + elapsedMS + " ms";
+	}
+
+	/**
+	 * Answer each request read from the given reader until the end of the
+	 * stream or a shutdown request.
+	 *
+	 * @param reader
+	 * @param writer
+	 * @return True if a shutdown was requested.
+	 * @throws IOException
+	 */
+	public boolean serve(BufferedReader reader, PrintWriter writer) throws IOException {
+		return serve(reader, writer, null);
+	}
+
+	/**
+	 * Answer each request read from the given reader until the end of the
+	 * stream, a shutdown request or a request without the given token.
+	 *
+	 * @param reader
+	 * @param writer
+	 * @param token  When not null, each request must start with this token.
+	 * @return True if a shutdown was requested.
+	 * @throws IOException
+	 */
+	boolean serve(BufferedReader reader, PrintWriter writer, String token) throws IOException {
+		String line;
+		while (!Thread.currentThread().isInterrupted() && (line = reader.readLine()) != null) {
+			if (line.isBlank()) {
+				continue;
+			}
+			if (token != null) {
+				String[] parts = line.strip().split("\\s+", 2);
+				if (!isToken(token, parts[0])) {
+					logger.warn("Rejected a request without the daemon token");
+					writer.println(RESPONSE_UNAUTHORIZED);
+					writer.flush();
+					return false;
+				}
+				line = parts.length > 1 ? parts[1] : "";
+			}
+			String response = handle(line);
+			if (response == null) {
+				continue;
+			}
+			writer.println(response);
+			writer.flush();
+			if (response.equals(RESPONSE_OK + " " + COMMAND_SHUTDOWN)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Serve one connection at a time on the loopback interface until a shutdown
+	 * is requested. A new token is written to the given file before the daemon
+	 * starts listening, and the file is deleted when the daemon stops.
+	 *
+	 * @param port
+	 * @param tokenFile
+	 * @throws IOException
+	 */
+	public void serve(int port, Path tokenFile) throws IOException {
+		String token = createToken(tokenFile);
+		try (ServerSocket server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress())) {
+			logger.info("Builder daemon listening on: " + server.getLocalSocketAddress() + " with the token in: "
+					+ tokenFile);
+			boolean shutdown = false;
+			while (!shutdown) {
+				try (Socket socket = server.accept();
+						BufferedReader reader = new BufferedReader(
+								new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+						PrintWriter writer = new PrintWriter(
+								new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+					shutdown = serve(reader, writer, token);
+				}
+			}
+		} finally {
+			Files.deleteIfExists(tokenFile);
+		}
+	}
+
+	/**
+	 * Create a new random token and write it to the given file, which is
+	 * replaced and can only be read and written by its owner.
+	 *
+	 * @param tokenFile
+	 * @return The token.
+	 * @throws IOException
+	 */
+	static String createToken(Path tokenFile) throws IOException {
+		byte[] bytes = new byte[TOKEN_BYTES];
+		new SecureRandom().nextBytes(bytes);
+		String token = Hex.encodeHexString(bytes);
+		// the file is created with its permissions so the token is never readable by others.
+		Files.deleteIfExists(tokenFile);
+		Files.createFile(tokenFile, PosixFilePermissions
+				.asFileAttribute(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+		Files.write(tokenFile, token.getBytes(StandardCharsets.UTF_8));
+		return token;
+	}
+
+	/**
+	 * Compare the given value to the token in constant time.
+	 *
+	 * @param token
+	 * @param value
+	 * @return
+	 */
+	static boolean isToken(String token, String value) {
+		return MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Split a request into whitespace separated tokens. Text between single
+	 * quotes is kept as is.
+	 *
+	 * @param line
+	 * @return
+	 */
+	static List<String> tokenize(String line) {
+		List<String> tokens = new ArrayList<>();
+		StringBuilder current = null;
+		boolean quoted = false;
+		for (char c : line.toCharArray()) {
+			if (c == '\'') {
+				quoted = !quoted;
+				if (current == null) {
+					current = new StringBuilder();
+				}
+			} else if (!quoted && Character.isWhitespace(c)) {
+				if (current != null) {
+					tokens.add(current.toString());
+					current = null;
+				}
+			} else {
+				if (current == null) {
+					current = new StringBuilder();
+				}
+				current.append(c);
+			}
+		}
+		if (quoted) {
+			throw new IllegalArgumentException("Unterminated quote in: " + line);
+		}
+		if (current != null) {
+			tokens.add(current.toString());
+		}
+		return tokens;
+	}
+
+	static String singleLine(String message) {
+		return message == null ? "" : message.replaceAll("\\s*[\\r\\n]+\\s*", " ");
+	}
+
+}
@@ -0,0 +1,61 @@
+package org.sagebionetworks.template.daemon;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.sagebionetworks.template.TemplateGuiceModule;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * Main to run the builder daemon. With no arguments the requests are read from
+ * stdin and the responses are written to stdout. With '--port &lt;port&gt;' the
+ * daemon listens on the given port of the loopback interface, and each request
+ * must start with the token written to the token file. The token file is
+ * {@value #DEFAULT_TOKEN_FILE} in the user's home directory unless it is set
+ * with '--token-file &lt;path&gt;'.
+ * <p>
+ * The configuration of the daemon is read from the system properties when it
+ * starts.
+ *
+ */
+public class BuilderDaemonMain {
+
+	public static final String ARG_PORT = "--port";
+	public static final String ARG_TOKEN_FILE = "--token-file";
+	public static final String DEFAULT_TOKEN_FILE = ".builder-daemon-token";
+
+	public static void main(String[] args) throws Exception {
+		Integer port = null;
+		Path tokenFile = Paths.get(System.getProperty("user.home"), DEFAULT_TOKEN_FILE);
+		if ((args.length == 2 || args.length == 4) && ARG_PORT.equals(args[0])) {
+			port = Integer.parseInt(args[1]);
+			if (args.length == 4) {
+				if (!ARG_TOKEN_FILE.equals(args[2])) {
+					throw new IllegalArgumentException(usage());
+				}
+				tokenFile = Paths.get(args[3]);
+			}
+		} else if (args.length != 0) {
+			throw new IllegalArgumentException(usage());
+		}
+		Injector injector = Guice.createInjector(new TemplateGuiceModule());
+		BuilderDaemon daemon = new BuilderDaemon(injector, BuilderDaemon.createDefaultCommands());
+		if (port != null) {
+			daemon.serve(port, tokenFile);
+		} else {
+			daemon.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+					new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+		}
+	}
+
+	static String usage() {
+		return "Usage: BuilderDaemonMain [" + ARG_PORT + " <port> [" + ARG_TOKEN_FILE + " <path>]]";
+	}
+}
@@ -3,14 +3,18 @@ package org.sagebionetworks.template.datawarehouse;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 
 public class DataWarehouseBuilderMain {
 	
     public static void main(String[] args) throws InterruptedException {
         Injector injector = Guice.createInjector(new TemplateGuiceModule());
-    
-        DataWarehouseBuilder builder = injector.getInstance(DataWarehouseBuilder.class);
+        try {
+            DataWarehouseBuilder builder = injector.getInstance(DataWarehouseBuilder.class);
         
-        builder.buildAndDeploy();
+            builder.buildAndDeploy();
+        } finally {
+            injector.getInstance(DeploymentTimingReporter.class).writeReport();
+        }
     }
 }
@@ -3,10 +3,19 @@ package org.sagebionetworks.template.datawarehouse.backfill;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 
 public class BackfillDataWarehouseBuilderMain {
     public static void main(String[] args) throws InterruptedException {
         Injector injector = Guice.createInjector(new TemplateGuiceModule());
+        try {
+            run(injector, args);
+        } finally {
+            injector.getInstance(DeploymentTimingReporter.class).writeReport();
+        }
+    }
+
+    public static void run(Injector injector, String[] args) throws InterruptedException {
 
         BackfillDataWarehouseBuilderImpl builder = injector.getInstance(BackfillDataWarehouseBuilderImpl.class);
 
@@ -0,0 +1,38 @@
+package org.sagebionetworks.template.deploy;
+
+/**
+ * An append-only record of the deployment steps that succeeded, with the
+ * fingerprint of the inputs of each step. When resuming, a step that already
+ * succeeded with the same fingerprint can be skipped.
+ *
+ */
+public interface CheckpointJournal {
+
+	/**
+	 * Start a new run. Each run decides whether it resumes, so a long lived
+	 * process, such as the builder daemon, does not carry it over to the next
+	 * run.
+	 *
+	 * @param resume When true, the steps that succeeded with the same inputs
+	 *               can be skipped.
+	 */
+	void startRun(boolean resume);
+
+	/**
+	 * Did the given step already succeed with the same inputs? Always false
+	 * unless the current run is resuming.
+	 *
+	 * @param step
+	 * @param fingerprint The fingerprint of the current inputs of the step.
+	 * @return
+	 */
+	boolean isComplete(String step, String fingerprint);
+
+	/**
+	 * Record that the given step succeeded.
+	 *
+	 * @param step
+	 * @param fingerprint The fingerprint of the inputs of the step.
+	 */
+	void recordComplete(String step, String fingerprint);
+}
@@ -0,0 +1,139 @@
+package org.sagebionetworks.template.deploy;
+
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DEPLOYMENT_JOURNAL_FILE;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DEPLOYMENT_RESUME;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.template.ConfigurationPropertyNotFound;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.util.Clock;
+
+import com.google.inject.Inject;
+
+/**
+ * A journal stored in a local file with one line per completed step:
+ * 'timestamp&lt;tab&gt;step&lt;tab&gt;fingerprint'. The last line of a step wins.
+ *
+ */
+public class CheckpointJournalImpl implements CheckpointJournal {
+
+	public static final String DEFAULT_JOURNAL_FILE = "stack-builder-journal.log";
+	private static final String SEPARATOR = "\t";
+
+	private final Configuration config;
+	private final Logger logger;
+	private final Clock clock;
+	private boolean resume;
+	private Map<String, String> completed;
+
+	@Inject
+	public CheckpointJournalImpl(Configuration config, LoggerFactory loggerFactory, Clock clock) {
+		super();
+		this.config = config;
+		this.logger = loggerFactory.getLogger(CheckpointJournalImpl.class);
+		this.clock = clock;
+	}
+
+	@Override
+	public synchronized void startRun(boolean resume) {
+		this.resume = resume;
+		// the journal may have been written by another process since the last run.
+		this.completed = null;
+	}
+
+	@Override
+	public synchronized boolean isComplete(String step, String fingerprint) {
+		if (!isResume()) {
+			return false;
+		}
+		if (completed == null) {
+			completed = load(getJournalPath());
+		}
+		boolean isComplete = fingerprint.equals(completed.get(step));
+		if (isComplete) {
+			logger.info("Skipping: '" + step + "' (unchanged since it last succeeded)");
+		}
+		return isComplete;
+	}
+
+	@Override
+	public synchronized void recordComplete(String step, String fingerprint) {
+		if (step.contains(SEPARATOR) || step.contains("\n")) {
+			throw new IllegalArgumentException("Invalid step name: '" + step + "'");
+		}
+		String line = Instant.ofEpochMilli(clock.currentTimeMillis()) + SEPARATOR + step + SEPARATOR + fingerprint + System.lineSeparator();
+		try {
+			Files.write(getJournalPath(), line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+					StandardOpenOption.APPEND);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		if (completed != null) {
+			completed.put(step, fingerprint);
+		}
+	}
+
+	/**
+	 * Is the current run resuming, either by its argument or by configuration?
+	 *
+	 * @return
+	 */
+	boolean isResume() {
+		if (resume) {
+			return true;
+		}
+		try {
+			return config.getBooleanProperty(PROPERTY_KEY_DEPLOYMENT_RESUME);
+		} catch (ConfigurationPropertyNotFound e) {
+			return false;
+		}
+	}
+
+	Path getJournalPath() {
+		try {
+			return Paths.get(config.getProperty(PROPERTY_KEY_DEPLOYMENT_JOURNAL_FILE));
+		} catch (ConfigurationPropertyNotFound e) {
+			return Paths.get(DEFAULT_JOURNAL_FILE);
+		}
+	}
+
+	/**
+	 * Load the last fingerprint of each step. Incomplete lines, such as a line
+	 * that was being written when the process was killed, are ignored.
+	 *
+	 * @param path
+	 * @return
+	 */
+	static Map<String, String> load(Path path) {
+		Map<String, String> completed = new HashMap<>();
+		if (!Files.exists(path)) {
+			return completed;
+		}
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		for (String line : lines) {
+			String[] parts = line.split(SEPARATOR);
+			if (parts.length == 3 && !parts[2].isEmpty()) {
+				completed.put(parts[1], parts[2]);
+			}
+		}
+		return completed;
+	}
+
+}
@@ -0,0 +1,83 @@
+package org.sagebionetworks.template.deploy;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.sagebionetworks.template.timing.Phase;
+import org.sagebionetworks.template.timing.TimingSpan;
+
+/**
+ * The longest chain of dependent nodes of a deployment graph, weighted by the
+ * time each node took to deploy. Shortening any other node cannot shorten the
+ * deployment.
+ *
+ */
+public class CriticalPath {
+
+	private final List<String> nodes;
+	private final long durationMs;
+
+	CriticalPath(List<String> nodes, long durationMs) {
+		super();
+		this.nodes = Collections.unmodifiableList(nodes);
+		this.durationMs = durationMs;
+	}
+
+	/**
+	 * Compute the critical path of the given graph from the {@link Phase#NODE}
+	 * spans of its nodes. Nodes without a span, such as nodes that were not
+	 * deployed, take no time.
+	 * 
+	 * @param graph
+	 * @param spans
+	 * @return
+	 */
+	public static CriticalPath compute(DeploymentGraph graph, List<TimingSpan> spans) {
+		Map<String, Long> durations = new HashMap<>();
+		spans.stream().filter(s -> s.getPhase() == Phase.NODE)
+				.forEach(s -> durations.merge(s.getName(), s.getDurationMs(), Long::sum));
+		Map<String, Long> finish = new HashMap<>();
+		Map<String, String> previous = new HashMap<>();
+		String last = null;
+		for (String name : graph.getTopologicalOrder()) {
+			long start = 0;
+			for (String dependency : graph.getDependencies(name)) {
+				long dependencyFinish = finish.get(dependency);
+				if (!previous.containsKey(name) || dependencyFinish > start) {
+					start = dependencyFinish;
+					previous.put(name, dependency);
+				}
+			}
+			finish.put(name, start + durations.getOrDefault(name, 0L));
+			if (last == null || finish.get(name) > finish.get(last)) {
+				last = name;
+			}
+		}
+		LinkedList<String> path = new LinkedList<>();
+		for (String name = last; name != null; name = previous.get(name)) {
+			path.addFirst(name);
+		}
+		return new CriticalPath(path, last == null ? 0 : finish.get(last));
+	}
+
+	/**
+	 * The names of the nodes on the path, in deployment order.
+	 * 
+	 * @return
+	 */
+	public List<String> getNodes() {
+		return nodes;
+	}
+
+	public long getDurationMs() {
+		return durationMs;
+	}
+
+	@Override
+	public String toString() {
+		return String.join(" -> ", nodes) + " (" + durationMs + " ms)";
+	}
+}
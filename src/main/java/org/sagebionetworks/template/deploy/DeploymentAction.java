@@ -0,0 +1,16 @@
+package org.sagebionetworks.template.deploy;
+
+/**
+ * The work done to deploy a single node of a deployment graph.
+ *
+ */
+@FunctionalInterface
+public interface DeploymentAction {
+
+	/**
+	 * Build and deploy the stacks of the node, waiting for them to complete.
+	 * 
+	 * @throws Exception
+	 */
+	void deploy() throws Exception;
+}
@@ -0,0 +1,154 @@
+package org.sagebionetworks.template.deploy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * An immutable, validated graph of deployment nodes. A node depends on every
+ * node that produces one of its inputs or imports. Inputs that are not produced by any
+ * node of the graph are assumed to already exist.
+ *
+ */
+public class DeploymentGraph {
+
+	private final Map<String, DeploymentNode> nodes;
+	private final Map<String, Set<String>> dependencies;
+	private final Map<String, Set<String>> dependents;
+	private final List<String> topologicalOrder;
+
+	/**
+	 *
+	 * @param nodes
+	 * @throws IllegalArgumentException If a node name or output is not unique,
+	 *                                  a node is missing its action, or the
+	 *                                  graph contains a cycle.
+	 */
+	public DeploymentGraph(List<DeploymentNode> nodes) {
+		this.nodes = new LinkedHashMap<>();
+		Map<String, String> producers = new HashMap<>();
+		for (DeploymentNode node : nodes) {
+			if (node.getAction() == null) {
+				throw new IllegalArgumentException("Node: '" + node.getName() + "' does not have an action");
+			}
+			if (this.nodes.put(node.getName(), node) != null) {
+				throw new IllegalArgumentException("Duplicate node: '" + node.getName() + "'");
+			}
+			for (String output : node.getOutputs()) {
+				String existing = producers.put(output, node.getName());
+				if (existing != null) {
+					throw new IllegalArgumentException("Output: '" + output + "' is produced by both: '" + existing
+							+ "' and: '" + node.getName() + "'");
+				}
+			}
+		}
+		this.dependencies = new LinkedHashMap<>();
+		this.dependents = new LinkedHashMap<>();
+		this.nodes.keySet().forEach(name -> {
+			dependencies.put(name, new LinkedHashSet<>());
+			dependents.put(name, new LinkedHashSet<>());
+		});
+		for (DeploymentNode node : nodes) {
+			Set<String> reads = new LinkedHashSet<>(node.getInputs());
+			reads.addAll(node.getImports());
+			for (String input : reads) {
+				String producer = producers.get(input);
+				if (producer != null && !producer.equals(node.getName())) {
+					dependencies.get(node.getName()).add(producer);
+					dependents.get(producer).add(node.getName());
+				}
+			}
+		}
+		this.topologicalOrder = sort();
+	}
+
+	/**
+	 * Kahn's algorithm, keeping the declared order of the nodes where possible.
+	 *
+	 * @return
+	 */
+	private List<String> sort() {
+		Map<String, Integer> remaining = new HashMap<>();
+		Deque<String> ready = new ArrayDeque<>();
+		nodes.keySet().forEach(name -> {
+			remaining.put(name, dependencies.get(name).size());
+			if (dependencies.get(name).isEmpty()) {
+				ready.add(name);
+			}
+		});
+		List<String> order = new ArrayList<>(nodes.size());
+		while (!ready.isEmpty()) {
+			String name = ready.poll();
+			order.add(name);
+			for (String dependent : dependents.get(name)) {
+				if (remaining.merge(dependent, -1, Integer::sum) == 0) {
+					ready.add(dependent);
+				}
+			}
+		}
+		if (order.size() < nodes.size()) {
+			Set<String> cycle = nodes.keySet().stream().filter(n -> !order.contains(n))
+					.collect(Collectors.toCollection(LinkedHashSet::new));
+			throw new IllegalArgumentException("The deployment graph contains a cycle between: " + cycle);
+		}
+		return Collections.unmodifiableList(order);
+	}
+
+	/**
+	 *
+	 * @param name
+	 * @return
+	 * @throws IllegalArgumentException If the node does not exist.
+	 */
+	public DeploymentNode getNode(String name) {
+		DeploymentNode node = nodes.get(name);
+		if (node == null) {
+			throw new IllegalArgumentException("Unknown node: '" + name + "'");
+		}
+		return node;
+	}
+
+	/**
+	 * The names of the nodes in an order that satisfies all dependencies.
+	 *
+	 * @return
+	 */
+	public List<String> getTopologicalOrder() {
+		return topologicalOrder;
+	}
+
+	/**
+	 * The names of the nodes that must be deployed before the given node.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public Set<String> getDependencies(String name) {
+		getNode(name);
+		return Collections.unmodifiableSet(dependencies.get(name));
+	}
+
+	/**
+	 * The names of the nodes that depend directly on the given node.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public Set<String> getDependents(String name) {
+		getNode(name);
+		return Collections.unmodifiableSet(dependents.get(name));
+	}
+
+	public int size() {
+		return nodes.size();
+	}
+
+}
@@ -0,0 +1,21 @@
+package org.sagebionetworks.template.deploy;
+
+import java.util.Set;
+
+/**
+ * Creates the deployment graph of the stack builders.
+ *
+ */
+public interface DeploymentGraphFactory {
+
+	/**
+	 * Create a graph containing the given nodes. Exports produced by nodes that
+	 * are not included are assumed to already exist.
+	 * 
+	 * @param nodeNames The names of the nodes to include. When empty, all nodes
+	 *                  are included.
+	 * @return
+	 * @throws IllegalArgumentException If a node name is unknown.
+	 */
+	DeploymentGraph createGraph(Set<String> nodeNames);
+}
@@ -0,0 +1,168 @@
+package org.sagebionetworks.template.deploy;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.sagebionetworks.template.cdn.CdnBuilder;
+import org.sagebionetworks.template.datawarehouse.DataWarehouseBuilder;
+import org.sagebionetworks.template.docs.SynapseDocsBuilder;
+import org.sagebionetworks.template.global.GlobalResourcesBuilder;
+import org.sagebionetworks.template.ip.address.IpAddressPoolBuilder;
+import org.sagebionetworks.template.nlb.BindNetworkLoadBalancerBuilder;
+import org.sagebionetworks.template.nlb.NetworkLoadBalancerBuilder;
+import org.sagebionetworks.template.redirectors.userdocs.UserDocsRedirectorBuilder;
+import org.sagebionetworks.template.repo.IdGeneratorBuilder;
+import org.sagebionetworks.template.repo.RepositoryTemplateBuilder;
+import org.sagebionetworks.template.s3.S3BucketBuilder;
+import org.sagebionetworks.template.vpc.SubnetTemplateBuilder;
+import org.sagebionetworks.template.vpc.VpcTemplateBuilder;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+/**
+ * The deployment graph of the stack builders. Each node declares the stack
+ * exports read by its templates as inputs. Builders are only created when their
+ * node is deployed. Nodes that also change resources outside of CloudFormation
+ * (S3 bucket configuration, SES, secrets, artifacts and scripts) are not
+ * plannable. The repository is pre-rendered without its docs, as its builder
+ * neither copies artifacts nor uploads secrets while planning.
+ *
+ */
+public class DeploymentGraphFactoryImpl implements DeploymentGraphFactory {
+
+	// node names
+	public static final String NODE_VPC = "vpc";
+	public static final String NODE_PUBLIC_SUBNETS = "public-subnets";
+	public static final String NODE_PRIVATE_SUBNETS = "private-subnets";
+	public static final String NODE_GLOBAL_RESOURCES = "global-resources";
+	public static final String NODE_S3_BUCKETS = "s3-buckets";
+	public static final String NODE_ID_GENERATOR = "id-generator";
+	public static final String NODE_REPOSITORY = "repository";
+	public static final String NODE_IP_ADDRESS_POOL = "ip-address-pool";
+	public static final String NODE_NETWORK_LOAD_BALANCERS = "network-load-balancers";
+	public static final String NODE_BIND_NETWORK_LOAD_BALANCERS = "bind-network-load-balancers";
+	public static final String NODE_PORTAL_CDN = "portal-cdn";
+	public static final String NODE_DATA_CDN = "data-cdn";
+	public static final String NODE_USER_DOCS_REDIRECTOR = "user-docs-redirector";
+	public static final String NODE_DATA_WAREHOUSE = "data-warehouse";
+
+	// stack exports
+	public static final String EXPORT_VPC = "vpc-exports";
+	public static final String EXPORT_PUBLIC_SUBNETS = "public-subnet-exports";
+	public static final String EXPORT_PRIVATE_SUBNETS = "private-subnet-exports";
+	public static final String EXPORT_GLOBAL_RESOURCES = "global-resources-exports";
+	public static final String EXPORT_S3_BUCKETS = "s3-bucket-exports";
+	public static final String EXPORT_ID_GENERATOR = "id-generator-exports";
+	public static final String EXPORT_SHARED_RESOURCES = "shared-resources-exports";
+	public static final String EXPORT_ENVIRONMENTS = "environment-exports";
+	public static final String EXPORT_IP_ADDRESS_POOL = "ip-address-pool-exports";
+	public static final String EXPORT_NETWORK_LOAD_BALANCERS = "network-load-balancer-exports";
+	public static final String EXPORT_NETWORK_LOAD_BALANCER_BINDINGS = "network-load-balancer-binding-exports";
+	public static final String EXPORT_PORTAL_CDN = "portal-cdn-exports";
+	public static final String EXPORT_DATA_CDN = "data-cdn-exports";
+	public static final String EXPORT_USER_DOCS_REDIRECTOR = "user-docs-redirector-exports";
+	public static final String EXPORT_DATA_WAREHOUSE = "data-warehouse-exports";
+
+	private final Provider<VpcTemplateBuilder> vpcBuilder;
+	private final Provider<SubnetTemplateBuilder> subnetBuilder;
+	private final Provider<GlobalResourcesBuilder> globalResourcesBuilder;
+	private final Provider<S3BucketBuilder> s3BucketBuilder;
+	private final Provider<IdGeneratorBuilder> idGeneratorBuilder;
+	private final Provider<SynapseDocsBuilder> docsBuilder;
+	private final Provider<RepositoryTemplateBuilder> repositoryBuilder;
+	private final Provider<IpAddressPoolBuilder> ipAddressPoolBuilder;
+	private final Provider<NetworkLoadBalancerBuilder> networkLoadBalancerBuilder;
+	private final Provider<BindNetworkLoadBalancerBuilder> bindNetworkLoadBalancerBuilder;
+	private final Provider<CdnBuilder> cdnBuilder;
+	private final Provider<UserDocsRedirectorBuilder> userDocsRedirectorBuilder;
+	private final Provider<DataWarehouseBuilder> dataWarehouseBuilder;
+
+	@Inject
+	public DeploymentGraphFactoryImpl(Provider<VpcTemplateBuilder> vpcBuilder,
+			Provider<SubnetTemplateBuilder> subnetBuilder, Provider<GlobalResourcesBuilder> globalResourcesBuilder,
+			Provider<S3BucketBuilder> s3BucketBuilder, Provider<IdGeneratorBuilder> idGeneratorBuilder,
+			Provider<SynapseDocsBuilder> docsBuilder, Provider<RepositoryTemplateBuilder> repositoryBuilder,
+			Provider<IpAddressPoolBuilder> ipAddressPoolBuilder,
+			Provider<NetworkLoadBalancerBuilder> networkLoadBalancerBuilder,
+			Provider<BindNetworkLoadBalancerBuilder> bindNetworkLoadBalancerBuilder, Provider<CdnBuilder> cdnBuilder,
+			Provider<UserDocsRedirectorBuilder> userDocsRedirectorBuilder,
+			Provider<DataWarehouseBuilder> dataWarehouseBuilder) {
+		super();
+		this.vpcBuilder = vpcBuilder;
+		this.subnetBuilder = subnetBuilder;
+		this.globalResourcesBuilder = globalResourcesBuilder;
+		this.s3BucketBuilder = s3BucketBuilder;
+		this.idGeneratorBuilder = idGeneratorBuilder;
+		this.docsBuilder = docsBuilder;
+		this.repositoryBuilder = repositoryBuilder;
+		this.ipAddressPoolBuilder = ipAddressPoolBuilder;
+		this.networkLoadBalancerBuilder = networkLoadBalancerBuilder;
+		this.bindNetworkLoadBalancerBuilder = bindNetworkLoadBalancerBuilder;
+		this.cdnBuilder = cdnBuilder;
+		this.userDocsRedirectorBuilder = userDocsRedirectorBuilder;
+		this.dataWarehouseBuilder = dataWarehouseBuilder;
+	}
+
+	/**
+	 * All of the nodes, in the order they were deployed by hand.
+	 *
+	 * @return
+	 */
+	List<DeploymentNode> createAllNodes() {
+		return List.of(
+				new DeploymentNode(NODE_VPC).withOutputs(EXPORT_VPC)
+						.withAction(() -> vpcBuilder.get().buildAndDeploy()).withPlannable(true),
+				new DeploymentNode(NODE_PUBLIC_SUBNETS).withInputs(EXPORT_VPC).withOutputs(EXPORT_PUBLIC_SUBNETS)
+						.withAction(() -> subnetBuilder.get().buildAndDeployPublicSubnets()).withPlannable(true),
+				new DeploymentNode(NODE_PRIVATE_SUBNETS).withInputs(EXPORT_VPC, EXPORT_PUBLIC_SUBNETS)
+						.withOutputs(EXPORT_PRIVATE_SUBNETS)
+						.withAction(() -> subnetBuilder.get().buildAndDeployPrivateSubnets()).withPlannable(true),
+				new DeploymentNode(NODE_GLOBAL_RESOURCES).withOutputs(EXPORT_GLOBAL_RESOURCES)
+						.withAction(() -> globalResourcesBuilder.get().buildGlobalResources()),
+				new DeploymentNode(NODE_DATA_CDN).withOutputs(EXPORT_DATA_CDN)
+						.withAction(() -> cdnBuilder.get().buildCdn(CdnBuilder.Type.DATA)).withPlannable(true),
+				new DeploymentNode(NODE_S3_BUCKETS).withInputs(EXPORT_GLOBAL_RESOURCES, EXPORT_DATA_CDN)
+						.withOutputs(EXPORT_S3_BUCKETS).withAction(() -> s3BucketBuilder.get().buildAllBuckets()),
+				new DeploymentNode(NODE_ID_GENERATOR)
+						.withImports(EXPORT_VPC, EXPORT_PRIVATE_SUBNETS, EXPORT_GLOBAL_RESOURCES)
+						.withOutputs(EXPORT_ID_GENERATOR).withAction(() -> idGeneratorBuilder.get().buildAndDeploy())
+						.withPlannable(true),
+				new DeploymentNode(NODE_REPOSITORY).withInputs(EXPORT_PRIVATE_SUBNETS)
+						.withImports(EXPORT_VPC, EXPORT_GLOBAL_RESOURCES, EXPORT_S3_BUCKETS)
+						.withOutputs(EXPORT_SHARED_RESOURCES, EXPORT_ENVIRONMENTS).withAction(() -> {
+							docsBuilder.get().deployDocs();
+							repositoryBuilder.get().buildAndDeploy();
+						}).withPrerenderAction(() -> repositoryBuilder.get().buildAndDeploy()),
+				new DeploymentNode(NODE_IP_ADDRESS_POOL).withOutputs(EXPORT_IP_ADDRESS_POOL)
+						.withAction(() -> ipAddressPoolBuilder.get().buildAndDeploy()).withPlannable(true),
+				new DeploymentNode(NODE_NETWORK_LOAD_BALANCERS).withInputs(EXPORT_IP_ADDRESS_POOL, EXPORT_PUBLIC_SUBNETS)
+						.withOutputs(EXPORT_NETWORK_LOAD_BALANCERS)
+						.withAction(() -> networkLoadBalancerBuilder.get().buildAndDeploy()).withPlannable(true),
+				new DeploymentNode(NODE_BIND_NETWORK_LOAD_BALANCERS)
+						.withInputs(EXPORT_NETWORK_LOAD_BALANCERS, EXPORT_ENVIRONMENTS)
+						.withOutputs(EXPORT_NETWORK_LOAD_BALANCER_BINDINGS)
+						.withAction(() -> bindNetworkLoadBalancerBuilder.get().buildAndDeploy()).withPlannable(true),
+				new DeploymentNode(NODE_PORTAL_CDN).withOutputs(EXPORT_PORTAL_CDN)
+						.withAction(() -> cdnBuilder.get().buildCdn(CdnBuilder.Type.PORTAL)).withPlannable(true),
+				new DeploymentNode(NODE_USER_DOCS_REDIRECTOR).withOutputs(EXPORT_USER_DOCS_REDIRECTOR)
+						.withAction(() -> userDocsRedirectorBuilder.get().buildRedirector()).withPlannable(true),
+				new DeploymentNode(NODE_DATA_WAREHOUSE).withOutputs(EXPORT_DATA_WAREHOUSE)
+						.withAction(() -> dataWarehouseBuilder.get().buildAndDeploy()));
+	}
+
+	@Override
+	public DeploymentGraph createGraph(Set<String> nodeNames) {
+		List<DeploymentNode> all = createAllNodes();
+		Set<String> known = all.stream().map(DeploymentNode::getName).collect(Collectors.toSet());
+		for (String name : nodeNames) {
+			if (!known.contains(name)) {
+				throw new IllegalArgumentException("Unknown node: '" + name + "'.  Known nodes: " + known);
+			}
+		}
+		return new DeploymentGraph(all.stream().filter(n -> nodeNames.isEmpty() || nodeNames.contains(n.getName()))
+				.collect(Collectors.toList()));
+	}
+
+}
@@ -0,0 +1,62 @@
+package org.sagebionetworks.template.deploy;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.sagebionetworks.template.TemplateGuiceModule;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * Main to deploy the stacks of the deployment graph, running independent
+ * builders concurrently. The templates of the plannable nodes are rendered
+ * before anything is deployed. The optional arguments are the names of the nodes to
+ * deploy. With no arguments every node is deployed. With '--resume' the steps
+ * that already succeeded with the same inputs are skipped. With '--plan' the
+ * nodes that need work are only listed, and with '--incremental' only those
+ * nodes are deployed.
+ *
+ */
+public class DeploymentMain {
+
+	public static final String ARG_PLAN = "--plan";
+	public static final String ARG_INCREMENTAL = "--incremental";
+	public static final String ARG_RESUME = "--resume";
+
+	public static void main(String[] args) throws InterruptedException {
+		Injector injector = Guice.createInjector(new TemplateGuiceModule());
+		try {
+			run(injector, args);
+		} finally {
+			injector.getInstance(DeploymentTimingReporter.class).writeReport();
+		}
+	}
+
+	public static void run(Injector injector, String[] args) throws InterruptedException {
+		List<String> arguments = Arrays.asList(args);
+		boolean plan = arguments.contains(ARG_PLAN);
+		boolean incremental = arguments.contains(ARG_INCREMENTAL);
+		Set<String> nodeNames = arguments.stream()
+				.filter(a -> !ARG_PLAN.equals(a) && !ARG_INCREMENTAL.equals(a) && !ARG_RESUME.equals(a))
+				.collect(Collectors.toSet());
+		injector.getInstance(CheckpointJournal.class).startRun(arguments.contains(ARG_RESUME));
+		DeploymentGraphFactory factory = injector.getInstance(DeploymentGraphFactory.class);
+		DeploymentGraph graph = factory.createGraph(nodeNames);
+		if (!plan && !incremental) {
+			DeploymentGraph prerendered = injector.getInstance(TemplatePrerenderer.class).prerender(graph);
+			injector.getInstance(DeploymentScheduler.class).execute(prerendered);
+			return;
+		}
+		List<NodePlan> plans = injector.getInstance(DeploymentPlanner.class).plan(graph);
+		Set<String> needsWork = plans.stream().filter(NodePlan::isNeedsWork).map(NodePlan::getNodeName)
+				.collect(Collectors.toSet());
+		if (plan || needsWork.isEmpty()) {
+			return;
+		}
+		// an empty set would include every node so it is checked above.
+		injector.getInstance(DeploymentScheduler.class).execute(factory.createGraph(needsWork));
+	}
+}
@@ -0,0 +1,108 @@
+package org.sagebionetworks.template.deploy;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A single node of a deployment graph. A node declares the stack exports it
+ * reads (inputs) and the stack exports it creates (outputs). A node can only
+ * be deployed once every node producing one of its inputs has been deployed.
+ * Imports are inputs that the templates only reference by name, with
+ * Fn::ImportValue, so their values never change the rendered templates.
+ * A node is plannable when its action only changes CloudFormation stacks.
+ * A node that is not plannable can still be pre-rendered with an action that
+ * is safe to run while planning.
+ *
+ */
+public class DeploymentNode {
+
+	private final String name;
+	private final Set<String> inputs;
+	private final Set<String> imports;
+	private final Set<String> outputs;
+	private DeploymentAction action;
+	private DeploymentAction prerenderAction;
+	private boolean plannable;
+
+	public DeploymentNode(String name) {
+		this.name = name;
+		this.inputs = new LinkedHashSet<>();
+		this.imports = new LinkedHashSet<>();
+		this.outputs = new LinkedHashSet<>();
+	}
+
+	public DeploymentNode withInputs(String... inputs) {
+		Collections.addAll(this.inputs, inputs);
+		return this;
+	}
+
+	public DeploymentNode withImports(String... imports) {
+		Collections.addAll(this.imports, imports);
+		return this;
+	}
+
+	public DeploymentNode withOutputs(String... outputs) {
+		Collections.addAll(this.outputs, outputs);
+		return this;
+	}
+
+	public DeploymentNode withAction(DeploymentAction action) {
+		this.action = action;
+		return this;
+	}
+
+	public DeploymentNode withPrerenderAction(DeploymentAction prerenderAction) {
+		this.prerenderAction = prerenderAction;
+		return this;
+	}
+
+	public DeploymentNode withPlannable(boolean plannable) {
+		this.plannable = plannable;
+		return this;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Set<String> getInputs() {
+		return Collections.unmodifiableSet(inputs);
+	}
+
+	public Set<String> getImports() {
+		return Collections.unmodifiableSet(imports);
+	}
+
+	public Set<String> getOutputs() {
+		return Collections.unmodifiableSet(outputs);
+	}
+
+	public DeploymentAction getAction() {
+		return action;
+	}
+
+	public boolean isPlannable() {
+		return plannable;
+	}
+
+	/**
+	 * The action that renders the templates of this node while planning. A
+	 * plannable node is pre-rendered with its own action.
+	 * 
+	 * @return Null if the node cannot be pre-rendered.
+	 */
+	public DeploymentAction getPrerenderAction() {
+		if (prerenderAction != null) {
+			return prerenderAction;
+		}
+		return plannable ? action : null;
+	}
+
+	@Override
+	public String toString() {
+		return "DeploymentNode [name=" + name + ", inputs=" + inputs + ", imports=" + imports + ", outputs="
+				+ outputs + ", plannable=" + plannable + "]";
+	}
+
+}
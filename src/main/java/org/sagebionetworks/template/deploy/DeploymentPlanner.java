@@ -0,0 +1,20 @@
+package org.sagebionetworks.template.deploy;
+
+import java.util.List;
+
+/**
+ * Plans a deployment by comparing the fingerprint of every stack that would be
+ * created or updated with the fingerprint of the deployed stack, without
+ * changing anything.
+ *
+ */
+public interface DeploymentPlanner {
+
+	/**
+	 * Plan every node of the given graph.
+	 * 
+	 * @param graph
+	 * @return One plan per node, in topological order.
+	 */
+	List<NodePlan> plan(DeploymentGraph graph);
+}
@@ -0,0 +1,86 @@
+package org.sagebionetworks.template.deploy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.template.CloudFormationClient;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.StackChange;
+
+import com.google.inject.Inject;
+
+/**
+ * Plans each node by running its action on the current thread while the
+ * {@link CloudFormationClient} is planning. A node needs work when it is not
+ * plannable, when any of its stacks would be created or updated, or when a
+ * node it depends on needs work, since the exports it reads could change.
+ *
+ */
+public class DeploymentPlannerImpl implements DeploymentPlanner {
+
+	private final CloudFormationClient cloudFormationClient;
+	private final Logger logger;
+
+	@Inject
+	public DeploymentPlannerImpl(CloudFormationClient cloudFormationClient, LoggerFactory loggerFactory) {
+		super();
+		this.cloudFormationClient = cloudFormationClient;
+		this.logger = loggerFactory.getLogger(DeploymentPlannerImpl.class);
+	}
+
+	@Override
+	public List<NodePlan> plan(DeploymentGraph graph) {
+		List<NodePlan> plans = new ArrayList<>(graph.size());
+		Set<String> needsWork = new HashSet<>();
+		for (String name : graph.getTopologicalOrder()) {
+			NodePlan plan = planNode(graph, name, needsWork);
+			if (plan.isNeedsWork()) {
+				needsWork.add(name);
+			}
+			logger.info("Plan: " + plan);
+			plans.add(plan);
+		}
+		return plans;
+	}
+
+	/**
+	 * Plan a single node given the nodes that already need work.
+	 * 
+	 * @param graph
+	 * @param name
+	 * @param needsWork
+	 * @return
+	 */
+	NodePlan planNode(DeploymentGraph graph, String name, Set<String> needsWork) {
+		Optional<String> changedDependency = graph.getDependencies(name).stream().filter(needsWork::contains)
+				.findFirst();
+		if (changedDependency.isPresent()) {
+			return new NodePlan(name, true, Collections.emptyList(),
+					"depends on: '" + changedDependency.get() + "'");
+		}
+		DeploymentNode node = graph.getNode(name);
+		if (!node.isPlannable()) {
+			return new NodePlan(name, true, Collections.emptyList(), "not plannable");
+		}
+		List<StackChange> changes;
+		cloudFormationClient.startPlanning();
+		try {
+			node.getAction().deploy();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new NodePlan(name, true, Collections.emptyList(), "planning interrupted");
+		} catch (Exception e) {
+			return new NodePlan(name, true, Collections.emptyList(), "planning failed: " + e.getMessage());
+		} finally {
+			changes = cloudFormationClient.stopPlanning();
+		}
+		boolean changed = changes.stream().anyMatch(c -> c.getType() != StackChange.Type.UNCHANGED);
+		return new NodePlan(name, changed, changes, changed ? "stacks changed" : null);
+	}
+
+}
@@ -0,0 +1,19 @@
+package org.sagebionetworks.template.deploy;
+
+/**
+ * Executes a deployment graph, running every node whose dependencies have been
+ * deployed concurrently.
+ *
+ */
+public interface DeploymentScheduler {
+
+	/**
+	 * Deploy every node of the given graph. Once a node fails no new nodes are
+	 * started, but nodes that are already running are allowed to finish.
+	 * 
+	 * @param graph
+	 * @throws InterruptedException
+	 * @throws IllegalStateException If any node failed.
+	 */
+	void execute(DeploymentGraph graph) throws InterruptedException;
+}
@@ -0,0 +1,172 @@
+package org.sagebionetworks.template.deploy;
+
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DEPLOYMENT_MAX_PARALLELISM;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.template.ConfigurationPropertyNotFound;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+
+public class DeploymentSchedulerImpl implements DeploymentScheduler {
+
+	public static final int DEFAULT_MAX_PARALLELISM = 4;
+
+	private final Configuration config;
+	private final Logger logger;
+	private final DeploymentTimeline timeline;
+	private final DeploymentTimingReporter timingReporter;
+
+	@Inject
+	public DeploymentSchedulerImpl(Configuration config, LoggerFactory loggerFactory, DeploymentTimeline timeline,
+			DeploymentTimingReporter timingReporter) {
+		super();
+		this.config = config;
+		this.logger = loggerFactory.getLogger(DeploymentSchedulerImpl.class);
+		this.timeline = timeline;
+		this.timingReporter = timingReporter;
+	}
+
+	@Override
+	public void execute(DeploymentGraph graph) throws InterruptedException {
+		if (graph.size() == 0) {
+			return;
+		}
+		int parallelism = Math.min(getMaxParallelism(), graph.size());
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+				new ThreadFactoryBuilder().setNameFormat("deployment-%d").setDaemon(true).build());
+		try {
+			execute(graph, new ExecutorCompletionService<>(executor), parallelism);
+		} finally {
+			executor.shutdownNow();
+			// the timeline is most useful when the deployment failed.
+			timingReporter.writeReport(graph);
+		}
+	}
+
+	/**
+	 * The configured parallelism cap.
+	 *
+	 * @return
+	 */
+	int getMaxParallelism() {
+		try {
+			int max = config.getIntegerProperty(PROPERTY_KEY_DEPLOYMENT_MAX_PARALLELISM);
+			if (max < 1) {
+				throw new IllegalArgumentException(
+						PROPERTY_KEY_DEPLOYMENT_MAX_PARALLELISM + " must be at least one but was: " + max);
+			}
+			return max;
+		} catch (ConfigurationPropertyNotFound e) {
+			return DEFAULT_MAX_PARALLELISM;
+		}
+	}
+
+	void execute(DeploymentGraph graph, CompletionService<NodeResult> completion, int parallelism)
+			throws InterruptedException {
+		Map<String, Integer> remaining = new HashMap<>();
+		Deque<String> ready = new ArrayDeque<>();
+		for (String name : graph.getTopologicalOrder()) {
+			remaining.put(name, graph.getDependencies(name).size());
+			if (graph.getDependencies(name).isEmpty()) {
+				ready.add(name);
+			}
+		}
+		Set<String> deployed = new HashSet<>();
+		Map<String, Throwable> failures = new LinkedHashMap<>();
+		int running = 0;
+		while (true) {
+			while (failures.isEmpty() && !ready.isEmpty() && running < parallelism) {
+				DeploymentNode node = graph.getNode(ready.poll());
+				logger.info("Deploying: '" + node.getName() + "'...");
+				completion.submit(() -> {
+					try (DeploymentTimeline.Span span = timeline.start(Phase.NODE, node.getName())) {
+						return deploy(node);
+					}
+				});
+				running++;
+			}
+			if (running == 0) {
+				break;
+			}
+			NodeResult result = take(completion);
+			running--;
+			if (result.error == null) {
+				logger.info("Deployed: '" + result.name + "'");
+				deployed.add(result.name);
+				for (String dependent : graph.getDependents(result.name)) {
+					if (remaining.merge(dependent, -1, Integer::sum) == 0) {
+						ready.add(dependent);
+					}
+				}
+			} else {
+				logger.error("Failed to deploy: '" + result.name + "'", result.error);
+				failures.put(result.name, result.error);
+			}
+		}
+		if (!failures.isEmpty()) {
+			Set<String> notDeployed = new HashSet<>(remaining.keySet());
+			notDeployed.removeAll(deployed);
+			notDeployed.removeAll(failures.keySet());
+			IllegalStateException error = new IllegalStateException("Deployment failed for: " + failures.keySet()
+					+ " (not deployed: " + notDeployed + ")", failures.values().iterator().next());
+			failures.values().stream().skip(1).forEach(error::addSuppressed);
+			throw error;
+		}
+	}
+
+	/**
+	 * Deploy a single node, capturing any failure.
+	 *
+	 * @param node
+	 * @return
+	 */
+	static NodeResult deploy(DeploymentNode node) {
+		try {
+			node.getAction().deploy();
+			return new NodeResult(node.getName(), null);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new NodeResult(node.getName(), e);
+		} catch (Throwable e) {
+			return new NodeResult(node.getName(), e);
+		}
+	}
+
+	static NodeResult take(CompletionService<NodeResult> completion) throws InterruptedException {
+		try {
+			return completion.take().get();
+		} catch (ExecutionException e) {
+			// deploy() captures all failures.
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	static class NodeResult {
+		final String name;
+		final Throwable error;
+
+		NodeResult(String name, Throwable error) {
+			this.name = name;
+			this.error = error;
+		}
+	}
+
+}
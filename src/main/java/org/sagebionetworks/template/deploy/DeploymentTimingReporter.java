@@ -0,0 +1,27 @@
+package org.sagebionetworks.template.deploy;
+
+/**
+ * Writes the timeline of a deployment at the end of the run.
+ *
+ */
+public interface DeploymentTimingReporter {
+
+	/**
+	 * Write the spans recorded since the last report as a JSON timeline and as
+	 * Chrome trace events, including the critical path of the given graph.
+	 * Failing to write the report does not fail the deployment.
+	 * 
+	 * @param graph
+	 * @return The critical path of the graph.
+	 */
+	CriticalPath writeReport(DeploymentGraph graph);
+
+	/**
+	 * Write the spans recorded since the last report, if any, without a critical
+	 * path. Every main and daemon command calls this when it finishes so that
+	 * spans do not pile up in the timeline, which is shared by all runs of an
+	 * injector. Nothing is written when no spans were recorded, so the report of
+	 * a scheduled deployment is not replaced.
+	 */
+	void writeReport();
+}
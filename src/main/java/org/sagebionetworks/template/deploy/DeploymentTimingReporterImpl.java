@@ -0,0 +1,85 @@
+package org.sagebionetworks.template.deploy;
+
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DEPLOYMENT_TIMING_DIRECTORY;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.template.ConfigurationPropertyNotFound;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.TimingReport;
+import org.sagebionetworks.template.timing.TimingSpan;
+
+import com.google.inject.Inject;
+
+public class DeploymentTimingReporterImpl implements DeploymentTimingReporter {
+
+	public static final String DEFAULT_TIMING_DIRECTORY = ".";
+	public static final String TIMELINE_FILE = "deployment-timing.json";
+	public static final String TRACE_FILE = "deployment-trace.json";
+
+	private final Configuration config;
+	private final DeploymentTimeline timeline;
+	private final Logger logger;
+
+	@Inject
+	public DeploymentTimingReporterImpl(Configuration config, DeploymentTimeline timeline,
+			LoggerFactory loggerFactory) {
+		super();
+		this.config = config;
+		this.timeline = timeline;
+		this.logger = loggerFactory.getLogger(DeploymentTimingReporterImpl.class);
+	}
+
+	@Override
+	public CriticalPath writeReport(DeploymentGraph graph) {
+		List<TimingSpan> spans = timeline.drain();
+		CriticalPath criticalPath = CriticalPath.compute(graph, spans);
+		logger.info("Critical path: " + criticalPath);
+		writeReport(spans, criticalPath.getNodes(), criticalPath.getDurationMs());
+		return criticalPath;
+	}
+
+	@Override
+	public void writeReport() {
+		List<TimingSpan> spans = timeline.drain();
+		if (spans.isEmpty()) {
+			return;
+		}
+		writeReport(spans, Collections.emptyList(), 0L);
+	}
+
+	private void writeReport(List<TimingSpan> spans, List<String> criticalPath, long criticalPathMs) {
+		Path directory = getTimingDirectory();
+		try {
+			Files.createDirectories(directory);
+			write(directory.resolve(TIMELINE_FILE),
+					TimingReport.toJson(spans, criticalPath, criticalPathMs).toString(2));
+			write(directory.resolve(TRACE_FILE), TimingReport.toTraceEvents(spans).toString());
+			logger.info("Wrote the deployment timeline to: " + directory.toAbsolutePath());
+		} catch (IOException e) {
+			logger.warn("Failed to write the deployment timeline to: " + directory.toAbsolutePath(), e);
+		}
+	}
+
+	Path getTimingDirectory() {
+		try {
+			return Paths.get(config.getProperty(PROPERTY_KEY_DEPLOYMENT_TIMING_DIRECTORY));
+		} catch (ConfigurationPropertyNotFound e) {
+			return Paths.get(DEFAULT_TIMING_DIRECTORY);
+		}
+	}
+
+	static void write(Path path, String content) throws IOException {
+		Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,54 @@
+package org.sagebionetworks.template.deploy;
+
+import java.util.List;
+
+import org.sagebionetworks.template.StackChange;
+
+/**
+ * The planned outcome of deploying a single node of a deployment graph.
+ *
+ */
+public class NodePlan {
+
+	private final String nodeName;
+	private final boolean needsWork;
+	private final List<StackChange> changes;
+	private final String reason;
+
+	/**
+	 *
+	 * @param nodeName
+	 * @param needsWork Does the node need to be deployed?
+	 * @param changes   The stack changes planned for the node.
+	 * @param reason    Why the node needs to be deployed.
+	 */
+	public NodePlan(String nodeName, boolean needsWork, List<StackChange> changes, String reason) {
+		super();
+		this.nodeName = nodeName;
+		this.needsWork = needsWork;
+		this.changes = List.copyOf(changes);
+		this.reason = reason;
+	}
+
+	public String getNodeName() {
+		return nodeName;
+	}
+
+	public boolean isNeedsWork() {
+		return needsWork;
+	}
+
+	public List<StackChange> getChanges() {
+		return changes;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	@Override
+	public String toString() {
+		return nodeName + ": " + (needsWork ? "deploy (" + reason + ")" : "unchanged") + " " + changes;
+	}
+
+}
@@ -0,0 +1,20 @@
+package org.sagebionetworks.template.deploy;
+
+/**
+ * Renders the templates of a deployment graph before anything is deployed, so
+ * a broken template fails the deployment before any stack is changed.
+ *
+ */
+public interface TemplatePrerenderer {
+
+	/**
+	 * Render the templates of every node of the given graph that can be
+	 * pre-rendered concurrently, without changing any stack.
+	 * 
+	 * @param graph
+	 * @return A copy of the graph in which each node whose templates cannot
+	 *         change before its turn replays its pre-rendered templates.
+	 * @throws IllegalStateException If any template failed to render.
+	 */
+	DeploymentGraph prerender(DeploymentGraph graph);
+}
@@ -0,0 +1,206 @@
+package org.sagebionetworks.template.deploy;
+
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DEPLOYMENT_PRERENDER_PARALLELISM;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.template.CloudFormationClient;
+import org.sagebionetworks.template.ConfigurationPropertyNotFound;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.RenderRecording;
+import org.sagebionetworks.template.RenderedTemplate;
+import org.sagebionetworks.template.StackChange;
+import org.sagebionetworks.template.TemplateRenderer;
+import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
+
+import com.google.inject.Inject;
+
+/**
+ * Pre-renders each node that has a pre-render action by running that action on
+ * a fork-join pool while both the {@link CloudFormationClient} is planning and
+ * the {@link TemplateRenderer} is recording. A node that fails for any other
+ * reason than a template, such as a stack it reads not existing yet, is simply
+ * rendered at its turn.
+ * <p>
+ * The templates of a node only depend on the configuration and the values of
+ * its inputs. So a node replays its pre-rendered templates when none of the
+ * dependencies producing its inputs need work, using the same rules as the
+ * {@link DeploymentPlanner}. Imports are only referenced by name, so a change
+ * to them does not stop a replay.
+ *
+ */
+public class TemplatePrerendererImpl implements TemplatePrerenderer {
+
+	private final CloudFormationClient cloudFormationClient;
+	private final TemplateRenderer templateRenderer;
+	private final Configuration config;
+	private final Logger logger;
+	private final DeploymentTimeline timeline;
+
+	@Inject
+	public TemplatePrerendererImpl(CloudFormationClient cloudFormationClient, TemplateRenderer templateRenderer,
+			Configuration config, LoggerFactory loggerFactory, DeploymentTimeline timeline) {
+		super();
+		this.cloudFormationClient = cloudFormationClient;
+		this.templateRenderer = templateRenderer;
+		this.config = config;
+		this.logger = loggerFactory.getLogger(TemplatePrerendererImpl.class);
+		this.timeline = timeline;
+	}
+
+	@Override
+	public DeploymentGraph prerender(DeploymentGraph graph) {
+		List<DeploymentNode> prerenderable = graph.getTopologicalOrder().stream().map(graph::getNode)
+				.filter(node -> node.getPrerenderAction() != null).collect(Collectors.toList());
+		if (prerenderable.isEmpty()) {
+			return graph;
+		}
+		Map<String, Prerendered> results = new LinkedHashMap<>();
+		ForkJoinPool pool = new ForkJoinPool(Math.min(getParallelism(), prerenderable.size()));
+		try {
+			Map<String, ForkJoinTask<Prerendered>> tasks = new LinkedHashMap<>();
+			for (DeploymentNode node : prerenderable) {
+				tasks.put(node.getName(), pool.submit(() -> prerenderNode(node)));
+			}
+			tasks.forEach((name, task) -> results.put(name, task.join()));
+		} finally {
+			pool.shutdownNow();
+		}
+		List<String> failures = new ArrayList<>();
+		results.forEach((name, result) -> result.recording.getFailedTemplate().ifPresent(template -> failures
+				.add("node: '" + name + "' template: '" + template + "'" + result.getFailureMessage())));
+		if (!failures.isEmpty()) {
+			failures.forEach(failure -> logger.error("Failed to render " + failure));
+			throw new IllegalStateException("Failed to render templates before deploying: " + failures);
+		}
+		return withReplay(graph, results);
+	}
+
+	/**
+	 * The configured parallelism.
+	 * 
+	 * @return
+	 */
+	int getParallelism() {
+		try {
+			int parallelism = config.getIntegerProperty(PROPERTY_KEY_DEPLOYMENT_PRERENDER_PARALLELISM);
+			if (parallelism < 1) {
+				throw new IllegalArgumentException(
+						PROPERTY_KEY_DEPLOYMENT_PRERENDER_PARALLELISM + " must be at least one but was: " + parallelism);
+			}
+			return parallelism;
+		} catch (ConfigurationPropertyNotFound e) {
+			return Runtime.getRuntime().availableProcessors();
+		}
+	}
+
+	/**
+	 * Run the pre-render action of the given node on the current thread while
+	 * planning and recording.
+	 * 
+	 * @param node
+	 * @return
+	 */
+	Prerendered prerenderNode(DeploymentNode node) {
+		RenderRecording recording;
+		List<StackChange> changes;
+		Exception failure = null;
+		try (DeploymentTimeline.Span span = timeline.start(Phase.PRERENDER, node.getName())) {
+			cloudFormationClient.startPlanning();
+			templateRenderer.startRecording();
+			try {
+				node.getPrerenderAction().deploy();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				failure = e;
+			} catch (Exception e) {
+				failure = e;
+			} finally {
+				recording = templateRenderer.stopRecording();
+				changes = cloudFormationClient.stopPlanning();
+			}
+		}
+		if (failure != null && recording.getFailedTemplate().isEmpty()) {
+			logger.info("Could not pre-render node: '" + node.getName() + "' (" + failure.getMessage()
+					+ "), it will be rendered at its turn.");
+		}
+		return new Prerendered(recording, changes, failure);
+	}
+
+	/**
+	 * Copy the given graph, replacing the action of each node that can replay its
+	 * pre-rendered templates.
+	 * 
+	 * @param graph
+	 * @param results
+	 * @return
+	 */
+	DeploymentGraph withReplay(DeploymentGraph graph, Map<String, Prerendered> results) {
+		Set<String> needsWork = new HashSet<>();
+		List<DeploymentNode> nodes = new ArrayList<>(graph.size());
+		for (String name : graph.getTopologicalOrder()) {
+			DeploymentNode node = graph.getNode(name);
+			Prerendered result = results.get(name);
+			boolean dependencyNeedsWork = graph.getDependencies(name).stream().filter(needsWork::contains)
+					.anyMatch(dependency -> !Collections.disjoint(node.getInputs(), graph.getNode(dependency).getOutputs()));
+			if (result == null || result.failure != null || result.isChanged() || dependencyNeedsWork) {
+				needsWork.add(name);
+			}
+			DeploymentAction action = node.getAction();
+			if (result != null && result.failure == null && !dependencyNeedsWork) {
+				List<RenderedTemplate> templates = result.recording.getTemplates();
+				logger.info("Node: '" + name + "' will reuse " + templates.size() + " pre-rendered templates");
+				action = () -> {
+					templateRenderer.startReplay(templates);
+					try {
+						node.getAction().deploy();
+					} finally {
+						templateRenderer.stopReplay();
+					}
+				};
+			}
+			nodes.add(new DeploymentNode(name).withInputs(node.getInputs().toArray(new String[0]))
+					.withImports(node.getImports().toArray(new String[0]))
+					.withOutputs(node.getOutputs().toArray(new String[0])).withAction(action)
+					.withPrerenderAction(node.getPrerenderAction()).withPlannable(node.isPlannable()));
+		}
+		return new DeploymentGraph(nodes);
+	}
+
+	/**
+	 * The result of pre-rendering a single node.
+	 */
+	static class Prerendered {
+
+		private final RenderRecording recording;
+		private final List<StackChange> changes;
+		private final Exception failure;
+
+		Prerendered(RenderRecording recording, List<StackChange> changes, Exception failure) {
+			this.recording = recording;
+			this.changes = changes == null ? Collections.emptyList() : changes;
+			this.failure = failure;
+		}
+
+		String getFailureMessage() {
+			return failure == null ? "" : " (" + failure.getMessage() + ")";
+		}
+
+		boolean isChanged() {
+			return changes.stream().anyMatch(c -> c.getType() != StackChange.Type.UNCHANGED);
+		}
+	}
+
+}
@@ -3,6 +3,7 @@ package org.sagebionetworks.template.dns;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 
 import java.util.Arrays;
 
@@ -20,6 +21,19 @@ public class DnsBuilderMain {
 		String dnsConfigFileResourcePath = String.format(TEMPLATE_RESOURCE_PATH, prefix);
 		DnsBuilderMain.validateResourcePath(dnsConfigFileResourcePath);
 		Injector injector = Guice.createInjector(new TemplateGuiceModule());
+		try {
+			run(injector, args);
+		} finally {
+			injector.getInstance(DeploymentTimingReporter.class).writeReport();
+		}
+	}
+
+	public static void run(Injector injector, String[] args) throws Exception {
+		if (args.length < 1) {
+			throw new IllegalArgumentException("The DNS config prefix is required");
+		}
+		String dnsConfigFileResourcePath = String.format(TEMPLATE_RESOURCE_PATH, args[0]);
+		DnsBuilderMain.validateResourcePath(dnsConfigFileResourcePath);
 		// loads row config
 		DnsConfigBuilder dnsConfigBuilder = loadFromJsonFile(dnsConfigFileResourcePath, DnsConfigBuilder.class);
 		DnsConfig dnsConfig = dnsConfigBuilder.build(); // validates and creates actual config
@@ -3,12 +3,23 @@ package org.sagebionetworks.template.dns;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 
 public class DnsListerMain {
 	public static void main(String[] args) throws Exception {
+		Injector injector = Guice.createInjector(new TemplateGuiceModule());
+		try {
+			run(injector, args);
+		} finally {
+			injector.getInstance(DeploymentTimingReporter.class).writeReport();
+		}
+	}
 
+	public static void run(Injector injector, String[] args) throws Exception {
+		if (args.length < 1) {
+			throw new IllegalArgumentException("The hosted zone id is required");
+		}
 		String hostedZoneId = args[0];
-		Injector injector = Guice.createInjector(new TemplateGuiceModule());
 		DnsBuilder builder = injector.getInstance(DnsBuilder.class);
 		builder.listDns(hostedZoneId);
 	}
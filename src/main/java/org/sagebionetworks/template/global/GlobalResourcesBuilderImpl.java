@@ -2,21 +2,16 @@ package org.sagebionetworks.template.global;
 
 import com.google.inject.Inject;
 import org.apache.logging.log4j.Logger;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
-import org.json.JSONObject;
 import org.sagebionetworks.template.CloudFormationClient;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.LoggerFactory;
 import org.sagebionetworks.template.SesClient;
 import org.sagebionetworks.template.StackTagsProvider;
+import org.sagebionetworks.template.TemplateRenderer;
 import org.sagebionetworks.template.config.Configuration;
 
-import java.io.StringWriter;
-
 import static org.sagebionetworks.template.Constants.GLOBAL_RESOURCES_STACK_NAME_FORMAT;
-import static org.sagebionetworks.template.Constants.JSON_INDENT;
 import static org.sagebionetworks.template.Constants.PROPERTY_KEY_STACK;
 import static org.sagebionetworks.template.Constants.SES_SYNAPSE_DOMAIN;
 import static org.sagebionetworks.template.Constants.STACK;
@@ -28,7 +23,7 @@ import static org.sagebionetworks.template.Constants.GLOBAL_CFSTACK_OUTPUT_KEY_S
 public class GlobalResourcesBuilderImpl implements GlobalResourcesBuilder {
 
     CloudFormationClient cloudFormationClient;
-    VelocityEngine velocityEngine;
+    TemplateRenderer templateRenderer;
     Configuration config;
     Logger logger;
     StackTagsProvider stackTagsProvider;
@@ -36,13 +31,13 @@ public class GlobalResourcesBuilderImpl implements GlobalResourcesBuilder {
 
     @Inject
     public GlobalResourcesBuilderImpl(CloudFormationClient cloudFormationClient,
-                                      VelocityEngine velocityEngine,
+                                      TemplateRenderer templateRenderer,
                                       Configuration config,
                                       LoggerFactory loggerFactory,
                                       StackTagsProvider stackTagsProvider,
                                       SesClient sesClient) {
         this.cloudFormationClient = cloudFormationClient;
-        this.velocityEngine = velocityEngine;
+        this.templateRenderer = templateRenderer;
         this.config = config;
         this.logger = loggerFactory.getLogger(GlobalResourcesBuilderImpl.class);
         this.stackTagsProvider = stackTagsProvider;
@@ -53,12 +48,7 @@ public class GlobalResourcesBuilderImpl implements GlobalResourcesBuilder {
     public void buildGlobalResources() throws InterruptedException {
         String stackName = createStackName();
         VelocityContext context = createContext();
-        Template template = velocityEngine.getTemplate(TEMPLATE_GLOBAL_RESOURCES);
-        StringWriter stringWriter = new StringWriter();
-        template.merge(context, stringWriter);
-        String resultJSON = stringWriter.toString();
-        JSONObject templateJson = new JSONObject(resultJSON);
-        resultJSON = templateJson.toString(JSON_INDENT);
+        String resultJSON = this.templateRenderer.renderJson(TEMPLATE_GLOBAL_RESOURCES, context);
         //this.logger.info(resultJSON);
         cloudFormationClient.createOrUpdateStack(new CreateOrUpdateStackRequest()
             .withStackName(stackName)
@@ -0,0 +1,42 @@
+package org.sagebionetworks.template.governor;
+
+/**
+ * Account-wide limits on the requests made to each AWS service. Each service
+ * has a token bucket for its request rate and a concurrency limit that is
+ * halved when a request is throttled and grows again as requests succeed.
+ *
+ */
+public interface AwsRequestGovernor {
+
+	/**
+	 * Block until a request to the given service is allowed. Each call must be
+	 * followed by a call to {@link #release(String, boolean)}.
+	 * 
+	 * @param serviceName
+	 * @throws InterruptedException
+	 */
+	void acquire(String serviceName) throws InterruptedException;
+
+	/**
+	 * Release a request to the given service.
+	 * 
+	 * @param serviceName
+	 * @param succeeded   Did the request succeed?
+	 */
+	void release(String serviceName, boolean succeeded);
+
+	/**
+	 * Called each time a request to the given service is throttled.
+	 * 
+	 * @param serviceName
+	 */
+	void onThrottled(String serviceName);
+
+	/**
+	 * The current concurrency limit of the given service.
+	 * 
+	 * @param serviceName
+	 * @return
+	 */
+	int getConcurrencyLimit(String serviceName);
+}
@@ -0,0 +1,193 @@
+package org.sagebionetworks.template.governor;
+
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_AWS_MAX_CONCURRENT_REQUESTS;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_AWS_REQUESTS_PER_SECOND_PREFIX;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.template.ConfigurationPropertyNotFound;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.ThreadProvider;
+import org.sagebionetworks.template.config.Configuration;
+
+import com.google.inject.Inject;
+
+public class AwsRequestGovernorImpl implements AwsRequestGovernor {
+
+	/**
+	 * The default rate of a service that is not in
+	 * {@link #DEFAULT_SERVICE_REQUESTS_PER_SECOND}.
+	 */
+	public static final int DEFAULT_REQUESTS_PER_SECOND = 10;
+	/**
+	 * The default rate of each service, keyed by the service name of its
+	 * requests, as the services have very different limits.
+	 */
+	public static final Map<String, Integer> DEFAULT_SERVICE_REQUESTS_PER_SECOND = Map.of(
+			"Amazon S3", 100,
+			"AWSKMS", 50,
+			"AWSSecretsManager", 50,
+			"AWSSecurityTokenService", 50,
+			"AmazonEC2", 20,
+			"AmazonCloudFormation", 10,
+			"AWSElasticBeanstalk", 10,
+			"AmazonRoute53", 5);
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 16;
+	/**
+	 * Throttles within this window of a decrease are caused by requests that
+	 * started before the decrease, so they do not decrease the limit again.
+	 */
+	public static final long DECREASE_COOLDOWN_MS = 1000;
+
+	private final Configuration config;
+	private final ThreadProvider threadProvider;
+	private final Logger logger;
+	private final int maxConcurrentRequests;
+	private final Map<String, ServiceGovernor> services = new ConcurrentHashMap<>();
+
+	@Inject
+	public AwsRequestGovernorImpl(Configuration config, ThreadProvider threadProvider, LoggerFactory loggerFactory) {
+		super();
+		this.config = config;
+		this.threadProvider = threadProvider;
+		this.logger = loggerFactory.getLogger(AwsRequestGovernorImpl.class);
+		this.maxConcurrentRequests = getPositiveInteger(config, PROPERTY_KEY_AWS_MAX_CONCURRENT_REQUESTS,
+				DEFAULT_MAX_CONCURRENT_REQUESTS);
+	}
+
+	static int getPositiveInteger(Configuration config, String key, int defaultValue) {
+		try {
+			int value = config.getIntegerProperty(key);
+			if (value < 1) {
+				throw new IllegalArgumentException(key + " must be at least one but was: " + value);
+			}
+			return value;
+		} catch (ConfigurationPropertyNotFound e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * The configured rate of the given service, else its default rate.
+	 * 
+	 * @param serviceName
+	 * @return
+	 */
+	int getRequestsPerSecond(String serviceName) {
+		return getPositiveInteger(config, getRequestsPerSecondKey(serviceName),
+				DEFAULT_SERVICE_REQUESTS_PER_SECOND.getOrDefault(serviceName, DEFAULT_REQUESTS_PER_SECOND));
+	}
+
+	static String getRequestsPerSecondKey(String serviceName) {
+		return PROPERTY_KEY_AWS_REQUESTS_PER_SECOND_PREFIX + "." + serviceName.replace(" ", "");
+	}
+
+	ServiceGovernor getService(String serviceName) {
+		return services.computeIfAbsent(serviceName, ServiceGovernor::new);
+	}
+
+	@Override
+	public void acquire(String serviceName) throws InterruptedException {
+		ServiceGovernor service = getService(serviceName);
+		service.acquireConcurrency();
+		try {
+			long waitMs;
+			while ((waitMs = service.takeToken()) > 0) {
+				threadProvider.sleep(waitMs);
+			}
+		} catch (InterruptedException e) {
+			service.release(false);
+			throw e;
+		}
+	}
+
+	@Override
+	public void release(String serviceName, boolean succeeded) {
+		getService(serviceName).release(succeeded);
+	}
+
+	@Override
+	public void onThrottled(String serviceName) {
+		getService(serviceName).decrease();
+	}
+
+	@Override
+	public int getConcurrencyLimit(String serviceName) {
+		return getService(serviceName).getLimit();
+	}
+
+	/**
+	 * The token bucket and the additive-increase/multiplicative-decrease
+	 * concurrency limit of a single service.
+	 *
+	 */
+	class ServiceGovernor {
+
+		private final String serviceName;
+		private final int requestsPerSecond;
+		private double limit;
+		private int inFlight;
+		private double tokens;
+		private long lastRefillMs;
+		private long lastDecreaseMs;
+
+		ServiceGovernor(String serviceName) {
+			this.serviceName = serviceName;
+			this.requestsPerSecond = getRequestsPerSecond(serviceName);
+			this.limit = maxConcurrentRequests;
+			this.tokens = requestsPerSecond;
+			this.lastRefillMs = threadProvider.currentTimeMillis();
+			this.lastDecreaseMs = Long.MIN_VALUE;
+		}
+
+		synchronized void acquireConcurrency() throws InterruptedException {
+			while (inFlight >= getLimit()) {
+				wait();
+			}
+			inFlight++;
+		}
+
+		/**
+		 * Take a token from the bucket.
+		 * 
+		 * @return Zero if a token was taken, else how long to wait before trying
+		 *         again.
+		 */
+		synchronized long takeToken() {
+			long now = threadProvider.currentTimeMillis();
+			tokens = Math.min(requestsPerSecond, tokens + (now - lastRefillMs) * requestsPerSecond / 1000.0);
+			lastRefillMs = now;
+			if (tokens >= 1) {
+				tokens -= 1;
+				return 0;
+			}
+			return Math.max(1, (long) Math.ceil((1 - tokens) * 1000.0 / requestsPerSecond));
+		}
+
+		synchronized void release(boolean succeeded) {
+			inFlight--;
+			if (succeeded && limit < maxConcurrentRequests) {
+				// grows by about one for each limit's worth of successful requests.
+				limit = Math.min(maxConcurrentRequests, limit + 1.0 / limit);
+			}
+			notifyAll();
+		}
+
+		synchronized void decrease() {
+			long now = threadProvider.currentTimeMillis();
+			if (lastDecreaseMs != Long.MIN_VALUE && now - lastDecreaseMs < DECREASE_COOLDOWN_MS) {
+				return;
+			}
+			lastDecreaseMs = now;
+			limit = Math.max(1, limit / 2);
+			logger.warn("Requests to: " + serviceName + " were throttled, reduced the concurrency limit to: "
+					+ getLimit());
+		}
+
+		synchronized int getLimit() {
+			return (int) limit;
+		}
+	}
+}
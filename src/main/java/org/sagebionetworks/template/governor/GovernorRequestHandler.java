@@ -0,0 +1,70 @@
+package org.sagebionetworks.template.governor;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.SdkBaseException;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.retry.RetryUtils;
+import com.google.inject.Inject;
+
+/**
+ * Applies the {@link AwsRequestGovernor} to every request of the AWS clients
+ * it is added to. A request holds its permit across the retries of the SDK
+ * and each throttled attempt reduces the concurrency limit of its service.
+ *
+ */
+public class GovernorRequestHandler extends RequestHandler2 {
+
+	static final HandlerContextKey<Boolean> ACQUIRED = new HandlerContextKey<>("GovernorPermitAcquired");
+
+	private final AwsRequestGovernor governor;
+
+	@Inject
+	public GovernorRequestHandler(AwsRequestGovernor governor) {
+		super();
+		this.governor = governor;
+	}
+
+	@Override
+	public void beforeRequest(Request<?> request) {
+		try {
+			governor.acquire(request.getServiceName());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AbortedException(e);
+		}
+		request.addHandlerContext(ACQUIRED, Boolean.TRUE);
+	}
+
+	@Override
+	public void afterAttempt(HandlerAfterAttemptContext context) {
+		if (isThrottling(context.getException())) {
+			governor.onThrottled(context.getRequest().getServiceName());
+		}
+	}
+
+	@Override
+	public void afterResponse(Request<?> request, Response<?> response) {
+		release(request, true);
+	}
+
+	@Override
+	public void afterError(Request<?> request, Response<?> response, Exception e) {
+		release(request, false);
+	}
+
+	void release(Request<?> request, boolean succeeded) {
+		// only release a permit once.
+		if (Boolean.TRUE.equals(request.getHandlerContext(ACQUIRED))) {
+			request.addHandlerContext(ACQUIRED, Boolean.FALSE);
+			governor.release(request.getServiceName(), succeeded);
+		}
+	}
+
+	static boolean isThrottling(Exception exception) {
+		return exception instanceof SdkBaseException && RetryUtils.isThrottlingException((SdkBaseException) exception);
+	}
+}
@@ -1,6 +1,7 @@
 package org.sagebionetworks.template.ip.address;
 
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -9,8 +10,12 @@ public class IpAddressPoolMain {
 
 	public static void main(String[] args) {
 		Injector injector = Guice.createInjector(new TemplateGuiceModule());
-		IpAddressPoolBuilder builder = injector.getInstance(IpAddressPoolBuilder.class);
-		builder.buildAndDeploy();
+		try {
+			IpAddressPoolBuilder builder = injector.getInstance(IpAddressPoolBuilder.class);
+			builder.buildAndDeploy();
+		} finally {
+			injector.getInstance(DeploymentTimingReporter.class).writeReport();
+		}
 	}
 
 }
@@ -3,6 +3,7 @@ package org.sagebionetworks.template.jobs;
 import org.sagebionetworks.repo.model.asynch.AsynchronousAdminRequestBody;
 import org.sagebionetworks.schema.adapter.org.json.EntityFactory;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -10,14 +11,21 @@ import com.google.inject.Injector;
 public class AsyncAdminJobExecutorMain {
 	
 	public static void main(String[] args) throws Exception {
+		Injector injector = Guice.createInjector(new TemplateGuiceModule());
+		try {
+			run(injector, args);
+		} finally {
+			injector.getInstance(DeploymentTimingReporter.class).writeReport();
+		}
+	}
+	
+	public static void run(Injector injector, String[] args) throws Exception {
 		if (args.length < 1) {
 			throw new IllegalArgumentException("The request body is required");
 		}
 		
 		String stringRequest = args[0];
 		
-		Injector injector = Guice.createInjector(new TemplateGuiceModule());
-		
 		AsynchAdminJobExecutor jobExecutor = injector.getInstance(AsynchAdminJobExecutor.class);
 		
 		AsynchronousAdminRequestBody requestBody = EntityFactory.createEntityFromJSONString(stringRequest, AsynchronousAdminRequestBody.class);
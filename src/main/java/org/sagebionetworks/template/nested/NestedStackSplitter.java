@@ -0,0 +1,462 @@
+package org.sagebionetworks.template.nested;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Splits the resources of a template into nested stacks.
+ * <p>
+ * Resources that reference each other through Ref, Fn::GetAtt, Fn::Sub or
+ * DependsOn form a group that must stay together. Each group is moved to a
+ * nested stack of its own, so CloudFormation can create the nested stacks in
+ * parallel. A group stays in the parent when it:
+ * <ul>
+ * <li>has a single resource, since moving it would not shrink the parent;</li>
+ * <li>has a resource with a retaining DeletionPolicy or UpdateReplacePolicy,
+ * since those resources hold state;</li>
+ * <li>uses a condition;</li>
+ * <li>is referenced by a conditional output or an output that spans
+ * groups;</li>
+ * <li>would exceed the given limits as a stack of its own.</li>
+ * </ul>
+ * A new nested stack is named after the first logical ID of its group. Once a
+ * stack is deployed, its resources keep their nested stacks, see
+ * {@link #split(ObjectNode, ResourceLocations)}.
+ *
+ */
+public class NestedStackSplitter {
+
+	public static final String NESTED_STACK_PREFIX = "Nested";
+	public static final String NESTED_STACK_TYPE = "AWS::CloudFormation::Stack";
+	public static final int MAX_PARAMETERS = 200;
+	public static final int MAX_OUTPUTS = 200;
+
+	static final String RESOURCES = TemplateStats.RESOURCES;
+	static final String PARAMETERS = "Parameters";
+	static final String OUTPUTS = "Outputs";
+	static final String MAPPINGS = "Mappings";
+	static final String TRANSFORM = "Transform";
+	static final String FORMAT_VERSION = "AWSTemplateFormatVersion";
+	static final String DESCRIPTION = "Description";
+	static final String TYPE = "Type";
+	static final String PROPERTIES = "Properties";
+	static final String VALUE = "Value";
+	static final String CONDITION = "Condition";
+	static final String TEMPLATE_URL = "TemplateURL";
+	// not a valid logical ID, so it cannot be the ID of a nested stack.
+	static final String PARENT = "(parent)";
+
+	private static final Set<String> CONDITIONAL_KEYS = Set.of(CONDITION, "Fn::If");
+	private static final Set<String> MAPPING_KEYS = Set.of("Fn::FindInMap");
+	private static final Set<String> RETAINING_POLICIES = Set.of("DeletionPolicy", "UpdateReplacePolicy");
+	// ${Name} or ${Name.Attribute} but not the literal ${!Name}
+	private static final Pattern SUB_VARIABLE = Pattern.compile("\\$\\{([^!}][^}]*)\\}");
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final int maxChildBytes;
+	private final int maxChildResources;
+
+	/**
+	 * @param maxChildBytes     The largest group, in bytes, that may be moved to
+	 *                          a nested stack.
+	 * @param maxChildResources The most resources that may be moved to a single
+	 *                          nested stack.
+	 */
+	public NestedStackSplitter(int maxChildBytes, int maxChildResources) {
+		super();
+		this.maxChildBytes = maxChildBytes;
+		this.maxChildResources = maxChildResources;
+	}
+
+	/**
+	 * Split the given template. The template is not modified. The TemplateURL of
+	 * each nested stack in the parent must be set with
+	 * {@link SplitTemplate#setTemplateUrl(String, String)} once the child has
+	 * been uploaded.
+	 *
+	 * @param template
+	 * @return Empty if no group of resources can be moved.
+	 */
+	public Optional<SplitTemplate> split(ObjectNode template) {
+		return split(template, new ResourceLocations());
+	}
+
+	/**
+	 * Split the given template of a stack that is already deployed. Every
+	 * deployed resource keeps its place: a resource in a nested stack stays in
+	 * that nested stack, even when its group would no longer be moved, and a
+	 * resource in the parent stays in the parent. A new resource joins the stack
+	 * of the group it references, and only groups of new resources are given new
+	 * nested stacks.
+	 *
+	 * @param template
+	 * @param deployed Where each resource of the deployed stack is.
+	 * @return Empty if no group of resources is, or can be, in a nested stack.
+	 * @throws IllegalStateException If a deployed resource would have to move to
+	 *                               another stack, which replaces the resource.
+	 */
+	public Optional<SplitTemplate> split(ObjectNode template, ResourceLocations deployed) {
+		if (template.has(TRANSFORM) || !template.path(RESOURCES).isObject()) {
+			return Optional.empty();
+		}
+		JsonNode resources = template.get(RESOURCES);
+		Set<String> parameterNames = fieldNames(template.path(PARAMETERS));
+
+		Map<String, String> roots = new HashMap<>();
+		resources.fieldNames().forEachRemaining(name -> roots.put(name, name));
+		resources.fields().forEachRemaining(e -> {
+			for (String reference : findReferences(e.getValue())) {
+				if (resources.has(reference)) {
+					union(roots, e.getKey(), reference);
+				}
+			}
+		});
+		Map<String, TreeSet<String>> groups = new TreeMap<>();
+		for (String name : roots.keySet()) {
+			groups.computeIfAbsent(find(roots, name), k -> new TreeSet<>()).add(name);
+		}
+
+		// The nested stack of each group by the root of the group. A group with a
+		// deployed resource stays where that resource is.
+		Map<String, String> groupStacks = new HashMap<>();
+		Set<String> deployedGroups = new HashSet<>();
+		for (Map.Entry<String, TreeSet<String>> group : groups.entrySet()) {
+			Set<String> locations = new TreeSet<>();
+			for (String name : group.getValue()) {
+				if (deployed.isInParent(name)) {
+					locations.add(PARENT);
+				}
+				deployed.getNestedStackId(name).ifPresent(locations::add);
+			}
+			if (locations.size() > 1) {
+				throw new IllegalStateException("Resources: " + group.getValue()
+						+ " reference each other but are deployed in different stacks: " + locations
+						+ ". Moving a resource to another stack would replace it.");
+			}
+			if (!locations.isEmpty()) {
+				deployedGroups.add(group.getKey());
+				String location = locations.iterator().next();
+				if (!PARENT.equals(location)) {
+					groupStacks.put(group.getKey(), location);
+				}
+			}
+		}
+
+		// An output can follow its group into a nested stack when it only
+		// references that group.
+		Set<String> pinned = new HashSet<>();
+		Map<String, Set<String>> outputRoots = new LinkedHashMap<>();
+		JsonNode outputs = template.path(OUTPUTS);
+		outputs.fields().forEachRemaining(e -> {
+			Set<String> referencedRoots = new TreeSet<>();
+			for (String reference : findReferences(e.getValue())) {
+				if (resources.has(reference)) {
+					referencedRoots.add(find(roots, reference));
+				}
+			}
+			if (referencedRoots.size() > 1 || (!referencedRoots.isEmpty() && e.getValue().has(CONDITION))) {
+				pinned.addAll(referencedRoots);
+			}
+			outputRoots.put(e.getKey(), referencedRoots);
+		});
+
+		Set<String> stackIds = new HashSet<>(groupStacks.values());
+		for (Map.Entry<String, TreeSet<String>> group : groups.entrySet()) {
+			if (deployedGroups.contains(group.getKey()) || pinned.contains(group.getKey())
+					|| !isMovable(resources, group.getValue())) {
+				continue;
+			}
+			long groupOutputs = outputRoots.values().stream().filter(r -> r.equals(Set.of(group.getKey()))).count();
+			if (groupOutputs > MAX_OUTPUTS) {
+				continue;
+			}
+			String stackId = uniqueId(NESTED_STACK_PREFIX + group.getKey(), resources, stackIds);
+			groupStacks.put(group.getKey(), stackId);
+			stackIds.add(stackId);
+		}
+
+		// New groups were kept out of nested stacks for outputs that span stacks, so
+		// such an output can only involve a deployed nested stack.
+		Map<String, Set<String>> stackOutputs = new HashMap<>();
+		for (Map.Entry<String, Set<String>> output : outputRoots.entrySet()) {
+			Set<String> outputStacks = new TreeSet<>();
+			output.getValue().forEach(root -> outputStacks.add(groupStacks.getOrDefault(root, PARENT)));
+			if (outputStacks.isEmpty() || outputStacks.equals(Set.of(PARENT))) {
+				continue;
+			}
+			if (outputStacks.size() > 1 || outputs.get(output.getKey()).has(CONDITION)) {
+				throw new IllegalStateException("Output: '" + output.getKey() + "' references resources deployed in: "
+						+ outputStacks + (outputStacks.size() > 1 ? "" : " with a condition")
+						+ ". Moving a resource to another stack would replace it.");
+			}
+			stackOutputs.computeIfAbsent(outputStacks.iterator().next(), k -> new TreeSet<>()).add(output.getKey());
+		}
+
+		Map<String, TreeSet<String>> stackResources = new TreeMap<>();
+		groupStacks.forEach((root, stackId) -> stackResources.computeIfAbsent(stackId, k -> new TreeSet<>())
+				.addAll(groups.get(root)));
+
+		ObjectNode parent = template.deepCopy();
+		Map<String, ObjectNode> children = new LinkedHashMap<>();
+		for (Map.Entry<String, TreeSet<String>> stack : stackResources.entrySet()) {
+			String stackId = stack.getKey();
+			Set<String> childOutputs = stackOutputs.getOrDefault(stackId, Set.of());
+			ObjectNode child = createChild(template, stack.getValue(), childOutputs, parameterNames);
+			boolean fits = child.path(PARAMETERS).size() <= MAX_PARAMETERS && childOutputs.size() <= MAX_OUTPUTS;
+			if (deployed.isDeployedNestedStack(stackId)) {
+				if (!fits || !fitsNestedStack(resources, stack.getValue())) {
+					throw new IllegalStateException("Nested stack: '" + stackId + "' can no longer hold its resources: "
+							+ stack.getValue() + ", they use a condition or exceed the limits of a nested stack."
+							+ " Moving them to the parent would replace them.");
+				}
+			} else if (!fits) {
+				continue;
+			}
+			moveToChild(parent, stackId, child, stack.getValue(), childOutputs);
+			children.put(stackId, child);
+		}
+		if (children.isEmpty()) {
+			return Optional.empty();
+		}
+		return Optional.of(new SplitTemplate(parent, children));
+	}
+
+	/**
+	 * A group can be moved when it has more than one resource, none of its
+	 * resources are retained and it can be held by a nested stack.
+	 */
+	boolean isMovable(JsonNode resources, Set<String> group) {
+		if (group.size() < 2) {
+			return false;
+		}
+		for (String name : group) {
+			JsonNode resource = resources.get(name);
+			for (String policy : RETAINING_POLICIES) {
+				if (resource.has(policy) && !"Delete".equals(resource.get(policy).asText())) {
+					return false;
+				}
+			}
+		}
+		return fitsNestedStack(resources, group);
+	}
+
+	/**
+	 * A nested stack can hold the given resources when they fit within the
+	 * limits and none of them are conditional.
+	 */
+	boolean fitsNestedStack(JsonNode resources, Set<String> group) {
+		if (group.size() > maxChildResources) {
+			return false;
+		}
+		long bytes = 0;
+		for (String name : group) {
+			JsonNode resource = resources.get(name);
+			if (containsKey(resource, CONDITIONAL_KEYS)) {
+				return false;
+			}
+			bytes += resource.toString().getBytes(StandardCharsets.UTF_8).length;
+		}
+		return bytes <= maxChildBytes;
+	}
+
+	/**
+	 * Create the template of a nested stack holding the given group of resources
+	 * and outputs, declaring each parameter of the parent that it references.
+	 */
+	ObjectNode createChild(ObjectNode template, Set<String> group, Set<String> groupOutputs,
+			Set<String> parameterNames) {
+		ObjectNode child = MAPPER.createObjectNode();
+		if (template.has(FORMAT_VERSION)) {
+			child.set(FORMAT_VERSION, template.get(FORMAT_VERSION).deepCopy());
+		}
+		child.put(DESCRIPTION, "Nested resources of group: " + group.iterator().next());
+		Set<String> references = new TreeSet<>();
+		boolean usesMappings = false;
+		ObjectNode childResources = MAPPER.createObjectNode();
+		for (String name : group) {
+			JsonNode resource = template.get(RESOURCES).get(name);
+			childResources.set(name, resource.deepCopy());
+			references.addAll(findReferences(resource));
+			usesMappings |= containsKey(resource, MAPPING_KEYS);
+		}
+		ObjectNode childOutputs = MAPPER.createObjectNode();
+		for (String key : groupOutputs) {
+			JsonNode value = template.get(OUTPUTS).get(key).get(VALUE);
+			childOutputs.putObject(key).set(VALUE, value.deepCopy());
+			references.addAll(findReferences(value));
+			usesMappings |= containsKey(value, MAPPING_KEYS);
+		}
+		references.retainAll(parameterNames);
+		if (!references.isEmpty()) {
+			ObjectNode childParameters = child.putObject(PARAMETERS);
+			for (String parameter : references) {
+				childParameters.set(parameter, template.get(PARAMETERS).get(parameter).deepCopy());
+			}
+		}
+		if (usesMappings && template.has(MAPPINGS)) {
+			child.set(MAPPINGS, template.get(MAPPINGS).deepCopy());
+		}
+		child.set(RESOURCES, childResources);
+		if (!groupOutputs.isEmpty()) {
+			child.set(OUTPUTS, childOutputs);
+		}
+		return child;
+	}
+
+	/**
+	 * Replace the group in the parent with a nested stack that is passed the
+	 * parameters the child declares. Outputs of the group are read from the
+	 * nested stack.
+	 */
+	void moveToChild(ObjectNode parent, String stackId, ObjectNode child, Set<String> group,
+			Set<String> groupOutputs) {
+		ObjectNode parentResources = (ObjectNode) parent.get(RESOURCES);
+		parentResources.remove(group);
+		ObjectNode stack = parentResources.putObject(stackId);
+		stack.put(TYPE, NESTED_STACK_TYPE);
+		ObjectNode properties = stack.putObject(PROPERTIES);
+		if (child.has(PARAMETERS)) {
+			ObjectNode stackParameters = properties.putObject(PARAMETERS);
+			child.get(PARAMETERS).fields().forEachRemaining(e -> {
+				String type = e.getValue().path(TYPE).asText();
+				ObjectNode ref = MAPPER.createObjectNode().put("Ref", e.getKey());
+				if (type.startsWith("List<") || "CommaDelimitedList".equals(type)) {
+					// nested stack parameters are always strings
+					ObjectNode join = stackParameters.putObject(e.getKey());
+					join.putArray("Fn::Join").add(",").add(ref);
+				} else {
+					stackParameters.set(e.getKey(), ref);
+				}
+			});
+		}
+		for (String key : groupOutputs) {
+			ObjectNode output = (ObjectNode) parent.get(OUTPUTS).get(key);
+			output.putObject(VALUE).putArray("Fn::GetAtt").add(stackId).add(OUTPUTS + "." + key);
+		}
+	}
+
+	/**
+	 * Find the names of all resources and parameters referenced by the given
+	 * node. Names that are neither, such as pseudo parameters, are included and
+	 * should be ignored by the caller.
+	 *
+	 * @param node
+	 * @return
+	 */
+	static Set<String> findReferences(JsonNode node) {
+		Set<String> names = new HashSet<>();
+		collectReferences(node, names);
+		return names;
+	}
+
+	private static void collectReferences(JsonNode node, Set<String> names) {
+		if (node.isArray()) {
+			node.forEach(element -> collectReferences(element, names));
+			return;
+		}
+		Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			JsonNode value = field.getValue();
+			switch (field.getKey()) {
+			case "Ref":
+				names.add(value.asText());
+				break;
+			case "Fn::GetAtt":
+				names.add(value.isArray() ? value.path(0).asText() : value.asText().split("\\.")[0]);
+				break;
+			case "Fn::Sub":
+				JsonNode text = value.isArray() ? value.path(0) : value;
+				Set<String> locals = value.isArray() ? fieldNames(value.path(1)) : Set.of();
+				Matcher matcher = SUB_VARIABLE.matcher(text.asText());
+				while (matcher.find()) {
+					String name = matcher.group(1).split("\\.")[0].trim();
+					if (!locals.contains(name)) {
+						names.add(name);
+					}
+				}
+				break;
+			case "DependsOn":
+				if (value.isArray()) {
+					value.forEach(dependency -> names.add(dependency.asText()));
+				} else {
+					names.add(value.asText());
+				}
+				break;
+			default:
+				break;
+			}
+			collectReferences(value, names);
+		}
+	}
+
+	static boolean containsKey(JsonNode node, Set<String> keys) {
+		if (node.isArray()) {
+			for (JsonNode element : node) {
+				if (containsKey(element, keys)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			if (keys.contains(field.getKey()) || containsKey(field.getValue(), keys)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static Set<String> fieldNames(JsonNode node) {
+		Set<String> names = new HashSet<>();
+		node.fieldNames().forEachRemaining(names::add);
+		return names;
+	}
+
+	private static String uniqueId(String id, JsonNode resources, Set<String> stackIds) {
+		String unique = id;
+		for (int i = 2; resources.has(unique) || stackIds.contains(unique); i++) {
+			unique = id + i;
+		}
+		return unique;
+	}
+
+	private static String find(Map<String, String> roots, String name) {
+		String root = roots.get(name);
+		while (!root.equals(name)) {
+			name = root;
+			root = roots.get(name);
+		}
+		return root;
+	}
+
+	/**
+	 * Join the groups of the two names, the root of a group is always its first
+	 * name.
+	 */
+	private static void union(Map<String, String> roots, String one, String two) {
+		String rootOne = find(roots, one);
+		String rootTwo = find(roots, two);
+		if (rootOne.compareTo(rootTwo) < 0) {
+			roots.put(rootTwo, rootOne);
+		} else if (rootTwo.compareTo(rootOne) < 0) {
+			roots.put(rootOne, rootTwo);
+		}
+	}
+}
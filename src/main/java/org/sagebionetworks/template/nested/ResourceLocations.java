@@ -0,0 +1,57 @@
+package org.sagebionetworks.template.nested;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Where each resource of a deployed stack is: in the parent stack or in one of
+ * the nested stacks that it was split into. Resources that are not deployed
+ * have no location.
+ *
+ */
+public class ResourceLocations {
+
+	private final Set<String> parentResources = new HashSet<>();
+	private final Map<String, String> nestedStackIds = new HashMap<>();
+
+	/**
+	 * @param logicalId A resource that is deployed in the parent stack.
+	 */
+	public void addToParent(String logicalId) {
+		parentResources.add(logicalId);
+	}
+
+	/**
+	 * @param logicalId     A resource that is deployed in a nested stack.
+	 * @param nestedStackId The logical ID of the nested stack in the parent.
+	 */
+	public void addToNestedStack(String logicalId, String nestedStackId) {
+		nestedStackIds.put(logicalId, nestedStackId);
+	}
+
+	public boolean isInParent(String logicalId) {
+		return parentResources.contains(logicalId);
+	}
+
+	/**
+	 * @param logicalId
+	 * @return The logical ID of the nested stack that the given resource is
+	 *         deployed in, if any.
+	 */
+	public Optional<String> getNestedStackId(String logicalId) {
+		return Optional.ofNullable(nestedStackIds.get(logicalId));
+	}
+
+	/**
+	 * @param nestedStackId
+	 * @return True if the given nested stack is deployed with at least one
+	 *         resource.
+	 */
+	public boolean isDeployedNestedStack(String nestedStackId) {
+		return nestedStackIds.containsValue(nestedStackId);
+	}
+
+}
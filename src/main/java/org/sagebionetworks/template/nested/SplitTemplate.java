@@ -0,0 +1,43 @@
+package org.sagebionetworks.template.nested;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * The result of splitting a template: the parent template and the template of
+ * each nested stack keyed by the logical ID of its stack resource in the
+ * parent.
+ *
+ */
+public class SplitTemplate {
+
+	private final ObjectNode parent;
+	private final Map<String, ObjectNode> children;
+
+	public SplitTemplate(ObjectNode parent, Map<String, ObjectNode> children) {
+		super();
+		this.parent = parent;
+		this.children = children;
+	}
+
+	public ObjectNode getParent() {
+		return parent;
+	}
+
+	public Map<String, ObjectNode> getChildren() {
+		return children;
+	}
+
+	/**
+	 * Set the URL that the parent uses to load the template of a nested stack.
+	 *
+	 * @param stackId The logical ID of the nested stack in the parent.
+	 * @param url
+	 */
+	public void setTemplateUrl(String stackId, String url) {
+		((ObjectNode) parent.get(NestedStackSplitter.RESOURCES).get(stackId).get(NestedStackSplitter.PROPERTIES))
+				.put(NestedStackSplitter.TEMPLATE_URL, url);
+	}
+
+}
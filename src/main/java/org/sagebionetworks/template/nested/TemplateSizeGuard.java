@@ -0,0 +1,35 @@
+package org.sagebionetworks.template.nested;
+
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+import com.amazonaws.services.cloudformation.model.Stack;
+
+/**
+ * Guards against templates that outgrow the CloudFormation limits on template
+ * size and resource count.
+ *
+ */
+public interface TemplateSizeGuard {
+
+	/**
+	 * Measure the given template and, when it approaches the CloudFormation
+	 * limits, split its resource groups into nested stacks. A stack that was split
+	 * before is always split again, and each of its deployed resources stays in
+	 * the stack it is deployed in.
+	 * 
+	 * @param stackName
+	 * @param template  The minified template.
+	 * @param existing  The stack as it exists now.
+	 * @param uploader  Called with the name and body of each nested template and
+	 *                  returns the URL of the uploaded template.
+	 * @return The parent template when the template was split.
+	 * @throws IllegalStateException If the stack was split before but its
+	 *                               template can no longer be split, or a
+	 *                               deployed resource would have to move to
+	 *                               another stack.
+	 */
+	Optional<String> guard(String stackName, String template, Optional<Stack> existing,
+			BiFunction<String, String, String> uploader);
+
+}
@@ -0,0 +1,187 @@
+package org.sagebionetworks.template.nested;
+
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_TEMPLATE_SPLIT_EXISTING_STACKS;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_TEMPLATE_SPLIT_THRESHOLD_PERCENT;
+import static org.sagebionetworks.template.Constants.TAG_KEY_NESTED_STACK_SPLIT;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.template.ConfigurationPropertyNotFound;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.config.Configuration;
+
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.model.ListStackResourcesRequest;
+import com.amazonaws.services.cloudformation.model.ListStackResourcesResult;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackResourceSummary;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+
+public class TemplateSizeGuardImpl implements TemplateSizeGuard {
+
+	/**
+	 * The largest template CloudFormation accepts by S3 URL.
+	 */
+	public static final int MAX_TEMPLATE_BYTES = 1_000_000;
+	/**
+	 * The most resources CloudFormation accepts in a single template.
+	 */
+	public static final int MAX_RESOURCES = 500;
+	public static final int DEFAULT_THRESHOLD_PERCENT = 80;
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final AmazonCloudFormation cloudFormationClient;
+	private final Logger logger;
+	private final int thresholdPercent;
+	private final boolean splitExistingStacks;
+	private final NestedStackSplitter splitter;
+
+	@Inject
+	public TemplateSizeGuardImpl(AmazonCloudFormation cloudFormationClient, Configuration config,
+			LoggerFactory loggerFactory) {
+		super();
+		this.cloudFormationClient = cloudFormationClient;
+		this.logger = loggerFactory.getLogger(TemplateSizeGuardImpl.class);
+		this.thresholdPercent = getThresholdPercent(config);
+		this.splitExistingStacks = getSplitExistingStacks(config);
+		this.splitter = new NestedStackSplitter(MAX_TEMPLATE_BYTES / 100 * thresholdPercent,
+				MAX_RESOURCES * thresholdPercent / 100);
+	}
+
+	static int getThresholdPercent(Configuration config) {
+		try {
+			int percent = config.getIntegerProperty(PROPERTY_KEY_TEMPLATE_SPLIT_THRESHOLD_PERCENT);
+			if (percent < 1 || percent > 100) {
+				throw new IllegalArgumentException(
+						PROPERTY_KEY_TEMPLATE_SPLIT_THRESHOLD_PERCENT + " must be between 1 and 100 but was: " + percent);
+			}
+			return percent;
+		} catch (ConfigurationPropertyNotFound e) {
+			return DEFAULT_THRESHOLD_PERCENT;
+		}
+	}
+
+	static boolean getSplitExistingStacks(Configuration config) {
+		try {
+			return config.getBooleanProperty(PROPERTY_KEY_TEMPLATE_SPLIT_EXISTING_STACKS);
+		} catch (ConfigurationPropertyNotFound e) {
+			return false;
+		}
+	}
+
+	@Override
+	public Optional<String> guard(String stackName, String template, Optional<Stack> existing,
+			BiFunction<String, String, String> uploader) {
+		boolean wasSplit = existing.map(TemplateSizeGuardImpl::isSplit).orElse(false);
+		Optional<TemplateStats> measured = TemplateStats.measure(template);
+		if (measured.isEmpty()) {
+			if (wasSplit) {
+				throw new IllegalStateException("Stack: '" + stackName
+						+ "' was split into nested stacks, but its template is no longer a JSON object that can be split.");
+			}
+			return Optional.empty();
+		}
+		TemplateStats stats = measured.get();
+		int percent = stats.percentOfLimits(MAX_TEMPLATE_BYTES, MAX_RESOURCES);
+		if (percent < thresholdPercent && !wasSplit) {
+			return Optional.empty();
+		}
+		String description = "Template for stack: '" + stackName + "' is " + stats + ", " + percent
+				+ "% of the CloudFormation limits";
+		if (existing.isPresent() && !wasSplit && !splitExistingStacks) {
+			logger.warn(description + ". Set " + PROPERTY_KEY_TEMPLATE_SPLIT_EXISTING_STACKS
+					+ " to split it into nested stacks, which replaces the moved resources.");
+			return Optional.empty();
+		}
+		ObjectNode tree;
+		try {
+			tree = (ObjectNode) MAPPER.readTree(template);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException(e);
+		}
+		// a split stack keeps each resource where it is deployed, since moving a resource replaces it.
+		ResourceLocations deployed = wasSplit ? readLocations(existing.get(), tree) : new ResourceLocations();
+		Optional<SplitTemplate> split = splitter.split(tree, deployed);
+		if (split.isEmpty()) {
+			if (wasSplit) {
+				logger.warn(description + ". None of its resources are in nested stacks any more, so it is no longer split.");
+			} else {
+				logger.warn(description + ", but none of its resource groups can be moved to a nested stack.");
+			}
+			return Optional.empty();
+		}
+		for (Map.Entry<String, ObjectNode> child : split.get().getChildren().entrySet()) {
+			String url = uploader.apply(stackName + "-" + child.getKey(), child.getValue().toString());
+			split.get().setTemplateUrl(child.getKey(), url);
+		}
+		String parent = split.get().getParent().toString();
+		logger.info(description + ". Split it into " + split.get().getChildren().size()
+				+ " nested stacks: " + split.get().getChildren().keySet() + ", the parent is "
+				+ TemplateStats.measure(parent).get());
+		return Optional.of(parent);
+	}
+
+	/**
+	 * Read where each resource of the given split stack is deployed. The nested
+	 * stacks created by the split are the stack resources of the parent that are
+	 * not in the template.
+	 *
+	 * @param stack
+	 * @param template The template before it is split.
+	 * @return
+	 */
+	ResourceLocations readLocations(Stack stack, ObjectNode template) {
+		ResourceLocations locations = new ResourceLocations();
+		JsonNode resources = template.path(NestedStackSplitter.RESOURCES);
+		for (StackResourceSummary summary : listStackResources(stack.getStackId())) {
+			String logicalId = summary.getLogicalResourceId();
+			if (NestedStackSplitter.NESTED_STACK_TYPE.equals(summary.getResourceType())
+					&& logicalId.startsWith(NestedStackSplitter.NESTED_STACK_PREFIX) && !resources.has(logicalId)) {
+				for (StackResourceSummary nested : listStackResources(summary.getPhysicalResourceId())) {
+					locations.addToNestedStack(nested.getLogicalResourceId(), logicalId);
+				}
+			} else {
+				locations.addToParent(logicalId);
+			}
+		}
+		return locations;
+	}
+
+	/**
+	 * List all of the resources of the given stack.
+	 *
+	 * @param stackId
+	 * @return
+	 */
+	List<StackResourceSummary> listStackResources(String stackId) {
+		List<StackResourceSummary> summaries = new ArrayList<>();
+		String nextToken = null;
+		do {
+			ListStackResourcesResult result = cloudFormationClient
+					.listStackResources(new ListStackResourcesRequest().withStackName(stackId).withNextToken(nextToken));
+			summaries.addAll(result.getStackResourceSummaries());
+			nextToken = result.getNextToken();
+		} while (nextToken != null);
+		return summaries;
+	}
+
+	/**
+	 * @param stack
+	 * @return True if the given stack was split into nested stacks by the builder.
+	 */
+	static boolean isSplit(Stack stack) {
+		return stack.getTags() != null && stack.getTags().stream()
+				.anyMatch(t -> TAG_KEY_NESTED_STACK_SPLIT.equals(t.getKey()) && Boolean.parseBoolean(t.getValue()));
+	}
+
+}
@@ -0,0 +1,109 @@
+package org.sagebionetworks.template.nested;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Optional;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * The size of a rendered template as measured against the CloudFormation
+ * limits.
+ *
+ */
+public class TemplateStats {
+
+	public static final String RESOURCES = "Resources";
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final int minifiedBytes;
+	private final int resourceCount;
+
+	public TemplateStats(int minifiedBytes, int resourceCount) {
+		super();
+		this.minifiedBytes = minifiedBytes;
+		this.resourceCount = resourceCount;
+	}
+
+	/**
+	 * Measure the given minified template with a streaming parser, without
+	 * building a tree of the template.
+	 *
+	 * @param minifiedTemplate
+	 * @return Empty if the template is not a JSON object, such as a YAML template.
+	 */
+	public static Optional<TemplateStats> measure(String minifiedTemplate) {
+		if (minifiedTemplate == null) {
+			return Optional.empty();
+		}
+		try (JsonParser parser = JSON_FACTORY.createParser(minifiedTemplate)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return Optional.empty();
+			}
+			int resourceCount = 0;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if (RESOURCES.equals(name) && value == JsonToken.START_OBJECT) {
+					while (parser.nextToken() == JsonToken.FIELD_NAME) {
+						resourceCount++;
+						parser.nextToken();
+						parser.skipChildren();
+					}
+				} else {
+					parser.skipChildren();
+				}
+			}
+			return Optional.of(new TemplateStats(minifiedTemplate.getBytes(StandardCharsets.UTF_8).length, resourceCount));
+		} catch (IOException e) {
+			return Optional.empty();
+		}
+	}
+
+	public int getMinifiedBytes() {
+		return minifiedBytes;
+	}
+
+	public int getResourceCount() {
+		return resourceCount;
+	}
+
+	/**
+	 * @param maxBytes
+	 * @param maxResources
+	 * @return The larger of the two fractions of the given limits used by this
+	 *         template, as a percentage.
+	 */
+	public int percentOfLimits(int maxBytes, int maxResources) {
+		long bytesPercent = 100L * minifiedBytes / maxBytes;
+		long resourcePercent = 100L * resourceCount / maxResources;
+		return (int) Math.max(bytesPercent, resourcePercent);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(minifiedBytes, resourceCount);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		TemplateStats other = (TemplateStats) obj;
+		return minifiedBytes == other.minifiedBytes && resourceCount == other.resourceCount;
+	}
+
+	@Override
+	public String toString() {
+		return minifiedBytes + " bytes with " + resourceCount + " resources";
+	}
+
+}
@@ -1,6 +1,7 @@
 package org.sagebionetworks.template.nlb;
 
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -15,8 +16,12 @@ public class BindNetworkLoadBalancersMain {
 
 	public static void main(String[] args) {
 		Injector injector = Guice.createInjector(new TemplateGuiceModule());
-		BindNetworkLoadBalancerBuilder builder = injector.getInstance(BindNetworkLoadBalancerBuilder.class);
-		builder.buildAndDeploy();
+		try {
+			BindNetworkLoadBalancerBuilder builder = injector.getInstance(BindNetworkLoadBalancerBuilder.class);
+			builder.buildAndDeploy();
+		} finally {
+			injector.getInstance(DeploymentTimingReporter.class).writeReport();
+		}
 	}
 
 }
@@ -5,6 +5,7 @@ package org.sagebionetworks.template.nlb;
  * Main to build all of the static, domain specific, network load balancers for a stack.
  */
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -13,7 +14,11 @@ public class NetworkLoadBalancerMain {
 
 	public static void main(String[] args) {
 		Injector injector = Guice.createInjector(new TemplateGuiceModule());
-		NetworkLoadBalancerBuilder builder = injector.getInstance(NetworkLoadBalancerBuilder.class);
-		builder.buildAndDeploy();
+		try {
+			NetworkLoadBalancerBuilder builder = injector.getInstance(NetworkLoadBalancerBuilder.class);
+			builder.buildAndDeploy();
+		} finally {
+			injector.getInstance(DeploymentTimingReporter.class).writeReport();
+		}
 	}
 }
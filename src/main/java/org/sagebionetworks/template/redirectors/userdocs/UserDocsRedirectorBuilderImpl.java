@@ -4,15 +4,13 @@ import com.amazonaws.services.cloudformation.model.Stack;
 import com.google.inject.Inject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.sagebionetworks.template.CloudFormationClient;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.StackTagsProvider;
+import org.sagebionetworks.template.TemplateRenderer;
 import org.sagebionetworks.template.config.RepoConfiguration;
 
-import java.io.StringWriter;
 import java.util.Optional;
 
 import static org.sagebionetworks.template.Constants.CTXT_KEY_ACM_CERT_ARN;
@@ -29,16 +27,16 @@ public class UserDocsRedirectorBuilderImpl implements  UserDocsRedirectorBuilder
 	public static final String DOCS_SYNAPSE_ORG = "docs.synapse.org";
 
 	private RepoConfiguration config;
-	private VelocityEngine velocity;
+	private TemplateRenderer templateRenderer;
 	private CloudFormationClient cloudFormationClient;
 	private StackTagsProvider tagsProvider;
 
 	@Inject
-	public UserDocsRedirectorBuilderImpl(RepoConfiguration config, CloudFormationClient cloudFormationClient, StackTagsProvider tagsProvider, VelocityEngine velocity) {
+	public UserDocsRedirectorBuilderImpl(RepoConfiguration config, CloudFormationClient cloudFormationClient, StackTagsProvider tagsProvider, TemplateRenderer templateRenderer) {
 		this.config = config;
 		this.cloudFormationClient = cloudFormationClient;
 		this.tagsProvider = tagsProvider;
-		this.velocity = velocity;
+		this.templateRenderer = templateRenderer;
 	}
 
 	@Override
@@ -60,10 +58,7 @@ public class UserDocsRedirectorBuilderImpl implements  UserDocsRedirectorBuilder
 
 	Optional<Stack> buildStack() {
 		VelocityContext context = createContext();
-		Template template = velocity.getTemplate(TEMPLATE_STACK_DOCSREDIRECT);
-		StringWriter writer = new StringWriter();
-		template.merge(context, writer);
-		String cfTemplateYaml = writer.toString();
+		String cfTemplateYaml = templateRenderer.render(TEMPLATE_STACK_DOCSREDIRECT, context);
 		logger.info(cfTemplateYaml);
 		String cfStackName = String.format("%s-docs-synapse", context.get(CTXT_KEY_SUBDOMAIN_NAME));
 		CreateOrUpdateStackRequest cfStackRequest = new CreateOrUpdateStackRequest()
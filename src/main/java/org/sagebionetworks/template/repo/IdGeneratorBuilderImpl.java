@@ -1,17 +1,13 @@
 package org.sagebionetworks.template.repo;
 
-import java.io.StringWriter;
-
 import org.apache.logging.log4j.Logger;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
-import org.json.JSONObject;
 import org.sagebionetworks.template.CloudFormationClient;
 import org.sagebionetworks.template.config.Configuration;
 import org.sagebionetworks.template.Constants;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.TemplateRenderer;
 import org.sagebionetworks.template.repo.beanstalk.SecretBuilder;
 
 import com.amazonaws.services.cloudformation.model.Parameter;
@@ -22,17 +18,17 @@ import static org.sagebionetworks.template.Constants.*;
 public class IdGeneratorBuilderImpl implements IdGeneratorBuilder {
 
 	CloudFormationClient cloudFormationClient;
-	VelocityEngine velocityEngine;
+	TemplateRenderer templateRenderer;
 	Configuration config;
 	Logger logger;
 	SecretBuilder secretBuilder;
 
 	@Inject
-	public IdGeneratorBuilderImpl(CloudFormationClient cloudFormationClient, VelocityEngine velocityEngine,
+	public IdGeneratorBuilderImpl(CloudFormationClient cloudFormationClient, TemplateRenderer templateRenderer,
 			Configuration config, LoggerFactory loggerFactory, SecretBuilder secretBuilder) {
 		super();
 		this.cloudFormationClient = cloudFormationClient;
-		this.velocityEngine = velocityEngine;
+		this.templateRenderer = templateRenderer;
 		this.config = config;
 		this.logger = loggerFactory.getLogger(IdGeneratorBuilderImpl.class);
 		this.secretBuilder = secretBuilder;
@@ -59,14 +55,7 @@ public class IdGeneratorBuilderImpl implements IdGeneratorBuilder {
 		parameter.withParameterValue(password);
 
 		// Merge the context with the template
-		Template template = this.velocityEngine.getTemplate(TEMPLATE_ID_GENERATOR);
-		StringWriter stringWriter = new StringWriter();
-		template.merge(context, stringWriter);
-		// Parse the resulting template
-		String resultJSON = stringWriter.toString();
-		JSONObject templateJson = new JSONObject(resultJSON);
-		// Format the JSON
-		resultJSON = templateJson.toString(JSON_INDENT);
+		String resultJSON = this.templateRenderer.renderJson(TEMPLATE_ID_GENERATOR, context);
 		System.out.println(resultJSON);
 		String stackName = stack + "-id-generator-"+color.toLowerCase();
 		this.logger.info("Template for stack: " + stackName);
@@ -1,6 +1,7 @@
 package org.sagebionetworks.template.repo;
 
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -9,8 +10,12 @@ public class IdGeneratorMain {
 
 	public static void main(String[] args) {
 		Injector injector = Guice.createInjector(new TemplateGuiceModule());
-		IdGeneratorBuilder builder = injector.getInstance(IdGeneratorBuilder.class);
-		builder.buildAndDeploy();
+		try {
+			IdGeneratorBuilder builder = injector.getInstance(IdGeneratorBuilder.class);
+			builder.buildAndDeploy();
+		} finally {
+			injector.getInstance(DeploymentTimingReporter.class).writeReport();
+		}
 	}
 
 }
@@ -1,22 +1,33 @@
 package org.sagebionetworks.template.repo;
 
+import java.util.Arrays;
+
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.deploy.CheckpointJournal;
+import org.sagebionetworks.template.deploy.DeploymentMain;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 import org.sagebionetworks.template.docs.SynapseDocsBuilder;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 
 /**
- * Main to build all repository stacks.
+ * Main to build all repository stacks. With '--resume' the steps that already
+ * succeeded with the same inputs are skipped.
  *
  */
 public class RepositoryBuilderMain {
 
 	public static void main(String[] args) throws InterruptedException {
 		Injector injector = Guice.createInjector(new TemplateGuiceModule());
-		SynapseDocsBuilder docsBuilder = injector.getInstance(SynapseDocsBuilder.class);
-		RepositoryTemplateBuilder builder = injector.getInstance(RepositoryTemplateBuilder.class);
-		docsBuilder.deployDocs();
-		builder.buildAndDeploy();
+		try {
+			injector.getInstance(CheckpointJournal.class).startRun(Arrays.asList(args).contains(DeploymentMain.ARG_RESUME));
+			SynapseDocsBuilder docsBuilder = injector.getInstance(SynapseDocsBuilder.class);
+			RepositoryTemplateBuilder builder = injector.getInstance(RepositoryTemplateBuilder.class);
+			docsBuilder.deployDocs();
+			builder.buildAndDeploy();
+		} finally {
+			injector.getInstance(DeploymentTimingReporter.class).writeReport();
+		}
 	}
 }
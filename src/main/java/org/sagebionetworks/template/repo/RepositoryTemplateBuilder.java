@@ -3,7 +3,9 @@ package org.sagebionetworks.template.repo;
 public interface RepositoryTemplateBuilder {
 	
 	/**
-	 * Build the repository template and deploy the stack.
+	 * Build the repository template and deploy the stack. While the
+	 * CloudFormation client is planning, the artifacts are not copied and the
+	 * secrets are not uploaded, so the templates can be rendered ahead of time.
 	 * @throws InterruptedException 
 	 */
 	public void buildAndDeploy() throws InterruptedException;
@@ -1,27 +1,30 @@
 package org.sagebionetworks.template.repo;
 
 
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Logger;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
-import org.json.JSONObject;
 import org.sagebionetworks.template.CloudFormationClient;
+import org.sagebionetworks.template.CloudFormationClientAsync;
 import org.sagebionetworks.template.ConfigurationPropertyNotFound;
 import org.sagebionetworks.template.Constants;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.Ec2Client;
 import org.sagebionetworks.template.LoggerFactory;
 import org.sagebionetworks.template.StackTagsProvider;
+import org.sagebionetworks.template.TemplateRenderer;
 import org.sagebionetworks.template.config.RepoConfiguration;
 import org.sagebionetworks.template.config.TimeToLive;
 import org.sagebionetworks.template.repo.beanstalk.ArtifactCopy;
@@ -59,7 +62,6 @@ import static org.sagebionetworks.template.Constants.ENVIRONMENT;
 import static org.sagebionetworks.template.Constants.EXCEPTION_THROWER;
 import static org.sagebionetworks.template.Constants.GLOBAL_RESOURCES_EXPORT_PREFIX;
 import static org.sagebionetworks.template.Constants.INSTANCE;
-import static org.sagebionetworks.template.Constants.JSON_INDENT;
 import static org.sagebionetworks.template.Constants.NOSNAPSHOT;
 import static org.sagebionetworks.template.Constants.OAUTH_ENDPOINT;
 import static org.sagebionetworks.template.Constants.OUTPUT_NAME_SUFFIX_REPOSITORY_DB_ENDPOINT;
@@ -105,13 +107,14 @@ import static org.sagebionetworks.template.Constants.TEMPALTE_BEAN_STALK_ENVIRON
 import static org.sagebionetworks.template.Constants.TEMPALTE_SHARED_RESOUCES_MAIN_JSON_VTP;
 import static org.sagebionetworks.template.Constants.VPC_EXPORT_PREFIX;
 import static org.sagebionetworks.template.Constants.VPC_SUBNET_COLOR;
+import static org.sagebionetworks.template.FutureUtils.join;
 
 public class RepositoryTemplateBuilderImpl implements RepositoryTemplateBuilder {
 
 
 	private final CloudFormationClient cloudFormationClient;
 	private final Ec2Client ec2Client;
-	private final VelocityEngine velocityEngine;
+	private final TemplateRenderer templateRenderer;
 	private final RepoConfiguration config;
 	private final Logger logger;
 	private final ArtifactCopy artifactCopy;
@@ -122,18 +125,20 @@ public class RepositoryTemplateBuilderImpl implements RepositoryTemplateBuilder
 	private final CloudwatchLogsVelocityContextProvider cwlContextProvider;
 	private final AWSElasticBeanstalk beanstalkClient;
 	private final TimeToLive timeToLive;
+	private final CloudFormationClientAsync cloudFormationClientAsync;
 
 	@Inject
-	public RepositoryTemplateBuilderImpl(CloudFormationClient cloudFormationClient, VelocityEngine velocityEngine,
+	public RepositoryTemplateBuilderImpl(CloudFormationClient cloudFormationClient, TemplateRenderer templateRenderer,
 										 RepoConfiguration configuration, LoggerFactory loggerFactory, ArtifactCopy artifactCopy,
 										 SecretBuilder secretBuilder, Set<VelocityContextProvider> contextProviders,
 										 ElasticBeanstalkSolutionStackNameProvider elasticBeanstalkDefaultAMIEncrypter,
 										 StackTagsProvider stackTagsProvider, CloudwatchLogsVelocityContextProvider cloudwatchLogsVelocityContextProvider,
-										 Ec2Client ec2Client, AWSElasticBeanstalk beanstalkClient, TimeToLive ttl) {
+										 Ec2Client ec2Client, AWSElasticBeanstalk beanstalkClient, TimeToLive ttl,
+										 CloudFormationClientAsync cloudFormationClientAsync) {
 		super();
 		this.cloudFormationClient = cloudFormationClient;
 		this.ec2Client = ec2Client;
-		this.velocityEngine = velocityEngine;
+		this.templateRenderer = templateRenderer;
 		this.config = configuration;
 		this.logger = loggerFactory.getLogger(RepositoryTemplateBuilderImpl.class);
 		this.artifactCopy = artifactCopy;
@@ -144,6 +149,7 @@ public class RepositoryTemplateBuilderImpl implements RepositoryTemplateBuilder
 		this.cwlContextProvider = cloudwatchLogsVelocityContextProvider;
 		this.beanstalkClient = beanstalkClient;
 		this.timeToLive = ttl;
+		this.cloudFormationClientAsync = cloudFormationClientAsync;
 	}
 
 	public String getActualBeanstalkAmazonLinuxPlatform() {
@@ -176,13 +182,40 @@ public class RepositoryTemplateBuilderImpl implements RepositoryTemplateBuilder
 		Parameter[] sharedParameters = createSharedParameters();
 		// Create the shared-resource stack
 		String sharedResourceStackName = createSharedResourcesStackName();
+		// The secrets are encrypted with the stack CMK that is created by the shared resources stack.
+		boolean cmkExists = cloudFormationClient.describeStack(sharedResourceStackName).isPresent();
 
 		buildAndDeployStack(context, sharedResourceStackName, TEMPALTE_SHARED_RESOUCES_MAIN_JSON_VTP, sharedParameters);
-		// Wait for the shared resources to complete
-		Stack sharedStackResults = cloudFormationClient.waitForStackToComplete(sharedResourceStackName).orElseThrow(()->new IllegalStateException("Stack does not exist: "+sharedResourceStackName));
-		
-		// Build each bean stalk environment.
-		List<String> environmentNames = buildEnvironments(sharedStackResults);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// Artifact preparation and secret creation run while the shared resources are built.
+			Executor planningExecutor = cloudFormationClient.propagatePlanning(executor);
+			CompletableFuture<List<EnvironmentDescriptor>> environments = CompletableFuture
+					.supplyAsync(this::prepareEnvironments, planningExecutor);
+			CompletableFuture<SourceBundle> secrets = cmkExists
+					? CompletableFuture.supplyAsync(this::createSecrets, planningExecutor)
+					: null;
+			// Wait for the shared resources to complete
+			Stack sharedStackResults = cloudFormationClient.waitForStackToComplete(sharedResourceStackName).orElseThrow(()->new IllegalStateException("Stack does not exist: "+sharedResourceStackName));
+			SourceBundle secretsSource = secrets != null ? join(secrets) : createSecrets();
+			deployEnvironments(sharedStackResults, attachSecrets(join(environments), secretsSource));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Create the secrets of the environments. While planning, the secrets are not
+	 * uploaded, only their location is used.
+	 * 
+	 * @return
+	 */
+	SourceBundle createSecrets() {
+		if (cloudFormationClient.isPlanning()) {
+			return secretBuilder.getSecretsSourceBundle();
+		}
+		return secretBuilder.createSecrets();
 	}
 
 	/**
@@ -191,21 +224,88 @@ public class RepositoryTemplateBuilderImpl implements RepositoryTemplateBuilder
 	 */
 	public List<String> buildEnvironments(Stack sharedStackResults) {
 		// Create the repo/worker secrets
-		SourceBundle secretsSouce = secretBuilder.createSecrets();
-		
+		SourceBundle secretsSouce = createSecrets();
+		return deployEnvironments(sharedStackResults, createEnvironments(secretsSouce));
+	}
+
+	/**
+	 * Deploy the given environments. The context of each environment is created
+	 * and its stack submitted in parallel, then all of the environment stacks are
+	 * waited on together. The templates are rendered on the calling thread in the
+	 * order of the environments, so the renders can be recorded and replayed by
+	 * the {@link TemplateRenderer}.
+	 * 
+	 * @param sharedStackResults
+	 * @param environments
+	 * @throws IllegalStateException If any environment failed, listing the
+	 *                               failure of each environment.
+	 */
+	List<String> deployEnvironments(Stack sharedStackResults, List<EnvironmentDescriptor> environments) {
 		Parameter ttl = timeToLive.createTimeToLiveParameter().orElse(null);
 
-		List<String> environmentNames = new LinkedList<String>();
-		// each environment is treated as its own stack.
-		for (EnvironmentDescriptor environment : createEnvironments(secretsSouce)) {
-			VelocityContext context = createEnvironmentContext(sharedStackResults, environment);
-			environmentNames.add(environment.getName());
-			// build this type.
-			buildAndDeployStack(context, environment.getName(), TEMPALTE_BEAN_STALK_ENVIRONMENT, ttl);
+		List<String> environmentNames = environments.stream().map(EnvironmentDescriptor::getName)
+				.collect(Collectors.toList());
+		if (environments.isEmpty()) {
+			return environmentNames;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(environments.size());
+		try {
+			// each environment is treated as its own stack, planned when the caller is planning.
+			Executor planningExecutor = cloudFormationClient.propagatePlanning(executor);
+			List<CompletableFuture<VelocityContext>> contexts = environments.stream()
+					.map(environment -> CompletableFuture
+							.supplyAsync(() -> createEnvironmentContext(sharedStackResults, environment), executor))
+					.collect(Collectors.toList());
+			List<CompletableFuture<Stack>> futures = new ArrayList<>(environments.size());
+			for (int i = 0; i < environments.size(); i++) {
+				String environmentName = environmentNames.get(i);
+				CompletableFuture<VelocityContext> context = contexts.get(i);
+				try {
+					String template = renderTemplate(join(context), environmentName, TEMPALTE_BEAN_STALK_ENVIRONMENT);
+					// the wait is started by the planning task so it only describes the stack when planning.
+					futures.add(CompletableFuture.supplyAsync(() -> {
+						deployStack(environmentName, template, ttl);
+						return cloudFormationClientAsync.waitAsync(environmentName);
+					}, planningExecutor).thenCompose(wait -> wait));
+				} catch (RuntimeException e) {
+					futures.add(CompletableFuture.failedFuture(e));
+				}
+			}
+			waitForEnvironments(environmentNames, futures);
+		} finally {
+			executor.shutdownNow();
 		}
 		return environmentNames;
 	}
-	
+
+	/**
+	 * Wait for every environment, reporting the failure of each environment.
+	 * 
+	 * @param environmentNames
+	 * @param futures
+	 */
+	void waitForEnvironments(List<String> environmentNames, List<CompletableFuture<Stack>> futures) {
+		List<String> failedNames = new LinkedList<>();
+		List<Throwable> causes = new LinkedList<>();
+		for (int i = 0; i < futures.size(); i++) {
+			String environmentName = environmentNames.get(i);
+			try {
+				futures.get(i).join();
+				logger.info("Environment: '" + environmentName + "' is complete");
+			} catch (CompletionException e) {
+				Throwable cause = e.getCause() != null ? e.getCause() : e;
+				logger.error("Environment: '" + environmentName + "' failed: " + cause.getMessage(), cause);
+				failedNames.add(environmentName);
+				causes.add(cause);
+			}
+		}
+		if (!causes.isEmpty()) {
+			IllegalStateException error = new IllegalStateException(
+					"Failed to deploy environments: " + String.join(", ", failedNames), causes.get(0));
+			causes.stream().skip(1).forEach(error::addSuppressed);
+			throw error;
+		}
+	}
 
 	/**
 	 * Create the context used for each environment
@@ -215,6 +315,34 @@ public class RepositoryTemplateBuilderImpl implements RepositoryTemplateBuilder
 	 * @return
 	 */
 	VelocityContext createEnvironmentContext(Stack sharedStackResults, EnvironmentDescriptor environment) {
+		// Extract the database suffix
+		String databaseSuffix = extractDatabaseSuffix(sharedStackResults);
+
+		//use encrypted copies of the default elasticbeanstalk AMI
+		String javaVersion = config.getProperty(PROPERTY_KEY_ELASTICBEANSTALK_IMAGE_VERSION_JAVA);
+		String tomcatVersion = config.getProperty(PROPERTY_KEY_ELASTICBEANSTALK_IMAGE_VERSION_TOMCAT);
+		String linuxVersion = getActualBeanstalkAmazonLinuxPlatform();
+		String solutionStackName = elasticBeanstalkSolutionStackNameProvider.getSolutionStackName(tomcatVersion, javaVersion, linuxVersion);
+
+		// Determine Beanstalk subnets for instances
+		List<String> vpcSubnets = getPrivateSubnets(config.getProperty(PROPERTY_KEY_VPC_SUBNET_COLOR));
+		List<String> beanstalkSubnets = ec2Client.getAvailableSubnetsForInstanceType(config.getProperty(PROPERTY_KEY_EC2_INSTANCE_TYPE), vpcSubnets);
+
+		return createEnvironmentContext(environment, databaseSuffix, solutionStackName, beanstalkSubnets);
+	}
+
+	/**
+	 * Create the context used for each environment from the values that are read
+	 * from AWS.
+	 * 
+	 * @param environment
+	 * @param databaseSuffix    The suffix of the database end point.
+	 * @param solutionStackName The name of the Beanstalk solution stack.
+	 * @param beanstalkSubnets  The subnets of the Beanstalk instances.
+	 * @return
+	 */
+	VelocityContext createEnvironmentContext(EnvironmentDescriptor environment, String databaseSuffix,
+			String solutionStackName, List<String> beanstalkSubnets) {
 		VelocityContext context = new VelocityContext();
 		String stack = config.getProperty(PROPERTY_KEY_STACK);
 		context.put(STACK, stack);
@@ -224,16 +352,9 @@ public class RepositoryTemplateBuilderImpl implements RepositoryTemplateBuilder
 		context.put(VPC_EXPORT_PREFIX, Constants.createVpcExportPrefix(stack));
 		context.put(SHARED_EXPORT_PREFIX, createSharedExportPrefix());
 		context.put(REPO_BEANSTALK_NUMBER, config.getIntegerProperty(PROPERTY_KEY_BEANSTALK_NUMBER + EnvironmentType.REPOSITORY_SERVICES.getShortName()));
-		// Extract the database suffix
-		context.put(DB_ENDPOINT_SUFFIX, extractDatabaseSuffix(sharedStackResults));
+		context.put(DB_ENDPOINT_SUFFIX, databaseSuffix);
 		context.put(ENVIRONMENT, environment);
 		context.put(STACK_CMK_ALIAS, secretBuilder.getCMKAlias());
-
-		//use encrypted copies of the default elasticbeanstalk AMI
-		String javaVersion = config.getProperty(PROPERTY_KEY_ELASTICBEANSTALK_IMAGE_VERSION_JAVA);
-		String tomcatVersion = config.getProperty(PROPERTY_KEY_ELASTICBEANSTALK_IMAGE_VERSION_TOMCAT);
-		String linuxVersion = getActualBeanstalkAmazonLinuxPlatform();
-		String solutionStackName = elasticBeanstalkSolutionStackNameProvider.getSolutionStackName(tomcatVersion, javaVersion, linuxVersion);
 		context.put(SOLUTION_STACK_NAME, solutionStackName);
 
 		// oauth
@@ -243,14 +364,8 @@ public class RepositoryTemplateBuilderImpl implements RepositoryTemplateBuilder
 		context.put(CLOUDWATCH_LOGS_DESCRIPTORS, cwlContextProvider.getLogDescriptors(EnvironmentType.valueOfPrefix(environment.getType())));
 
 		// EC2 instance type
-		String ec2InstanceType = config.getProperty(PROPERTY_KEY_EC2_INSTANCE_TYPE);
-		context.put(EC2_INSTANCE_TYPE, ec2InstanceType);
-		
-		// Determine Beanstalk subnets for instances
-		List<String> vpcSubnets = getPrivateSubnets(config.getProperty(PROPERTY_KEY_VPC_SUBNET_COLOR));
-		List<String> beanstalkSubnets = ec2Client.getAvailableSubnetsForInstanceType(ec2InstanceType, vpcSubnets);
-		String beanstalkSubnetsAsString = String.join(",", beanstalkSubnets);
-		context.put(BEANSTALK_INSTANCES_SUBNETS, beanstalkSubnetsAsString);
+		context.put(EC2_INSTANCE_TYPE, config.getProperty(PROPERTY_KEY_EC2_INSTANCE_TYPE));
+		context.put(BEANSTALK_INSTANCES_SUBNETS, String.join(",", beanstalkSubnets));
 
 		// Data CDN props (
 		String cdnKeyPairId = config.getProperty(PROPERTY_KEY_DATA_CDN_KEYPAIR_ID);
@@ -268,29 +383,45 @@ public class RepositoryTemplateBuilderImpl implements RepositoryTemplateBuilder
 	 * @param templatePath
 	 */
 	void buildAndDeployStack(VelocityContext context, String stackName, String templatePath, Parameter... parameters) {
+		deployStack(stackName, renderTemplate(context, stackName, templatePath), parameters);
+	}
+
+	/**
+	 * Merge the context with the template of a stack.
+	 * 
+	 * @param context
+	 * @param stackName
+	 * @param templatePath
+	 * @return
+	 */
+	String renderTemplate(VelocityContext context, String stackName, String templatePath) {
+		String resultJSON = this.templateRenderer.renderJson(templatePath, context);
+		this.logger.info("Template for stack: " + stackName);
+		this.logger.info(resultJSON);
+		return resultJSON;
+	}
+
+	/**
+	 * Create or update a stack with the given rendered template.
+	 * 
+	 * @param stackName
+	 * @param resultJSON
+	 * @param parameters
+	 */
+	void deployStack(String stackName, String resultJSON, Parameter... parameters) {
 		String stack = config.getProperty(PROPERTY_KEY_STACK);
 		boolean enableTerminationProtection = ("prod".equals(stack)); // enable on prod stack
 		List<Tag> stackTags = stackTagsProvider.getStackTags();
 
-		// Merge the context with the template
-		Template template = this.velocityEngine.getTemplate(templatePath);
-		StringWriter stringWriter = new StringWriter();
-		template.merge(context, stringWriter);
-		// Parse the resulting template
-		String resultJSON = stringWriter.toString();
-		JSONObject templateJson = new JSONObject(resultJSON);
-		// Format the JSON
-		resultJSON = templateJson.toString(JSON_INDENT);
-		this.logger.info("Template for stack: " + stackName);
-		this.logger.info(resultJSON);
-		// create or update the template
-		this.cloudFormationClient.createOrUpdateStack(new CreateOrUpdateStackRequest()
+		CreateOrUpdateStackRequest request = new CreateOrUpdateStackRequest()
 				.withStackName(stackName)
 				.withTemplateBody(resultJSON)
 				.withParameters(parameters)
 				.withCapabilities(CAPABILITY_NAMED_IAM)
 				.withTags(stackTags)
-				.withEnableTerminationProtection(enableTerminationProtection));
+				.withEnableTerminationProtection(enableTerminationProtection);
+		// create or update the template, an unchanged stack is skipped by its fingerprint.
+		this.cloudFormationClient.createOrUpdateStack(request);
 	}
 
 	/**
@@ -394,37 +525,35 @@ public class RepositoryTemplateBuilderImpl implements RepositoryTemplateBuilder
 	 * @return
 	 */
 	public List<EnvironmentDescriptor> createEnvironments(SourceBundle secrets) {
-		String stack = config.getProperty(PROPERTY_KEY_STACK);
-		String instance = config.getProperty(PROPERTY_KEY_INSTANCE);
+		return attachSecrets(prepareEnvironments(), secrets);
+	}
+
+	/**
+	 * Give the secrets to each environment that should include them.
+	 * 
+	 * @param environments
+	 * @param secrets
+	 * @return
+	 */
+	static List<EnvironmentDescriptor> attachSecrets(List<EnvironmentDescriptor> environments, SourceBundle secrets) {
+		environments.forEach(e -> e.withSecretsSource(e.shouldIncludeSecrets() ? secrets : null));
+		return environments;
+	}
+
+	/**
+	 * Create a descriptor for each environment, copying its artifact to S3 if
+	 * needed. While planning, the artifacts are not copied. The secrets are not
+	 * included.
+	 * 
+	 * @return
+	 */
+	List<EnvironmentDescriptor> prepareEnvironments() {
+		boolean planning = cloudFormationClient.isPlanning();
 		List<EnvironmentDescriptor> environmentDescriptors = new LinkedList<>();
 		// create each type.
 		for (EnvironmentType type : EnvironmentType.values()) {
 			try {
-				int number = config.getIntegerProperty(PROPERTY_KEY_BEANSTALK_NUMBER + type.getShortName());
-				String name = new StringJoiner("-").add(type.getShortName()).add(stack).add(instance).add("" + number)
-						.toString();
-				String refName = Constants.createCamelCaseName(name, "-");
-				String version = config.getProperty(PROPERTY_KEY_BEANSTALK_VERSION + type.getShortName());
-				String healthCheckUrl = config.getProperty(PROPERTY_KEY_BEANSTALK_HEALTH_CHECK_URL + type.getShortName());
-				int minInstances = config.getIntegerProperty(PROPERTY_KEY_BEANSTALK_MIN_INSTANCES + type.getShortName());
-				int maxInstances = config.getIntegerProperty(PROPERTY_KEY_BEANSTALK_MAX_INSTANCES + type.getShortName());
-				String sslCertificateARN = config.getProperty(PROPERTY_KEY_BEANSTALK_SSL_ARN + type.getShortName());
-				String hostedZone = config.getProperty(PROPERTY_KEY_ROUTE_53_HOSTED_ZONE + type.getShortName());
-				String cnamePrefix = name + "-" + hostedZone.replaceAll("\\.", "-");
-
-				// Environment secrets
-				SourceBundle environmentSecrets = type.shouldIncludeSecrets() ? secrets : null;
-
-				// Copy the version from artifactory to S3.
-				SourceBundle bundle = artifactCopy.copyArtifactIfNeeded(type, version, number);
-				environmentDescriptors.add(new EnvironmentDescriptor().withName(name).withRefName(refName).withNumber(number)
-						.withHealthCheckUrl(healthCheckUrl).withSourceBundle(bundle).withType(type)
-						.withMinInstances(minInstances).withMaxInstances(maxInstances)
-						.withVersionLabel(version)
-						.withSslCertificateARN(sslCertificateARN)
-						.withHostedZone(hostedZone)
-						.withCnamePrefix(cnamePrefix)
-						.withSecretsSource(environmentSecrets));
+				environmentDescriptors.add(createEnvironmentDescriptor(type, planning));
 			} catch (ConfigurationPropertyNotFound e){
 				//The necessary properties to build up the Environment was not fully defined so we choose not to create a stack for it.
 				logger.warn("The Environment " + type + " was not created because " + e.getMissingKey() + " was not found");
@@ -433,6 +562,43 @@ public class RepositoryTemplateBuilderImpl implements RepositoryTemplateBuilder
 		return environmentDescriptors;
 	}
 
+	/**
+	 * Create the descriptor of a single environment, copying its artifact to S3
+	 * unless planning.
+	 * 
+	 * @param type
+	 * @param planning
+	 * @return
+	 * @throws ConfigurationPropertyNotFound If the environment is not fully
+	 *                                       configured.
+	 */
+	EnvironmentDescriptor createEnvironmentDescriptor(EnvironmentType type, boolean planning) {
+		String stack = config.getProperty(PROPERTY_KEY_STACK);
+		String instance = config.getProperty(PROPERTY_KEY_INSTANCE);
+		int number = config.getIntegerProperty(PROPERTY_KEY_BEANSTALK_NUMBER + type.getShortName());
+		String name = new StringJoiner("-").add(type.getShortName()).add(stack).add(instance).add("" + number)
+				.toString();
+		String refName = Constants.createCamelCaseName(name, "-");
+		String version = config.getProperty(PROPERTY_KEY_BEANSTALK_VERSION + type.getShortName());
+		String healthCheckUrl = config.getProperty(PROPERTY_KEY_BEANSTALK_HEALTH_CHECK_URL + type.getShortName());
+		int minInstances = config.getIntegerProperty(PROPERTY_KEY_BEANSTALK_MIN_INSTANCES + type.getShortName());
+		int maxInstances = config.getIntegerProperty(PROPERTY_KEY_BEANSTALK_MAX_INSTANCES + type.getShortName());
+		String sslCertificateARN = config.getProperty(PROPERTY_KEY_BEANSTALK_SSL_ARN + type.getShortName());
+		String hostedZone = config.getProperty(PROPERTY_KEY_ROUTE_53_HOSTED_ZONE + type.getShortName());
+		String cnamePrefix = name + "-" + hostedZone.replaceAll("\\.", "-");
+
+		// Copy the version from artifactory to S3.
+		SourceBundle bundle = planning ? artifactCopy.getSourceBundle(type, version, number)
+				: artifactCopy.copyArtifactIfNeeded(type, version, number);
+		return new EnvironmentDescriptor().withName(name).withRefName(refName).withNumber(number)
+				.withHealthCheckUrl(healthCheckUrl).withSourceBundle(bundle).withType(type)
+				.withMinInstances(minInstances).withMaxInstances(maxInstances)
+				.withVersionLabel(version)
+				.withSslCertificateARN(sslCertificateARN)
+				.withHostedZone(hostedZone)
+				.withCnamePrefix(cnamePrefix);
+	}
+
 	/**
 	 * Create the parameters to be passed to the template at runtime.
 	 * 
@@ -13,4 +13,14 @@ public interface ArtifactCopy {
 	 * @return
 	 */
 	public SourceBundle copyArtifactIfNeeded(EnvironmentType environment, String version, int number);
+
+	/**
+	 * Get the location of an artifact in S3 without copying it.
+	 * 
+	 * @param environment
+	 * @param version
+	 * @param number
+	 * @return
+	 */
+	public SourceBundle getSourceBundle(EnvironmentType environment, String version, int number);
 }
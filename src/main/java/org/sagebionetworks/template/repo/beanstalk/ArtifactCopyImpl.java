@@ -6,6 +6,8 @@ import org.apache.logging.log4j.Logger;
 import org.sagebionetworks.template.config.Configuration;
 import org.sagebionetworks.template.LoggerFactory;
 import org.sagebionetworks.template.repo.beanstalk.ssl.ElasticBeanstalkExtentionBuilder;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
 import org.sagebionetworks.template.utils.ArtifactDownload;
 
 import com.amazonaws.services.s3.AmazonS3;
@@ -17,25 +19,28 @@ public class ArtifactCopyImpl implements ArtifactCopy {
 	private Configuration configuration;
 	private ArtifactDownload downloader;
 	private ElasticBeanstalkExtentionBuilder ebBuilder;
+	private DeploymentTimeline timeline;
 	
 	private Logger logger;
 
 	@Inject
 	public ArtifactCopyImpl(AmazonS3 s3Client, Configuration propertyProvider,
-			ArtifactDownload downloader, LoggerFactory loggerFactory, ElasticBeanstalkExtentionBuilder ebBuilder) {
+			ArtifactDownload downloader, LoggerFactory loggerFactory, ElasticBeanstalkExtentionBuilder ebBuilder,
+			DeploymentTimeline timeline) {
 		super();
 		this.s3Client = s3Client;
 		this.configuration = propertyProvider;
 		this.downloader = downloader;
 		this.logger = loggerFactory.getLogger(ArtifactCopyImpl.class);
 		this.ebBuilder = ebBuilder;
+		this.timeline = timeline;
 	}
 
 	@Override
 	public SourceBundle copyArtifactIfNeeded(EnvironmentType environment, String version, int number) {
-		String bucket = configuration.getConfigurationBucket();
-		String s3Key = environment.createS3Key(version, number);
-		SourceBundle bundle = new SourceBundle(bucket, s3Key);
+		SourceBundle bundle = getSourceBundle(environment, version, number);
+		String bucket = bundle.getBucket();
+		String s3Key = bundle.getKey();
 		// does the file already exist in S3
  		if (!s3Client.doesObjectExist(bucket, s3Key)) {
 			/*
@@ -44,14 +49,21 @@ public class ArtifactCopyImpl implements ArtifactCopy {
 			 */
 			String artifactoryUrl = environment.createArtifactoryUrl(version);
 			logger.info("Downloading artifact: "+artifactoryUrl);
-			File download = downloader.downloadFile(artifactoryUrl);
+			File download;
+			try (DeploymentTimeline.Span span = timeline.start(Phase.ARTIFACT_DOWNLOAD, s3Key)) {
+				download = downloader.downloadFile(artifactoryUrl);
+			}
 			File warWithExtentions = null;
 			try {
 				logger.info("Adding .ebextentions to war: "+s3Key);
 				// add the .eb extensions to the given war file.
-				warWithExtentions = ebBuilder.copyWarWithExtensions(download, environment);
+				try (DeploymentTimeline.Span span = timeline.start(Phase.ARTIFACT_REPACK, s3Key)) {
+					warWithExtentions = ebBuilder.copyWarWithExtensions(download, environment);
+				}
 				logger.info("Uploading artifact to S3: "+s3Key);
-				s3Client.putObject(bucket, s3Key, warWithExtentions);
+				try (DeploymentTimeline.Span span = timeline.start(Phase.ARTIFACT_UPLOAD, s3Key)) {
+					s3Client.putObject(bucket, s3Key, warWithExtentions);
+				}
 			} finally {
 				// cleanup the temp file
 				download.delete();
@@ -63,4 +75,9 @@ public class ArtifactCopyImpl implements ArtifactCopy {
 		return bundle;
 	}
 
+	@Override
+	public SourceBundle getSourceBundle(EnvironmentType environment, String version, int number) {
+		return new SourceBundle(configuration.getConfigurationBucket(), environment.createS3Key(version, number));
+	}
+
 }
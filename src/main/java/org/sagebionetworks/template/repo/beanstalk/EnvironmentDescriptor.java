@@ -149,6 +149,14 @@ public class EnvironmentDescriptor {
 		return EnvironmentType.REPOSITORY_SERVICES.equals(type) || EnvironmentType.REPOSITORY_WORKERS.equals(type);
 	}
 
+	/**
+	 * Should the environment be given the secrets?
+	 * @return
+	 */
+	public boolean shouldIncludeSecrets() {
+		return type != null && type.shouldIncludeSecrets();
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
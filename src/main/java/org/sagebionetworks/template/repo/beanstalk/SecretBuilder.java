@@ -13,6 +13,13 @@ public interface SecretBuilder {
 	 */
 	public SourceBundle createSecrets();
 
+	/**
+	 * Get the location of the secrets in S3 without creating them.
+	 * 
+	 * @return
+	 */
+	public SourceBundle getSecretsSourceBundle();
+
 	/**
 	 * Get the alias of the master key.
 	 * 
@@ -10,11 +10,19 @@ import java.io.ByteArrayInputStream;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.StringJoiner;
 
+import org.sagebionetworks.template.FingerprintUtils;
 import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.deploy.CheckpointJournal;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
 
 import com.amazonaws.services.kms.AWSKMS;
 import com.amazonaws.services.kms.model.EncryptRequest;
@@ -40,27 +48,70 @@ public class SecretBuilderImpl implements SecretBuilder {
 	AWSSecretsManager secretManager;
 	AWSKMS keyManager;
 	AmazonS3 s3Client;
+	CheckpointJournal journal;
+	DeploymentTimeline timeline;
 	
 	@Inject
-	public SecretBuilderImpl(RepoConfiguration config, AWSSecretsManager secretManager, AWSKMS keyManager, AmazonS3 s3Client) {
+	public SecretBuilderImpl(RepoConfiguration config, AWSSecretsManager secretManager, AWSKMS keyManager, AmazonS3 s3Client, CheckpointJournal journal,
+			DeploymentTimeline timeline) {
 		super();
 		this.config = config;
 		this.secretManager = secretManager;
 		this.keyManager = keyManager;
 		this.s3Client = s3Client;
+		this.journal = journal;
+		this.timeline = timeline;
 	}
 
 	@Override
 	public SourceBundle createSecrets() {
 		// Load the secret names
 		String[] secretNames = config.getComaSeparatedProperty(PROPERTY_KEY_SECRET_KEYS_CSV);
-		Properties secrets = new Properties();
-		for (int i = 0; i < secretNames.length; i++) {
-			String secretKey = secretNames[i];
-			String secretCipher = createSecret(secretKey);
-			secrets.put(secretKey, secretCipher);
+		String bucket = config.getConfigurationBucket();
+		String key = createSecretS3Key();
+		try (DeploymentTimeline.Span span = timeline.start(Phase.SECRETS, key)) {
+			Map<String, GetSecretValueResult> secretValues = new LinkedHashMap<>(secretNames.length);
+			for (String secretKey : secretNames) {
+				secretValues.put(secretKey, getSecretValueResult(secretKey));
+			}
+			String fingerprint = createFingerprint(bucket, key, secretValues);
+			// When resuming, the secrets uploaded by a previous run are reused if no secret has a new version.
+			if (journal.isComplete(key, fingerprint) && s3Client.doesObjectExist(bucket, key)) {
+				return new SourceBundle(bucket, key);
+			}
+			Properties secrets = new Properties();
+			secretValues.forEach((secretKey, secretValue) -> secrets.put(secretKey, encryptSecret(secretValue.getSecretString())));
+			SourceBundle bundle = uploadSecretsToS3(secrets);
+			journal.recordComplete(key, fingerprint);
+			return bundle;
 		}
-		return uploadSecretsToS3(secrets);
+	}
+
+	@Override
+	public SourceBundle getSecretsSourceBundle() {
+		return new SourceBundle(config.getConfigurationBucket(), createSecretS3Key());
+	}
+
+	/**
+	 * The fingerprint of the uploaded secrets. Each secret is included by its
+	 * SecretsManager version ID so a rotated secret is encrypted and uploaded
+	 * again, without anything derived from the plaintext reaching the journal.
+	 * 
+	 * @param bucket
+	 * @param key
+	 * @param secretValues
+	 * @return
+	 */
+	String createFingerprint(String bucket, String key, Map<String, GetSecretValueResult> secretValues) {
+		List<String> values = new ArrayList<>();
+		values.add(getCMKAlias());
+		values.add(bucket);
+		values.add(key);
+		secretValues.forEach((secretKey, secretValue) -> {
+			values.add(secretKey);
+			values.add(secretValue.getVersionId());
+		});
+		return FingerprintUtils.fingerprint(values.toArray(new String[values.size()]));
 	}
 
 	/**
@@ -113,7 +164,16 @@ public class SecretBuilderImpl implements SecretBuilder {
 	 * @return
 	 */
 	String createSecret(String key) {
-		String plaintextValue = getSecretValue(key);
+		return encryptSecret(getSecretValue(key));
+	}
+
+	/**
+	 * Encrypt the given plaintext value using the stack's CMK.
+	 * 
+	 * @param plaintextValue
+	 * @return The base 64 encoded cipher.
+	 */
+	String encryptSecret(String plaintextValue) {
 		// Encrypt the value using the stack's key
 		EncryptResult encryptResult = keyManager.encrypt(new EncryptRequest()
 				.withPlaintext(stringToByteBuffer(plaintextValue)).withKeyId(getCMKAlias()));
@@ -128,14 +188,23 @@ public class SecretBuilderImpl implements SecretBuilder {
 	 * @return
 	 */
 	String getSecretValue(String key) {
+		return getSecretValueResult(key).getSecretString();
+	}
+
+	/**
+	 * Get the current version of the given secret.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	GetSecretValueResult getSecretValueResult(String key) {
 		String masterKey = getMasterSecretKey(key);
 		// Fetch the master plaintext value for this keys
 		GetSecretValueResult secretResult = secretManager.getSecretValue(new GetSecretValueRequest().withSecretId(masterKey));
-		String plaintextValue = secretResult.getSecretString();
-		if(plaintextValue == null) {
+		if(secretResult.getSecretString() == null) {
 			throw new IllegalArgumentException("Secret string is null for: "+masterKey);
 		}
-		return plaintextValue;
+		return secretResult;
 	}
 
 	/**
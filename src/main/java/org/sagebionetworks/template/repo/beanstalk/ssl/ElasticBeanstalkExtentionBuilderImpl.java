@@ -13,15 +13,15 @@ import java.io.Writer;
 import java.util.Collections;
 import java.util.function.Consumer;
 
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.json.JSONObject;
 import org.sagebionetworks.template.Constants;
 import org.sagebionetworks.template.FileProvider;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.TemplateRenderer;
 import org.sagebionetworks.template.TemplateUtils;
 import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 import org.sagebionetworks.template.repo.beanstalk.EnvironmentType;
 import org.sagebionetworks.template.repo.beanstalk.LoadBalancerAlarmsConfig;
 import org.sagebionetworks.template.repo.cloudwatchlogs.CloudwatchLogsVelocityContextProvider;
@@ -72,7 +72,7 @@ public class ElasticBeanstalkExtentionBuilderImpl implements ElasticBeanstalkExt
 	public static final String TEMPLATES_REPO_RESTART_SERVICES = "templates/repo/01_restart_services.sh.vpt";
 
 	CertificateBuilder certificateBuilder;
-	VelocityEngine velocityEngine;
+	TemplateRenderer templateRenderer;
 	Configuration configuration;
 	WarAppender warAppender;
 	FileProvider fileProvider;
@@ -80,12 +80,12 @@ public class ElasticBeanstalkExtentionBuilderImpl implements ElasticBeanstalkExt
 	LoadBalancerAlarmsConfig loadBalancerAlarmsConfig;
 
 	@Inject
-	public ElasticBeanstalkExtentionBuilderImpl(CertificateBuilder certificateBuilder, VelocityEngine velocityEngine,
+	public ElasticBeanstalkExtentionBuilderImpl(CertificateBuilder certificateBuilder, TemplateRenderer templateRenderer,
 			Configuration configuration, WarAppender warAppender, FileProvider fileProvider, CloudwatchLogsVelocityContextProvider cwlCtxtProvider,
 			LoadBalancerAlarmsConfig loadBalancerAlarmsConfig) {
 		super();
 		this.certificateBuilder = certificateBuilder;
-		this.velocityEngine = velocityEngine;
+		this.templateRenderer = templateRenderer;
 		this.configuration = configuration;
 		this.warAppender = warAppender;
 		this.fileProvider = fileProvider;
@@ -135,41 +135,33 @@ public class ElasticBeanstalkExtentionBuilderImpl implements ElasticBeanstalkExt
 				File confDDirectory = fileProvider.createNewFile(platformDirectory, HTTPD_CONF_D);
 				confDDirectory.mkdirs();
 				// https-instance.config in .ebextensions
-				Template httpInstanceTempalte = velocityEngine.getTemplate(TEMPLATE_EBEXTENSIONS_INSTANCE_CONFIG);
 				File resultFile = fileProvider.createNewFile(ebextensionsDirectory, INSTANCE_CONFIG);
-				addTemplateAsFileToDirectory(httpInstanceTempalte, context, resultFile);
+				addTemplateAsFileToDirectory(TEMPLATE_EBEXTENSIONS_INSTANCE_CONFIG, context, resultFile);
 				// SSL conf in ,platform/httpd/confd
 				resultFile = fileProvider.createNewFile(confDDirectory, SSL_CONF);
-				Template sslconf = velocityEngine.getTemplate(TEMPLATES_REPO_EBEXTENSIONS_HTTPS_SSL_CONF);
-				addTemplateAsFileToDirectory(sslconf, context, resultFile);
+				addTemplateAsFileToDirectory(TEMPLATES_REPO_EBEXTENSIONS_HTTPS_SSL_CONF, context, resultFile);
 				// ModSecurity conf in .platform/httpd/conf.d
 				resultFile = fileProvider.createNewFile(confDDirectory, SECURITY_CONF);
-				Template modSecurityConf = velocityEngine.getTemplate(TEMPLATES_REPO_EBEXTENSIONS_SECURITY_CONF);
-				addTemplateAsFileToDirectory(modSecurityConf, context, resultFile);
+				addTemplateAsFileToDirectory(TEMPLATES_REPO_EBEXTENSIONS_SECURITY_CONF, context, resultFile);
 				// ModDeflate conf to .platform/httpd/conf.d
 				resultFile = fileProvider.createNewFile(confDDirectory, MOD_DEFLATE_CONF);
-				Template modDeflateConf = velocityEngine.getTemplate(TEMPLATES_REPO_EBEXTENSIONS_MOD_DEFLATE_CONF);
-				addTemplateAsFileToDirectory(modDeflateConf, context, resultFile);
+				addTemplateAsFileToDirectory(TEMPLATES_REPO_EBEXTENSIONS_MOD_DEFLATE_CONF, context, resultFile);
 				// Hooks
 				// ensure the .platform/hooks/postdeploy directory exists
 				File hooksPostDeployDirectory = fileProvider.createNewFile(platformDirectory, HOOKS_POSTDEPLOY);
 				hooksPostDeployDirectory.mkdirs();
 				// Restart services script in .platform/hooks/postdeploy
 				resultFile = fileProvider.createNewFile(hooksPostDeployDirectory, REPO_RESTART_SERVICES_SCRIPT);
-				Template restartServicesScript = velocityEngine.getTemplate(TEMPLATES_REPO_RESTART_SERVICES);
-				addTemplateAsFileToDirectory(restartServicesScript, context, resultFile);
+				addTemplateAsFileToDirectory(TEMPLATES_REPO_RESTART_SERVICES, context, resultFile);
 				// Beanstalk logs CloudwatchLogs config in .ebextensions
 				resultFile = fileProvider.createNewFile(ebextensionsDirectory, BEANSTALK_LOGS_CW_CONFIG);
-				Template beanstalkClodwatchConf = velocityEngine.getTemplate(TEMPLATE_EBEXTENSIONS_BEANSTALK_LOGS_CW_CONFIG);
-				addTemplateAsFileToDirectory(beanstalkClodwatchConf, context, resultFile);
+				addTemplateAsFileToDirectory(TEMPLATE_EBEXTENSIONS_BEANSTALK_LOGS_CW_CONFIG, context, resultFile);
 				// Beanstalk environment alarms in .ebextensions
 				resultFile = fileProvider.createNewFile(ebextensionsDirectory, BEANSTALK_ALARMS_CONFIG);
-				Template beanstalkAlarms = velocityEngine.getTemplate(TEMPLATE_EBEXTENSIONS_BEANSTALK_ALARMS);
-				addTemplateAsFileToDirectory(beanstalkAlarms, context, resultFile);
+				addTemplateAsFileToDirectory(TEMPLATE_EBEXTENSIONS_BEANSTALK_ALARMS, context, resultFile);
 
 				resultFile = fileProvider.createNewFile(ebextensionsDirectory, "alb_dependencies.config");
-				Template alb = velocityEngine.getTemplate("templates/repo/ebextensions/alb-dependencies.json");
-				addTemplateAsFileToDirectory(alb, context, resultFile);
+				addTemplateAsFileToDirectory("templates/repo/ebextensions/alb-dependencies.json", context, resultFile);
 			}
 		});
 
@@ -179,14 +171,14 @@ public class ElasticBeanstalkExtentionBuilderImpl implements ElasticBeanstalkExt
 	 * Merge the passed template and context and save the results as a new file in
 	 * the passed directory with the given name.
 	 * 
-	 * @param tempalte
+	 * @param templatePath
 	 * @param context
 	 * @param resultFile
 	 */
-	public void addTemplateAsFileToDirectory(Template tempalte, VelocityContext context, File resultFile) {
+	public void addTemplateAsFileToDirectory(String templatePath, VelocityContext context, File resultFile) {
 		try (Writer writer = fileProvider
 				.createFileWriter(resultFile)) {
-			tempalte.merge(context, writer);
+			templateRenderer.render(templatePath, context, writer);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -198,9 +190,13 @@ public class ElasticBeanstalkExtentionBuilderImpl implements ElasticBeanstalkExt
 	 */
 	public static void main(String[] args) {
 		Injector injector = Guice.createInjector(new TemplateGuiceModule());
-		ElasticBeanstalkExtentionBuilder builder = injector.getInstance(ElasticBeanstalkExtentionBuilder.class);
-		File resultWar = builder.copyWarWithExtensions(new File(args[0]), EnvironmentType.REPOSITORY_SERVICES);
-		System.out.println(resultWar.getAbsolutePath());
+		try {
+			ElasticBeanstalkExtentionBuilder builder = injector.getInstance(ElasticBeanstalkExtentionBuilder.class);
+			File resultWar = builder.copyWarWithExtensions(new File(args[0]), EnvironmentType.REPOSITORY_SERVICES);
+			System.out.println(resultWar.getAbsolutePath());
+		} finally {
+			injector.getInstance(DeploymentTimingReporter.class).writeReport();
+		}
 	}
 
 }
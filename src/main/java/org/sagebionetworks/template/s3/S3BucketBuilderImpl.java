@@ -6,7 +6,6 @@ import static org.sagebionetworks.template.Constants.PROPERTY_KEY_STACK;
 import static org.sagebionetworks.template.Constants.PROPERTY_KEY_LAMBDA_VIRUS_SCANNER_ARTIFACT_URL;
 
 import java.io.File;
-import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -20,14 +19,12 @@ import java.util.function.Function;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
-import org.json.JSONObject;
 import org.sagebionetworks.template.CloudFormationClient;
 import org.sagebionetworks.template.Constants;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.StackTagsProvider;
+import org.sagebionetworks.template.TemplateRenderer;
 import org.sagebionetworks.template.TemplateUtils;
 import org.sagebionetworks.template.config.RepoConfiguration;
 import org.sagebionetworks.template.utils.ArtifactDownload;
@@ -115,19 +112,19 @@ public class S3BucketBuilderImpl implements S3BucketBuilder {
 	private AWSLambda lambdaClient;
 	private RepoConfiguration config;
 	private S3Config s3Config;
-	private VelocityEngine velocity;
+	private TemplateRenderer templateRenderer;
 	private CloudFormationClient cloudFormationClient;
 	private StackTagsProvider tagsProvider;
 	private ArtifactDownload downloader;
 	
 	@Inject
-	public S3BucketBuilderImpl(AmazonS3 s3Client, AWSSecurityTokenService stsClient, AWSLambda lambdaClient, RepoConfiguration config, S3Config s3Config, VelocityEngine velocity, CloudFormationClient cloudFormationClient, StackTagsProvider tagsProvider, ArtifactDownload downloader) {
+	public S3BucketBuilderImpl(AmazonS3 s3Client, AWSSecurityTokenService stsClient, AWSLambda lambdaClient, RepoConfiguration config, S3Config s3Config, TemplateRenderer templateRenderer, CloudFormationClient cloudFormationClient, StackTagsProvider tagsProvider, ArtifactDownload downloader) {
 		this.s3Client = s3Client;
 		this.stsClient = stsClient;
 		this.lambdaClient = lambdaClient;
 		this.config = config;
 		this.s3Config = s3Config;
-		this.velocity = velocity;
+		this.templateRenderer = templateRenderer;
 		this.cloudFormationClient = cloudFormationClient;
 		this.tagsProvider = tagsProvider;
 		this.downloader = downloader;
@@ -205,18 +202,10 @@ public class S3BucketBuilderImpl implements S3BucketBuilder {
 		context.put(Constants.STACK, stack);
 
 		// Merge the context with the template
-		Template template = velocity.getTemplate(Constants.TEMPLATE_S3_BUCKET_POLICY);
-
-		StringWriter stringWriter = new StringWriter();
-
-		template.merge(context, stringWriter);
-
-		String resultJSON = stringWriter.toString();
+		String resultJSON = templateRenderer.renderJson(Constants.TEMPLATE_S3_BUCKET_POLICY, context);
 
 		LOG.info(resultJSON);
 
-		resultJSON = new JSONObject(resultJSON).toString(5);
-
 		String stackName = TemplateUtils.replaceStackVariable(BUCKET_POLICY_STACK_NAME, stack);
 
 		cloudFormationClient.createOrUpdateStack(new CreateOrUpdateStackRequest()
@@ -260,18 +249,10 @@ public class S3BucketBuilderImpl implements S3BucketBuilder {
 		context.put(CF_PROPERTY_LAMBDA_KEY, lambdaArtifactKey);
 		
 		// Merge the context with the template
-		Template template = velocity.getTemplate(Constants.TEMPLATE_S3_VIRUS_SCANNER);
-		
-		StringWriter stringWriter = new StringWriter();
-		
-		template.merge(context, stringWriter);
-		
-		String resultJSON = stringWriter.toString();
+		String resultJSON = templateRenderer.renderJson(Constants.TEMPLATE_S3_VIRUS_SCANNER, context);
 		
 		LOG.info(resultJSON);
 		
-		resultJSON = new JSONObject(resultJSON).toString(5);
-		
 		String stackName = TemplateUtils.replaceStackVariable(VIRUS_SCANNER_STACK_NAME, stack);
 		
 		cloudFormationClient.createOrUpdateStack(new CreateOrUpdateStackRequest()
@@ -1,6 +1,7 @@
 package org.sagebionetworks.template.s3;
 
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -9,8 +10,12 @@ public class S3BuilderMain {
 	
 	public static void main(String[] args) throws InterruptedException {
 		Injector injector = Guice.createInjector(new TemplateGuiceModule());
-		S3BucketBuilder builder = injector.getInstance(S3BucketBuilder.class);
-		builder.buildAllBuckets();
+		try {
+			S3BucketBuilder builder = injector.getInstance(S3BucketBuilder.class);
+			builder.buildAllBuckets();
+		} finally {
+			injector.getInstance(DeploymentTimingReporter.class).writeReport();
+		}
 	}
 
 }
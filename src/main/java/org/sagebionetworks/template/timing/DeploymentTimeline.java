@@ -0,0 +1,37 @@
+package org.sagebionetworks.template.timing;
+
+import java.util.List;
+
+/**
+ * Collects the timed phases of a deployment from all threads.
+ *
+ */
+public interface DeploymentTimeline {
+
+	/**
+	 * A started span that is recorded when closed. A span can be closed by a
+	 * different thread than the one that started it.
+	 *
+	 */
+	interface Span extends AutoCloseable {
+
+		@Override
+		void close();
+	}
+
+	/**
+	 * Start timing a phase.
+	 * 
+	 * @param phase
+	 * @param name  What is being timed, such as the stack name.
+	 * @return
+	 */
+	Span start(Phase phase, String name);
+
+	/**
+	 * Remove and return all of the recorded spans.
+	 * 
+	 * @return The spans in the order they were closed.
+	 */
+	List<TimingSpan> drain();
+}
@@ -0,0 +1,47 @@
+package org.sagebionetworks.template.timing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.sagebionetworks.template.ThreadProvider;
+
+import com.google.inject.Inject;
+
+public class DeploymentTimelineImpl implements DeploymentTimeline {
+
+	private final ThreadProvider threadProvider;
+	private final Queue<TimingSpan> spans = new ConcurrentLinkedQueue<>();
+
+	@Inject
+	public DeploymentTimelineImpl(ThreadProvider threadProvider) {
+		super();
+		this.threadProvider = threadProvider;
+	}
+
+	@Override
+	public Span start(Phase phase, String name) {
+		String thread = Thread.currentThread().getName();
+		long startMs = threadProvider.currentTimeMillis();
+		AtomicBoolean closed = new AtomicBoolean();
+		return () -> {
+			// a span is only recorded once.
+			if (closed.compareAndSet(false, true)) {
+				spans.add(new TimingSpan(phase, name, thread, startMs, threadProvider.currentTimeMillis()));
+			}
+		};
+	}
+
+	@Override
+	public List<TimingSpan> drain() {
+		List<TimingSpan> drained = new ArrayList<>();
+		TimingSpan span;
+		while ((span = spans.poll()) != null) {
+			drained.add(span);
+		}
+		return drained;
+	}
+
+}
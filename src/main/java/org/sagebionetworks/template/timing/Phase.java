@@ -0,0 +1,24 @@
+package org.sagebionetworks.template.timing;
+
+/**
+ * The phases of a deployment that are timed.
+ *
+ */
+public enum Phase {
+	/**
+	 * The deployment of a whole node of the deployment graph.
+	 */
+	NODE,
+	RENDER,
+	/**
+	 * Rendering the templates of a whole node before the deployment starts.
+	 */
+	PRERENDER,
+	S3_UPLOAD,
+	CREATE_OR_UPDATE,
+	WAIT,
+	ARTIFACT_DOWNLOAD,
+	ARTIFACT_REPACK,
+	ARTIFACT_UPLOAD,
+	SECRETS
+}
@@ -0,0 +1,88 @@
+package org.sagebionetworks.template.timing;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Formats the spans of a deployment as a JSON timeline and in the Chrome
+ * trace-event format, which can be opened with chrome://tracing or Perfetto.
+ *
+ */
+public class TimingReport {
+
+	public static final String TRACE_PROCESS_NAME = "synapse-stack-builder";
+
+	/**
+	 * The JSON timeline with the spans sorted by start time, the total time of
+	 * each phase and the critical path.
+	 * 
+	 * @param spans
+	 * @param criticalPath   The names of the nodes on the critical path, in
+	 *                       order.
+	 * @param criticalPathMs The duration of the critical path.
+	 * @return
+	 */
+	public static JSONObject toJson(List<TimingSpan> spans, List<String> criticalPath, long criticalPathMs) {
+		long origin = getOrigin(spans);
+		JSONArray spanArray = new JSONArray();
+		Map<Phase, Long> phaseTotals = new TreeMap<>();
+		sortByStart(spans).forEach(span -> {
+			spanArray.put(new JSONObject().put("phase", span.getPhase().name()).put("name", span.getName())
+					.put("thread", span.getThread()).put("startMs", span.getStartMs() - origin)
+					.put("durationMs", span.getDurationMs()));
+			phaseTotals.merge(span.getPhase(), span.getDurationMs(), Long::sum);
+		});
+		JSONObject totals = new JSONObject();
+		phaseTotals.forEach((phase, total) -> totals.put(phase.name(), total));
+		return new JSONObject().put("startEpochMs", origin).put("spans", spanArray).put("phaseTotalsMs", totals)
+				.put("criticalPath",
+						new JSONObject().put("nodes", new JSONArray(criticalPath)).put("durationMs", criticalPathMs));
+	}
+
+	/**
+	 * The spans as complete ('X') trace events with one track per thread.
+	 * 
+	 * @param spans
+	 * @return
+	 */
+	public static JSONObject toTraceEvents(List<TimingSpan> spans) {
+		long origin = getOrigin(spans);
+		JSONArray events = new JSONArray();
+		events.put(new JSONObject().put("name", "process_name").put("ph", "M").put("pid", 1).put("tid", 0)
+				.put("args", new JSONObject().put("name", TRACE_PROCESS_NAME)));
+		Map<String, Integer> threadIds = new LinkedHashMap<>();
+		List<TimingSpan> sorted = sortByStart(spans);
+		sorted.forEach(span -> {
+			if (!threadIds.containsKey(span.getThread())) {
+				int tid = threadIds.size() + 1;
+				threadIds.put(span.getThread(), tid);
+				events.put(new JSONObject().put("name", "thread_name").put("ph", "M").put("pid", 1).put("tid", tid)
+						.put("args", new JSONObject().put("name", span.getThread())));
+			}
+		});
+		sorted.forEach(span -> {
+			// trace event times are in microseconds.
+			events.put(new JSONObject().put("name", span.getName()).put("cat", span.getPhase().name()).put("ph", "X")
+					.put("ts", (span.getStartMs() - origin) * 1000).put("dur", span.getDurationMs() * 1000)
+					.put("pid", 1).put("tid", threadIds.get(span.getThread())));
+		});
+		return new JSONObject().put("traceEvents", events).put("displayTimeUnit", "ms");
+	}
+
+	static List<TimingSpan> sortByStart(List<TimingSpan> spans) {
+		return spans.stream().sorted(Comparator.comparingLong(TimingSpan::getStartMs)
+				.thenComparing(Comparator.comparingLong(TimingSpan::getDurationMs).reversed()))
+				.collect(Collectors.toList());
+	}
+
+	static long getOrigin(List<TimingSpan> spans) {
+		return spans.stream().mapToLong(TimingSpan::getStartMs).min().orElse(0L);
+	}
+}
@@ -0,0 +1,82 @@
+package org.sagebionetworks.template.timing;
+
+import java.util.Objects;
+
+/**
+ * A single timed phase of a deployment.
+ *
+ */
+public class TimingSpan {
+
+	private final Phase phase;
+	private final String name;
+	private final String thread;
+	private final long startMs;
+	private final long endMs;
+
+	/**
+	 *
+	 * @param phase
+	 * @param name    What was timed, such as the stack or node name.
+	 * @param thread  The name of the thread that started the span.
+	 * @param startMs
+	 * @param endMs
+	 */
+	public TimingSpan(Phase phase, String name, String thread, long startMs, long endMs) {
+		super();
+		this.phase = phase;
+		this.name = name;
+		this.thread = thread;
+		this.startMs = startMs;
+		this.endMs = endMs;
+	}
+
+	public Phase getPhase() {
+		return phase;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getThread() {
+		return thread;
+	}
+
+	public long getStartMs() {
+		return startMs;
+	}
+
+	public long getEndMs() {
+		return endMs;
+	}
+
+	public long getDurationMs() {
+		return endMs - startMs;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(endMs, name, phase, startMs, thread);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		TimingSpan other = (TimingSpan) obj;
+		return endMs == other.endMs && Objects.equals(name, other.name) && phase == other.phase
+				&& startMs == other.startMs && Objects.equals(thread, other.thread);
+	}
+
+	@Override
+	public String toString() {
+		return "TimingSpan [phase=" + phase + ", name=" + name + ", thread=" + thread + ", startMs=" + startMs
+				+ ", endMs=" + endMs + "]";
+	}
+
+}
@@ -1,19 +1,25 @@
 package org.sagebionetworks.template.vpc;
 
 import com.amazonaws.services.cloudformation.model.Parameter;
+import com.amazonaws.services.cloudformation.model.Stack;
 import com.google.inject.Inject;
 import org.apache.logging.log4j.Logger;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
-import org.json.JSONObject;
 import org.sagebionetworks.template.CloudFormationClient;
+import org.sagebionetworks.template.CloudFormationClientAsync;
+import org.sagebionetworks.template.ConfigurationPropertyNotFound;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.LoggerFactory;
 import org.sagebionetworks.template.StackTagsProvider;
+import org.sagebionetworks.template.TemplateRenderer;
 import org.sagebionetworks.template.config.Configuration;
 
-import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.sagebionetworks.template.Constants.*;
 import static org.sagebionetworks.template.Constants.VPC_CIDR;
@@ -21,16 +27,19 @@ import static org.sagebionetworks.template.Constants.VPC_CIDR;
 public class SubnetTemplateBuilderImpl implements SubnetTemplateBuilder {
 
     CloudFormationClient cloudFormationClient;
-    VelocityEngine velocityEngine;
+    TemplateRenderer templateRenderer;
     Configuration config;
     Logger logger;
     StackTagsProvider stackTagsProvider;
+    CloudFormationClientAsync cloudFormationClientAsync;
 
     @Inject
-    public SubnetTemplateBuilderImpl(CloudFormationClient cloudFormationClient, VelocityEngine velocityEngine,
-                                  Configuration configuration, LoggerFactory loggerFactory, StackTagsProvider stackTagsProvider) {
+    public SubnetTemplateBuilderImpl(CloudFormationClient cloudFormationClient, TemplateRenderer templateRenderer,
+                                  Configuration configuration, LoggerFactory loggerFactory, StackTagsProvider stackTagsProvider,
+                                  CloudFormationClientAsync cloudFormationClientAsync) {
         this.cloudFormationClient = cloudFormationClient;
-        this.velocityEngine = velocityEngine;
+        this.cloudFormationClientAsync = cloudFormationClientAsync;
+        this.templateRenderer = templateRenderer;
         this.config = configuration;
         this.logger = loggerFactory.getLogger(VpcTemplateBuilderImpl.class);
         this.stackTagsProvider = stackTagsProvider;
@@ -41,12 +50,7 @@ public class SubnetTemplateBuilderImpl implements SubnetTemplateBuilder {
         String stackName = createPublicSubnetsStackName();
         // Create the context from the input
         VelocityContext context = createContext();
-        Template publicSubnetsTemplate = this.velocityEngine.getTemplate(TEMPLATES_VPC_PUBLIC_SUBNETS_JSON_VTP);
-        StringWriter stringWriter = new StringWriter();
-        publicSubnetsTemplate.merge(context, stringWriter);
-        String resultJSON = stringWriter.toString();
-        JSONObject templateJson = new JSONObject(resultJSON);
-        resultJSON = templateJson.toString(JSON_INDENT);
+        String resultJSON = this.templateRenderer.renderJson(TEMPLATES_VPC_PUBLIC_SUBNETS_JSON_VTP, context);
 
         this.cloudFormationClient.createOrUpdateStack(
             new CreateOrUpdateStackRequest()
@@ -62,19 +66,17 @@ public class SubnetTemplateBuilderImpl implements SubnetTemplateBuilder {
     public void buildAndDeployPrivateSubnets() throws InterruptedException {
 
         VelocityContext context = createContext();
-
+        boolean parallel = isPrivateSubnetsParallel();
         Subnets subnets = (Subnets)context.get(SUBNETS);
+        Map<String, CompletableFuture<Stack>> waits = new LinkedHashMap<>();
         for (int i=0; i<subnets.getPrivateSubnetGroups().length; i++) {
             SubnetGroup sg = subnets.getPrivateSubnetGroups()[i];
             String stackName = createPrivateSubnetStackName(sg.getColor().toString());
 
-            context.put(PRIVATE_SUBNET_IDX, i);
-            Template privateSubnetsTemplate = this.velocityEngine.getTemplate(TEMPLATES_VPC_PRIVATE_SUBNET_JSON_VTP);
-            StringWriter stringWriter = new StringWriter();
-            privateSubnetsTemplate.merge(context, stringWriter);
-            String resultJSON = stringWriter.toString();
-            JSONObject templateJson = new JSONObject(resultJSON);
-            resultJSON = templateJson.toString(JSON_INDENT);
+            // Each color only adds its index to a copy of the shared context.
+            VelocityContext colorContext = new VelocityContext(context);
+            colorContext.put(PRIVATE_SUBNET_IDX, i);
+            String resultJSON = this.templateRenderer.renderJson(TEMPLATES_VPC_PRIVATE_SUBNET_JSON_VTP, colorContext);
 
             this.cloudFormationClient.createOrUpdateStack(
                     new CreateOrUpdateStackRequest()
@@ -83,7 +85,51 @@ public class SubnetTemplateBuilderImpl implements SubnetTemplateBuilder {
                             .withTags(stackTagsProvider.getStackTags())
             );
 
-            this.cloudFormationClient.waitForStackToComplete(stackName);
+            if (parallel) {
+                waits.put(stackName, this.cloudFormationClientAsync.waitAsync(stackName));
+            } else {
+                this.cloudFormationClient.waitForStackToComplete(stackName);
+            }
+        }
+        waitForPrivateSubnets(waits);
+    }
+
+    /**
+     * Wait for all of the given private subnet stacks as a group.
+     *
+     * @param waits
+     */
+    void waitForPrivateSubnets(Map<String, CompletableFuture<Stack>> waits) {
+        List<String> failed = new LinkedList<>();
+        List<Throwable> causes = new LinkedList<>();
+        waits.forEach((stackName, future) -> {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                logger.error("Private subnet stack: '" + stackName + "' failed", cause);
+                failed.add(stackName);
+                causes.add(cause);
+            }
+        });
+        if (!causes.isEmpty()) {
+            IllegalStateException error = new IllegalStateException(
+                    "Failed to deploy private subnet stacks: " + failed, causes.get(0));
+            causes.stream().skip(1).forEach(error::addSuppressed);
+            throw error;
+        }
+    }
+
+    /**
+     * Should all of the private subnet stacks be deployed at the same time?
+     *
+     * @return
+     */
+    boolean isPrivateSubnetsParallel() {
+        try {
+            return config.getBooleanProperty(PROPERTY_KEY_VPC_PRIVATE_SUBNETS_PARALLEL);
+        } catch (ConfigurationPropertyNotFound e) {
+            return false;
         }
     }
 
@@ -0,0 +1,166 @@
+package org.sagebionetworks.template;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.timing.DeploymentTimelineImpl;
+import org.sagebionetworks.template.timing.Phase;
+import org.sagebionetworks.template.timing.TimingSpan;
+
+import com.amazonaws.services.cloudformation.model.Stack;
+
+@ExtendWith(MockitoExtension.class)
+public class CloudFormationClientAsyncImplTest {
+
+	@Mock
+	CloudFormationClient mockCloudFormationClient;
+	@Mock
+	StackWatcher mockStackWatcher;
+	@Mock
+	ThreadProvider mockThreadProvider;
+
+	DeploymentTimelineImpl timeline;
+
+	CloudFormationClientAsyncImpl client;
+
+	CreateOrUpdateStackRequest request;
+	Stack stack;
+
+	@BeforeEach
+	public void before() {
+		timeline = new DeploymentTimelineImpl(mockThreadProvider);
+		client = new CloudFormationClientAsyncImpl(mockCloudFormationClient, mockStackWatcher, timeline);
+		request = new CreateOrUpdateStackRequest().withStackName("someStack");
+		stack = new Stack().withStackName("someStack");
+	}
+
+	@Test
+	public void testCreateOrUpdateStackAsync() throws Exception {
+		CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+		when(mockCloudFormationClient.createOrUpdateStackAsync(any())).thenReturn(future);
+		// call under test
+		assertSame(future, client.createOrUpdateStackAsync(request));
+		verify(mockCloudFormationClient).createOrUpdateStackAsync(request);
+	}
+
+	@Test
+	public void testCreateOrUpdateStackAsyncWithError() {
+		IllegalStateException error = new IllegalStateException("nope");
+		when(mockCloudFormationClient.createOrUpdateStackAsync(any())).thenReturn(CompletableFuture.failedFuture(error));
+		// call under test
+		ExecutionException e = assertThrows(ExecutionException.class, () -> {
+			client.createOrUpdateStackAsync(request).get();
+		});
+		assertSame(error, e.getCause());
+	}
+
+	@Test
+	public void testWaitAsync() {
+		CompletableFuture<Stack> future = CompletableFuture.completedFuture(stack);
+		when(mockStackWatcher.watch(any())).thenReturn(future);
+		// call under test
+		assertSame(future, client.waitAsync("someStack"));
+		verify(mockStackWatcher).watch("someStack");
+	}
+
+	@Test
+	public void testWaitAsyncIsTimed() {
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(1000L, 6000L);
+		CompletableFuture<Stack> future = new CompletableFuture<>();
+		when(mockStackWatcher.watch(any())).thenReturn(future);
+		// call under test
+		client.waitAsync("someStack");
+		assertTrue(timeline.drain().isEmpty());
+		future.complete(stack);
+		List<TimingSpan> spans = timeline.drain();
+		assertEquals(1, spans.size());
+		assertEquals(Phase.WAIT, spans.get(0).getPhase());
+		assertEquals("someStack", spans.get(0).getName());
+		assertEquals(5000L, spans.get(0).getDurationMs());
+	}
+
+	@Test
+	public void testDescribeAsync() throws Exception {
+		when(mockCloudFormationClient.describeStackAsync(any()))
+				.thenReturn(CompletableFuture.completedFuture(Optional.of(stack)));
+		// call under test
+		assertEquals(Optional.of(stack), client.describeAsync("someStack").get());
+		verify(mockCloudFormationClient).describeStackAsync("someStack");
+	}
+
+	@Test
+	public void testCreateOrUpdateStackAndWaitAsync() throws Exception {
+		when(mockCloudFormationClient.createOrUpdateStackAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+		when(mockStackWatcher.watch(any())).thenReturn(CompletableFuture.completedFuture(stack));
+		// call under test
+		assertSame(stack, client.createOrUpdateStackAndWaitAsync(request).get());
+		verify(mockCloudFormationClient).createOrUpdateStackAsync(request);
+		verify(mockStackWatcher).watch("someStack");
+	}
+
+	@Test
+	public void testCreateOrUpdateStackAndWaitAsyncWithError() {
+		IllegalStateException error = new IllegalStateException("nope");
+		when(mockCloudFormationClient.createOrUpdateStackAsync(any())).thenReturn(CompletableFuture.failedFuture(error));
+		// call under test
+		ExecutionException e = assertThrows(ExecutionException.class, () -> {
+			client.createOrUpdateStackAndWaitAsync(request).get();
+		});
+		assertSame(error, e.getCause());
+		verify(mockStackWatcher, never()).watch(any());
+	}
+
+	@Test
+	public void testCreateOrUpdateStackAndWaitAsyncWhilePlanning() throws Exception {
+		// the update completes on a thread that is not planning.
+		when(mockCloudFormationClient.isPlanning()).thenReturn(true, false);
+		CompletableFuture<Void> update = new CompletableFuture<>();
+		when(mockCloudFormationClient.createOrUpdateStackAsync(any())).thenReturn(update);
+		when(mockCloudFormationClient.describeStackAsync(any()))
+				.thenReturn(CompletableFuture.completedFuture(Optional.of(stack)));
+		// call under test
+		CompletableFuture<Stack> future = client.createOrUpdateStackAndWaitAsync(request);
+		update.complete(null);
+		assertSame(stack, future.get());
+		verify(mockCloudFormationClient).describeStackAsync("someStack");
+		verify(mockStackWatcher, never()).watch(any());
+	}
+
+	@Test
+	public void testWaitAsyncWhilePlanning() throws Exception {
+		when(mockCloudFormationClient.isPlanning()).thenReturn(true);
+		when(mockCloudFormationClient.describeStackAsync(any()))
+				.thenReturn(CompletableFuture.completedFuture(Optional.of(stack)));
+		// call under test
+		assertSame(stack, client.waitAsync("someStack").get());
+		verify(mockStackWatcher, never()).watch(any());
+	}
+
+	@Test
+	public void testWaitAsyncWhilePlanningWithNoStack() {
+		when(mockCloudFormationClient.isPlanning()).thenReturn(true);
+		when(mockCloudFormationClient.describeStackAsync(any())).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+		// call under test
+		ExecutionException e = assertThrows(ExecutionException.class, () -> {
+			client.waitAsync("someStack").get();
+		});
+		assertEquals("Stack does not exist: someStack", e.getCause().getMessage());
+		verify(mockStackWatcher, never()).watch(any());
+	}
+}
@@ -1,9 +1,16 @@
 package org.sagebionetworks.template;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -13,11 +20,22 @@ import static org.mockito.Mockito.when;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,23 +45,39 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
 import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.nested.TemplateSizeGuard;
 import org.sagebionetworks.template.repo.beanstalk.SourceBundle;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
+import org.sagebionetworks.util.Clock;
 
-import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.cloudformation.AmazonCloudFormationAsync;
 import com.amazonaws.services.cloudformation.model.AmazonCloudFormationException;
 import com.amazonaws.services.cloudformation.model.CreateStackRequest;
 import com.amazonaws.services.cloudformation.model.CreateStackResult;
 import com.amazonaws.services.cloudformation.model.DeleteStackRequest;
 import com.amazonaws.services.cloudformation.model.DescribeStacksRequest;
 import com.amazonaws.services.cloudformation.model.DescribeStacksResult;
+import com.amazonaws.services.cloudformation.model.ListExportsRequest;
+import com.amazonaws.services.cloudformation.model.ListExportsResult;
+import com.amazonaws.services.cloudformation.model.ListStacksRequest;
+import com.amazonaws.services.cloudformation.model.ListStacksResult;
 import com.amazonaws.services.cloudformation.model.Output;
 import com.amazonaws.services.cloudformation.model.Parameter;
 import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackEvent;
 import com.amazonaws.services.cloudformation.model.StackStatus;
+import com.amazonaws.services.cloudformation.model.StackSummary;
+import com.amazonaws.services.cloudformation.model.Tag;
 import com.amazonaws.services.cloudformation.model.UpdateStackRequest;
 import com.amazonaws.services.cloudformation.model.UpdateStackResult;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 
 @ExtendWith(MockitoExtension.class)
@@ -55,19 +89,33 @@ public class CloudFormationClientImplTest {
 	public static final String SES_SYNAPSE_ORG_BOUNCE_TOPIC_VALUE = "theSesBounceTopicArn";
 
 	@Mock
-	AmazonCloudFormation mockCloudFormationClient;
+	AmazonCloudFormationAsync mockCloudFormationClient;
 	@Mock
 	AmazonS3 mockS3Client;
 	@Mock
 	Configuration mockConfig;
 	@Mock
-	Function<String, String> mockFunction;
+	BiFunction<String, String, CompletableFuture<String>> mockFunction;
 	@Mock
 	LoggerFactory mockLoggerFactory;
 	@Mock
 	Logger mockLogger;
 	@Mock
 	ThreadProvider mockThreadProvider;
+	@Mock
+	StackWaitStrategy mockWaitStrategy;
+	@Mock
+	Clock mockClock;
+	@Mock
+	StackEventTailer mockEventTailer;
+	@Mock
+	DeploymentTimeline mockTimeline;
+	@Mock
+	DeploymentTimeline.Span mockSpan;
+	@Mock
+	TemplateSizeGuard mockSizeGuard;
+	@Captor
+	ArgumentCaptor<BiFunction<String, String, String>> uploaderCapture;
 
 	@Captor
 	ArgumentCaptor<DescribeStacksRequest> describeStackRequestCapture;
@@ -99,7 +147,14 @@ public class CloudFormationClientImplTest {
 	public void before() throws MalformedURLException {
 		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
 		
-		client = new CloudFormationClientImpl(mockCloudFormationClient, mockS3Client, mockConfig, mockLoggerFactory, mockThreadProvider);
+		client = new CloudFormationClientImpl(mockCloudFormationClient, mockS3Client, mockConfig, mockLoggerFactory, mockThreadProvider, mockWaitStrategy, mockClock, mockEventTailer, mockTimeline, mockSizeGuard);
+		// the async calls are answered by the stubs of the sync calls.
+		lenient().when(mockCloudFormationClient.describeStacksAsync(any(DescribeStacksRequest.class), any()))
+				.thenAnswer(callSync((DescribeStacksRequest r) -> mockCloudFormationClient.describeStacks(r)));
+		lenient().when(mockCloudFormationClient.createStackAsync(any(CreateStackRequest.class), any()))
+				.thenAnswer(callSync((CreateStackRequest r) -> mockCloudFormationClient.createStack(r)));
+		lenient().when(mockCloudFormationClient.updateStackAsync(any(UpdateStackRequest.class), any()))
+				.thenAnswer(callSync((UpdateStackRequest r) -> mockCloudFormationClient.updateStack(r)));
 
 		stackId = "theStackId";
 		Collection<Output> outputs = new ArrayList<>();
@@ -134,6 +189,26 @@ public class CloudFormationClientImplTest {
 
 	}
 
+	/**
+	 * Answer a call of the async client with the given sync call, as the client
+	 * does on its executor.
+	 */
+	static <Q extends AmazonWebServiceRequest, R> Answer<Future<R>> callSync(Function<Q, R> call) {
+		return invocation -> {
+			Q request = invocation.getArgument(0);
+			AsyncHandler<Q, R> handler = invocation.getArgument(1);
+			R result;
+			try {
+				result = call.apply(request);
+			} catch (Exception e) {
+				handler.onError(e);
+				return CompletableFuture.failedFuture(e);
+			}
+			handler.onSuccess(request, result);
+			return CompletableFuture.completedFuture(result);
+		};
+	}
+
 	@Test
 	public void testDescribeStack() {
 		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult, describeResult);
@@ -154,6 +229,130 @@ public class CloudFormationClientImplTest {
 		verify(mockCloudFormationClient).describeStacks(new DescribeStacksRequest().withStackName(stackName));
 	}
 
+	@Test
+	public void testDescribeStackCached() {
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult, describeResult);
+		when(mockClock.currentTimeMillis()).thenReturn(0L, 0L, CloudFormationClientImpl.DESCRIBE_CACHE_TTL_MS);
+		// call under test
+		Stack first = client.describeStack(stackName).get();
+		Stack second = client.describeStack(stackName).get();
+		Assertions.assertSame(initStack, first);
+		Assertions.assertSame(initStack, second);
+		verify(mockCloudFormationClient).describeStacks(any(DescribeStacksRequest.class));
+	}
+
+	@Test
+	public void testDescribeStackCacheExpired() {
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult, describeResult);
+		when(mockClock.currentTimeMillis()).thenReturn(0L, 0L, CloudFormationClientImpl.DESCRIBE_CACHE_TTL_MS + 1);
+		// call under test
+		Stack first = client.describeStack(stackName).get();
+		Stack second = client.describeStack(stackName).get();
+		Assertions.assertSame(initStack, first);
+		Assertions.assertSame(stack, second);
+		verify(mockCloudFormationClient, times(2)).describeStacks(any(DescribeStacksRequest.class));
+	}
+
+	@Test
+	public void testDescribeStackCachedDoesNotExist() {
+		when(mockCloudFormationClient.describeStacks(any())).thenThrow(new AmazonCloudFormationException("does not exist"));
+		// call under test
+		assertEquals(Optional.empty(), client.describeStack(stackName));
+		assertEquals(Optional.empty(), client.describeStack(stackName));
+		verify(mockCloudFormationClient).describeStacks(any(DescribeStacksRequest.class));
+	}
+
+	@Test
+	public void testDescribeStackWithForceRefresh() {
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult, describeResult);
+		// call under test
+		Assertions.assertSame(initStack, client.describeStack(stackName).get());
+		Assertions.assertSame(stack, client.describeStack(stackName, true).get());
+		// the refresh updates the cache
+		Assertions.assertSame(stack, client.describeStack(stackName).get());
+		verify(mockCloudFormationClient, times(2)).describeStacks(any(DescribeStacksRequest.class));
+	}
+
+	@Test
+	public void testDescribeStackWithErrorNotCached() {
+		IllegalStateException error = new IllegalStateException("nope");
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenThrow(error).thenReturn(describeResult);
+		IllegalStateException result = Assertions.assertThrows(IllegalStateException.class, () -> {
+			// call under test
+			client.describeStack(stackName);
+		});
+		Assertions.assertSame(error, result);
+		// call under test
+		Assertions.assertSame(stack, client.describeStack(stackName).get());
+	}
+
+	@Test
+	public void testDescribeStackCoalesced() throws Exception {
+		CountDownLatch callStarted = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenAnswer(invocation -> {
+			callStarted.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return describeResult;
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Optional<Stack>> first = executor.submit(() -> client.describeStack(stackName));
+			Assertions.assertTrue(callStarted.await(10, TimeUnit.SECONDS));
+			// call under test
+			Future<Optional<Stack>> second = executor.submit(() -> client.describeStack(stackName));
+			release.countDown();
+			Assertions.assertSame(stack, first.get(10, TimeUnit.SECONDS).get());
+			Assertions.assertSame(stack, second.get(10, TimeUnit.SECONDS).get());
+		} finally {
+			executor.shutdownNow();
+		}
+		verify(mockCloudFormationClient).describeStacks(any(DescribeStacksRequest.class));
+	}
+
+	@Test
+	public void testDescribeStackInvalidatedByUpdate() {
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult, describeResult);
+		when(mockCloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenReturn(updateResult);
+		Assertions.assertSame(initStack, client.describeStack(stackName).get());
+		// call under test
+		client.updateStack(inputReqequest);
+		Assertions.assertSame(stack, client.describeStack(stackName).get());
+		verify(mockCloudFormationClient, times(2)).describeStacks(any(DescribeStacksRequest.class));
+	}
+
+	@Test
+	public void testDescribeStackInvalidatedByCreate() {
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class)))
+				.thenThrow(new AmazonCloudFormationException("does not exist")).thenReturn(describeResult);
+		when(mockCloudFormationClient.createStack(any(CreateStackRequest.class))).thenReturn(createResult);
+		Assertions.assertEquals(Optional.empty(), client.describeStack(stackName));
+		// call under test
+		client.createStack(inputReqequest);
+		Assertions.assertSame(stack, client.describeStack(stackName).get());
+	}
+
+	@Test
+	public void testDescribeStackInvalidatedByFailedUpdate() {
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult, describeResult);
+		when(mockCloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenThrow(new AmazonCloudFormationException("failed"));
+		Assertions.assertSame(initStack, client.describeStack(stackName).get());
+		Assertions.assertThrows(RuntimeException.class, () -> {
+			// call under test
+			client.updateStack(inputReqequest);
+		});
+		Assertions.assertSame(stack, client.describeStack(stackName).get());
+	}
+
+	@Test
+	public void testDescribeStackInvalidatedByDelete() {
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult, describeResult);
+		Assertions.assertSame(initStack, client.describeStack(stackName).get());
+		// call under test
+		client.deleteStack(stackName);
+		Assertions.assertSame(stack, client.describeStack(stackName).get());
+	}
+
 	@Test
 	public void testDoesStackNameExistTrue() {
 		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult, describeResult);
@@ -208,7 +407,8 @@ public class CloudFormationClientImplTest {
 		verify(mockCloudFormationClient).createStack(createStackRequestCapture.capture());
 		CreateStackRequest captureRequest = createStackRequestCapture.getValue();
 		Assertions.assertEquals(stackName, captureRequest.getStackName());
-		Assertions.assertNotNull(captureRequest.getTemplateURL());
+		Assertions.assertEquals(tempalteBody, captureRequest.getTemplateBody());
+		Assertions.assertNull(captureRequest.getTemplateURL());
 		Assertions.assertNotNull(captureRequest.getParameters());
 		Assertions.assertEquals(1, captureRequest.getParameters().size());
 		Assertions.assertEquals(parameter, captureRequest.getParameters().get(0));
@@ -227,7 +427,8 @@ public class CloudFormationClientImplTest {
 		verify(mockCloudFormationClient).updateStack(updateStackRequestCapture.capture());
 		UpdateStackRequest request = updateStackRequestCapture.getValue();
 		Assertions.assertEquals(stackName, request.getStackName());
-		Assertions.assertNotNull(request.getTemplateURL());
+		Assertions.assertEquals(tempalteBody, request.getTemplateBody());
+		Assertions.assertNull(request.getTemplateURL());
 		Assertions.assertNotNull(request.getParameters());
 		Assertions.assertEquals(1, request.getParameters().size());
 		Assertions.assertEquals(parameter, request.getParameters().get(0));
@@ -260,6 +461,321 @@ public class CloudFormationClientImplTest {
 		verify(mockCloudFormationClient).createStack(any(CreateStackRequest.class));
 	}
 	
+	@Test
+	public void testCreateOrUpdateIsTimed() {
+		when(mockTimeline.start(any(), any())).thenReturn(mockSpan);
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		when(mockCloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenReturn(updateResult);
+		// call under test
+		client.createOrUpdateStack(inputReqequest);
+		verify(mockTimeline).start(Phase.CREATE_OR_UPDATE, stackName);
+		verify(mockSpan).close();
+	}
+
+	@Test
+	public void testCreateOrUpdateAddsFingerprintTag() {
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		when(mockCloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenReturn(updateResult);
+		List<Tag> tags = List.of(new Tag().withKey("aKey").withValue("aValue"));
+		inputReqequest.withTags(tags);
+		String expectedFingerprint = StackFingerprint.create(inputReqequest);
+		// call under test
+		client.createOrUpdateStack(inputReqequest);
+		verify(mockCloudFormationClient).updateStack(updateStackRequestCapture.capture());
+		assertEquals(List.of(new Tag().withKey("aKey").withValue("aValue"),
+				new Tag().withKey(Constants.TAG_KEY_STACK_FINGERPRINT).withValue(expectedFingerprint)),
+				updateStackRequestCapture.getValue().getTags());
+		// the caller's tags are not modified.
+		assertEquals(1, tags.size());
+	}
+
+	@Test
+	public void testCreateOrUpdateUnchanged() {
+		String fingerprint = StackFingerprint.create(inputReqequest);
+		stack.withStackStatus(StackStatus.UPDATE_COMPLETE)
+				.withTags(new Tag().withKey(Constants.TAG_KEY_STACK_FINGERPRINT).withValue(fingerprint));
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		// call under test
+		client.createOrUpdateStack(inputReqequest);
+		verify(mockCloudFormationClient, never()).updateStack(any(UpdateStackRequest.class));
+		verify(mockCloudFormationClient, never()).createStack(any(CreateStackRequest.class));
+		verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+		verify(mockLogger).info("Stack: 'someStackName' is unchanged (fingerprint: " + fingerprint
+				+ "), skipping the update.");
+	}
+
+	@Test
+	public void testCreateOrUpdateWithChangedFingerprint() {
+		stack.withStackStatus(StackStatus.UPDATE_COMPLETE)
+				.withTags(new Tag().withKey(Constants.TAG_KEY_STACK_FINGERPRINT).withValue("old"));
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		when(mockCloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenReturn(updateResult);
+		// call under test
+		client.createOrUpdateStack(inputReqequest);
+		verify(mockCloudFormationClient).updateStack(any(UpdateStackRequest.class));
+	}
+
+	@Test
+	public void testCreateOrUpdateWithSameFingerprintAfterRollback() {
+		String fingerprint = StackFingerprint.create(inputReqequest);
+		stack.withStackStatus(StackStatus.UPDATE_ROLLBACK_COMPLETE)
+				.withTags(new Tag().withKey(Constants.TAG_KEY_STACK_FINGERPRINT).withValue(fingerprint));
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		when(mockCloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenReturn(updateResult);
+		// call under test
+		client.createOrUpdateStack(inputReqequest);
+		verify(mockCloudFormationClient).updateStack(any(UpdateStackRequest.class));
+	}
+
+	@Test
+	public void testCreateOrUpdateWhilePlanning() {
+		String fingerprint = StackFingerprint.create(inputReqequest.withStackName("unchanged"));
+		stack.withStackStatus(StackStatus.UPDATE_COMPLETE)
+				.withTags(new Tag().withKey(Constants.TAG_KEY_STACK_FINGERPRINT).withValue(fingerprint));
+		AmazonCloudFormationException exception = new AmazonCloudFormationException("Does not exist");
+		Stack changedStack = new Stack().withStackId(stackId).withStackStatus(StackStatus.UPDATE_COMPLETE)
+				.withTags(new Tag().withKey(Constants.TAG_KEY_STACK_FINGERPRINT).withValue("old"));
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult)
+				.thenReturn(new DescribeStacksResult().withStacks(changedStack)).thenThrow(exception);
+		client.startPlanning();
+		assertTrue(client.isPlanning());
+		// call under test
+		client.createOrUpdateStack(inputReqequest.withStackName("unchanged"));
+		client.createOrUpdateStack(inputReqequest.withStackName("changed"));
+		client.createOrUpdateStack(inputReqequest.withStackName("new"));
+		List<StackChange> changes = client.stopPlanning();
+		assertFalse(client.isPlanning());
+		assertEquals(List.of(StackChange.Type.UNCHANGED, StackChange.Type.UPDATE, StackChange.Type.CREATE),
+				changes.stream().map(StackChange::getType).collect(Collectors.toList()));
+		assertEquals(List.of("unchanged", "changed", "new"),
+				changes.stream().map(StackChange::getStackName).collect(Collectors.toList()));
+		verify(mockCloudFormationClient, never()).updateStack(any(UpdateStackRequest.class));
+		verify(mockCloudFormationClient, never()).createStack(any(CreateStackRequest.class));
+		verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+		verify(mockLogger).info("Planned: UPDATE of stack: 'changed'");
+	}
+
+	@Test
+	public void testCreateOrUpdateWhilePlanningOnWorkerThread() throws Exception {
+		AmazonCloudFormationException exception = new AmazonCloudFormationException("Does not exist");
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenThrow(exception);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			client.startPlanning();
+			List<StackChange> changes;
+			try {
+				// call under test
+				CompletableFuture.runAsync(() -> client.createOrUpdateStack(inputReqequest.withStackName("new")),
+						client.propagatePlanning(executor)).get();
+			} finally {
+				changes = client.stopPlanning();
+			}
+			assertEquals(List.of("new"), changes.stream().map(StackChange::getStackName).collect(Collectors.toList()));
+			assertEquals(StackChange.Type.CREATE, changes.get(0).getType());
+			// the worker thread is not left planning.
+			assertFalse(executor.submit(client::isPlanning).get());
+		} finally {
+			executor.shutdownNow();
+		}
+		verify(mockCloudFormationClient, never()).createStack(any(CreateStackRequest.class));
+		verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+	}
+
+	@Test
+	public void testCreateOrUpdateOnThreadThatIsNotPlanning() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			client.startPlanning();
+			try {
+				ExecutionException e = assertThrows(ExecutionException.class, () -> {
+					// call under test
+					executor.submit(() -> client.createOrUpdateStack(inputReqequest.withStackName("new"))).get();
+				});
+				assertEquals("Cannot create or update stack: 'new' while planning, the work was handed to a thread"
+						+ " that is not planning", e.getCause().getMessage());
+			} finally {
+				client.stopPlanning();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		verify(mockCloudFormationClient, never()).describeStacksAsync(any(DescribeStacksRequest.class), any());
+		verify(mockCloudFormationClient, never()).createStack(any(CreateStackRequest.class));
+	}
+
+	@Test
+	public void testCreateOrUpdateStackAsyncWhilePlanning() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			// the describe completes on a thread that is not planning.
+			when(mockCloudFormationClient.describeStacksAsync(any(DescribeStacksRequest.class), any()))
+					.thenAnswer(invocation -> {
+						AsyncHandler<DescribeStacksRequest, DescribeStacksResult> handler = invocation.getArgument(1);
+						return executor.submit(() -> {
+							handler.onError(new AmazonCloudFormationException("Does not exist"));
+							return null;
+						});
+					});
+			client.startPlanning();
+			List<StackChange> changes;
+			try {
+				// call under test
+				client.createOrUpdateStackAsync(inputReqequest.withStackName("new")).get(10, TimeUnit.SECONDS);
+			} finally {
+				changes = client.stopPlanning();
+			}
+			assertEquals(List.of("new"), changes.stream().map(StackChange::getStackName).collect(Collectors.toList()));
+			assertEquals(StackChange.Type.CREATE, changes.get(0).getType());
+		} finally {
+			executor.shutdownNow();
+		}
+		verify(mockCloudFormationClient, never()).createStackAsync(any(CreateStackRequest.class), any());
+	}
+
+	@Test
+	public void testCreateOrUpdateStackAsync() throws Exception {
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		when(mockCloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenReturn(updateResult);
+		// call under test
+		client.createOrUpdateStackAsync(inputReqequest).get();
+		verify(mockCloudFormationClient).describeStacksAsync(any(DescribeStacksRequest.class), any());
+		verify(mockCloudFormationClient).updateStackAsync(any(UpdateStackRequest.class), any());
+	}
+
+	@Test
+	public void testCreateOrUpdateStackAsyncWithError() {
+		AmazonCloudFormationException error = new AmazonCloudFormationException("some other error");
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		when(mockCloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenThrow(error);
+		// call under test
+		ExecutionException e = assertThrows(ExecutionException.class, () -> {
+			client.createOrUpdateStackAsync(inputReqequest).get();
+		});
+		assertSame(error, e.getCause().getCause());
+	}
+
+	@Test
+	public void testDescribeStackAsync() throws Exception {
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		// call under test
+		CompletableFuture<Optional<Stack>> future = client.describeStackAsync(stackName);
+		assertSame(stack, future.get().get());
+		// the caller cannot complete the cached description.
+		future.obtrudeValue(Optional.empty());
+		assertSame(stack, client.describeStack(stackName).get());
+		verify(mockCloudFormationClient).describeStacks(any(DescribeStacksRequest.class));
+	}
+
+	@Test
+	public void testCreateOrUpdateWithSplitTemplate() {
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		when(mockCloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenReturn(updateResult);
+		when(mockSizeGuard.guard(eq(stackName), eq(tempalteBody), eq(Optional.of(stack)), any()))
+				.thenReturn(Optional.of("{\"Resources\":{}}"));
+		// call under test
+		client.createOrUpdateStack(inputReqequest);
+		verify(mockCloudFormationClient).updateStack(updateStackRequestCapture.capture());
+		UpdateStackRequest request = updateStackRequestCapture.getValue();
+		assertEquals("{\"Resources\":{}}", request.getTemplateBody());
+		assertTrue(request.getTags().contains(new Tag().withKey(Constants.TAG_KEY_NESTED_STACK_SPLIT).withValue("true")));
+		// the caller's request is not modified.
+		assertEquals(tempalteBody, inputReqequest.getTemplateBody());
+		assertNull(inputReqequest.getTags());
+	}
+
+	@Test
+	public void testCreateOrUpdateOffClientThreads() {
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		List<String> threadNames = new ArrayList<>();
+		when(mockSizeGuard.guard(eq(stackName), eq(tempalteBody), eq(Optional.of(stack)), any())).thenAnswer(i -> {
+			threadNames.add(Thread.currentThread().getName());
+			return Optional.empty();
+		});
+		when(mockCloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenReturn(updateResult);
+		// call under test
+		client.createOrUpdateStack(inputReqequest);
+		assertEquals(1, threadNames.size());
+		assertTrue(threadNames.get(0).startsWith("cloudformation-template-"), threadNames.get(0));
+	}
+
+	@Test
+	public void testCreateOrUpdateWithoutSplit() {
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		when(mockCloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenReturn(updateResult);
+		// call under test
+		client.createOrUpdateStack(inputReqequest);
+		verify(mockCloudFormationClient).updateStack(updateStackRequestCapture.capture());
+		UpdateStackRequest request = updateStackRequestCapture.getValue();
+		assertEquals(tempalteBody, request.getTemplateBody());
+		assertFalse(request.getTags().stream().anyMatch(t -> Constants.TAG_KEY_NESTED_STACK_SPLIT.equals(t.getKey())));
+	}
+
+	@Test
+	public void testCreateOrUpdateWithPrettyTemplate() {
+		inputReqequest.withTemplateBody("{\n  \"Resources\": {}\n}");
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		when(mockCloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenReturn(updateResult);
+		// call under test
+		client.createOrUpdateStack(inputReqequest);
+		verify(mockSizeGuard).guard(eq(stackName), eq("{\"Resources\":{}}"), eq(Optional.of(stack)), any());
+		verify(mockCloudFormationClient).updateStack(updateStackRequestCapture.capture());
+		assertEquals("{\"Resources\":{}}", updateStackRequestCapture.getValue().getTemplateBody());
+	}
+
+	@Test
+	public void testCreateOrUpdateUploadsNestedTemplates() {
+		AmazonCloudFormationException exception = new AmazonCloudFormationException("Does not exist");
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenThrow(exception);
+		when(mockCloudFormationClient.createStack(any(CreateStackRequest.class))).thenReturn(createResult);
+		when(mockConfig.getConfigurationBucket()).thenReturn(bucket);
+		when(mockTimeline.start(any(), any())).thenReturn(mockSpan);
+		client.createOrUpdateStack(inputReqequest);
+		verify(mockSizeGuard).guard(eq(stackName), eq(tempalteBody), eq(Optional.empty()), uploaderCapture.capture());
+		// call under test
+		String url = uploaderCapture.getValue().apply("someStackName-NestedA", "{}");
+		assertTrue(url.contains(bucket));
+		assertTrue(url.contains("templates/someStackName-NestedA-"));
+		verify(mockTimeline).start(Phase.S3_UPLOAD, "someStackName-NestedA");
+		verify(mockS3Client).putObject(any(PutObjectRequest.class));
+	}
+
+	@Test
+	public void testAddSplitTag() {
+		List<Tag> tags = List.of(new Tag().withKey("aKey").withValue("aValue"),
+				new Tag().withKey(Constants.TAG_KEY_NESTED_STACK_SPLIT).withValue("false"));
+		// call under test
+		List<Tag> results = CloudFormationClientImpl.addSplitTag(tags);
+		assertEquals(List.of(new Tag().withKey("aKey").withValue("aValue"),
+				new Tag().withKey(Constants.TAG_KEY_NESTED_STACK_SPLIT).withValue("true")), results);
+	}
+
+	@Test
+	public void testStopPlanningWithoutStart() {
+		// call under test
+		assertTrue(client.stopPlanning().isEmpty());
+	}
+
+	@Test
+	public void testWaitForStackToCompleteWhilePlanning() throws InterruptedException {
+		stack.setStackStatus(StackStatus.UPDATE_COMPLETE);
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		client.startPlanning();
+		try {
+			// call under test
+			assertEquals(Optional.of(stack), client.waitForStackToComplete(stackName));
+		} finally {
+			client.stopPlanning();
+		}
+		verify(mockCloudFormationClient).describeStacks(any(DescribeStacksRequest.class));
+		verify(mockEventTailer, never()).reset(any());
+	}
+
+	@Test
+	public void testIsUnchangedWithNoStatus() {
+		// call under test
+		Assertions.assertFalse(CloudFormationClientImpl.isUnchanged(new Stack(), "fingerprint"));
+	}
+
 	@Test
 	public void testSaveTempalteToS3() {
 		when(mockConfig.getConfigurationBucket()).thenReturn(bucket);
@@ -281,49 +797,150 @@ public class CloudFormationClientImplTest {
 	}
 	
 	@Test
-	public void testDeleteTemplate() {
-		String key = "someKey";
-		SourceBundle bundle = new SourceBundle(bucket, key);
+	public void testSaveTempalteToS3IsContentAddressed() {
+		when(mockConfig.getConfigurationBucket()).thenReturn(bucket);
 		// call under test
-		client.deleteTemplate(bundle);
-		verify(mockS3Client).deleteObject(bucket, key);
+		SourceBundle one = client.saveTempalteToS3(stackName, tempalteBody);
+		SourceBundle two = client.saveTempalteToS3(stackName, tempalteBody);
+		SourceBundle three = client.saveTempalteToS3(stackName, "other body");
+		Assertions.assertEquals("templates/someStackName-" + DigestUtils.sha256Hex(tempalteBody) + ".json",
+				one.getKey());
+		Assertions.assertEquals(one.getKey(), two.getKey());
+		Assertions.assertNotEquals(one.getKey(), three.getKey());
 	}
-	
+
 	@Test
-	public void testExecuteWithS3Template() {
+	public void testSaveTempalteToS3WithCurrentTemplate() {
 		when(mockConfig.getConfigurationBucket()).thenReturn(bucket);
-		when(mockFunction.apply(anyString())).thenReturn(stackId);
+		ObjectMetadata existing = new ObjectMetadata();
+		existing.setLastModified(new Date(1000L));
+		when(mockS3Client.getObjectMetadata(anyString(), anyString())).thenReturn(existing);
+		when(mockClock.currentTimeMillis()).thenReturn(1000L + CloudFormationClientImpl.TEMPLATE_REFRESH_MS - 1);
 		// call under test
-		client.executeWithS3Template(inputReqequest, mockFunction);
+		SourceBundle bundle = client.saveTempalteToS3(stackName, tempalteBody);
+		Assertions.assertEquals(bucket, bundle.getBucket());
+		verify(mockS3Client).getObjectMetadata(bucket, bundle.getKey());
+		verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+	}
+
+	@Test
+	public void testSaveTempalteToS3WithOldTemplate() {
+		when(mockConfig.getConfigurationBucket()).thenReturn(bucket);
+		ObjectMetadata existing = new ObjectMetadata();
+		existing.setLastModified(new Date(1000L));
+		when(mockS3Client.getObjectMetadata(anyString(), anyString())).thenReturn(existing);
+		when(mockClock.currentTimeMillis()).thenReturn(1000L + CloudFormationClientImpl.TEMPLATE_REFRESH_MS);
+		// call under test
+		client.saveTempalteToS3(stackName, tempalteBody);
 		verify(mockS3Client).putObject(any(PutObjectRequest.class));
-		verify(mockFunction).apply(anyString());
-		verify(mockS3Client).deleteObject(anyString(), anyString());
 	}
-	
-	
+
 	@Test
-	public void testExecuteWithS3TemplateNoUpdates() {
+	public void testSaveTempalteToS3WithNotFound() {
 		when(mockConfig.getConfigurationBucket()).thenReturn(bucket);
-		AmazonCloudFormationException exception = new AmazonCloudFormationException(CloudFormationClientImpl.NO_UPDATES_ARE_TO_BE_PERFORMED);
-		
-		when(mockFunction.apply(anyString())).thenThrow(exception);
+		AmazonS3Exception notFound = new AmazonS3Exception("Not Found");
+		notFound.setStatusCode(404);
+		when(mockS3Client.getObjectMetadata(anyString(), anyString())).thenThrow(notFound);
 		// call under test
-		client.executeWithS3Template(inputReqequest, mockFunction);
+		client.saveTempalteToS3(stackName, tempalteBody);
 		verify(mockS3Client).putObject(any(PutObjectRequest.class));
-		verify(mockFunction).apply(anyString());
-		verify(mockS3Client).deleteObject(anyString(), anyString());
-		verify(mockLogger).info(any(String.class));
 	}
 
 	@Test
-	public void testExecuteWithS3TemplateWithError() {
+	public void testSaveTempalteToS3WithOtherError() {
+		when(mockConfig.getConfigurationBucket()).thenReturn(bucket);
+		AmazonS3Exception forbidden = new AmazonS3Exception("Forbidden");
+		forbidden.setStatusCode(403);
+		when(mockS3Client.getObjectMetadata(anyString(), anyString())).thenThrow(forbidden);
+		AmazonS3Exception result = Assertions.assertThrows(AmazonS3Exception.class, () -> {
+			// call under test
+			client.saveTempalteToS3(stackName, tempalteBody);
+		});
+		Assertions.assertEquals(forbidden, result);
+		verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+	}
+
+	/**
+	 * @param size
+	 * @return A JSON template with the given minified size.
+	 */
+	static String templateOfSize(int size) {
+		String prefix = "{\n     \"Description\": \"";
+		String suffix = "\"\n}";
+		return prefix + "a".repeat(size - "{\"Description\":\"\"}".length()) + suffix;
+	}
+
+	@Test
+	public void testExecuteWithTemplateInline() {
+		inputReqequest.withTemplateBody(templateOfSize(CloudFormationClientImpl.MAX_INLINE_TEMPLATE_BYTES));
+		when(mockFunction.apply(any(), any())).thenReturn(CompletableFuture.completedFuture(stackId));
+		String template = TemplateUtils.minifyJson(inputReqequest.getTemplateBody());
+		// call under test
+		client.executeWithTemplate(inputReqequest, template, mockFunction).join();
+		verify(mockFunction).apply(template, null);
+		verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+	}
+
+	@Test
+	public void testExecuteWithTemplateInS3() {
+		inputReqequest.withTemplateBody(templateOfSize(CloudFormationClientImpl.MAX_INLINE_TEMPLATE_BYTES + 1));
 		when(mockConfig.getConfigurationBucket()).thenReturn(bucket);
+		when(mockFunction.apply(any(), any())).thenReturn(CompletableFuture.completedFuture(stackId));
+		// call under test
+		client.executeWithTemplate(inputReqequest, TemplateUtils.minifyJson(inputReqequest.getTemplateBody()), mockFunction).join();
+		ArgumentCaptor<PutObjectRequest> requestCapture = ArgumentCaptor.forClass(PutObjectRequest.class);
+		verify(mockS3Client).putObject(requestCapture.capture());
+		// the minified template is uploaded.
+		Assertions.assertEquals(CloudFormationClientImpl.MAX_INLINE_TEMPLATE_BYTES + 1,
+				requestCapture.getValue().getMetadata().getContentLength());
+		String expectedUrl = "https://s3.amazonaws.com/" + bucket + "/" + requestCapture.getValue().getKey();
+		verify(mockFunction).apply(null, expectedUrl);
+		verify(mockS3Client, never()).deleteObject(anyString(), anyString());
+	}
+
+	@Test
+	public void testCreateStackWithMalformedTemplate() {
+		inputReqequest.withTemplateBody("{\"Description\": \"a\",, }");
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			client.createStack(inputReqequest);
+		});
+		verify(mockCloudFormationClient, never()).createStack(any(CreateStackRequest.class));
+		verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+	}
+
+	@Test
+	public void testExecuteWithTemplateNoUpdates() {
+		AmazonCloudFormationException exception = new AmazonCloudFormationException(CloudFormationClientImpl.NO_UPDATES_ARE_TO_BE_PERFORMED);
+		
+		when(mockFunction.apply(any(), any())).thenReturn(CompletableFuture.failedFuture(exception));
+		// call under test
+		client.executeWithTemplate(inputReqequest, tempalteBody, mockFunction).join();
+		verify(mockFunction).apply(tempalteBody, null);
+		verify(mockLogger).info("There were no updates for stack: " + stackName);
+	}
+
+	@Test
+	public void testExecuteWithTemplateWithError() {
 		AmazonCloudFormationException exception = new AmazonCloudFormationException("some other error");
-		when(mockFunction.apply(anyString())).thenThrow(exception);
-		RuntimeException expectedEx = Assertions.assertThrows(RuntimeException.class, () -> {
+		when(mockFunction.apply(any(), any())).thenReturn(CompletableFuture.failedFuture(exception));
+		CompletionException expectedEx = Assertions.assertThrows(CompletionException.class, () -> {
+			// call under test
+			client.executeWithTemplate(inputReqequest, tempalteBody, mockFunction).join();
+		});
+		assertTrue(expectedEx.getCause() instanceof RuntimeException);
+		Assertions.assertSame(exception, expectedEx.getCause().getCause());
+	}
+
+	@Test
+	public void testExecuteWithTemplateWithErrorStarting() {
+		IllegalStateException exception = new IllegalStateException("nope");
+		when(mockFunction.apply(any(), any())).thenThrow(exception);
+		CompletionException expectedEx = Assertions.assertThrows(CompletionException.class, () -> {
 			// call under test
-			client.executeWithS3Template(inputReqequest, mockFunction);
+			client.executeWithTemplate(inputReqequest, tempalteBody, mockFunction).join();
 		});
+		Assertions.assertSame(exception, expectedEx.getCause());
 	}
 	
 	@Test
@@ -337,6 +954,17 @@ public class CloudFormationClientImplTest {
 		verify(mockCloudFormationClient, times(2)).describeStacks(any(DescribeStacksRequest.class));
 	}
 	
+	@Test
+	public void testWaitForStackToCompleteIsTimed() throws InterruptedException {
+		when(mockTimeline.start(any(), any())).thenReturn(mockSpan);
+		stack.setStackStatus(StackStatus.CREATE_COMPLETE);
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(describeResult);
+		// call under test
+		client.waitForStackToComplete(stackName);
+		verify(mockTimeline).start(Phase.WAIT, stackName);
+		verify(mockSpan).close();
+	}
+
 	@Test
 	public void testWaitForStackToCompleteUpdateComplete() throws InterruptedException {
 		initStack.setStackStatus(StackStatus.UPDATE_IN_PROGRESS);
@@ -368,6 +996,26 @@ public class CloudFormationClientImplTest {
 		verify(mockThreadProvider, times(3)).sleep(any(Long.class));
 	}
 	
+	@Test
+	public void testWaitForStackToCompleteWithWaitStrategy() throws InterruptedException {
+		initStack.setStackStatus(StackStatus.CREATE_IN_PROGRESS);
+		stack.setStackStatus(StackStatus.CREATE_IN_PROGRESS);
+		DescribeStacksResult completeResult = new DescribeStacksResult()
+				.withStacks(new Stack().withStackId(stackId).withStackStatus(StackStatus.CREATE_COMPLETE));
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult,
+				describeResult, describeResult, completeResult);
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(1000L, 1000L, 3000L, 7000L);
+		when(mockWaitStrategy.getWaitTimeMS(stackName, 0)).thenReturn(2000L);
+		when(mockWaitStrategy.getWaitTimeMS(stackName, 1)).thenReturn(4000L);
+		// call under test
+		Stack result = client.waitForStackToComplete(stackName).get();
+		assertEquals(StackStatus.CREATE_COMPLETE, StackStatus.fromValue(result.getStackStatus()));
+		verify(mockThreadProvider).sleep(2000L);
+		verify(mockThreadProvider).sleep(4000L);
+		verify(mockLogger).info("Waiting for stack: 'someStackName' to complete.  Current status: CREATE_IN_PROGRESS"
+				+ " (2000 ms since last check, attempt: 1, next check in: 4000 ms)...");
+	}
+
 	@Test
 	public void testWaitForStackToCompleteTimeoutUpdate() throws InterruptedException {
 		initStack.setStackStatus(StackStatus.UPDATE_IN_PROGRESS);
@@ -476,8 +1124,79 @@ public class CloudFormationClientImplTest {
 		Assertions.assertEquals(StackStatus.UPDATE_ROLLBACK_COMPLETE, StackStatus.fromValue(resultStack.getStackStatus()));
 	}
 
+	@Test
+	public void testWaitForStackToCompleteTailsEvents() throws InterruptedException {
+		initStack.setStackStatus(StackStatus.UPDATE_COMPLETE);
+		stack.setStackStatus(StackStatus.UPDATE_IN_PROGRESS);
+		Stack complete = new Stack().withStackStatus(StackStatus.UPDATE_COMPLETE);
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult,
+				describeResult, new DescribeStacksResult().withStacks(complete));
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(1L, 2L, 3L);
+		when(mockConfig.getBooleanProperty(Constants.PROPERTY_KEY_STACK_WAIT_LOG_EVENTS)).thenReturn(true);
+		// call under test
+		Stack result = client.waitForStackToComplete(stackName).get();
+		Assertions.assertSame(complete, result);
+		verify(mockEventTailer).reset(stackName);
+		verify(mockEventTailer).tail(stackName);
+	}
+
+	@Test
+	public void testWaitForStackToCompleteWithoutTailingEvents() throws InterruptedException {
+		initStack.setStackStatus(StackStatus.UPDATE_COMPLETE);
+		stack.setStackStatus(StackStatus.UPDATE_IN_PROGRESS);
+		Stack complete = new Stack().withStackStatus(StackStatus.UPDATE_COMPLETE);
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult,
+				describeResult, new DescribeStacksResult().withStacks(complete));
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(1L, 2L, 3L);
+		when(mockConfig.getBooleanProperty(any())).thenThrow(new ConfigurationPropertyNotFound("not found"));
+		// call under test
+		Stack result = client.waitForStackToComplete(stackName).get();
+		Assertions.assertSame(complete, result);
+		verify(mockConfig).getBooleanProperty(Constants.PROPERTY_KEY_STACK_WAIT_FAIL_FAST);
+		verify(mockConfig).getBooleanProperty(Constants.PROPERTY_KEY_STACK_WAIT_LOG_EVENTS);
+		verify(mockEventTailer, never()).reset(any());
+		verify(mockEventTailer, never()).tail(any());
+	}
+
+	@Test
+	public void testWaitForStackToCompleteWithFailedResourceAndFailFast() throws InterruptedException {
+		initStack.setStackStatus(StackStatus.UPDATE_COMPLETE);
+		stack.setStackStatus(StackStatus.UPDATE_IN_PROGRESS);
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult, describeResult);
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(1L, 2L);
+		when(mockEventTailer.tail(any())).thenReturn(Optional.of(new StackEvent().withLogicalResourceId("RepoDB")
+				.withResourceStatus("CREATE_FAILED").withResourceStatusReason("bad instance class")));
+		when(mockConfig.getBooleanProperty(any())).thenReturn(true);
+		RuntimeException e = Assertions.assertThrows(RuntimeException.class, () -> {
+			// call under test
+			client.waitForStackToComplete(stackName);
+		});
+		Assertions.assertEquals("Stack 'someStackName' failed.  Resource: RepoDB status: CREATE_FAILED with reason: bad instance class", e.getMessage());
+		verify(mockConfig).getBooleanProperty(Constants.PROPERTY_KEY_STACK_WAIT_FAIL_FAST);
+		verify(mockThreadProvider, never()).sleep(anyLong());
+	}
+
+	@Test
+	public void testWaitForStackToCompleteWithFailedResourceWithoutFailFast() throws InterruptedException {
+		initStack.setStackStatus(StackStatus.UPDATE_COMPLETE);
+		stack.setStackStatus(StackStatus.UPDATE_IN_PROGRESS);
+		Stack complete = new Stack().withStackStatus(StackStatus.UPDATE_COMPLETE);
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult,
+				describeResult, new DescribeStacksResult().withStacks(complete));
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(1L, 2L, 3L);
+		when(mockEventTailer.tail(any())).thenReturn(Optional.of(new StackEvent().withResourceStatus("UPDATE_FAILED")));
+		when(mockConfig.getBooleanProperty(Constants.PROPERTY_KEY_STACK_WAIT_FAIL_FAST))
+				.thenThrow(new ConfigurationPropertyNotFound(Constants.PROPERTY_KEY_STACK_WAIT_FAIL_FAST));
+		when(mockConfig.getBooleanProperty(Constants.PROPERTY_KEY_STACK_WAIT_LOG_EVENTS)).thenReturn(true);
+		// call under test
+		Stack result = client.waitForStackToComplete(stackName).get();
+		Assertions.assertSame(complete, result);
+		verify(mockThreadProvider).sleep(anyLong());
+	}
+
 	@Test
 	public void testGetOutput() {
+		when(mockCloudFormationClient.listExports(any(ListExportsRequest.class))).thenReturn(new ListExportsResult());
 		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult, describeResult);
 		// call under test
 		String output = client.getOutput(stackName, SES_SYNAPSE_ORG_COMPLAINT_TOPIC_KEY);
@@ -485,8 +1204,34 @@ public class CloudFormationClientImplTest {
 		Assertions.assertEquals(SES_SYNAPSE_ORG_COMPLAINT_TOPIC_VALUE, output);
 	}
 
+	@Test
+	public void testGetOutputFromIndex() {
+		when(mockCloudFormationClient.listExports(any(ListExportsRequest.class))).thenReturn(new ListExportsResult());
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult, describeResult);
+		when(mockClock.currentTimeMillis()).thenReturn(0L, 0L, CloudFormationClientImpl.DESCRIBE_CACHE_TTL_MS + 1);
+		// call under test
+		Assertions.assertEquals(SES_SYNAPSE_ORG_COMPLAINT_TOPIC_VALUE, client.getOutput(stackName, SES_SYNAPSE_ORG_COMPLAINT_TOPIC_KEY));
+		Assertions.assertEquals(SES_SYNAPSE_ORG_BOUNCE_TOPIC_VALUE, client.getOutput(stackName, SES_SYNAPSE_ORG_BOUNCE_TOPIC_KEY));
+		verify(mockCloudFormationClient).listExports(any(ListExportsRequest.class));
+		verify(mockCloudFormationClient).describeStacks(any(DescribeStacksRequest.class));
+	}
+
+	@Test
+	public void testGetOutputAfterUpdate() {
+		when(mockCloudFormationClient.listExports(any(ListExportsRequest.class))).thenReturn(new ListExportsResult());
+		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult, describeResult);
+		when(mockCloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenReturn(updateResult);
+		initStack.withOutputs(new Output().withOutputKey("key").withOutputValue("before"));
+		stack.withOutputs(new Output().withOutputKey("key").withOutputValue("after"));
+		Assertions.assertEquals("before", client.getOutput(stackName, "key"));
+		// call under test
+		client.updateStack(inputReqequest);
+		Assertions.assertEquals("after", client.getOutput(stackName, "key"));
+	}
+
 	@Test
 	public void testGetOutputInvalid() {
+		when(mockCloudFormationClient.listExports(any(ListExportsRequest.class))).thenReturn(new ListExportsResult());
 		when(mockCloudFormationClient.describeStacks(any(DescribeStacksRequest.class))).thenReturn(initDescribeResult, describeResult);
 		IllegalArgumentException expectedEx = Assertions.assertThrows(IllegalArgumentException.class, () -> {
 			// call under test
@@ -513,6 +1258,76 @@ public class CloudFormationClientImplTest {
 		verifyNoMoreInteractions(mockCloudFormationClient);
 	}
 	
+	@Test
+	public void testStreamOverStackSummaries() {
+
+		ListStacksResult one = new ListStacksResult()
+				.withStackSummaries(new StackSummary().withStackName("a"), new StackSummary().withStackName("b"))
+				.withNextToken("next a");
+		ListStacksResult two = new ListStacksResult().withStackSummaries(new StackSummary().withStackName("c"))
+				.withNextToken(null);
+
+		when(mockCloudFormationClient.listStacks(any())).thenReturn(one, two);
+
+		// call under test
+		List<String> stackNames = client
+				.streamOverStackSummaries(StackStatus.CREATE_COMPLETE, StackStatus.UPDATE_COMPLETE)
+				.map(StackSummary::getStackName).collect(Collectors.toList());
+		assertEquals(List.of("a", "b", "c"), stackNames);
+
+		verify(mockCloudFormationClient).listStacks(new ListStacksRequest()
+				.withStackStatusFilters(StackStatus.CREATE_COMPLETE, StackStatus.UPDATE_COMPLETE).withNextToken(null));
+		verify(mockCloudFormationClient).listStacks(new ListStacksRequest()
+				.withStackStatusFilters(StackStatus.CREATE_COMPLETE, StackStatus.UPDATE_COMPLETE).withNextToken("next a"));
+		verifyNoMoreInteractions(mockCloudFormationClient);
+	}
+	
+	@Test
+	public void testStreamOverAllStacksWithEmptyPage() {
+
+		DescribeStacksResult one = new DescribeStacksResult()
+				.withStacks(new Stack().withStackName("a")).withNextToken("next a");
+		DescribeStacksResult empty = new DescribeStacksResult().withNextToken("next empty");
+		DescribeStacksResult two = new DescribeStacksResult()
+				.withStacks(new Stack().withStackName("b")).withNextToken(null);
+
+		when(mockCloudFormationClient.describeStacks(any())).thenReturn(one, empty, two);
+
+		// call under test
+		List<String> stackNames = client.streamOverAllStacks().map(Stack::getStackName).collect(Collectors.toList());
+		assertEquals(List.of("a", "b"), stackNames);
+
+		verify(mockCloudFormationClient).describeStacks(new DescribeStacksRequest().withNextToken(null));
+		verify(mockCloudFormationClient).describeStacks(new DescribeStacksRequest().withNextToken("next a"));
+		verify(mockCloudFormationClient).describeStacks(new DescribeStacksRequest().withNextToken("next empty"));
+		verifyNoMoreInteractions(mockCloudFormationClient);
+	}
+
+	@Test
+	public void testStreamOverStackSummariesWithEmptyPage() {
+
+		ListStacksResult one = new ListStacksResult()
+				.withStackSummaries(new StackSummary().withStackName("a")).withNextToken("next a");
+		ListStacksResult empty = new ListStacksResult().withNextToken("next empty");
+		ListStacksResult two = new ListStacksResult().withStackSummaries(new StackSummary().withStackName("b"))
+				.withNextToken(null);
+
+		when(mockCloudFormationClient.listStacks(any())).thenReturn(one, empty, two);
+
+		// call under test
+		List<String> stackNames = client.streamOverStackSummaries(StackStatus.CREATE_COMPLETE)
+				.map(StackSummary::getStackName).collect(Collectors.toList());
+		assertEquals(List.of("a", "b"), stackNames);
+
+		verify(mockCloudFormationClient)
+				.listStacks(new ListStacksRequest().withStackStatusFilters(StackStatus.CREATE_COMPLETE).withNextToken(null));
+		verify(mockCloudFormationClient).listStacks(
+				new ListStacksRequest().withStackStatusFilters(StackStatus.CREATE_COMPLETE).withNextToken("next a"));
+		verify(mockCloudFormationClient).listStacks(
+				new ListStacksRequest().withStackStatusFilters(StackStatus.CREATE_COMPLETE).withNextToken("next empty"));
+		verifyNoMoreInteractions(mockCloudFormationClient);
+	}
+
 	@Test
 	public void testDeleteStack() {
 		// call under test
@@ -0,0 +1,17 @@
+package org.sagebionetworks.template;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class FingerprintUtilsTest {
+
+	@Test
+	public void testFingerprint() {
+		// call under test
+		assertEquals(FingerprintUtils.fingerprint("a", "b"), FingerprintUtils.fingerprint("a", "b"));
+		assertNotEquals(FingerprintUtils.fingerprint("ab", "c"), FingerprintUtils.fingerprint("a", "bc"));
+		assertNotEquals(FingerprintUtils.fingerprint("a", null), FingerprintUtils.fingerprint("a", "null"));
+	}
+}
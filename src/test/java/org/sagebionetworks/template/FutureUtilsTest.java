@@ -0,0 +1,40 @@
+package org.sagebionetworks.template;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.Test;
+
+public class FutureUtilsTest {
+
+	@Test
+	public void testJoin() {
+		// call under test
+		assertEquals("result", FutureUtils.join(CompletableFuture.completedFuture("result")));
+	}
+
+	@Test
+	public void testJoinWithRuntimeException() {
+		IllegalStateException error = new IllegalStateException("failed");
+		IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> {
+			// call under test
+			FutureUtils.join(CompletableFuture.failedFuture(error));
+		});
+		assertSame(error, thrown);
+	}
+
+	@Test
+	public void testJoinWithCheckedException() {
+		IOException error = new IOException("failed");
+		CompletionException thrown = assertThrows(CompletionException.class, () -> {
+			// call under test
+			FutureUtils.join(CompletableFuture.failedFuture(error));
+		});
+		assertSame(error, thrown.getCause());
+	}
+}
@@ -0,0 +1,179 @@
+package org.sagebionetworks.template;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.util.Clock;
+
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.model.AmazonCloudFormationException;
+import com.amazonaws.services.cloudformation.model.Export;
+import com.amazonaws.services.cloudformation.model.ListExportsRequest;
+import com.amazonaws.services.cloudformation.model.ListExportsResult;
+import com.amazonaws.services.cloudformation.model.Output;
+import com.amazonaws.services.cloudformation.model.Stack;
+
+@ExtendWith(MockitoExtension.class)
+public class OutputsIndexTest {
+
+	@Mock
+	AmazonCloudFormation mockCloudFormationClient;
+	@Mock
+	Function<String, Optional<Stack>> mockStackDescriber;
+	@Mock
+	Clock mockClock;
+	@Mock
+	Logger mockLogger;
+
+	OutputsIndex index;
+
+	String stackId;
+	Export export;
+	Stack stack;
+
+	@BeforeEach
+	public void before() {
+		index = new OutputsIndex(mockCloudFormationClient, mockStackDescriber, mockClock, mockLogger);
+		stackId = "arn:aws:cloudformation:us-east-1:123456789012:stack/synapse-dev-global-resources/some-uuid";
+		export = new Export().withExportingStackId(stackId)
+				.withName("us-east-1-synapse-dev-global-resources-SesSynapseOrgComplaintTopic")
+				.withValue("exportedValue");
+		stack = new Stack().withStackName("synapse-dev-vpc-2-private-subnets-Red").withOutputs(
+				new Output().withOutputKey("PrivateSubnets").withOutputValue("subnet-1, subnet-2"),
+				new Output().withOutputKey("Other").withOutputValue("otherValue"));
+	}
+
+	@Test
+	public void testGetOutputFromExports() {
+		when(mockCloudFormationClient.listExports(any(ListExportsRequest.class)))
+				.thenReturn(new ListExportsResult().withExports(new Export().withName("first")).withNextToken("next"),
+						new ListExportsResult().withExports(export));
+		// call under test
+		assertEquals("exportedValue", index.getOutput("synapse-dev-global-resources", "SesSynapseOrgComplaintTopic"));
+		assertEquals("exportedValue", index.getOutput("synapse-dev-global-resources", "SesSynapseOrgComplaintTopic"));
+		verify(mockCloudFormationClient).listExports(new ListExportsRequest().withNextToken(null));
+		verify(mockCloudFormationClient).listExports(new ListExportsRequest().withNextToken("next"));
+		verify(mockStackDescriber, never()).apply(anyString());
+	}
+
+	@Test
+	public void testGetOutputFromStack() {
+		when(mockCloudFormationClient.listExports(any(ListExportsRequest.class))).thenReturn(new ListExportsResult());
+		when(mockStackDescriber.apply(any())).thenReturn(Optional.of(stack));
+		// call under test
+		assertEquals("subnet-1, subnet-2", index.getOutput(stack.getStackName(), "PrivateSubnets"));
+		assertEquals("otherValue", index.getOutput(stack.getStackName(), "Other"));
+		verify(mockCloudFormationClient).listExports(any(ListExportsRequest.class));
+		verify(mockStackDescriber).apply(stack.getStackName());
+	}
+
+	@Test
+	public void testGetOutputWithMissingKey() {
+		when(mockCloudFormationClient.listExports(any(ListExportsRequest.class))).thenReturn(new ListExportsResult());
+		when(mockStackDescriber.apply(any())).thenReturn(Optional.of(stack));
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			index.getOutput(stack.getStackName(), "missing");
+		});
+		assertEquals("The output key missing was not found.", e.getMessage());
+	}
+
+	@Test
+	public void testGetOutputWithMissingStack() {
+		when(mockCloudFormationClient.listExports(any(ListExportsRequest.class))).thenReturn(new ListExportsResult());
+		when(mockStackDescriber.apply(any())).thenReturn(Optional.empty(), Optional.of(stack));
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> {
+			// call under test
+			index.getOutput("missing", "PrivateSubnets");
+		});
+		assertEquals("Stack does not exist: missing", e.getMessage());
+		// a missing stack is not remembered.
+		assertEquals("subnet-1, subnet-2", index.getOutput("missing", "PrivateSubnets"));
+	}
+
+	@Test
+	public void testGetOutputWithListExportsFailure() {
+		when(mockCloudFormationClient.listExports(any(ListExportsRequest.class)))
+				.thenThrow(new AmazonCloudFormationException("denied"));
+		when(mockStackDescriber.apply(any())).thenReturn(Optional.of(stack));
+		// call under test
+		assertEquals("otherValue", index.getOutput(stack.getStackName(), "Other"));
+		assertEquals("otherValue", index.getOutput(stack.getStackName(), "Other"));
+		verify(mockLogger).warn(any(String.class));
+		verify(mockCloudFormationClient).listExports(any(ListExportsRequest.class));
+	}
+
+	@Test
+	public void testInvalidate() {
+		when(mockCloudFormationClient.listExports(any(ListExportsRequest.class)))
+				.thenReturn(new ListExportsResult().withExports(export));
+		Stack global = new Stack().withStackName("synapse-dev-global-resources")
+				.withOutputs(new Output().withOutputKey("SesSynapseOrgComplaintTopic").withOutputValue("newValue"));
+		when(mockStackDescriber.apply(any())).thenReturn(Optional.of(stack), Optional.of(global));
+		assertEquals("exportedValue", index.getOutput("synapse-dev-global-resources", "SesSynapseOrgComplaintTopic"));
+		assertEquals("otherValue", index.getOutput(stack.getStackName(), "Other"));
+		// call under test
+		index.invalidate("synapse-dev-global-resources");
+		assertEquals("newValue", index.getOutput("synapse-dev-global-resources", "SesSynapseOrgComplaintTopic"));
+		// other stacks are still served from memory.
+		assertEquals("otherValue", index.getOutput(stack.getStackName(), "Other"));
+		verify(mockStackDescriber, times(2)).apply(anyString());
+		verify(mockCloudFormationClient).listExports(any(ListExportsRequest.class));
+	}
+
+	@Test
+	public void testGetOutputAfterTimeToLive() {
+		when(mockClock.currentTimeMillis()).thenReturn(1000L, 1000L + OutputsIndex.TIME_TO_LIVE_MS,
+				1001L + OutputsIndex.TIME_TO_LIVE_MS);
+		Export changed = new Export().withExportingStackId(stackId).withName(export.getName()).withValue("newValue");
+		when(mockCloudFormationClient.listExports(any(ListExportsRequest.class)))
+				.thenReturn(new ListExportsResult().withExports(export), new ListExportsResult().withExports(changed));
+		assertEquals("exportedValue", index.getOutput("synapse-dev-global-resources", "SesSynapseOrgComplaintTopic"));
+		// call under test
+		assertEquals("exportedValue", index.getOutput("synapse-dev-global-resources", "SesSynapseOrgComplaintTopic"));
+		assertEquals("newValue", index.getOutput("synapse-dev-global-resources", "SesSynapseOrgComplaintTopic"));
+		verify(mockCloudFormationClient, times(2)).listExports(any(ListExportsRequest.class));
+	}
+
+	@Test
+	public void testGetOutputFromStackAfterTimeToLive() {
+		when(mockClock.currentTimeMillis()).thenReturn(1000L, 1001L + OutputsIndex.TIME_TO_LIVE_MS);
+		when(mockCloudFormationClient.listExports(any(ListExportsRequest.class))).thenReturn(new ListExportsResult());
+		Stack changed = new Stack().withStackName(stack.getStackName())
+				.withOutputs(new Output().withOutputKey("Other").withOutputValue("newValue"));
+		when(mockStackDescriber.apply(any())).thenReturn(Optional.of(stack), Optional.of(changed));
+		assertEquals("otherValue", index.getOutput(stack.getStackName(), "Other"));
+		// call under test
+		assertEquals("newValue", index.getOutput(stack.getStackName(), "Other"));
+		verify(mockStackDescriber, times(2)).apply(stack.getStackName());
+	}
+
+	@Test
+	public void testGetStackName() {
+		assertEquals("synapse-dev-global-resources", OutputsIndex.getStackName(stackId));
+		assertEquals("name", OutputsIndex.getStackName("name"));
+		assertNull(OutputsIndex.getStackName(null));
+	}
+
+	@Test
+	public void testCreateExportName() {
+		assertEquals("us-east-1-synapse-dev-vpc-2-PrivateSubnets",
+				OutputsIndex.createExportName("synapse-dev-vpc-2", "PrivateSubnets"));
+	}
+}
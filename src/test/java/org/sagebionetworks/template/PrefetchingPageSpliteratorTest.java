@@ -0,0 +1,120 @@
+package org.sagebionetworks.template;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class PrefetchingPageSpliteratorTest {
+
+	@Mock
+	PageIterator.PageProvider<String> mockProvider;
+
+	ExecutorService executor;
+
+	@BeforeEach
+	public void before() {
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@AfterEach
+	public void after() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testIteration() {
+		when(mockProvider.nextPage()).thenReturn(List.of("a", "b"), List.of("c"), Collections.emptyList());
+		PrefetchingPageSpliterator<String> spliterator = new PrefetchingPageSpliterator<>(mockProvider, executor, 2);
+		// call under test
+		List<String> results = StreamSupport.stream(spliterator, false).collect(Collectors.toList());
+		assertEquals(List.of("a", "b", "c"), results);
+		assertFalse(spliterator.tryAdvance(results::add));
+		// the provider is never called after the last page.
+		verify(mockProvider, times(3)).nextPage();
+	}
+
+	@Test
+	public void testStream() {
+		when(mockProvider.nextPage()).thenReturn(List.of("a"), List.of("b", "c"), Collections.emptyList());
+		// call under test
+		assertEquals(List.of("a", "b", "c"), PrefetchingPageSpliterator.stream(mockProvider).collect(Collectors.toList()));
+	}
+
+	/**
+	 * The next page is fetched while the current page is being consumed but
+	 * never more than the lookahead.
+	 */
+	@Test
+	public void testPrefetchIsBounded() throws InterruptedException {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch fetched = new CountDownLatch(3);
+		PageIterator.PageProvider<String> provider = () -> {
+			fetched.countDown();
+			return List.of("page-" + calls.incrementAndGet());
+		};
+		PrefetchingPageSpliterator<String> spliterator = new PrefetchingPageSpliterator<>(provider, executor, 2);
+		List<String> results = new ArrayList<>();
+		// call under test
+		assertTrue(spliterator.tryAdvance(results::add));
+		assertEquals(List.of("page-1"), results);
+		// the first page plus two pages of lookahead.
+		assertTrue(fetched.await(5, TimeUnit.SECONDS));
+		Thread.sleep(100);
+		assertEquals(3, calls.get());
+		spliterator.close();
+		assertFalse(spliterator.tryAdvance(results::add));
+	}
+
+	@Test
+	public void testProviderFailure() {
+		IllegalStateException error = new IllegalStateException("nope");
+		when(mockProvider.nextPage()).thenReturn(List.of("a")).thenThrow(error);
+		PrefetchingPageSpliterator<String> spliterator = new PrefetchingPageSpliterator<>(mockProvider, executor, 1);
+		List<String> results = new ArrayList<>();
+		assertTrue(spliterator.tryAdvance(results::add));
+		IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> {
+			// call under test
+			spliterator.tryAdvance(results::add);
+		});
+		assertSame(error, thrown);
+		assertFalse(spliterator.tryAdvance(results::add));
+	}
+
+	@Test
+	public void testInvalidLookahead() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			new PrefetchingPageSpliterator<>(mockProvider, executor, 0);
+		});
+	}
+
+	@Test
+	public void testTrySplit() {
+		// call under test
+		assertEquals(null, new PrefetchingPageSpliterator<>(mockProvider, executor, 1).trySplit());
+	}
+}
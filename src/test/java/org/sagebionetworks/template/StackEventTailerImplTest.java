@@ -0,0 +1,167 @@
+package org.sagebionetworks.template;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.model.AmazonCloudFormationException;
+import com.amazonaws.services.cloudformation.model.DescribeStackEventsRequest;
+import com.amazonaws.services.cloudformation.model.DescribeStackEventsResult;
+import com.amazonaws.services.cloudformation.model.StackEvent;
+
+@ExtendWith(MockitoExtension.class)
+public class StackEventTailerImplTest {
+
+	@Mock
+	AmazonCloudFormation mockCloudFormationClient;
+	@Mock
+	LoggerFactory mockLoggerFactory;
+	@Mock
+	Logger mockLogger;
+
+	StackEventTailerImpl tailer;
+
+	String stackName;
+	StackEvent oldComplete;
+	StackEvent start;
+	StackEvent bucketCreated;
+	StackEvent dbFailed;
+	StackEvent queueCancelled;
+	StackEvent rollback;
+
+	@BeforeEach
+	public void before() {
+		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
+		tailer = new StackEventTailerImpl(mockCloudFormationClient, mockLoggerFactory);
+		stackName = "someStack";
+		oldComplete = stackEvent("0", "CREATE_COMPLETE");
+		start = stackEvent("1", "UPDATE_IN_PROGRESS");
+		bucketCreated = resourceEvent("2", "Bucket", "CREATE_COMPLETE", null);
+		dbFailed = resourceEvent("3", "RepoDB", "CREATE_FAILED", "bad instance class");
+		queueCancelled = resourceEvent("4", "Queue", "CREATE_FAILED", "Resource creation cancelled");
+		rollback = stackEvent("5", "UPDATE_ROLLBACK_IN_PROGRESS");
+	}
+
+	StackEvent stackEvent(String id, String status) {
+		return new StackEvent().withEventId(id).withLogicalResourceId(stackName)
+				.withResourceType(StackEventTailerImpl.STACK_RESOURCE_TYPE).withResourceStatus(status);
+	}
+
+	StackEvent resourceEvent(String id, String logicalId, String status, String reason) {
+		return new StackEvent().withEventId(id).withLogicalResourceId(logicalId).withResourceType("AWS::Some::Type")
+				.withResourceStatus(status).withResourceStatusReason(reason);
+	}
+
+	DescribeStackEventsResult page(String nextToken, StackEvent... events) {
+		return new DescribeStackEventsResult().withStackEvents(events).withNextToken(nextToken);
+	}
+
+	@Test
+	public void testTailFirstCallStopsAtOperationStart() {
+		when(mockCloudFormationClient.describeStackEvents(any()))
+				.thenReturn(page("next", bucketCreated, start, oldComplete));
+		// call under test
+		assertEquals(Optional.empty(), tailer.tail(stackName));
+		verify(mockCloudFormationClient).describeStackEvents(new DescribeStackEventsRequest().withStackName(stackName));
+		InOrder inOrder = inOrder(mockLogger);
+		inOrder.verify(mockLogger).info("Stack: 'someStack' resource: someStack (AWS::CloudFormation::Stack) UPDATE_IN_PROGRESS");
+		inOrder.verify(mockLogger).info("Stack: 'someStack' resource: Bucket (AWS::Some::Type) CREATE_COMPLETE");
+		verify(mockLogger, times(2)).info(any(String.class));
+	}
+
+	@Test
+	public void testTailReadsOnlyNewEvents() {
+		when(mockCloudFormationClient.describeStackEvents(any())).thenReturn(page(null, bucketCreated, start),
+				page("next", rollback, queueCancelled, dbFailed, bucketCreated, start));
+		tailer.tail(stackName);
+		// call under test
+		Optional<StackEvent> result = tailer.tail(stackName);
+		// the oldest failure is the root cause.
+		assertEquals(Optional.of(dbFailed), result);
+		verify(mockCloudFormationClient, times(2)).describeStackEvents(any());
+		verify(mockLogger).warn("Stack: 'someStack' resource: RepoDB (AWS::Some::Type) CREATE_FAILED reason: bad instance class");
+		verify(mockLogger).warn("Stack: 'someStack' resource: Queue (AWS::Some::Type) CREATE_FAILED reason: Resource creation cancelled");
+		verify(mockLogger).info("Stack: 'someStack' resource: someStack (AWS::CloudFormation::Stack) UPDATE_ROLLBACK_IN_PROGRESS");
+		// each event is logged once.
+		verify(mockLogger).info("Stack: 'someStack' resource: Bucket (AWS::Some::Type) CREATE_COMPLETE");
+	}
+
+	@Test
+	public void testTailWithMultiplePages() {
+		when(mockCloudFormationClient.describeStackEvents(any())).thenReturn(page(null, start),
+				page("next", rollback, queueCancelled), page(null, dbFailed, start));
+		tailer.tail(stackName);
+		// call under test
+		assertEquals(Optional.of(dbFailed), tailer.tail(stackName));
+		verify(mockCloudFormationClient).describeStackEvents(new DescribeStackEventsRequest().withStackName(stackName).withNextToken("next"));
+	}
+
+	@Test
+	public void testTailWithNoNewEvents() {
+		when(mockCloudFormationClient.describeStackEvents(any())).thenReturn(page(null, start));
+		tailer.tail(stackName);
+		// call under test
+		assertEquals(Optional.empty(), tailer.tail(stackName));
+		verify(mockLogger).info(any(String.class));
+	}
+
+	@Test
+	public void testReset() {
+		when(mockCloudFormationClient.describeStackEvents(any())).thenReturn(page(null, start));
+		tailer.tail(stackName);
+		// call under test
+		tailer.reset(stackName);
+		tailer.tail(stackName);
+		verify(mockLogger, times(2)).info(any(String.class));
+	}
+
+	@Test
+	public void testTailWithStackFailureOnly() {
+		StackEvent stackFailed = stackEvent("6", "UPDATE_FAILED");
+		when(mockCloudFormationClient.describeStackEvents(any())).thenReturn(page(null, stackFailed, start));
+		// call under test
+		assertEquals(Optional.empty(), tailer.tail(stackName));
+	}
+
+	@Test
+	public void testTailWithDeleteFailure() {
+		StackEvent deleteFailed = resourceEvent("6", "OldQueue", "DELETE_FAILED", "Resource is in use");
+		StackEvent cleanup = stackEvent("7", "UPDATE_COMPLETE_CLEANUP_IN_PROGRESS");
+		when(mockCloudFormationClient.describeStackEvents(any())).thenReturn(page(null, deleteFailed, cleanup, start));
+		// call under test
+		assertEquals(Optional.empty(), tailer.tail(stackName));
+		verify(mockLogger).warn("Stack: 'someStack' resource: OldQueue (AWS::Some::Type) DELETE_FAILED reason: Resource is in use");
+	}
+
+	@Test
+	public void testTailWithError() {
+		when(mockCloudFormationClient.describeStackEvents(any())).thenThrow(new AmazonCloudFormationException("Rate exceeded"));
+		// call under test
+		assertEquals(Optional.empty(), tailer.tail(stackName));
+		verify(mockLogger).warn(any(String.class));
+		verify(mockLogger, never()).info(any(String.class));
+	}
+
+	@Test
+	public void testReadNewEventsWithoutOperationStart() {
+		when(mockCloudFormationClient.describeStackEvents(any())).thenReturn(page("next", bucketCreated), page(null, dbFailed));
+		// call under test
+		assertEquals(List.of(bucketCreated, dbFailed), tailer.readNewEvents(stackName, null));
+	}
+}
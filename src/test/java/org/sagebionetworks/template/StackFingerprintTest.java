@@ -0,0 +1,117 @@
+package org.sagebionetworks.template;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.cloudformation.model.Parameter;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.Tag;
+
+public class StackFingerprintTest {
+
+	Parameter one;
+	Parameter two;
+	Tag tagOne;
+	Tag tagTwo;
+	CreateOrUpdateStackRequest request;
+
+	@BeforeEach
+	public void before() {
+		one = new Parameter().withParameterKey("one").withParameterValue("1");
+		two = new Parameter().withParameterKey("two").withParameterValue("2");
+		tagOne = new Tag().withKey("tagOne").withValue("a");
+		tagTwo = new Tag().withKey("tagTwo").withValue("b");
+		request = new CreateOrUpdateStackRequest().withStackName("stack").withTemplateBody("{}")
+				.withParameters(one, two).withCapabilities("capOne", "capTwo").withTags(List.of(tagOne, tagTwo))
+				.withEnableTerminationProtection(true);
+	}
+
+	CreateOrUpdateStackRequest copy() {
+		return new CreateOrUpdateStackRequest().withStackName(request.getStackName())
+				.withTemplateBody(request.getTemplateBody()).withParameters(request.getParameters())
+				.withCapabilities(request.getCapabilities()).withTags(request.getTags())
+				.withEnableTerminationProtection(request.getEnableTerminationProtection());
+	}
+
+	@Test
+	public void testCreateIsStable() {
+		// call under test
+		assertEquals(StackFingerprint.create(request), StackFingerprint.create(copy()));
+		assertEquals(64, StackFingerprint.create(request).length());
+	}
+
+	@Test
+	public void testCreateIgnoresOrder() {
+		CreateOrUpdateStackRequest reordered = copy().withParameters(two, one).withCapabilities("capTwo", "capOne")
+				.withTags(List.of(tagTwo, tagOne));
+		// call under test
+		assertEquals(StackFingerprint.create(request), StackFingerprint.create(reordered));
+	}
+
+	@Test
+	public void testCreateIgnoresFingerprintTag() {
+		CreateOrUpdateStackRequest tagged = copy().withTags(List.of(tagOne, tagTwo,
+				new Tag().withKey(Constants.TAG_KEY_STACK_FINGERPRINT).withValue("something")));
+		// call under test
+		assertEquals(StackFingerprint.create(request), StackFingerprint.create(tagged));
+	}
+
+	@Test
+	public void testCreateWithChanges() {
+		String fingerprint = StackFingerprint.create(request);
+		// call under test
+		assertNotEquals(fingerprint, StackFingerprint.create(copy().withTemplateBody("{ }")));
+		assertNotEquals(fingerprint, StackFingerprint.create(copy().withStackName("other")));
+		assertNotEquals(fingerprint, StackFingerprint.create(
+				copy().withParameters(one, new Parameter().withParameterKey("two").withParameterValue("3"))));
+		assertNotEquals(fingerprint, StackFingerprint.create(copy().withCapabilities("capOne")));
+		assertNotEquals(fingerprint, StackFingerprint.create(copy().withTags(List.of(tagOne))));
+		assertNotEquals(fingerprint, StackFingerprint.create(copy().withEnableTerminationProtection(false)));
+	}
+
+	@Test
+	public void testCreateWithAmbiguousValues() {
+		CreateOrUpdateStackRequest a = new CreateOrUpdateStackRequest().withStackName("a\ntemplateBody:")
+				.withTemplateBody("b");
+		CreateOrUpdateStackRequest b = new CreateOrUpdateStackRequest().withStackName("a")
+				.withTemplateBody("templateBody:b");
+		// call under test
+		assertNotEquals(StackFingerprint.create(a), StackFingerprint.create(b));
+	}
+
+	@Test
+	public void testCreateWithNulls() {
+		// call under test
+		assertEquals(64, StackFingerprint.create(new CreateOrUpdateStackRequest()).length());
+	}
+
+	@Test
+	public void testCreateWithNullRequest() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			StackFingerprint.create(null);
+		});
+	}
+
+	@Test
+	public void testGetFingerprintTag() {
+		Stack stack = new Stack().withTags(tagOne,
+				new Tag().withKey(Constants.TAG_KEY_STACK_FINGERPRINT).withValue("abc"));
+		// call under test
+		assertEquals(Optional.of("abc"), StackFingerprint.getFingerprintTag(stack));
+	}
+
+	@Test
+	public void testGetFingerprintTagMissing() {
+		// call under test
+		assertEquals(Optional.empty(), StackFingerprint.getFingerprintTag(new Stack().withTags(tagOne)));
+		assertEquals(Optional.empty(), StackFingerprint.getFingerprintTag(new Stack()));
+	}
+}
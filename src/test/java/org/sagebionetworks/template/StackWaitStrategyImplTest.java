@@ -0,0 +1,107 @@
+package org.sagebionetworks.template;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.StackWaitStrategyImpl.StackType;
+
+@ExtendWith(MockitoExtension.class)
+public class StackWaitStrategyImplTest {
+
+	@Mock
+	Random mockRandom;
+
+	StackWaitStrategyImpl strategy;
+
+	@BeforeEach
+	public void before() {
+		strategy = new StackWaitStrategyImpl(mockRandom);
+	}
+
+	@Test
+	public void testStackTypeFromStackName() {
+		assertEquals(StackType.SHARED_RESOURCES, StackType.fromStackName("dev-123-shared-resources"));
+		assertEquals(StackType.BEANSTALK_ENVIRONMENT, StackType.fromStackName("repo-dev-123-0"));
+		assertEquals(StackType.BEANSTALK_ENVIRONMENT, StackType.fromStackName("workers-prod-456-1"));
+		assertEquals(StackType.BEANSTALK_ENVIRONMENT, StackType.fromStackName("portal-prod-456-2"));
+		assertEquals(StackType.DEFAULT, StackType.fromStackName("synapse-dev-vpc-2"));
+		assertEquals(StackType.DEFAULT, StackType.fromStackName("repo-dev"));
+	}
+
+	@Test
+	public void testGetWaitTimeMSFirstAttempt() {
+		when(mockRandom.nextDouble()).thenReturn(0.99);
+		// call under test
+		assertEquals(2_000L, strategy.getWaitTimeMS("synapse-dev-vpc-2", 0));
+	}
+
+	@Test
+	public void testGetWaitTimeMSBackoff() {
+		when(mockRandom.nextDouble()).thenReturn(1.0);
+		// call under test
+		assertEquals(4_000L, strategy.getWaitTimeMS("synapse-dev-vpc-2", 1));
+		assertEquals(8_000L, strategy.getWaitTimeMS("synapse-dev-vpc-2", 2));
+		assertEquals(16_000L, strategy.getWaitTimeMS("synapse-dev-vpc-2", 3));
+	}
+
+	@Test
+	public void testGetWaitTimeMSJitter() {
+		when(mockRandom.nextDouble()).thenReturn(0.0, 0.5);
+		// call under test
+		assertEquals(4_000L, strategy.getWaitTimeMS("synapse-dev-vpc-2", 2));
+		assertEquals(6_000L, strategy.getWaitTimeMS("synapse-dev-vpc-2", 2));
+	}
+
+	@Test
+	public void testGetWaitTimeMSCeiling() {
+		when(mockRandom.nextDouble()).thenReturn(1.0);
+		// call under test
+		assertEquals(20_000L, strategy.getWaitTimeMS("synapse-dev-vpc-2", 10));
+		assertEquals(60_000L, strategy.getWaitTimeMS("dev-123-shared-resources", 10));
+		assertEquals(30_000L, strategy.getWaitTimeMS("repo-dev-123-0", 10));
+		// large attempts must not overflow
+		assertEquals(20_000L, strategy.getWaitTimeMS("synapse-dev-vpc-2", Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testGetWaitTimeMSFloor() {
+		when(mockRandom.nextDouble()).thenReturn(0.0);
+		// call under test
+		assertEquals(15_000L, strategy.getWaitTimeMS("dev-123-shared-resources", 0));
+		assertEquals(10_000L, strategy.getWaitTimeMS("repo-dev-123-0", 0));
+	}
+
+	@Test
+	public void testGetWaitTimeMSWithRealRandom() {
+		strategy = new StackWaitStrategyImpl();
+		for (int i = 0; i < 100; i++) {
+			long wait = strategy.getWaitTimeMS("dev-123-shared-resources", 3);
+			assertTrue(wait >= 15_000L && wait <= 60_000L);
+		}
+	}
+
+	@Test
+	public void testGetWaitTimeMSWithNullName() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			strategy.getWaitTimeMS(null, 0);
+		});
+	}
+
+	@Test
+	public void testGetWaitTimeMSWithNegativeAttempt() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			strategy.getWaitTimeMS("synapse-dev-vpc-2", -1);
+		});
+	}
+}
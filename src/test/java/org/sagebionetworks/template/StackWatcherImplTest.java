@@ -0,0 +1,269 @@
+package org.sagebionetworks.template;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_STACK_WAIT_FAIL_FAST;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_STACK_WAIT_LOG_EVENTS;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.config.Configuration;
+
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackEvent;
+import com.amazonaws.services.cloudformation.model.StackStatus;
+
+@ExtendWith(MockitoExtension.class)
+public class StackWatcherImplTest {
+
+	@Mock
+	CloudFormationClient mockCloudFormationClient;
+	@Mock
+	ThreadProvider mockThreadProvider;
+	@Mock
+	StackWaitStrategy mockWaitStrategy;
+	@Mock
+	StackEventTailer mockEventTailer;
+	@Mock
+	Configuration mockConfig;
+	@Mock
+	LoggerFactory mockLoggerFactory;
+	@Mock
+	Logger mockLogger;
+
+	StackWatcherImpl watcher;
+
+	@BeforeEach
+	public void before() {
+		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
+		watcher = new StackWatcherImpl(mockCloudFormationClient, mockThreadProvider, mockWaitStrategy,
+				mockEventTailer, mockConfig, mockLoggerFactory);
+	}
+
+	Stack stack(String name, StackStatus status) {
+		return new Stack().withStackName(name).withStackStatus(status);
+	}
+
+	@Test
+	public void testRegisterSameStack() {
+		// call under test
+		CompletableFuture<Stack> one = watcher.register("one");
+		CompletableFuture<Stack> two = watcher.register("one");
+		assertSame(one, two);
+	}
+
+	@Test
+	public void testPollOnceWithManyStacks() throws Exception {
+		Stack one = stack("one", StackStatus.CREATE_COMPLETE);
+		Stack two = stack("two", StackStatus.UPDATE_IN_PROGRESS);
+		Stack three = stack("three", StackStatus.UPDATE_COMPLETE);
+		Stack other = stack("other", StackStatus.UPDATE_IN_PROGRESS);
+		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(Stream.of(one, other, two, three));
+		CompletableFuture<Stack> oneFuture = watcher.register("one");
+		CompletableFuture<Stack> twoFuture = watcher.register("two");
+		CompletableFuture<Stack> threeFuture = watcher.register("three");
+		// call under test
+		watcher.pollOnce();
+		assertEquals(one, oneFuture.get());
+		assertFalse(twoFuture.isDone());
+		assertEquals(three, threeFuture.get());
+		// a single sweep serves every stack
+		verify(mockCloudFormationClient).streamOverAllStacks();
+		verify(mockCloudFormationClient, never()).describeStack(any());
+	}
+
+	@Test
+	public void testPollOnceInProgress() {
+		when(mockWaitStrategy.getWaitTimeMS("one", 0)).thenReturn(5000L);
+		when(mockCloudFormationClient.streamOverAllStacks())
+				.thenReturn(Stream.of(stack("one", StackStatus.UPDATE_IN_PROGRESS)));
+		CompletableFuture<Stack> future = watcher.register("one");
+		// call under test
+		watcher.pollOnce();
+		assertFalse(future.isDone());
+		verify(mockLogger).info("Waiting for stack: 'one' to complete.  Current status: UPDATE_IN_PROGRESS"
+				+ " (0 ms since last check, attempt: 0, next check in: 5000 ms)...");
+	}
+
+	@Test
+	public void testPollOnceNotDue() {
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(0L, 0L, 4999L, 5000L);
+		when(mockWaitStrategy.getWaitTimeMS("one", 0)).thenReturn(5000L);
+		when(mockWaitStrategy.getWaitTimeMS("one", 1)).thenReturn(10000L);
+		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(
+				Stream.of(stack("one", StackStatus.UPDATE_IN_PROGRESS)),
+				Stream.of(stack("one", StackStatus.UPDATE_IN_PROGRESS)));
+		watcher.register("one");
+		// call under test
+		watcher.pollOnce();
+		watcher.pollOnce();
+		watcher.pollOnce();
+		// the second poll is before the wait of the stack so it makes no calls
+		verify(mockCloudFormationClient, times(2)).streamOverAllStacks();
+		verify(mockWaitStrategy).getWaitTimeMS("one", 1);
+	}
+
+	@Test
+	public void testPollOnceDoesNotExist() {
+		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(Stream.empty());
+		when(mockCloudFormationClient.describeStack("one")).thenReturn(Optional.empty());
+		CompletableFuture<Stack> future = watcher.register("one");
+		// call under test
+		watcher.pollOnce();
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get());
+		assertEquals("Stack does not exist: one", e.getCause().getMessage());
+		// completed watches are removed
+		assertNotSame(future, watcher.register("one"));
+	}
+
+	@Test
+	public void testPollOnceDeleted() throws Exception {
+		// deleted stacks are not included in the sweep.
+		Stack deleted = stack("one", StackStatus.DELETE_COMPLETE);
+		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(Stream.empty());
+		when(mockCloudFormationClient.describeStack("one")).thenReturn(Optional.of(deleted));
+		CompletableFuture<Stack> future = watcher.register("one");
+		// call under test
+		watcher.pollOnce();
+		assertEquals(deleted, future.get());
+	}
+
+	@Test
+	public void testPollOnceFailed() {
+		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(
+				Stream.of(stack("one", StackStatus.ROLLBACK_COMPLETE).withStackStatusReason("because")));
+		CompletableFuture<Stack> future = watcher.register("one");
+		// call under test
+		watcher.pollOnce();
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get());
+		assertEquals("Stack 'one' did not complete.  Status: ROLLBACK_COMPLETE with reason: because",
+				e.getCause().getMessage());
+	}
+
+	@Test
+	public void testPollOnceStartedInUpdateRollbackComplete() throws Exception {
+		Stack rollback = stack("one", StackStatus.UPDATE_ROLLBACK_COMPLETE);
+		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(Stream.of(rollback));
+		CompletableFuture<Stack> future = watcher.register("one");
+		// call under test
+		watcher.pollOnce();
+		assertEquals(rollback, future.get());
+	}
+
+	@Test
+	public void testPollOnceInProgressToUpdateRollbackComplete() {
+		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(
+				Stream.of(stack("one", StackStatus.UPDATE_IN_PROGRESS)),
+				Stream.of(stack("one", StackStatus.UPDATE_ROLLBACK_COMPLETE)));
+		CompletableFuture<Stack> future = watcher.register("one");
+		// call under test
+		watcher.pollOnce();
+		watcher.pollOnce();
+		assertTrue(future.isCompletedExceptionally());
+	}
+
+	@Test
+	public void testPollOnceTimeout() {
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(0L, CloudFormationClientImpl.TIMEOUT_MS + 1);
+		when(mockCloudFormationClient.streamOverAllStacks())
+				.thenReturn(Stream.of(stack("one", StackStatus.CREATE_IN_PROGRESS)));
+		CompletableFuture<Stack> future = watcher.register("one");
+		// call under test
+		watcher.pollOnce();
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get());
+		assertTrue(e.getCause().getMessage().contains("Timed out"));
+	}
+
+	@Test
+	public void testPollOnceWithError() {
+		RuntimeException error = new RuntimeException("Rate exceeded");
+		when(mockCloudFormationClient.streamOverAllStacks()).thenThrow(error);
+		CompletableFuture<Stack> future = watcher.register("one");
+		// call under test
+		watcher.pollOnce();
+		assertFalse(future.isDone());
+		verify(mockLogger).warn(any(String.class), any(Throwable.class));
+	}
+
+	@Test
+	public void testPollOnceWithFailFast() {
+		when(mockConfig.getBooleanProperty(PROPERTY_KEY_STACK_WAIT_FAIL_FAST)).thenReturn(true);
+		when(mockCloudFormationClient.streamOverAllStacks())
+				.thenReturn(Stream.of(stack("one", StackStatus.UPDATE_IN_PROGRESS)));
+		when(mockEventTailer.tail("one")).thenReturn(Optional.of(new StackEvent().withLogicalResourceId("Bucket")
+				.withResourceStatus("UPDATE_FAILED").withResourceStatusReason("Access denied")));
+		CompletableFuture<Stack> future = watcher.register("one");
+		verify(mockEventTailer).reset("one");
+		// call under test
+		watcher.pollOnce();
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get());
+		assertEquals("Stack 'one' failed.  Resource: Bucket status: UPDATE_FAILED with reason: Access denied",
+				e.getCause().getMessage());
+	}
+
+	@Test
+	public void testPollOnceWithLogEvents() {
+		when(mockConfig.getBooleanProperty(PROPERTY_KEY_STACK_WAIT_FAIL_FAST)).thenReturn(false);
+		when(mockConfig.getBooleanProperty(PROPERTY_KEY_STACK_WAIT_LOG_EVENTS)).thenReturn(true);
+		when(mockCloudFormationClient.streamOverAllStacks())
+				.thenReturn(Stream.of(stack("one", StackStatus.UPDATE_IN_PROGRESS)));
+		when(mockEventTailer.tail("one")).thenReturn(Optional.of(new StackEvent().withLogicalResourceId("Bucket")));
+		CompletableFuture<Stack> future = watcher.register("one");
+		// call under test
+		watcher.pollOnce();
+		// the failure is only logged when not failing fast.
+		assertFalse(future.isDone());
+		verify(mockEventTailer).tail("one");
+	}
+
+	@Test
+	public void testPollOnceWithoutEvents() {
+		when(mockCloudFormationClient.streamOverAllStacks())
+				.thenReturn(Stream.of(stack("one", StackStatus.UPDATE_IN_PROGRESS)));
+		watcher.register("one");
+		// call under test
+		watcher.pollOnce();
+		verify(mockEventTailer, never()).reset(any());
+		verify(mockEventTailer, never()).tail(any());
+	}
+
+	@Test
+	public void testWatch() throws Exception {
+		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(
+				Stream.of(stack("one", StackStatus.CREATE_IN_PROGRESS)),
+				Stream.of(stack("one", StackStatus.CREATE_COMPLETE)));
+		// call under test
+		Stack result = watcher.watch("one").get(10, TimeUnit.SECONDS);
+		assertEquals(StackStatus.CREATE_COMPLETE.toString(), result.getStackStatus());
+		verify(mockThreadProvider, timeout(5000).times(2)).sleep(anyLong());
+	}
+
+	@Test
+	public void testWatchWithNullName() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			watcher.watch(null);
+		});
+	}
+}
@@ -0,0 +1,213 @@
+package org.sagebionetworks.template;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.app.VelocityEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
+
+@ExtendWith(MockitoExtension.class)
+public class TemplateRendererImplTest {
+
+	@Mock
+	private VelocityEngine mockVelocityEngine;
+	@Mock
+	private DeploymentTimeline mockTimeline;
+	@Mock
+	private DeploymentTimeline.Span mockSpan;
+	@Mock
+	private Template mockTemplate;
+
+	@InjectMocks
+	private TemplateRendererImpl renderer;
+
+	private String templatePath;
+	private VelocityContext context;
+
+	@BeforeEach
+	public void before() {
+		templatePath = "templates/some-template.json.vpt";
+		context = new VelocityContext();
+		when(mockTimeline.start(any(), any())).thenReturn(mockSpan);
+		when(mockVelocityEngine.getTemplate(any())).thenReturn(mockTemplate);
+	}
+
+	/**
+	 * Setup the template to write the given text when merged.
+	 *
+	 * @param text
+	 */
+	private void setupMerge(String text) {
+		doAnswer(invocation -> {
+			((Writer) invocation.getArgument(1)).append(text);
+			return null;
+		}).when(mockTemplate).merge(any(), any());
+	}
+
+	@Test
+	public void testRenderJson() {
+		setupMerge("{\n     \"a\":  1\n}");
+		// call under test
+		String result = renderer.renderJson(templatePath, context);
+		assertEquals("{\"a\":1}", result);
+		verify(mockTimeline).start(Phase.RENDER, templatePath);
+		verify(mockSpan).close();
+	}
+
+	@Test
+	public void testRenderJsonWithInvalidJson() {
+		setupMerge("not json");
+		String message = assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			renderer.renderJson(templatePath, context);
+		}).getMessage();
+		assertTrue(message.startsWith("Template: templates/some-template.json.vpt did not render valid JSON:"));
+		verify(mockSpan).close();
+	}
+
+	@Test
+	public void testRender() {
+		setupMerge("some: yaml");
+		// call under test
+		String result = renderer.render(templatePath, context);
+		assertEquals("some: yaml", result);
+		verify(mockTimeline).start(Phase.RENDER, templatePath);
+		verify(mockSpan).close();
+	}
+
+	@Test
+	public void testRenderToWriter() {
+		setupMerge("some text");
+		StringWriter writer = new StringWriter();
+		// call under test
+		renderer.render(templatePath, context, writer);
+		assertEquals("some text", writer.toString());
+		verify(mockTemplate).merge(context, writer);
+	}
+
+	@Test
+	public void testTemplateParsedOnce() {
+		setupMerge("{}");
+		// call under test
+		renderer.renderJson(templatePath, context);
+		renderer.renderJson(templatePath, context);
+		renderer.render(templatePath, context);
+
+		verify(mockVelocityEngine).getTemplate(templatePath);
+		verify(mockTemplate, times(3)).merge(any(), any());
+	}
+
+	@Test
+	public void testRecording() {
+		setupMerge("{ }");
+		renderer.startRecording();
+		// call under test
+		renderer.renderJson(templatePath, context);
+		renderer.render("templates/other.yaml.vpt", context);
+		RenderRecording recording = renderer.stopRecording();
+		assertEquals(List.of(new RenderedTemplate(templatePath, true, "{}"),
+				new RenderedTemplate("templates/other.yaml.vpt", false, "{ }")), recording.getTemplates());
+		assertEquals(Optional.empty(), recording.getFailedTemplate());
+		// nothing is recorded once stopped
+		renderer.renderJson(templatePath, context);
+		assertTrue(renderer.stopRecording().getTemplates().isEmpty());
+	}
+
+	@Test
+	public void testRecordingWithFailure() {
+		setupMerge("not json");
+		renderer.startRecording();
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			renderer.renderJson(templatePath, context);
+		});
+		RenderRecording recording = renderer.stopRecording();
+		assertEquals(Optional.of(templatePath), recording.getFailedTemplate());
+		assertTrue(recording.getTemplates().isEmpty());
+	}
+
+	@Test
+	public void testRecordingToWriter() {
+		setupMerge("some text");
+		StringWriter writer = new StringWriter();
+		renderer.startRecording();
+		// call under test
+		renderer.render(templatePath, context, writer);
+		assertEquals("some text", writer.toString());
+		assertEquals(List.of(new RenderedTemplate(templatePath, false, "some text")),
+				renderer.stopRecording().getTemplates());
+	}
+
+	@Test
+	public void testReplay() {
+		setupMerge("{\"b\":2}");
+		String otherPath = "templates/other.json.vpt";
+		renderer.startReplay(List.of(new RenderedTemplate(otherPath, true, "{\"a\":1}"),
+				new RenderedTemplate(templatePath, true, "{\"c\":3}")));
+		// call under test
+		assertEquals("{\"a\":1}", renderer.renderJson(otherPath, context));
+		assertEquals("{\"c\":3}", renderer.renderJson(templatePath, context));
+		// the recording is used up
+		assertEquals("{\"b\":2}", renderer.renderJson(templatePath, context));
+		renderer.stopReplay();
+		verify(mockVelocityEngine, never()).getTemplate(otherPath);
+		verify(mockTemplate).merge(any(), any());
+	}
+
+	@Test
+	public void testReplayWithMismatch() {
+		setupMerge("{\"b\":2}");
+		String otherPath = "templates/other.json.vpt";
+		renderer.startReplay(List.of(new RenderedTemplate(otherPath, true, "{\"a\":1}"),
+				new RenderedTemplate(templatePath, true, "{\"c\":3}")));
+		// call under test
+		assertEquals("{\"b\":2}", renderer.renderJson(templatePath, context));
+		// the replay ended at the first mismatch
+		assertEquals("{\"b\":2}", renderer.renderJson(templatePath, context));
+		renderer.stopReplay();
+		verify(mockTemplate, times(2)).merge(any(), any());
+	}
+
+	@Test
+	public void testReplayWithDifferentKind() {
+		setupMerge("{\"b\":2}");
+		renderer.startReplay(List.of(new RenderedTemplate(templatePath, false, "{\"a\":1}")));
+		// call under test
+		assertEquals("{\"b\":2}", renderer.renderJson(templatePath, context));
+		renderer.stopReplay();
+	}
+
+	@Test
+	public void testReplayToWriter() {
+		setupMerge("other text");
+		renderer.startReplay(List.of(new RenderedTemplate(templatePath, false, "some text")));
+		StringWriter writer = new StringWriter();
+		// call under test
+		renderer.render(templatePath, context, writer);
+		renderer.stopReplay();
+		assertEquals("some text", writer.toString());
+		// rendered as usual once the replay stops
+		assertEquals("other text", renderer.render(templatePath, context));
+	}
+}
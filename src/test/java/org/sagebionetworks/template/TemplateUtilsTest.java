@@ -3,6 +3,7 @@ package org.sagebionetworks.template;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,6 +11,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.sagebionetworks.template.dns.DnsConfig;
 import org.sagebionetworks.template.dns.RecordSetDescriptor;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 
@@ -57,4 +63,102 @@ public class TemplateUtilsTest {
 		System.out.println(s);
 	}
 	
+
+	@Test
+	public void testMinifyJson() {
+		String input = "{\n     \"a\": [\n          1,\n          \"b c\"\n     ],\n     \"d\": {}\n}";
+		// call under test
+		assertEquals("{\"a\":[1,\"b c\"],\"d\":{}}", TemplateUtils.minifyJson(input));
+	}
+
+	@Test
+	public void testMinifyJsonAfterPrettyPrint() throws Exception {
+		TemplateUtils.prettyPrint(Collections.emptyMap());
+		// call under test
+		assertEquals("{\"a\":1}", TemplateUtils.minifyJson("{ \"a\" : 1 }"));
+	}
+
+	@Test
+	public void testMinifyJsonWithYaml() {
+		String input = "Resources:\n  Bucket:\n    Type: AWS::S3::Bucket\n";
+		// call under test
+		assertEquals(input, TemplateUtils.minifyJson(input));
+	}
+
+	@Test
+	public void testMinifyJsonWithEmpty() {
+		// call under test
+		assertEquals(" ", TemplateUtils.minifyJson(" "));
+	}
+
+	@Test
+	public void testMinifyJsonWithMalformedObject() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			TemplateUtils.minifyJson("\n  {\"a\": [1, \"b\"}");
+		});
+		assertTrue(e.getCause() instanceof JsonProcessingException);
+	}
+
+	@Test
+	public void testMinifyJsonWithDuplicateKey() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			TemplateUtils.minifyJson("{\"a\": 1, \"a\": 2}");
+		});
+	}
+
+	@Test
+	public void testMinifyJsonWithNull() {
+		// call under test
+		assertNull(TemplateUtils.minifyJson(null));
+	}
+
+	@Test
+	public void testMinifyJsonStream() throws IOException {
+		StringWriter writer = new StringWriter();
+		// call under test
+		TemplateUtils.minifyJson(new StringReader("{\n \"a\": [ 1.5, true, null ],\n \"b\": \"c d\" }"), writer);
+		assertEquals("{\"a\":[1.5,true,null],\"b\":\"c d\"}", writer.toString());
+	}
+
+	@Test
+	public void testMinifyJsonStreamWithTrailingComma() throws IOException {
+		StringWriter writer = new StringWriter();
+		// call under test
+		TemplateUtils.minifyJson(new StringReader("{\"a\": [1, 2,], \"b\": {\"c\": 3,},}"), writer);
+		assertEquals("{\"a\":[1,2],\"b\":{\"c\":3}}", writer.toString());
+	}
+
+	@Test
+	public void testMinifyJsonStreamWithDuplicateKey() {
+		assertThrows(JsonProcessingException.class, () -> {
+			// call under test
+			TemplateUtils.minifyJson(new StringReader("{\"a\": 1, \"a\": 2}"), new StringWriter());
+		});
+	}
+
+	@Test
+	public void testMinifyJsonStreamWithArray() {
+		assertThrows(JsonProcessingException.class, () -> {
+			// call under test
+			TemplateUtils.minifyJson(new StringReader("[1, 2]"), new StringWriter());
+		});
+	}
+
+	@Test
+	public void testMinifyJsonStreamWithTrailingContent() {
+		assertThrows(JsonProcessingException.class, () -> {
+			// call under test
+			TemplateUtils.minifyJson(new StringReader("{\"a\": 1} {\"b\": 2}"), new StringWriter());
+		});
+	}
+
+	@Test
+	public void testMinifyJsonStreamWithUnclosedObject() {
+		assertThrows(JsonProcessingException.class, () -> {
+			// call under test
+			TemplateUtils.minifyJson(new StringReader("{\"a\": [1"), new StringWriter());
+		});
+	}
 }
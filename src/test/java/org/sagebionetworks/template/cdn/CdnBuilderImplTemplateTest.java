@@ -2,7 +2,6 @@ package org.sagebionetworks.template.cdn;
 
 import com.amazonaws.services.cloudformation.model.Stack;
 import com.amazonaws.services.cloudformation.model.Tag;
-import org.apache.velocity.app.VelocityEngine;
 import org.json.JSONObject;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,8 +15,12 @@ import org.sagebionetworks.template.CloudFormationClient;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.StackTagsProvider;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.TemplateRenderer;
+import org.sagebionetworks.template.TemplateRendererImpl;
+import org.sagebionetworks.template.ThreadProviderImp;
 import org.sagebionetworks.template.config.RepoConfiguration;
 import org.sagebionetworks.template.TemplateUtils;
+import org.sagebionetworks.template.timing.DeploymentTimelineImpl;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -44,15 +47,15 @@ public class CdnBuilderImplTemplateTest {
 	private ArgumentCaptor<CreateOrUpdateStackRequest> createOrUpdateStackRequestArgumentCaptor;
 
 
-	VelocityEngine velocityEngine;
+	TemplateRenderer templateRenderer;
 	CdnBuilderImpl builder;
 
 	private static final String FAKE_PUBLIC_KEY = "1234";
 
 	@BeforeEach
 	void setUp() {
-		velocityEngine = new TemplateGuiceModule().velocityEngineProvider();
-		builder = new CdnBuilderImpl(mockConfig, mockCloudFormationClient, mockStackTagsProvider, velocityEngine);
+		templateRenderer = new TemplateRendererImpl(new TemplateGuiceModule().velocityEngineProvider(), new DeploymentTimelineImpl(new ThreadProviderImp()));
+		builder = new CdnBuilderImpl(mockConfig, mockCloudFormationClient, mockStackTagsProvider, templateRenderer);
 	}
 
 	@AfterEach
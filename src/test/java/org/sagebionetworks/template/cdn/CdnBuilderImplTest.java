@@ -2,9 +2,7 @@ package org.sagebionetworks.template.cdn;
 
 import com.amazonaws.services.cloudformation.model.Stack;
 import com.amazonaws.services.cloudformation.model.Tag;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,22 +11,20 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.mockito.stubbing.Answer;
 import org.sagebionetworks.template.CloudFormationClient;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.StackTagsProvider;
+import org.sagebionetworks.template.TemplateRenderer;
 import org.sagebionetworks.template.config.RepoConfiguration;
 
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doAnswer;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -45,10 +41,7 @@ class CdnBuilderImplTest {
 	private StackTagsProvider mockStackTagsProvider;
 
 	@Mock
-	private VelocityEngine mockVelocityEngine;
-
-	@Mock
-	private Template mockTemplate;
+	private TemplateRenderer mockTemplateRenderer;
 
 	@Captor
 	private ArgumentCaptor<CreateOrUpdateStackRequest> createOrUpdateStackRequestArgumentCaptor;
@@ -89,15 +82,7 @@ class CdnBuilderImplTest {
 
 	@Test
 	void testBuildCdnStack() throws Exception{
-		when(mockVelocityEngine.getTemplate(any(String.class))).thenReturn(mockTemplate);
-		doAnswer(new Answer<Void>() {
-			@Override
-			public Void answer(InvocationOnMock invocation) throws Throwable {
-				StringWriter writer = (StringWriter) invocation.getArgument(1);
-				writer.append("someYamlTemplate");
-				return null;
-			}
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.render(any(), any())).thenReturn("someYamlTemplate");
 		List<Tag> expectedTags = new ArrayList<>();
 		Tag tag = new Tag().withKey("aKey").withValue("aValue");
 		expectedTags.add(tag);
@@ -113,7 +98,7 @@ class CdnBuilderImplTest {
 		// call under test
 		Optional<Stack> optStack = builder.buildCdnStack(CdnBuilder.Type.PORTAL);
 
-		verify(mockVelocityEngine).getTemplate("templates/cdn/synapse_cdn.yaml.vtp");
+		verify(mockTemplateRenderer).render(eq("templates/cdn/synapse_cdn.yaml.vtp"), any());
 		verify(mockCloudFormationClient).createOrUpdateStack(createOrUpdateStackRequestArgumentCaptor.capture());
 		CreateOrUpdateStackRequest req = createOrUpdateStackRequestArgumentCaptor.getValue();
 		assertEquals("cdn-dev-synapse", req.getStackName());
@@ -129,15 +114,7 @@ class CdnBuilderImplTest {
 
 	@Test
 	void testBuildDataCdnStack() throws Exception{
-		when(mockVelocityEngine.getTemplate(any(String.class))).thenReturn(mockTemplate);
-		doAnswer(new Answer<Void>() {
-			@Override
-			public Void answer(InvocationOnMock invocation) throws Throwable {
-				StringWriter writer = (StringWriter) invocation.getArgument(1);
-				writer.append("someJsonTemplate");
-				return null;
-			}
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.render(any(), any())).thenReturn("someJsonTemplate");
 		List<Tag> expectedTags = new ArrayList<>();
 		Tag tag = new Tag().withKey("aKey").withValue("aValue");
 		expectedTags.add(tag);
@@ -154,7 +131,7 @@ class CdnBuilderImplTest {
 		// call under test
 		Optional<Stack> optStack = builder.buildCdnStack(CdnBuilder.Type.DATA);
 
-		verify(mockVelocityEngine).getTemplate("templates/cdn/synapse-data-cdn.json.vtp");
+		verify(mockTemplateRenderer).render(eq("templates/cdn/synapse-data-cdn.json.vtp"), any());
 		verify(mockCloudFormationClient).createOrUpdateStack(createOrUpdateStackRequestArgumentCaptor.capture());
 		CreateOrUpdateStackRequest req = createOrUpdateStackRequestArgumentCaptor.getValue();
 		assertEquals("cdn-tst-data-synapse", req.getStackName());
@@ -1,5 +1,8 @@
 package org.sagebionetworks.template.cron;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
@@ -9,8 +12,10 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,6 +30,7 @@ import org.sagebionetworks.template.config.TimeToLive;
 import com.amazonaws.services.cloudformation.model.Parameter;
 import com.amazonaws.services.cloudformation.model.Stack;
 import com.amazonaws.services.cloudformation.model.StackStatus;
+import com.amazonaws.services.cloudformation.model.StackSummary;
 
 @ExtendWith(MockitoExtension.class)
 public class ExpiredStackTeardownImplTest {
@@ -46,21 +52,46 @@ public class ExpiredStackTeardownImplTest {
 		down = new ExpiredStackTeardownImpl(mockCloudFormationClient, mockTimeToLive, mockLoggerFactory);
 	}
 
+	/**
+	 * Setup the given stacks to be both listed and described.
+	 */
+	private void setupStacks(Stack... stacks) {
+		when(mockCloudFormationClient.streamOverStackSummaries(any())).thenReturn(Arrays.stream(stacks)
+				.map(s -> new StackSummary().withStackName(s.getStackName()).withStackStatus(s.getStackStatus())));
+		for (Stack stack : stacks) {
+			when(mockCloudFormationClient.describeStack(stack.getStackName())).thenReturn(Optional.of(stack));
+		}
+	}
+
+	private Stack stack(String name, StackStatus status, Boolean terminationProtection) {
+		return new Stack().withStackName(name).withStackStatus(status)
+				.withParameters(new Parameter().withParameterKey("key"))
+				.withEnableTerminationProtection(terminationProtection);
+	}
+
+	private void verifyListAndDescribe(Stack... stacks) {
+		verify(mockCloudFormationClient).streamOverStackSummaries(
+				ExpiredStackTeardownImpl.DELETABLE_STATUS.toArray(new StackStatus[0]));
+		for (Stack stack : stacks) {
+			verify(mockCloudFormationClient).describeStack(stack.getStackName());
+		}
+	}
+
 	@Test
 	public void testFindAndDeleteExpiredStacksWithCreateComplete() {
 
-		Stack stack = new Stack().withStackName("deleteMe").withStackStatus(StackStatus.CREATE_COMPLETE)
-				.withParameters(new Parameter().withParameterKey("key")).withEnableTerminationProtection(false);
+		Stack stack = stack("repo-dev-101-0", StackStatus.CREATE_COMPLETE, false);
 
-		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(List.of(stack).stream());
+		setupStacks(stack);
 		when(mockTimeToLive.isTimeToLiveExpired(any())).thenReturn(true);
 		
 		// call under test
 		down.findAndDeleteExpiredStacks();
 
+		verifyListAndDescribe(stack);
 		verify(mockCloudFormationClient).deleteStack(stack.getStackName());
 		verify(mockTimeToLive).isTimeToLiveExpired(stack.getParameters());
-		verify(mockLogger).info("Deleting stack: 'deleteMe'...");
+		verify(mockLogger).info("Deleting stack: 'repo-dev-101-0'...");
 		
 		verifyNoMoreInteractions(mockCloudFormationClient);
 		verifyNoMoreInteractions(mockTimeToLive);
@@ -71,18 +102,18 @@ public class ExpiredStackTeardownImplTest {
 	@Test
 	public void testFindAndDeleteExpiredStacksWithUpdateComplete() {
 
-		Stack stack = new Stack().withStackName("deleteMe").withStackStatus(StackStatus.UPDATE_COMPLETE)
-				.withParameters(new Parameter().withParameterKey("key")).withEnableTerminationProtection(false);
+		Stack stack = stack("repo-dev-101-0", StackStatus.UPDATE_COMPLETE, false);
 
-		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(List.of(stack).stream());
+		setupStacks(stack);
 		when(mockTimeToLive.isTimeToLiveExpired(any())).thenReturn(true);
 		
 		// call under test
 		down.findAndDeleteExpiredStacks();
 
+		verifyListAndDescribe(stack);
 		verify(mockCloudFormationClient).deleteStack(stack.getStackName());
 		verify(mockTimeToLive).isTimeToLiveExpired(stack.getParameters());
-		verify(mockLogger).info("Deleting stack: 'deleteMe'...");
+		verify(mockLogger).info("Deleting stack: 'repo-dev-101-0'...");
 		
 		verifyNoMoreInteractions(mockCloudFormationClient);
 		verifyNoMoreInteractions(mockTimeToLive);
@@ -93,18 +124,18 @@ public class ExpiredStackTeardownImplTest {
 	@Test
 	public void testFindAndDeleteExpiredStacksWithUpdateRollback() {
 
-		Stack stack = new Stack().withStackName("deleteMe").withStackStatus(StackStatus.UPDATE_ROLLBACK_COMPLETE)
-				.withParameters(new Parameter().withParameterKey("key")).withEnableTerminationProtection(false);
+		Stack stack = stack("repo-dev-101-0", StackStatus.UPDATE_ROLLBACK_COMPLETE, false);
 
-		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(List.of(stack).stream());
+		setupStacks(stack);
 		when(mockTimeToLive.isTimeToLiveExpired(any())).thenReturn(true);
 		
 		// call under test
 		down.findAndDeleteExpiredStacks();
 
+		verifyListAndDescribe(stack);
 		verify(mockCloudFormationClient).deleteStack(stack.getStackName());
 		verify(mockTimeToLive).isTimeToLiveExpired(stack.getParameters());
-		verify(mockLogger).info("Deleting stack: 'deleteMe'...");
+		verify(mockLogger).info("Deleting stack: 'repo-dev-101-0'...");
 		
 		verifyNoMoreInteractions(mockCloudFormationClient);
 		verifyNoMoreInteractions(mockTimeToLive);
@@ -115,18 +146,18 @@ public class ExpiredStackTeardownImplTest {
 	@Test
 	public void testFindAndDeleteExpiredStacksWithDeleteFailed() {
 
-		Stack stack = new Stack().withStackName("deleteMe").withStackStatus(StackStatus.DELETE_FAILED)
-				.withParameters(new Parameter().withParameterKey("key")).withEnableTerminationProtection(false);
+		Stack stack = stack("repo-dev-101-0", StackStatus.DELETE_FAILED, false);
 
-		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(List.of(stack).stream());
+		setupStacks(stack);
 		when(mockTimeToLive.isTimeToLiveExpired(any())).thenReturn(true);
 		
 		// call under test
 		down.findAndDeleteExpiredStacks();
 
+		verifyListAndDescribe(stack);
 		verify(mockCloudFormationClient).deleteStack(stack.getStackName());
 		verify(mockTimeToLive).isTimeToLiveExpired(stack.getParameters());
-		verify(mockLogger).info("Deleting stack: 'deleteMe'...");
+		verify(mockLogger).info("Deleting stack: 'repo-dev-101-0'...");
 		
 		verifyNoMoreInteractions(mockCloudFormationClient);
 		verifyNoMoreInteractions(mockTimeToLive);
@@ -137,15 +168,15 @@ public class ExpiredStackTeardownImplTest {
 	@Test
 	public void testFindAndDeleteExpiredStacksWithNotExpired() {
 
-		Stack stack = new Stack().withStackName("deleteMe").withStackStatus(StackStatus.CREATE_COMPLETE)
-				.withParameters(new Parameter().withParameterKey("key")).withEnableTerminationProtection(false);
+		Stack stack = stack("repo-dev-101-0", StackStatus.CREATE_COMPLETE, false);
 
-		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(List.of(stack).stream());
+		setupStacks(stack);
 		when(mockTimeToLive.isTimeToLiveExpired(any())).thenReturn(false);
 		
 		// call under test
 		down.findAndDeleteExpiredStacks();
 
+		verifyListAndDescribe(stack);
 		verify(mockTimeToLive).isTimeToLiveExpired(stack.getParameters());
 		
 		verifyNoMoreInteractions(mockCloudFormationClient);
@@ -157,15 +188,15 @@ public class ExpiredStackTeardownImplTest {
 	@Test
 	public void testFindAndDeleteExpiredStacksWithTerminationProtection() {
 
-		Stack stack = new Stack().withStackName("deleteMe").withStackStatus(StackStatus.CREATE_COMPLETE)
-				.withParameters(new Parameter().withParameterKey("key")).withEnableTerminationProtection(true);
+		Stack stack = stack("repo-dev-101-0", StackStatus.CREATE_COMPLETE, true);
 
-		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(List.of(stack).stream());
+		setupStacks(stack);
 		when(mockTimeToLive.isTimeToLiveExpired(any())).thenReturn(true);
 		
 		// call under test
 		down.findAndDeleteExpiredStacks();
 
+		verifyListAndDescribe(stack);
 		verify(mockTimeToLive).isTimeToLiveExpired(stack.getParameters());
 		
 		verifyNoMoreInteractions(mockCloudFormationClient);
@@ -177,18 +208,18 @@ public class ExpiredStackTeardownImplTest {
 	@Test
 	public void testFindAndDeleteExpiredStacksWithNullTerminationProtection() {
 
-		Stack stack = new Stack().withStackName("deleteMe").withStackStatus(StackStatus.CREATE_COMPLETE)
-				.withParameters(new Parameter().withParameterKey("key")).withEnableTerminationProtection(null);
+		Stack stack = stack("dev-101-shared-resources", StackStatus.CREATE_COMPLETE, null);
 
-		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(List.of(stack).stream());
+		setupStacks(stack);
 		when(mockTimeToLive.isTimeToLiveExpired(any())).thenReturn(true);
 		
 		// call under test
 		down.findAndDeleteExpiredStacks();
 
+		verifyListAndDescribe(stack);
 		verify(mockCloudFormationClient).deleteStack(stack.getStackName());
 		verify(mockTimeToLive).isTimeToLiveExpired(stack.getParameters());
-		verify(mockLogger).info("Deleting stack: 'deleteMe'...");
+		verify(mockLogger).info("Deleting stack: 'dev-101-shared-resources'...");
 		
 		verifyNoMoreInteractions(mockCloudFormationClient);
 		verifyNoMoreInteractions(mockTimeToLive);
@@ -198,12 +229,82 @@ public class ExpiredStackTeardownImplTest {
 
 	@Test
 	public void testFindAndDeleteExpiredStacksWithNoWork() {
-		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(new ArrayList<Stack>().stream());
+		when(mockCloudFormationClient.streamOverStackSummaries(any())).thenReturn(Stream.empty());
+		// call under test
+		down.findAndDeleteExpiredStacks();
+
+		verify(mockCloudFormationClient, never()).describeStack(any());
+		verify(mockCloudFormationClient, never()).deleteStack(any());
+
+	}
+
+	/**
+	 * Stacks that were not created by the repository builder are never described.
+	 */
+	@Test
+	public void testFindAndDeleteExpiredStacksWithNonCandidates() {
+		when(mockCloudFormationClient.streamOverStackSummaries(any())).thenReturn(Stream.of(
+				new StackSummary().withStackName("synapse-dev-vpc-2"),
+				new StackSummary().withStackName("synapse-dev-global-resources"),
+				new StackSummary().withStackName("cdn-prod-synapse")));
+		// call under test
+		down.findAndDeleteExpiredStacks();
+
+		verify(mockCloudFormationClient, never()).describeStack(any());
+		verify(mockCloudFormationClient, never()).deleteStack(any());
+		verifyNoMoreInteractions(mockTimeToLive);
+	}
+
+	/**
+	 * A stack can be deleted or change status between listing and describing.
+	 */
+	@Test
+	public void testFindAndDeleteExpiredStacksWithChangeAfterList() {
+		Stack gone = stack("repo-dev-101-0", StackStatus.CREATE_COMPLETE, false);
+		Stack updating = stack("workers-dev-101-0", StackStatus.UPDATE_IN_PROGRESS, false);
+		when(mockCloudFormationClient.streamOverStackSummaries(any())).thenReturn(Stream.of(
+				new StackSummary().withStackName(gone.getStackName()),
+				new StackSummary().withStackName(updating.getStackName())));
+		when(mockCloudFormationClient.describeStack(gone.getStackName())).thenReturn(Optional.empty());
+		when(mockCloudFormationClient.describeStack(updating.getStackName())).thenReturn(Optional.of(updating));
+		// call under test
+		down.findAndDeleteExpiredStacks();
+
+		verifyListAndDescribe(gone, updating);
+		verifyNoMoreInteractions(mockCloudFormationClient);
+		verifyNoMoreInteractions(mockTimeToLive);
+	}
+
+	@Test
+	public void testFindAndDeleteExpiredStacksWithDescribeFailure() {
+		Stack stack = stack("repo-dev-101-0", StackStatus.CREATE_COMPLETE, false);
+		when(mockCloudFormationClient.streamOverStackSummaries(any()))
+				.thenReturn(Stream.of(new StackSummary().withStackName(stack.getStackName())));
+		IllegalStateException error = new IllegalStateException("nope");
+		when(mockCloudFormationClient.describeStack(stack.getStackName())).thenThrow(error);
 		// call under test
 		down.findAndDeleteExpiredStacks();
 
 		verify(mockCloudFormationClient, never()).deleteStack(any());
+		verify(mockLogger).error(any(String.class), any(Throwable.class));
+	}
 
+	@Test
+	public void testFindAndDeleteExpiredStacksWithManyCandidates() {
+		Stack[] stacks = new Stack[ExpiredStackTeardownImpl.MAX_PARALLEL_DESCRIBE * 3];
+		for (int i = 0; i < stacks.length; i++) {
+			stacks[i] = stack("repo-dev-" + i + "-0", StackStatus.CREATE_COMPLETE, false);
+		}
+		setupStacks(stacks);
+		when(mockTimeToLive.isTimeToLiveExpired(any())).thenReturn(true);
+		// call under test
+		down.findAndDeleteExpiredStacks();
+
+		verifyListAndDescribe(stacks);
+		for (Stack stack : stacks) {
+			verify(mockCloudFormationClient).deleteStack(stack.getStackName());
+		}
+		verifyNoMoreInteractions(mockCloudFormationClient);
 	}
 	
 	/**
@@ -212,20 +313,19 @@ public class ExpiredStackTeardownImplTest {
 	@Test
 	public void testFindAndDeleteExpiredStacksWithOneFailure() {
 
-		Stack one = new Stack().withStackName("one").withStackStatus(StackStatus.CREATE_COMPLETE)
-				.withParameters(new Parameter().withParameterKey("key")).withEnableTerminationProtection(false);
-		Stack two = new Stack().withStackName("two").withStackStatus(StackStatus.CREATE_COMPLETE)
-				.withParameters(new Parameter().withParameterKey("key")).withEnableTerminationProtection(false);
+		Stack one = stack("repo-dev-101-0", StackStatus.CREATE_COMPLETE, false);
+		Stack two = stack("workers-dev-101-0", StackStatus.CREATE_COMPLETE, false);
 
-		when(mockCloudFormationClient.streamOverAllStacks()).thenReturn(List.of(one, two).stream());
+		setupStacks(one, two);
 		when(mockTimeToLive.isTimeToLiveExpired(any())).thenReturn(true);
 		
-		doThrow(new IllegalArgumentException("nope")).when(mockCloudFormationClient).deleteStack("one");;
-		doNothing().when(mockCloudFormationClient).deleteStack("two");
+		doThrow(new IllegalArgumentException("nope")).when(mockCloudFormationClient).deleteStack(one.getStackName());
+		doNothing().when(mockCloudFormationClient).deleteStack(two.getStackName());
 		
 		// call under test
 		down.findAndDeleteExpiredStacks();
 
+		verifyListAndDescribe(one, two);
 		verify(mockCloudFormationClient).deleteStack(one.getStackName());
 		verify(mockCloudFormationClient).deleteStack(two.getStackName());
 		verify(mockTimeToLive, times(2)).isTimeToLiveExpired(any());
@@ -237,4 +337,25 @@ public class ExpiredStackTeardownImplTest {
 		verifyNoMoreInteractions(mockLogger);
 
 	}
+
+	@Test
+	public void testIsTimeToLiveStackName() {
+		assertTrue(ExpiredStackTeardownImpl.isTimeToLiveStackName("dev-101-shared-resources"));
+		assertTrue(ExpiredStackTeardownImpl.isTimeToLiveStackName("repo-dev-101-0"));
+		assertTrue(ExpiredStackTeardownImpl.isTimeToLiveStackName("workers-dev-101-1"));
+		assertTrue(ExpiredStackTeardownImpl.isTimeToLiveStackName("portal-dev-101-2"));
+		assertFalse(ExpiredStackTeardownImpl.isTimeToLiveStackName("synapse-dev-vpc-2"));
+		assertFalse(ExpiredStackTeardownImpl.isTimeToLiveStackName("repo-dev-101"));
+		assertFalse(ExpiredStackTeardownImpl.isTimeToLiveStackName("dev-101-shared-resources-old"));
+	}
+
+	@Test
+	public void testDescribeStacksKeepsOrder() {
+		Stack one = stack("repo-dev-101-0", StackStatus.CREATE_COMPLETE, false);
+		Stack two = stack("workers-dev-101-0", StackStatus.CREATE_COMPLETE, false);
+		when(mockCloudFormationClient.describeStack(one.getStackName())).thenReturn(Optional.of(one));
+		when(mockCloudFormationClient.describeStack(two.getStackName())).thenReturn(Optional.of(two));
+		// call under test
+		assertEquals(List.of(one, two), down.describeStacks(List.of(one.getStackName(), two.getStackName())));
+	}
 }
@@ -0,0 +1,129 @@
+package org.sagebionetworks.template.cron;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.util.Clock;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+@ExtendWith(MockitoExtension.class)
+public class TemplateGarbageCollectorImplTest {
+
+	@Mock
+	private AmazonS3 mockS3Client;
+	@Mock
+	private Configuration mockConfig;
+	@Mock
+	private Clock mockClock;
+	@Mock
+	private LoggerFactory mockLoggerFactory;
+	@Mock
+	private Logger mockLogger;
+	@Captor
+	private ArgumentCaptor<ListObjectsV2Request> requestCaptor;
+
+	private TemplateGarbageCollectorImpl collector;
+
+	private String bucket;
+	private long now;
+
+	@BeforeEach
+	public void before() {
+		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
+		collector = new TemplateGarbageCollectorImpl(mockS3Client, mockConfig, mockClock, mockLoggerFactory);
+		bucket = "theBucket";
+		now = TemplateGarbageCollectorImpl.TEMPLATE_RETENTION_MS * 2;
+	}
+
+	private S3ObjectSummary summary(String key, long lastModified) {
+		S3ObjectSummary summary = new S3ObjectSummary();
+		summary.setKey(key);
+		summary.setLastModified(new Date(lastModified));
+		return summary;
+	}
+
+	@Test
+	public void testDeleteExpiredTemplates() {
+		when(mockConfig.getConfigurationBucket()).thenReturn(bucket);
+		when(mockClock.currentTimeMillis()).thenReturn(now);
+		long expiresOn = now - TemplateGarbageCollectorImpl.TEMPLATE_RETENTION_MS;
+		ListObjectsV2Result pageOne = new ListObjectsV2Result();
+		pageOne.getObjectSummaries().add(summary("templates/expired", expiresOn - 1));
+		pageOne.getObjectSummaries().add(summary("templates/current", expiresOn));
+		pageOne.setTruncated(true);
+		pageOne.setNextContinuationToken("nextToken");
+		ListObjectsV2Result pageTwo = new ListObjectsV2Result();
+		pageTwo.getObjectSummaries().add(summary("templates/alsoExpired", 0L));
+		pageTwo.setTruncated(false);
+		// the request is reused so capture the token at the time of each call.
+		List<String> tokens = new ArrayList<>();
+		when(mockS3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(invocation -> {
+			ListObjectsV2Request request = invocation.getArgument(0);
+			tokens.add(request.getContinuationToken());
+			return tokens.size() == 1 ? pageOne : pageTwo;
+		});
+		// call under test
+		collector.deleteExpiredTemplates();
+		verify(mockS3Client, times(2)).listObjectsV2(requestCaptor.capture());
+		assertEquals(bucket, requestCaptor.getValue().getBucketName());
+		assertEquals("templates/", requestCaptor.getValue().getPrefix());
+		assertNull(tokens.get(0));
+		assertEquals("nextToken", tokens.get(1));
+		verify(mockS3Client).deleteObject(bucket, "templates/expired");
+		verify(mockS3Client).deleteObject(bucket, "templates/alsoExpired");
+		verify(mockS3Client, never()).deleteObject(bucket, "templates/current");
+	}
+
+	@Test
+	public void testDeleteExpiredTemplatesWithDeleteFailure() {
+		when(mockConfig.getConfigurationBucket()).thenReturn(bucket);
+		when(mockClock.currentTimeMillis()).thenReturn(now);
+		ListObjectsV2Result page = new ListObjectsV2Result();
+		page.getObjectSummaries().add(summary("templates/one", 0L));
+		page.getObjectSummaries().add(summary("templates/two", 0L));
+		when(mockS3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(page);
+		RuntimeException error = new RuntimeException("nope");
+		doThrow(error).when(mockS3Client).deleteObject(bucket, "templates/one");
+		// call under test
+		collector.deleteExpiredTemplates();
+		verify(mockLogger).error("Failed to delete template: 'templates/one'", error);
+		verify(mockS3Client).deleteObject(bucket, "templates/two");
+	}
+
+	@Test
+	public void testDeleteExpiredTemplatesWithListFailure() {
+		when(mockConfig.getConfigurationBucket()).thenReturn(bucket);
+		when(mockClock.currentTimeMillis()).thenReturn(now);
+		RuntimeException error = new RuntimeException("nope");
+		when(mockS3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenThrow(error);
+		// call under test
+		collector.deleteExpiredTemplates();
+		verify(mockLogger).error("Failed: ", error);
+		verify(mockS3Client, never()).deleteObject(anyString(), anyString());
+	}
+}
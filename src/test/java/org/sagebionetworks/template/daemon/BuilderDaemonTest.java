@@ -0,0 +1,233 @@
+package org.sagebionetworks.template.daemon;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.deploy.DeploymentTimingReporter;
+
+import com.google.inject.Injector;
+
+@ExtendWith(MockitoExtension.class)
+public class BuilderDaemonTest {
+
+	@Mock
+	Injector mockInjector;
+	@Mock
+	LoggerFactory mockLoggerFactory;
+	@Mock
+	Logger mockLogger;
+	@Mock
+	BuilderCommand mockCommand;
+	@Mock
+	DeploymentTimingReporter mockTimingReporter;
+
+	@TempDir
+	Path tempDir;
+
+	BuilderDaemon daemon;
+
+	@BeforeEach
+	public void before() {
+		when(mockInjector.getInstance(LoggerFactory.class)).thenReturn(mockLoggerFactory);
+		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
+		when(mockInjector.getInstance(DeploymentTimingReporter.class)).thenReturn(mockTimingReporter);
+		Map<String, BuilderCommand> commands = new LinkedHashMap<>();
+		commands.put("build", mockCommand);
+		daemon = new BuilderDaemon(mockInjector, commands);
+	}
+
+	@Test
+	public void testHandle() throws Exception {
+		// call under test
+		String response = daemon.handle("build a 'b c' {\"d\":1}");
+		assertTrue(response.startsWith("OK build "), response);
+		ArgumentCaptor<String[]> captor = ArgumentCaptor.forClass(String[].class);
+		verify(mockCommand).execute(any(), captor.capture());
+		assertArrayEquals(new String[] { "a", "b c", "{\"d\":1}" }, captor.getValue());
+		verify(mockTimingReporter).writeReport();
+	}
+
+	@Test
+	public void testHandleUsesTheSameInjector() throws Exception {
+		// call under test
+		daemon.handle("build");
+		daemon.handle("build");
+		verify(mockCommand, times(2)).execute(mockInjector, new String[0]);
+	}
+
+	@Test
+	public void testHandleFailure() throws Exception {
+		doThrow(new IllegalStateException("first line\nsecond line")).when(mockCommand).execute(any(), any());
+		// call under test
+		assertEquals("ERROR build: first line second line", daemon.handle("build"));
+		// the spans of a failed command are reported too.
+		verify(mockTimingReporter).writeReport();
+	}
+
+	@Test
+	public void testHandleUnknownCommand() {
+		// call under test
+		assertEquals("ERROR Unknown command: 'nope'.  Known commands: [build]", daemon.handle("nope"));
+		verifyZeroInteractions(mockCommand, mockTimingReporter);
+	}
+
+	@Test
+	public void testHandleBlank() {
+		// call under test
+		assertNull(daemon.handle("   "));
+	}
+
+	@Test
+	public void testHandlePing() {
+		// call under test
+		assertEquals("OK ping", daemon.handle("ping"));
+	}
+
+	@Test
+	public void testHandleUnterminatedQuote() {
+		// call under test
+		assertEquals("ERROR Unterminated quote in: build 'a", daemon.handle("build 'a"));
+		verifyZeroInteractions(mockCommand);
+	}
+
+	@Test
+	public void testServe() throws Exception {
+		StringWriter out = new StringWriter();
+		// call under test
+		boolean shutdown = daemon.serve(new BufferedReader(new StringReader("ping\n\nbuild x\nshutdown\nbuild y\n")),
+				new PrintWriter(out));
+		assertTrue(shutdown);
+		String[] lines = out.toString().split("\\R");
+		assertEquals(3, lines.length);
+		assertEquals("OK ping", lines[0]);
+		assertTrue(lines[1].startsWith("OK build "));
+		assertEquals("OK shutdown", lines[2]);
+		// nothing is run after the shutdown.
+		verify(mockCommand).execute(mockInjector, new String[] { "x" });
+		verifyNoMoreInteractions(mockCommand);
+	}
+
+	@Test
+	public void testServeEndOfStream() throws Exception {
+		StringWriter out = new StringWriter();
+		// call under test
+		assertFalse(daemon.serve(new BufferedReader(new StringReader("ping\n")), new PrintWriter(out)));
+	}
+
+	@Test
+	public void testServeWithToken() throws Exception {
+		StringWriter out = new StringWriter();
+		// call under test
+		boolean shutdown = daemon.serve(
+				new BufferedReader(new StringReader("secret ping\n\nsecret build x\nsecret shutdown\n")),
+				new PrintWriter(out), "secret");
+		assertTrue(shutdown);
+		String[] lines = out.toString().split("\\R");
+		assertEquals(3, lines.length);
+		assertEquals("OK ping", lines[0]);
+		assertTrue(lines[1].startsWith("OK build "));
+		assertEquals("OK shutdown", lines[2]);
+		verify(mockCommand).execute(mockInjector, new String[] { "x" });
+	}
+
+	@Test
+	public void testServeWithWrongToken() throws Exception {
+		StringWriter out = new StringWriter();
+		// call under test
+		boolean shutdown = daemon.serve(new BufferedReader(new StringReader("wrong build x\nsecret build y\n")),
+				new PrintWriter(out), "secret");
+		assertFalse(shutdown);
+		// the connection is dropped at the first request without the token.
+		assertEquals(BuilderDaemon.RESPONSE_UNAUTHORIZED, out.toString().strip());
+		verifyZeroInteractions(mockCommand);
+	}
+
+	@Test
+	public void testServeWithoutToken() throws Exception {
+		StringWriter out = new StringWriter();
+		// call under test
+		boolean shutdown = daemon.serve(new BufferedReader(new StringReader("shutdown\n")), new PrintWriter(out),
+				"secret");
+		assertFalse(shutdown);
+		assertEquals(BuilderDaemon.RESPONSE_UNAUTHORIZED, out.toString().strip());
+	}
+
+	@Test
+	public void testCreateToken() throws Exception {
+		Path tokenFile = tempDir.resolve("token");
+		Files.write(tokenFile, "old".getBytes(StandardCharsets.UTF_8));
+		// call under test
+		String token = BuilderDaemon.createToken(tokenFile);
+		assertEquals(BuilderDaemon.TOKEN_BYTES * 2, token.length());
+		assertEquals(token, new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8));
+		assertEquals(Set.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE),
+				Files.getPosixFilePermissions(tokenFile));
+		// each start has a new token.
+		assertNotEquals(token, BuilderDaemon.createToken(tokenFile));
+	}
+
+	@Test
+	public void testIsToken() {
+		// call under test
+		assertTrue(BuilderDaemon.isToken("secret", "secret"));
+		assertFalse(BuilderDaemon.isToken("secret", "secre"));
+		assertFalse(BuilderDaemon.isToken("secret", "other!"));
+	}
+
+	@Test
+	public void testTokenize() {
+		List<String> expected = List.of("deploy", "vpc", "", "a b");
+		// call under test
+		assertEquals(expected, BuilderDaemon.tokenize("  deploy\tvpc '' 'a b'  "));
+	}
+
+	@Test
+	public void testTokenizeUnterminated() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			BuilderDaemon.tokenize("'a");
+		});
+	}
+
+	@Test
+	public void testDefaultCommands() {
+		// call under test
+		assertEquals(List.of("deploy", "dns", "dns-list", "time-to-live", "admin-job", "backfill-data-warehouse"),
+				new ArrayList<>(BuilderDaemon.createDefaultCommands().keySet()));
+	}
+}
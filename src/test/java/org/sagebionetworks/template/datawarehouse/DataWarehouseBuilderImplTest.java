@@ -3,7 +3,6 @@ package org.sagebionetworks.template.datawarehouse;
 import com.amazonaws.services.cloudformation.model.Tag;
 import com.amazonaws.services.s3.AmazonS3;
 import org.apache.logging.log4j.Logger;
-import org.apache.velocity.app.VelocityEngine;
 import org.json.JSONObject;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,9 +17,13 @@ import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.LoggerFactory;
 import org.sagebionetworks.template.StackTagsProvider;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.TemplateRenderer;
+import org.sagebionetworks.template.TemplateRendererImpl;
+import org.sagebionetworks.template.ThreadProviderImp;
 import org.sagebionetworks.template.config.Configuration;
 import org.sagebionetworks.template.repo.glue.GlueColumn;
 import org.sagebionetworks.template.repo.glue.GlueTableDescriptor;
+import org.sagebionetworks.template.timing.DeploymentTimelineImpl;
 import org.sagebionetworks.template.utils.ArtifactDownload;
 
 import java.io.File;
@@ -54,7 +57,7 @@ public class DataWarehouseBuilderImplTest {
 	ArgumentCaptor<CreateOrUpdateStackRequest> requestCaptor;
 	@Mock
 	private CloudFormationClient cloudFormationClient;
-	private VelocityEngine velocityEngine = new TemplateGuiceModule().velocityEngineProvider();
+	private TemplateRenderer templateRenderer = new TemplateRendererImpl(new TemplateGuiceModule().velocityEngineProvider(), new DeploymentTimelineImpl(new ThreadProviderImp()));
 	@Mock
 	private Configuration mockConfig;
 	@Mock
@@ -77,7 +80,7 @@ public class DataWarehouseBuilderImplTest {
 	@BeforeEach
 	public void before() {
 		when(loggerFactory.getLogger(any())).thenReturn(logger);
-		etlBuilderImpl = new DataWarehouseBuilderImpl(cloudFormationClient, velocityEngine, mockConfig, loggerFactory, tagsProvider,
+		etlBuilderImpl = new DataWarehouseBuilderImpl(cloudFormationClient, templateRenderer, mockConfig, loggerFactory, tagsProvider,
 				etlJobConfig, mockDownloader, mockS3Client);
 	}
 
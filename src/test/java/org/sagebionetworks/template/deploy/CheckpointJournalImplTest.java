@@ -0,0 +1,150 @@
+package org.sagebionetworks.template.deploy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DEPLOYMENT_JOURNAL_FILE;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DEPLOYMENT_RESUME;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.ConfigurationPropertyNotFound;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.util.Clock;
+
+@ExtendWith(MockitoExtension.class)
+public class CheckpointJournalImplTest {
+
+	@Mock
+	Configuration mockConfig;
+	@Mock
+	LoggerFactory mockLoggerFactory;
+	@Mock
+	Logger mockLogger;
+	@Mock
+	Clock mockClock;
+
+	@TempDir
+	Path tempDir;
+
+	Path journalFile;
+	CheckpointJournalImpl journal;
+
+	@BeforeEach
+	public void before() {
+		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
+		journalFile = tempDir.resolve("journal.log");
+		journal = new CheckpointJournalImpl(mockConfig, mockLoggerFactory, mockClock);
+	}
+
+	@Test
+	public void testResume() {
+		when(mockConfig.getBooleanProperty(PROPERTY_KEY_DEPLOYMENT_RESUME)).thenReturn(true);
+		when(mockConfig.getProperty(PROPERTY_KEY_DEPLOYMENT_JOURNAL_FILE)).thenReturn(journalFile.toString());
+		journal.recordComplete("dev-101-shared-resources", "one");
+		journal.recordComplete("repo-dev-101-0", "two");
+		CheckpointJournalImpl resumed = new CheckpointJournalImpl(mockConfig, mockLoggerFactory, mockClock);
+		// call under test
+		assertTrue(resumed.isComplete("dev-101-shared-resources", "one"));
+		assertTrue(resumed.isComplete("repo-dev-101-0", "two"));
+		assertFalse(resumed.isComplete("repo-dev-101-0", "changed"));
+		assertFalse(resumed.isComplete("workers-dev-101-0", "two"));
+	}
+
+	@Test
+	public void testRecordCompleteWhileResuming() {
+		when(mockConfig.getBooleanProperty(PROPERTY_KEY_DEPLOYMENT_RESUME)).thenReturn(true);
+		when(mockConfig.getProperty(PROPERTY_KEY_DEPLOYMENT_JOURNAL_FILE)).thenReturn(journalFile.toString());
+		assertFalse(journal.isComplete("step", "one"));
+		journal.recordComplete("step", "one");
+		// call under test
+		assertTrue(journal.isComplete("step", "one"));
+	}
+
+	@Test
+	public void testIsCompleteWithoutResume() {
+		when(mockConfig.getBooleanProperty(PROPERTY_KEY_DEPLOYMENT_RESUME))
+				.thenThrow(new ConfigurationPropertyNotFound(PROPERTY_KEY_DEPLOYMENT_RESUME));
+		// call under test
+		assertFalse(journal.isComplete("step", "one"));
+		verify(mockConfig, never()).getProperty(PROPERTY_KEY_DEPLOYMENT_JOURNAL_FILE);
+	}
+
+	@Test
+	public void testRecordCompleteAppends() throws IOException {
+		when(mockConfig.getProperty(PROPERTY_KEY_DEPLOYMENT_JOURNAL_FILE)).thenReturn(journalFile.toString());
+		when(mockClock.currentTimeMillis()).thenReturn(1640995200000L, 1641081600000L);
+		// call under test
+		journal.recordComplete("step", "one");
+		journal.recordComplete("step", "two");
+		List<String> lines = Files.readAllLines(journalFile, StandardCharsets.UTF_8);
+		assertEquals(List.of("2022-01-01T00:00:00Z\tstep\tone", "2022-01-02T00:00:00Z\tstep\ttwo"), lines);
+	}
+
+	@Test
+	public void testRecordCompleteWithInvalidStep() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			journal.recordComplete("a\tb", "one");
+		});
+	}
+
+	@Test
+	public void testLoad() throws IOException {
+		Files.write(journalFile,
+				List.of("2022-01-01T00:00:00Z\tstep\tone", "2022-01-02T00:00:00Z\tstep\ttwo",
+						"2022-01-02T00:00:00Z\tother\tthree", "2022-01-03T00:00:00Z\tpartial"),
+				StandardCharsets.UTF_8);
+		// call under test
+		Map<String, String> completed = CheckpointJournalImpl.load(journalFile);
+		assertEquals(Map.of("step", "two", "other", "three"), completed);
+	}
+
+	@Test
+	public void testLoadWithMissingFile() {
+		// call under test
+		assertTrue(CheckpointJournalImpl.load(journalFile).isEmpty());
+	}
+
+	@Test
+	public void testStartRunWithResume() {
+		when(mockConfig.getProperty(PROPERTY_KEY_DEPLOYMENT_JOURNAL_FILE)).thenReturn(journalFile.toString());
+		journal.recordComplete("step", "one");
+		// call under test
+		journal.startRun(true);
+		assertTrue(journal.isComplete("step", "one"));
+		verify(mockConfig, never()).getBooleanProperty(PROPERTY_KEY_DEPLOYMENT_RESUME);
+	}
+
+	@Test
+	public void testStartRunWithoutResume() {
+		when(mockConfig.getProperty(PROPERTY_KEY_DEPLOYMENT_JOURNAL_FILE)).thenReturn(journalFile.toString());
+		when(mockConfig.getBooleanProperty(PROPERTY_KEY_DEPLOYMENT_RESUME))
+				.thenThrow(new ConfigurationPropertyNotFound(PROPERTY_KEY_DEPLOYMENT_RESUME));
+		journal.recordComplete("step", "one");
+		journal.startRun(true);
+		assertTrue(journal.isComplete("step", "one"));
+		// call under test
+		journal.startRun(false);
+		// a run without resume does not carry over the resume of the previous run.
+		assertFalse(journal.isComplete("step", "one"));
+	}
+}
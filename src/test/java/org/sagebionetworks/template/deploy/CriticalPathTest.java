@@ -0,0 +1,66 @@
+package org.sagebionetworks.template.deploy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.sagebionetworks.template.timing.Phase;
+import org.sagebionetworks.template.timing.TimingSpan;
+
+public class CriticalPathTest {
+
+	static DeploymentNode node(String name) {
+		return new DeploymentNode(name).withAction(() -> {
+		});
+	}
+
+	static TimingSpan span(String name, long durationMs) {
+		return new TimingSpan(Phase.NODE, name, "deployment-0", 0L, durationMs);
+	}
+
+	DeploymentGraph graph = new DeploymentGraph(List.of(node("vpc").withOutputs("vpcId"),
+			node("subnets").withInputs("vpcId").withOutputs("subnetIds"), node("global").withOutputs("topic"),
+			node("repo").withInputs("subnetIds", "topic"), node("cdn")));
+
+	@Test
+	public void testCompute() {
+		List<TimingSpan> spans = List.of(span("vpc", 100), span("subnets", 200), span("global", 50),
+				span("repo", 1000), span("cdn", 900),
+				// only node spans are used.
+				new TimingSpan(Phase.WAIT, "cdn", "deployment-1", 0L, 5000L));
+		// call under test
+		CriticalPath path = CriticalPath.compute(graph, spans);
+		assertEquals(List.of("vpc", "subnets", "repo"), path.getNodes());
+		assertEquals(1300L, path.getDurationMs());
+		assertEquals("vpc -> subnets -> repo (1300 ms)", path.toString());
+	}
+
+	@Test
+	public void testComputeWithSlowIndependentNode() {
+		List<TimingSpan> spans = List.of(span("vpc", 100), span("subnets", 200), span("global", 500),
+				span("repo", 1000), span("cdn", 2000));
+		// call under test
+		CriticalPath path = CriticalPath.compute(graph, spans);
+		assertEquals(List.of("cdn"), path.getNodes());
+		assertEquals(2000L, path.getDurationMs());
+	}
+
+	@Test
+	public void testComputeWithSlowerDependency() {
+		List<TimingSpan> spans = List.of(span("vpc", 100), span("subnets", 200), span("global", 500),
+				span("repo", 1000));
+		// call under test
+		CriticalPath path = CriticalPath.compute(graph, spans);
+		assertEquals(List.of("global", "repo"), path.getNodes());
+		assertEquals(1500L, path.getDurationMs());
+	}
+
+	@Test
+	public void testComputeWithEmptyGraph() {
+		// call under test
+		CriticalPath path = CriticalPath.compute(new DeploymentGraph(List.of()), List.of());
+		assertEquals(List.of(), path.getNodes());
+		assertEquals(0L, path.getDurationMs());
+	}
+}
@@ -0,0 +1,172 @@
+package org.sagebionetworks.template.deploy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.cdn.CdnBuilder;
+import org.sagebionetworks.template.datawarehouse.DataWarehouseBuilder;
+import org.sagebionetworks.template.docs.SynapseDocsBuilder;
+import org.sagebionetworks.template.global.GlobalResourcesBuilder;
+import org.sagebionetworks.template.ip.address.IpAddressPoolBuilder;
+import org.sagebionetworks.template.nlb.BindNetworkLoadBalancerBuilder;
+import org.sagebionetworks.template.nlb.NetworkLoadBalancerBuilder;
+import org.sagebionetworks.template.redirectors.userdocs.UserDocsRedirectorBuilder;
+import org.sagebionetworks.template.repo.IdGeneratorBuilder;
+import org.sagebionetworks.template.repo.RepositoryTemplateBuilder;
+import org.sagebionetworks.template.s3.S3BucketBuilder;
+import org.sagebionetworks.template.vpc.SubnetTemplateBuilder;
+import org.sagebionetworks.template.vpc.VpcTemplateBuilder;
+
+import com.google.inject.Provider;
+
+@ExtendWith(MockitoExtension.class)
+public class DeploymentGraphFactoryImplTest {
+
+	@Mock
+	Provider<VpcTemplateBuilder> mockVpcProvider;
+	@Mock
+	Provider<SubnetTemplateBuilder> mockSubnetProvider;
+	@Mock
+	Provider<GlobalResourcesBuilder> mockGlobalProvider;
+	@Mock
+	Provider<S3BucketBuilder> mockS3Provider;
+	@Mock
+	Provider<IdGeneratorBuilder> mockIdGeneratorProvider;
+	@Mock
+	Provider<SynapseDocsBuilder> mockDocsProvider;
+	@Mock
+	Provider<RepositoryTemplateBuilder> mockRepositoryProvider;
+	@Mock
+	Provider<IpAddressPoolBuilder> mockIpAddressPoolProvider;
+	@Mock
+	Provider<NetworkLoadBalancerBuilder> mockNlbProvider;
+	@Mock
+	Provider<BindNetworkLoadBalancerBuilder> mockBindNlbProvider;
+	@Mock
+	Provider<CdnBuilder> mockCdnProvider;
+	@Mock
+	Provider<UserDocsRedirectorBuilder> mockRedirectorProvider;
+	@Mock
+	Provider<DataWarehouseBuilder> mockDataWarehouseProvider;
+	@Mock
+	SynapseDocsBuilder mockDocsBuilder;
+	@Mock
+	RepositoryTemplateBuilder mockRepositoryBuilder;
+	@Mock
+	CdnBuilder mockCdnBuilder;
+
+	DeploymentGraphFactoryImpl factory;
+
+	@BeforeEach
+	public void before() {
+		factory = new DeploymentGraphFactoryImpl(mockVpcProvider, mockSubnetProvider, mockGlobalProvider,
+				mockS3Provider, mockIdGeneratorProvider, mockDocsProvider, mockRepositoryProvider,
+				mockIpAddressPoolProvider, mockNlbProvider, mockBindNlbProvider, mockCdnProvider,
+				mockRedirectorProvider, mockDataWarehouseProvider);
+	}
+
+	@Test
+	public void testCreateGraphWithAllNodes() {
+		// call under test
+		DeploymentGraph graph = factory.createGraph(Set.of());
+		assertEquals(14, graph.size());
+		assertEquals(Set.of(DeploymentGraphFactoryImpl.NODE_VPC, DeploymentGraphFactoryImpl.NODE_PRIVATE_SUBNETS,
+				DeploymentGraphFactoryImpl.NODE_GLOBAL_RESOURCES, DeploymentGraphFactoryImpl.NODE_S3_BUCKETS),
+				graph.getDependencies(DeploymentGraphFactoryImpl.NODE_REPOSITORY));
+		assertEquals(Set.of(DeploymentGraphFactoryImpl.NODE_NETWORK_LOAD_BALANCERS,
+				DeploymentGraphFactoryImpl.NODE_REPOSITORY),
+				graph.getDependencies(DeploymentGraphFactoryImpl.NODE_BIND_NETWORK_LOAD_BALANCERS));
+		// independent stacks do not wait on each other.
+		assertEquals(Set.of(), graph.getDependencies(DeploymentGraphFactoryImpl.NODE_PORTAL_CDN));
+		assertEquals(Set.of(), graph.getDependencies(DeploymentGraphFactoryImpl.NODE_USER_DOCS_REDIRECTOR));
+		assertEquals(Set.of(), graph.getDependencies(DeploymentGraphFactoryImpl.NODE_IP_ADDRESS_POOL));
+		assertEquals(Set.of(), graph.getDependencies(DeploymentGraphFactoryImpl.NODE_DATA_WAREHOUSE));
+	}
+
+	@Test
+	public void testCreateGraphWithSelectedNodes() {
+		// call under test
+		DeploymentGraph graph = factory.createGraph(
+				Set.of(DeploymentGraphFactoryImpl.NODE_REPOSITORY, DeploymentGraphFactoryImpl.NODE_PORTAL_CDN));
+		assertEquals(List.of(DeploymentGraphFactoryImpl.NODE_REPOSITORY, DeploymentGraphFactoryImpl.NODE_PORTAL_CDN),
+				graph.getTopologicalOrder());
+		// exports of nodes that are not selected are assumed to exist.
+		assertEquals(Set.of(), graph.getDependencies(DeploymentGraphFactoryImpl.NODE_REPOSITORY));
+	}
+
+	@Test
+	public void testCreateGraphWithUnknownNode() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			factory.createGraph(Set.of("unknown"));
+		});
+	}
+
+	@Test
+	public void testPlannableNodes() {
+		// call under test
+		DeploymentGraph graph = factory.createGraph(Set.of());
+		List<String> notPlannable = graph.getTopologicalOrder().stream().filter(n -> !graph.getNode(n).isPlannable())
+				.sorted().collect(Collectors.toList());
+		assertEquals(List.of(DeploymentGraphFactoryImpl.NODE_DATA_WAREHOUSE,
+				DeploymentGraphFactoryImpl.NODE_GLOBAL_RESOURCES, DeploymentGraphFactoryImpl.NODE_REPOSITORY,
+				DeploymentGraphFactoryImpl.NODE_S3_BUCKETS).stream().sorted().collect(Collectors.toList()),
+				notPlannable);
+	}
+
+	@Test
+	public void testRepositoryAction() throws Exception {
+		when(mockDocsProvider.get()).thenReturn(mockDocsBuilder);
+		when(mockRepositoryProvider.get()).thenReturn(mockRepositoryBuilder);
+		DeploymentGraph graph = factory.createGraph(Set.of(DeploymentGraphFactoryImpl.NODE_REPOSITORY));
+		// call under test
+		graph.getNode(DeploymentGraphFactoryImpl.NODE_REPOSITORY).getAction().deploy();
+		InOrder inOrder = inOrder(mockDocsBuilder, mockRepositoryBuilder);
+		inOrder.verify(mockDocsBuilder).deployDocs();
+		inOrder.verify(mockRepositoryBuilder).buildAndDeploy();
+	}
+
+	@Test
+	public void testRepositoryPrerenderAction() throws Exception {
+		when(mockRepositoryProvider.get()).thenReturn(mockRepositoryBuilder);
+		DeploymentGraph graph = factory.createGraph(Set.of(DeploymentGraphFactoryImpl.NODE_REPOSITORY));
+		// call under test
+		graph.getNode(DeploymentGraphFactoryImpl.NODE_REPOSITORY).getPrerenderAction().deploy();
+		verify(mockRepositoryBuilder).buildAndDeploy();
+		verify(mockDocsBuilder, never()).deployDocs();
+	}
+
+	@Test
+	public void testPrerenderableNodes() {
+		// call under test
+		DeploymentGraph graph = factory.createGraph(Set.of());
+		List<String> notPrerenderable = graph.getTopologicalOrder().stream()
+				.filter(n -> graph.getNode(n).getPrerenderAction() == null).sorted().collect(Collectors.toList());
+		assertEquals(List.of(DeploymentGraphFactoryImpl.NODE_DATA_WAREHOUSE,
+				DeploymentGraphFactoryImpl.NODE_GLOBAL_RESOURCES, DeploymentGraphFactoryImpl.NODE_S3_BUCKETS).stream()
+				.sorted().collect(Collectors.toList()), notPrerenderable);
+	}
+
+	@Test
+	public void testDataCdnAction() throws Exception {
+		when(mockCdnProvider.get()).thenReturn(mockCdnBuilder);
+		DeploymentGraph graph = factory.createGraph(Set.of(DeploymentGraphFactoryImpl.NODE_DATA_CDN));
+		// call under test
+		graph.getNode(DeploymentGraphFactoryImpl.NODE_DATA_CDN).getAction().deploy();
+		verify(mockCdnBuilder).buildCdn(CdnBuilder.Type.DATA);
+	}
+}
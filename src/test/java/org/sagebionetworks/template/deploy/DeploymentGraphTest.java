@@ -0,0 +1,100 @@
+package org.sagebionetworks.template.deploy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class DeploymentGraphTest {
+
+	DeploymentNode node(String name) {
+		return new DeploymentNode(name).withAction(() -> {
+		});
+	}
+
+	@Test
+	public void testDependencies() {
+		DeploymentNode vpc = node("vpc").withOutputs("vpcId");
+		DeploymentNode subnets = node("subnets").withInputs("vpcId").withOutputs("subnetIds");
+		DeploymentNode global = node("global").withOutputs("topic");
+		DeploymentNode repo = node("repo").withInputs("subnetIds", "topic", "external");
+		// call under test
+		DeploymentGraph graph = new DeploymentGraph(List.of(repo, subnets, global, vpc));
+		assertEquals(Set.of("subnets", "global"), graph.getDependencies("repo"));
+		assertEquals(Set.of("vpc"), graph.getDependencies("subnets"));
+		assertEquals(Set.of(), graph.getDependencies("vpc"));
+		assertEquals(Set.of("repo"), graph.getDependents("global"));
+		assertEquals(List.of("global", "vpc", "subnets", "repo"), graph.getTopologicalOrder());
+		assertEquals(4, graph.size());
+	}
+
+	@Test
+	public void testDependenciesWithImports() {
+		DeploymentNode vpc = node("vpc").withOutputs("vpcId");
+		DeploymentNode global = node("global").withOutputs("topic");
+		DeploymentNode repo = node("repo").withInputs("vpcId").withImports("topic", "external");
+		// call under test
+		DeploymentGraph graph = new DeploymentGraph(List.of(repo, global, vpc));
+		assertEquals(Set.of("vpc", "global"), graph.getDependencies("repo"));
+		assertEquals(Set.of("repo"), graph.getDependents("global"));
+		assertEquals(List.of("global", "vpc", "repo"), graph.getTopologicalOrder());
+	}
+
+	@Test
+	public void testCycle() {
+		DeploymentNode a = node("a").withInputs("fromB").withOutputs("fromA");
+		DeploymentNode b = node("b").withInputs("fromA").withOutputs("fromB");
+		DeploymentNode c = node("c").withOutputs("fromC");
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			new DeploymentGraph(List.of(a, b, c));
+		});
+		assertEquals("The deployment graph contains a cycle between: [a, b]", e.getMessage());
+	}
+
+	@Test
+	public void testSelfInput() {
+		// call under test
+		DeploymentGraph graph = new DeploymentGraph(List.of(node("a").withInputs("x").withOutputs("x")));
+		assertEquals(Set.of(), graph.getDependencies("a"));
+	}
+
+	@Test
+	public void testDuplicateName() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			new DeploymentGraph(List.of(node("a"), node("a")));
+		});
+		assertEquals("Duplicate node: 'a'", e.getMessage());
+	}
+
+	@Test
+	public void testDuplicateOutput() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			new DeploymentGraph(List.of(node("a").withOutputs("x"), node("b").withOutputs("x")));
+		});
+		assertEquals("Output: 'x' is produced by both: 'a' and: 'b'", e.getMessage());
+	}
+
+	@Test
+	public void testMissingAction() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			new DeploymentGraph(List.of(new DeploymentNode("a")));
+		});
+		assertEquals("Node: 'a' does not have an action", e.getMessage());
+	}
+
+	@Test
+	public void testUnknownNode() {
+		DeploymentGraph graph = new DeploymentGraph(List.of(node("a")));
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			graph.getDependencies("b");
+		});
+	}
+}
@@ -0,0 +1,113 @@
+package org.sagebionetworks.template.deploy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.CloudFormationClient;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.StackChange;
+
+@ExtendWith(MockitoExtension.class)
+public class DeploymentPlannerImplTest {
+
+	@Mock
+	CloudFormationClient mockCloudFormationClient;
+	@Mock
+	LoggerFactory mockLoggerFactory;
+	@Mock
+	Logger mockLogger;
+
+	DeploymentPlannerImpl planner;
+
+	List<String> planned;
+
+	@BeforeEach
+	public void before() {
+		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
+		planner = new DeploymentPlannerImpl(mockCloudFormationClient, mockLoggerFactory);
+		planned = new ArrayList<>();
+	}
+
+	DeploymentNode node(String name) {
+		return new DeploymentNode(name).withAction(() -> planned.add(name)).withPlannable(true);
+	}
+
+	static StackChange change(String name, StackChange.Type type) {
+		return new StackChange(name, type, "fingerprint");
+	}
+
+	@Test
+	public void testPlan() {
+		when(mockCloudFormationClient.stopPlanning()).thenReturn(List.of(change("vpc", StackChange.Type.UNCHANGED)),
+				List.of(change("subnets", StackChange.Type.UPDATE)),
+				List.of(change("cdn", StackChange.Type.UNCHANGED)));
+		DeploymentGraph graph = new DeploymentGraph(List.of(node("vpc").withOutputs("vpcId"),
+				node("subnets").withInputs("vpcId").withOutputs("subnetIds"), node("repo").withInputs("subnetIds"),
+				node("cdn")));
+		// call under test
+		List<NodePlan> plans = planner.plan(graph);
+		assertEquals(List.of("vpc", "subnets", "cdn", "repo"),
+				plans.stream().map(NodePlan::getNodeName).collect(Collectors.toList()));
+		assertFalse(plans.get(0).isNeedsWork());
+		assertTrue(plans.get(1).isNeedsWork());
+		assertEquals("stacks changed", plans.get(1).getReason());
+		assertFalse(plans.get(2).isNeedsWork());
+		assertTrue(plans.get(3).isNeedsWork());
+		assertEquals("depends on: 'subnets'", plans.get(3).getReason());
+		// a node depending on a changed node is not planned.
+		assertEquals(List.of("vpc", "subnets", "cdn"), planned);
+		verify(mockCloudFormationClient, times(3)).startPlanning();
+	}
+
+	@Test
+	public void testPlanNotPlannable() {
+		DeploymentGraph graph = new DeploymentGraph(List.of(node("s3").withPlannable(false)));
+		// call under test
+		List<NodePlan> plans = planner.plan(graph);
+		assertTrue(plans.get(0).isNeedsWork());
+		assertEquals("not plannable", plans.get(0).getReason());
+		assertTrue(planned.isEmpty());
+		verify(mockCloudFormationClient, times(0)).startPlanning();
+	}
+
+	@Test
+	public void testPlanWithFailure() {
+		when(mockCloudFormationClient.stopPlanning()).thenReturn(Collections.emptyList());
+		DeploymentGraph graph = new DeploymentGraph(List.of(new DeploymentNode("vpc").withPlannable(true)
+				.withAction(() -> {
+					throw new IllegalStateException("no exports");
+				})));
+		// call under test
+		List<NodePlan> plans = planner.plan(graph);
+		assertTrue(plans.get(0).isNeedsWork());
+		assertEquals("planning failed: no exports", plans.get(0).getReason());
+		// planning is always stopped.
+		verify(mockCloudFormationClient).stopPlanning();
+	}
+
+	@Test
+	public void testPlanWithCreate() {
+		when(mockCloudFormationClient.stopPlanning()).thenReturn(List.of(change("vpc", StackChange.Type.CREATE)));
+		DeploymentGraph graph = new DeploymentGraph(List.of(node("vpc")));
+		// call under test
+		List<NodePlan> plans = planner.plan(graph);
+		assertTrue(plans.get(0).isNeedsWork());
+		assertEquals(List.of(change("vpc", StackChange.Type.CREATE)), plans.get(0).getChanges());
+	}
+}
@@ -0,0 +1,156 @@
+package org.sagebionetworks.template.deploy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DEPLOYMENT_MAX_PARALLELISM;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.ConfigurationPropertyNotFound;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
+
+@ExtendWith(MockitoExtension.class)
+public class DeploymentSchedulerImplTest {
+
+	@Mock
+	Configuration mockConfig;
+	@Mock
+	LoggerFactory mockLoggerFactory;
+	@Mock
+	Logger mockLogger;
+	@Mock
+	DeploymentTimeline mockTimeline;
+	@Mock
+	DeploymentTimingReporter mockTimingReporter;
+
+	DeploymentSchedulerImpl scheduler;
+
+	List<String> deployed;
+
+	@BeforeEach
+	public void before() {
+		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
+		scheduler = new DeploymentSchedulerImpl(mockConfig, mockLoggerFactory, mockTimeline, mockTimingReporter);
+		deployed = Collections.synchronizedList(new ArrayList<>());
+	}
+
+	DeploymentNode node(String name) {
+		return new DeploymentNode(name).withAction(() -> deployed.add(name));
+	}
+
+	@Test
+	public void testExecuteInDependencyOrder() throws InterruptedException {
+		when(mockConfig.getIntegerProperty(PROPERTY_KEY_DEPLOYMENT_MAX_PARALLELISM)).thenReturn(4);
+		DeploymentGraph graph = new DeploymentGraph(List.of(node("repo").withInputs("subnetIds", "topic"),
+				node("subnets").withInputs("vpcId").withOutputs("subnetIds"), node("vpc").withOutputs("vpcId"),
+				node("global").withOutputs("topic")));
+		// call under test
+		scheduler.execute(graph);
+		assertEquals(4, deployed.size());
+		assertTrue(deployed.indexOf("vpc") < deployed.indexOf("subnets"));
+		assertTrue(deployed.indexOf("subnets") < deployed.indexOf("repo"));
+		assertTrue(deployed.indexOf("global") < deployed.indexOf("repo"));
+		verify(mockLogger).info("Deployed: 'repo'");
+		verify(mockTimeline).start(Phase.NODE, "repo");
+		verify(mockTimingReporter).writeReport(graph);
+	}
+
+	/**
+	 * Independent nodes must run at the same time, otherwise neither latch would
+	 * be released.
+	 */
+	@Test
+	public void testExecuteConcurrently() throws InterruptedException {
+		when(mockConfig.getIntegerProperty(PROPERTY_KEY_DEPLOYMENT_MAX_PARALLELISM)).thenReturn(2);
+		CountDownLatch bothStarted = new CountDownLatch(2);
+		DeploymentAction action = () -> {
+			bothStarted.countDown();
+			if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+				throw new IllegalStateException("Nodes did not run concurrently");
+			}
+		};
+		DeploymentGraph graph = new DeploymentGraph(List.of(new DeploymentNode("cdn").withAction(action),
+				new DeploymentNode("warehouse").withAction(action)));
+		// call under test
+		scheduler.execute(graph);
+	}
+
+	@Test
+	public void testExecuteWithParallelismCap() throws InterruptedException {
+		when(mockConfig.getIntegerProperty(PROPERTY_KEY_DEPLOYMENT_MAX_PARALLELISM)).thenReturn(2);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		List<DeploymentNode> nodes = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			nodes.add(new DeploymentNode("node-" + i).withAction(() -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				Thread.sleep(20);
+				running.decrementAndGet();
+			}));
+		}
+		// call under test
+		scheduler.execute(new DeploymentGraph(nodes));
+		assertTrue(maxRunning.get() <= 2);
+	}
+
+	@Test
+	public void testExecuteWithFailure() throws InterruptedException {
+		when(mockConfig.getIntegerProperty(PROPERTY_KEY_DEPLOYMENT_MAX_PARALLELISM)).thenReturn(1);
+		IllegalArgumentException error = new IllegalArgumentException("nope");
+		DeploymentGraph graph = new DeploymentGraph(List.of(
+				new DeploymentNode("vpc").withOutputs("vpcId").withAction(() -> {
+					throw error;
+				}), node("subnets").withInputs("vpcId")));
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> {
+			// call under test
+			scheduler.execute(graph);
+		});
+		assertEquals("Deployment failed for: [vpc] (not deployed: [subnets])", e.getMessage());
+		assertSame(error, e.getCause());
+		assertEquals(List.of(), deployed);
+		verify(mockLogger).error("Failed to deploy: 'vpc'", error);
+		// the timeline is written even when the deployment fails.
+		verify(mockTimingReporter).writeReport(graph);
+	}
+
+	@Test
+	public void testExecuteWithEmptyGraph() throws InterruptedException {
+		// call under test
+		scheduler.execute(new DeploymentGraph(List.of()));
+	}
+
+	@Test
+	public void testGetMaxParallelismDefault() {
+		when(mockConfig.getIntegerProperty(any())).thenThrow(new ConfigurationPropertyNotFound("key"));
+		// call under test
+		assertEquals(DeploymentSchedulerImpl.DEFAULT_MAX_PARALLELISM, scheduler.getMaxParallelism());
+	}
+
+	@Test
+	public void testGetMaxParallelismInvalid() {
+		when(mockConfig.getIntegerProperty(any())).thenReturn(0);
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			scheduler.getMaxParallelism();
+		});
+	}
+}
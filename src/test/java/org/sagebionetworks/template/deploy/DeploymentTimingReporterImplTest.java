@@ -0,0 +1,126 @@
+package org.sagebionetworks.template.deploy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DEPLOYMENT_TIMING_DIRECTORY;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.ConfigurationPropertyNotFound;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
+import org.sagebionetworks.template.timing.TimingSpan;
+
+@ExtendWith(MockitoExtension.class)
+public class DeploymentTimingReporterImplTest {
+
+	@Mock
+	Configuration mockConfig;
+	@Mock
+	DeploymentTimeline mockTimeline;
+	@Mock
+	LoggerFactory mockLoggerFactory;
+	@Mock
+	Logger mockLogger;
+
+	@TempDir
+	Path tempDir;
+
+	DeploymentTimingReporterImpl reporter;
+	DeploymentGraph graph;
+
+	@BeforeEach
+	public void before() {
+		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
+		reporter = new DeploymentTimingReporterImpl(mockConfig, mockTimeline, mockLoggerFactory);
+		graph = new DeploymentGraph(List.of(new DeploymentNode("vpc").withAction(() -> {
+		})));
+	}
+
+	@Test
+	public void testWriteReport() throws IOException {
+		Path directory = tempDir.resolve("timing");
+		when(mockConfig.getProperty(PROPERTY_KEY_DEPLOYMENT_TIMING_DIRECTORY)).thenReturn(directory.toString());
+		when(mockTimeline.drain())
+				.thenReturn(List.of(new TimingSpan(Phase.NODE, "vpc", "deployment-0", 1000L, 3000L)));
+		// call under test
+		CriticalPath path = reporter.writeReport(graph);
+		assertEquals(List.of("vpc"), path.getNodes());
+		JSONObject timeline = new JSONObject(new String(
+				Files.readAllBytes(directory.resolve(DeploymentTimingReporterImpl.TIMELINE_FILE)),
+				StandardCharsets.UTF_8));
+		assertEquals(2000L, timeline.getJSONObject("criticalPath").getLong("durationMs"));
+		JSONObject trace = new JSONObject(new String(
+				Files.readAllBytes(directory.resolve(DeploymentTimingReporterImpl.TRACE_FILE)),
+				StandardCharsets.UTF_8));
+		assertEquals(3, trace.getJSONArray("traceEvents").length());
+		verify(mockLogger).info("Critical path: vpc (2000 ms)");
+	}
+
+	@Test
+	public void testWriteReportWithWriteFailure() throws IOException {
+		// a file where the directory should be
+		Path file = Files.createFile(tempDir.resolve("file"));
+		when(mockConfig.getProperty(PROPERTY_KEY_DEPLOYMENT_TIMING_DIRECTORY)).thenReturn(file.toString());
+		when(mockTimeline.drain()).thenReturn(List.of());
+		// call under test
+		CriticalPath path = reporter.writeReport(graph);
+		assertEquals(1, path.getNodes().size());
+		verify(mockLogger).warn(anyString(), any(IOException.class));
+	}
+
+	@Test
+	public void testWriteReportWithoutGraph() throws IOException {
+		Path directory = tempDir.resolve("timing");
+		when(mockConfig.getProperty(PROPERTY_KEY_DEPLOYMENT_TIMING_DIRECTORY)).thenReturn(directory.toString());
+		when(mockTimeline.drain())
+				.thenReturn(List.of(new TimingSpan(Phase.RENDER, "vpc", "main", 1000L, 3000L)));
+		// call under test
+		reporter.writeReport();
+		JSONObject timeline = new JSONObject(new String(
+				Files.readAllBytes(directory.resolve(DeploymentTimingReporterImpl.TIMELINE_FILE)),
+				StandardCharsets.UTF_8));
+		assertEquals(0L, timeline.getJSONObject("criticalPath").getLong("durationMs"));
+		assertEquals(1, timeline.getJSONArray("spans").length());
+		assertTrue(Files.exists(directory.resolve(DeploymentTimingReporterImpl.TRACE_FILE)));
+	}
+
+	@Test
+	public void testWriteReportWithoutSpans() {
+		when(mockTimeline.drain()).thenReturn(List.of());
+		// call under test
+		reporter.writeReport();
+		// an earlier report is not replaced
+		verifyZeroInteractions(mockConfig);
+		verify(mockLogger, never()).info(anyString());
+	}
+
+	@Test
+	public void testGetTimingDirectoryDefault() {
+		when(mockConfig.getProperty(PROPERTY_KEY_DEPLOYMENT_TIMING_DIRECTORY))
+				.thenThrow(new ConfigurationPropertyNotFound(PROPERTY_KEY_DEPLOYMENT_TIMING_DIRECTORY));
+		// call under test
+		assertEquals(Paths.get(DeploymentTimingReporterImpl.DEFAULT_TIMING_DIRECTORY), reporter.getTimingDirectory());
+	}
+}
@@ -0,0 +1,233 @@
+package org.sagebionetworks.template.deploy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_DEPLOYMENT_PRERENDER_PARALLELISM;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.CloudFormationClient;
+import org.sagebionetworks.template.ConfigurationPropertyNotFound;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.RenderRecording;
+import org.sagebionetworks.template.RenderedTemplate;
+import org.sagebionetworks.template.StackChange;
+import org.sagebionetworks.template.TemplateRenderer;
+import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
+
+@ExtendWith(MockitoExtension.class)
+public class TemplatePrerendererImplTest {
+
+	@Mock
+	CloudFormationClient mockCloudFormationClient;
+	@Mock
+	TemplateRenderer mockTemplateRenderer;
+	@Mock
+	Configuration mockConfig;
+	@Mock
+	LoggerFactory mockLoggerFactory;
+	@Mock
+	Logger mockLogger;
+	@Mock
+	DeploymentTimeline mockTimeline;
+
+	TemplatePrerendererImpl prerenderer;
+
+	// the node running on each thread, so the results do not depend on the order
+	// the pool runs the nodes.
+	ThreadLocal<String> current;
+	Map<String, RenderRecording> recordings;
+	Map<String, List<StackChange>> changes;
+	List<String> deployed;
+
+	@BeforeEach
+	public void before() {
+		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
+		prerenderer = new TemplatePrerendererImpl(mockCloudFormationClient, mockTemplateRenderer, mockConfig,
+				mockLoggerFactory, mockTimeline);
+		current = new ThreadLocal<>();
+		recordings = new HashMap<>();
+		changes = new HashMap<>();
+		deployed = Collections.synchronizedList(new ArrayList<>());
+	}
+
+	void setupPrerender() {
+		when(mockConfig.getIntegerProperty(PROPERTY_KEY_DEPLOYMENT_PRERENDER_PARALLELISM)).thenReturn(2);
+		when(mockTemplateRenderer.stopRecording()).thenAnswer(i -> recordings.get(current.get()));
+		when(mockCloudFormationClient.stopPlanning()).thenAnswer(i -> changes.get(current.get()));
+	}
+
+	DeploymentNode node(String name, StackChange.Type type) {
+		recordings.put(name, new RenderRecording().add(template(name)));
+		changes.put(name, List.of(new StackChange(name, type, "fingerprint")));
+		return new DeploymentNode(name).withAction(() -> {
+			current.set(name);
+			deployed.add(name);
+		}).withPlannable(true);
+	}
+
+	static RenderedTemplate template(String name) {
+		return new RenderedTemplate("templates/" + name + ".json.vpt", true, "{}");
+	}
+
+	@Test
+	public void testPrerender() throws Exception {
+		setupPrerender();
+		DeploymentNode repo = new DeploymentNode("repo").withInputs("subnetIds").withAction(() -> deployed.add("repo"));
+		DeploymentGraph graph = new DeploymentGraph(List.of(
+				node("vpc", StackChange.Type.UNCHANGED).withOutputs("vpcId"),
+				node("subnets", StackChange.Type.UPDATE).withInputs("vpcId").withOutputs("subnetIds"),
+				node("nlb", StackChange.Type.UNCHANGED).withInputs("subnetIds"), repo,
+				node("cdn", StackChange.Type.CREATE)));
+		// call under test
+		DeploymentGraph result = prerenderer.prerender(graph);
+
+		assertEquals(graph.getTopologicalOrder(), result.getTopologicalOrder());
+		assertEquals(graph.getNode("subnets").getInputs(), result.getNode("subnets").getInputs());
+		assertEquals(graph.getNode("subnets").getOutputs(), result.getNode("subnets").getOutputs());
+		// the repository has no pre-render action so it is not pre-rendered.
+		assertSame(repo.getAction(), result.getNode("repo").getAction());
+		// the subnets change so the load balancer renders at its turn.
+		assertSame(graph.getNode("nlb").getAction(), result.getNode("nlb").getAction());
+		verify(mockCloudFormationClient, times(4)).startPlanning();
+		verify(mockTemplateRenderer, times(4)).startRecording();
+		verify(mockTimeline).start(Phase.PRERENDER, "vpc");
+		verify(mockLogger).info("Node: 'subnets' will reuse 1 pre-rendered templates");
+
+		deployed.clear();
+		result.getNode("subnets").getAction().deploy();
+		assertEquals(List.of("subnets"), deployed);
+		InOrder inOrder = inOrder(mockTemplateRenderer);
+		inOrder.verify(mockTemplateRenderer).startReplay(List.of(template("subnets")));
+		inOrder.verify(mockTemplateRenderer).stopReplay();
+	}
+
+	@Test
+	public void testPrerenderWithPrerenderAction() throws Exception {
+		setupPrerender();
+		recordings.put("repo", new RenderRecording().add(template("repo")));
+		changes.put("repo", List.of(new StackChange("repo", StackChange.Type.UPDATE, "fingerprint")));
+		DeploymentNode global = new DeploymentNode("global").withOutputs("globalId")
+				.withAction(() -> deployed.add("global"));
+		DeploymentNode repo = new DeploymentNode("repo").withInputs("subnetIds").withImports("globalId")
+				.withAction(() -> deployed.add("repo")).withPrerenderAction(() -> {
+					current.set("repo");
+					deployed.add("repo-prerender");
+				});
+		DeploymentGraph graph = new DeploymentGraph(List.of(global,
+				node("subnets", StackChange.Type.UNCHANGED).withOutputs("subnetIds"), repo));
+		// call under test
+		DeploymentGraph result = prerenderer.prerender(graph);
+
+		assertEquals(List.of("repo-prerender", "subnets"), deployed.stream().sorted().collect(Collectors.toList()));
+		assertEquals(Set.of("globalId"), result.getNode("repo").getImports());
+		assertEquals(Set.of("global", "subnets"), result.getDependencies("repo"));
+		assertSame(repo.getPrerenderAction(), result.getNode("repo").getPrerenderAction());
+		// global is not pre-rendered, but the repository only imports its exports.
+		assertSame(global.getAction(), result.getNode("global").getAction());
+		verify(mockLogger).info("Node: 'repo' will reuse 1 pre-rendered templates");
+
+		deployed.clear();
+		result.getNode("repo").getAction().deploy();
+		assertEquals(List.of("repo"), deployed);
+		verify(mockTemplateRenderer).startReplay(List.of(template("repo")));
+	}
+
+	@Test
+	public void testPrerenderWithInputFromNodeThatIsNotPrerendered() {
+		setupPrerender();
+		DeploymentNode global = new DeploymentNode("global").withOutputs("globalId")
+				.withAction(() -> deployed.add("global"));
+		DeploymentGraph graph = new DeploymentGraph(
+				List.of(global, node("ids", StackChange.Type.UNCHANGED).withInputs("globalId")));
+		// call under test
+		DeploymentGraph result = prerenderer.prerender(graph);
+		assertSame(graph.getNode("ids").getAction(), result.getNode("ids").getAction());
+		verify(mockLogger, never()).info("Node: 'ids' will reuse 1 pre-rendered templates");
+	}
+
+	@Test
+	public void testPrerenderWithTemplateFailure() {
+		setupPrerender();
+		recordings.put("cdn", new RenderRecording().failed("templates/cdn.yaml.vpt"));
+		DeploymentGraph graph = new DeploymentGraph(List.of(node("vpc", StackChange.Type.UNCHANGED),
+				new DeploymentNode("cdn").withAction(() -> {
+					current.set("cdn");
+					throw new IllegalArgumentException("bad yaml");
+				}).withPlannable(true)));
+		String message = assertThrows(IllegalStateException.class, () -> {
+			// call under test
+			prerenderer.prerender(graph);
+		}).getMessage();
+		assertEquals("Failed to render templates before deploying: [node: 'cdn' template: 'templates/cdn.yaml.vpt' (bad yaml)]",
+				message);
+		verify(mockLogger).error("Failed to render node: 'cdn' template: 'templates/cdn.yaml.vpt' (bad yaml)");
+		verify(mockCloudFormationClient, times(2)).stopPlanning();
+	}
+
+	@Test
+	public void testPrerenderWithOtherFailure() throws Exception {
+		setupPrerender();
+		recordings.put("vpc", new RenderRecording());
+		DeploymentGraph graph = new DeploymentGraph(List.of(new DeploymentNode("vpc").withOutputs("vpcId").withAction(() -> {
+			current.set("vpc");
+			throw new IllegalStateException("no stack");
+		}).withPlannable(true), node("subnets", StackChange.Type.UNCHANGED).withInputs("vpcId")));
+		// call under test
+		DeploymentGraph result = prerenderer.prerender(graph);
+		verify(mockLogger).info("Could not pre-render node: 'vpc' (no stack), it will be rendered at its turn.");
+		// neither node replays, since the exports of the VPC could change.
+		assertSame(graph.getNode("vpc").getAction(), result.getNode("vpc").getAction());
+		assertSame(graph.getNode("subnets").getAction(), result.getNode("subnets").getAction());
+		verify(mockLogger, never()).info("Node: 'subnets' will reuse 1 pre-rendered templates");
+	}
+
+	@Test
+	public void testPrerenderWithNothingPlannable() {
+		DeploymentGraph graph = new DeploymentGraph(List.of(new DeploymentNode("repo").withAction(() -> {
+		})));
+		// call under test
+		assertSame(graph, prerenderer.prerender(graph));
+		verifyNoInteractions(mockTemplateRenderer, mockCloudFormationClient);
+	}
+
+	@Test
+	public void testGetParallelismDefault() {
+		when(mockConfig.getIntegerProperty(any())).thenThrow(new ConfigurationPropertyNotFound("key"));
+		// call under test
+		assertEquals(Runtime.getRuntime().availableProcessors(), prerenderer.getParallelism());
+	}
+
+	@Test
+	public void testGetParallelismLessThanOne() {
+		when(mockConfig.getIntegerProperty(any())).thenReturn(0);
+		String message = assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			prerenderer.getParallelism();
+		}).getMessage();
+		assertEquals(PROPERTY_KEY_DEPLOYMENT_PRERENDER_PARALLELISM + " must be at least one but was: 0", message);
+	}
+}
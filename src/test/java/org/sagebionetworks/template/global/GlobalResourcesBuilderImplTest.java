@@ -3,7 +3,6 @@ package org.sagebionetworks.template.global;
 import com.amazonaws.services.cloudformation.model.Tag;
 import org.apache.logging.log4j.Logger;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
@@ -19,7 +18,11 @@ import org.sagebionetworks.template.LoggerFactory;
 import org.sagebionetworks.template.SesClientImpl;
 import org.sagebionetworks.template.StackTagsProvider;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.TemplateRenderer;
+import org.sagebionetworks.template.TemplateRendererImpl;
+import org.sagebionetworks.template.ThreadProviderImp;
 import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.timing.DeploymentTimelineImpl;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -43,7 +46,7 @@ public class GlobalResourcesBuilderImplTest {
     Configuration mockConfig;
     @Mock
     CloudFormationClient mockCloudFormationClient;
-    VelocityEngine velocityEngine;
+    TemplateRenderer templateRenderer;
     @Mock
     LoggerFactory mockLoggerFactory;
     @Mock
@@ -63,7 +66,7 @@ public class GlobalResourcesBuilderImplTest {
 
     @Before
     public void before() {
-        velocityEngine = new TemplateGuiceModule().velocityEngineProvider();
+        templateRenderer = new TemplateRendererImpl(new TemplateGuiceModule().velocityEngineProvider(), new DeploymentTimelineImpl(new ThreadProviderImp()));
 
         when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
 
@@ -71,7 +74,7 @@ public class GlobalResourcesBuilderImplTest {
         Tag t = new Tag().withKey("aKey").withValue("aValue");
         expectedTags.add(t);
 
-        builder = new GlobalResourcesBuilderImpl(mockCloudFormationClient, velocityEngine, mockConfig, mockLoggerFactory, mockStackTagsProvider, mockSesClient);
+        builder = new GlobalResourcesBuilderImpl(mockCloudFormationClient, templateRenderer, mockConfig, mockLoggerFactory, mockStackTagsProvider, mockSesClient);
 
     }
 
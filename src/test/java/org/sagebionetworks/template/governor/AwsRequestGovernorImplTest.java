@@ -0,0 +1,205 @@
+package org.sagebionetworks.template.governor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_AWS_MAX_CONCURRENT_REQUESTS;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_AWS_REQUESTS_PER_SECOND_PREFIX;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.ConfigurationPropertyNotFound;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.ThreadProvider;
+import org.sagebionetworks.template.config.Configuration;
+
+@ExtendWith(MockitoExtension.class)
+public class AwsRequestGovernorImplTest {
+
+	@Mock
+	Configuration mockConfig;
+	@Mock
+	ThreadProvider mockThreadProvider;
+	@Mock
+	LoggerFactory mockLoggerFactory;
+	@Mock
+	Logger mockLogger;
+
+	String service = "AmazonCloudFormation";
+
+	@BeforeEach
+	public void before() {
+		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
+	}
+
+	AwsRequestGovernorImpl createGovernor(int requestsPerSecond, int maxConcurrent) {
+		when(mockConfig.getIntegerProperty(PROPERTY_KEY_AWS_MAX_CONCURRENT_REQUESTS)).thenReturn(maxConcurrent);
+		// the same rate for every service
+		when(mockConfig.getIntegerProperty(startsWith(PROPERTY_KEY_AWS_REQUESTS_PER_SECOND_PREFIX)))
+				.thenReturn(requestsPerSecond);
+		return new AwsRequestGovernorImpl(mockConfig, mockThreadProvider, mockLoggerFactory);
+	}
+
+	@Test
+	public void testAcquireWithinRate() throws InterruptedException {
+		AwsRequestGovernorImpl governor = createGovernor(2, 4);
+		// call under test
+		governor.acquire(service);
+		governor.acquire(service);
+		verify(mockThreadProvider, never()).sleep(anyLong());
+	}
+
+	@Test
+	public void testAcquireWaitsForToken() throws InterruptedException {
+		// the bucket is created at zero, empty at 0 and refilled at 500 ms.
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(0L, 0L, 0L, 0L, 500L);
+		AwsRequestGovernorImpl governor = createGovernor(2, 4);
+		governor.acquire(service);
+		governor.acquire(service);
+		// call under test
+		governor.acquire(service);
+		verify(mockThreadProvider).sleep(500L);
+	}
+
+	@Test
+	public void testDefaults() {
+		when(mockConfig.getIntegerProperty(any()))
+				.thenThrow(new ConfigurationPropertyNotFound(PROPERTY_KEY_AWS_MAX_CONCURRENT_REQUESTS));
+		// call under test
+		AwsRequestGovernorImpl governor = new AwsRequestGovernorImpl(mockConfig, mockThreadProvider,
+				mockLoggerFactory);
+		assertEquals(AwsRequestGovernorImpl.DEFAULT_MAX_CONCURRENT_REQUESTS, governor.getConcurrencyLimit(service));
+		assertEquals(10, governor.getRequestsPerSecond("AmazonCloudFormation"));
+		assertEquals(100, governor.getRequestsPerSecond("Amazon S3"));
+		assertEquals(5, governor.getRequestsPerSecond("AmazonRoute53"));
+		assertEquals(AwsRequestGovernorImpl.DEFAULT_REQUESTS_PER_SECOND, governor.getRequestsPerSecond("AWSGlue"));
+	}
+
+	@Test
+	public void testGetRequestsPerSecondConfigured() {
+		when(mockConfig.getIntegerProperty(PROPERTY_KEY_AWS_MAX_CONCURRENT_REQUESTS)).thenReturn(16);
+		when(mockConfig.getIntegerProperty("org.sagebionetworks.aws.requests.per.second.AmazonS3")).thenReturn(500);
+		AwsRequestGovernorImpl governor = new AwsRequestGovernorImpl(mockConfig, mockThreadProvider,
+				mockLoggerFactory);
+		// call under test
+		assertEquals(500, governor.getRequestsPerSecond("Amazon S3"));
+	}
+
+	@Test
+	public void testInvalidConfiguration() {
+		when(mockConfig.getIntegerProperty(PROPERTY_KEY_AWS_MAX_CONCURRENT_REQUESTS)).thenReturn(0);
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			new AwsRequestGovernorImpl(mockConfig, mockThreadProvider, mockLoggerFactory);
+		});
+	}
+
+	@Test
+	public void testInvalidRequestsPerSecond() {
+		AwsRequestGovernorImpl governor = createGovernor(0, 16);
+		String message = assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			governor.acquire(service);
+		}).getMessage();
+		assertEquals("org.sagebionetworks.aws.requests.per.second.AmazonCloudFormation must be at least one but was: 0",
+				message);
+	}
+
+	@Test
+	public void testOnThrottledHalvesLimit() {
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(0L, 0L, 500L, 1000L);
+		AwsRequestGovernorImpl governor = createGovernor(10, 16);
+		// call under test
+		governor.onThrottled(service);
+		assertEquals(8, governor.getConcurrencyLimit(service));
+		// within the cooldown
+		governor.onThrottled(service);
+		assertEquals(8, governor.getConcurrencyLimit(service));
+		governor.onThrottled(service);
+		assertEquals(4, governor.getConcurrencyLimit(service));
+		verify(mockLogger).warn(
+				"Requests to: AmazonCloudFormation were throttled, reduced the concurrency limit to: 4");
+	}
+
+	@Test
+	public void testLimitIsAtLeastOne() {
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(0L, 0L, 2000L);
+		AwsRequestGovernorImpl governor = createGovernor(10, 2);
+		// call under test
+		governor.onThrottled(service);
+		governor.onThrottled(service);
+		assertEquals(1, governor.getConcurrencyLimit(service));
+	}
+
+	@Test
+	public void testSuccessGrowsLimit() throws InterruptedException {
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(0L);
+		AwsRequestGovernorImpl governor = createGovernor(100, 4);
+		governor.onThrottled(service);
+		assertEquals(2, governor.getConcurrencyLimit(service));
+		// call under test
+		// 2 + 1/2 + 1/2.5 + 1/2.9
+		for (int i = 0; i < 3; i++) {
+			governor.acquire(service);
+			governor.release(service, true);
+		}
+		assertEquals(3, governor.getConcurrencyLimit(service));
+		// failures do not grow the limit.
+		for (int i = 0; i < 10; i++) {
+			governor.acquire(service);
+			governor.release(service, false);
+		}
+		assertEquals(3, governor.getConcurrencyLimit(service));
+		// never above the maximum.
+		for (int i = 0; i < 20; i++) {
+			governor.acquire(service);
+			governor.release(service, true);
+		}
+		assertEquals(4, governor.getConcurrencyLimit(service));
+	}
+
+	@Test
+	public void testConcurrencyLimit() throws InterruptedException {
+		AwsRequestGovernorImpl governor = createGovernor(100, 1);
+		governor.acquire(service);
+		CountDownLatch acquired = new CountDownLatch(1);
+		Thread other = new Thread(() -> {
+			try {
+				governor.acquire(service);
+				acquired.countDown();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		other.start();
+		// the second request must wait for the first.
+		assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+		// call under test
+		governor.release(service, true);
+		assertTrue(acquired.await(5, TimeUnit.SECONDS));
+		other.join();
+	}
+
+	@Test
+	public void testServicesAreIndependent() throws InterruptedException {
+		AwsRequestGovernorImpl governor = createGovernor(100, 1);
+		governor.acquire(service);
+		// call under test
+		governor.acquire("AmazonS3");
+		assertEquals(1, governor.getConcurrencyLimit("AmazonS3"));
+	}
+}
@@ -0,0 +1,116 @@
+package org.sagebionetworks.template.governor;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+
+@ExtendWith(MockitoExtension.class)
+public class GovernorRequestHandlerTest {
+
+	@Mock
+	AwsRequestGovernor mockGovernor;
+	@Mock
+	Response<?> mockResponse;
+
+	GovernorRequestHandler handler;
+	Request<?> request;
+	String service;
+
+	@BeforeEach
+	public void before() {
+		handler = new GovernorRequestHandler(mockGovernor);
+		service = "AmazonCloudFormation";
+		request = new DefaultRequest<>(service);
+	}
+
+	@Test
+	public void testBeforeRequestAndAfterResponse() throws InterruptedException {
+		// call under test
+		handler.beforeRequest(request);
+		handler.afterResponse(request, mockResponse);
+		verify(mockGovernor).acquire(service);
+		verify(mockGovernor).release(service, true);
+	}
+
+	@Test
+	public void testAfterError() throws InterruptedException {
+		handler.beforeRequest(request);
+		// call under test
+		handler.afterError(request, mockResponse, new IllegalStateException());
+		verify(mockGovernor).release(service, false);
+	}
+
+	@Test
+	public void testReleaseOnce() throws InterruptedException {
+		handler.beforeRequest(request);
+		// call under test
+		handler.afterResponse(request, mockResponse);
+		handler.afterError(request, mockResponse, new IllegalStateException());
+		verify(mockGovernor).acquire(service);
+		verify(mockGovernor).release(service, true);
+		verifyNoMoreInteractions(mockGovernor);
+	}
+
+	@Test
+	public void testReleaseWithoutAcquire() {
+		// call under test
+		handler.afterError(request, mockResponse, new IllegalStateException());
+		verify(mockGovernor, never()).release(service, false);
+	}
+
+	@Test
+	public void testBeforeRequestInterrupted() throws InterruptedException {
+		doThrow(new InterruptedException()).when(mockGovernor).acquire(service);
+		assertThrows(AbortedException.class, () -> {
+			// call under test
+			handler.beforeRequest(request);
+		});
+		// clear the interrupt
+		assertTrue(Thread.interrupted());
+		handler.afterError(request, mockResponse, new IllegalStateException());
+		verify(mockGovernor, never()).release(service, false);
+	}
+
+	@Test
+	public void testAfterAttemptThrottled() {
+		AmazonServiceException throttled = new AmazonServiceException("Rate exceeded");
+		throttled.setErrorCode("Throttling");
+		throttled.setStatusCode(400);
+		// call under test
+		handler.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(request).withException(throttled).build());
+		verify(mockGovernor).onThrottled(service);
+	}
+
+	@Test
+	public void testAfterAttemptWithOtherError() {
+		AmazonServiceException error = new AmazonServiceException("Stack does not exist");
+		error.setErrorCode("ValidationError");
+		error.setStatusCode(400);
+		// call under test
+		handler.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(request).withException(error).build());
+		verify(mockGovernor, never()).onThrottled(service);
+	}
+
+	@Test
+	public void testIsThrottling() {
+		assertFalse(GovernorRequestHandler.isThrottling(null));
+		assertFalse(GovernorRequestHandler.isThrottling(new IllegalStateException()));
+	}
+}
@@ -0,0 +1,253 @@
+package org.sagebionetworks.template.nested;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class NestedStackSplitterTest {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private NestedStackSplitter splitter;
+
+	@BeforeEach
+	public void before() {
+		splitter = new NestedStackSplitter(10_000, 10);
+	}
+
+	/**
+	 * Parse JSON written with single quotes.
+	 */
+	static ObjectNode json(String json) throws Exception {
+		return (ObjectNode) MAPPER.readTree(json.replace('\'', '"'));
+	}
+
+	@Test
+	public void testSplit() throws Exception {
+		ObjectNode template = json("{'AWSTemplateFormatVersion':'2010-09-09',"
+				+ "'Parameters':{'Stack':{'Type':'String'},'Zones':{'Type':'CommaDelimitedList'},'Unused':{'Type':'String'}},"
+				+ "'Resources':{"
+				+ "'Bucket':{'Type':'AWS::S3::Bucket','Properties':{'BucketName':{'Fn::Sub':'${Stack}-bucket'}}},"
+				+ "'Policy':{'Type':'AWS::S3::BucketPolicy','Properties':{'Bucket':{'Ref':'Bucket'},'Zones':{'Ref':'Zones'}}},"
+				+ "'Alone':{'Type':'AWS::SNS::Topic'}},"
+				+ "'Outputs':{'BucketArn':{'Value':{'Fn::GetAtt':['Bucket','Arn']},'Export':{'Name':'bucket-arn'}}}}");
+		ObjectNode original = template.deepCopy();
+		// call under test
+		SplitTemplate split = splitter.split(template).get();
+
+		assertEquals(original, template);
+		assertEquals(Set.of("NestedBucket"), split.getChildren().keySet());
+		ObjectNode expectedChild = json("{'AWSTemplateFormatVersion':'2010-09-09',"
+				+ "'Description':'Nested resources of group: Bucket',"
+				+ "'Parameters':{'Stack':{'Type':'String'},'Zones':{'Type':'CommaDelimitedList'}},"
+				+ "'Resources':{"
+				+ "'Bucket':{'Type':'AWS::S3::Bucket','Properties':{'BucketName':{'Fn::Sub':'${Stack}-bucket'}}},"
+				+ "'Policy':{'Type':'AWS::S3::BucketPolicy','Properties':{'Bucket':{'Ref':'Bucket'},'Zones':{'Ref':'Zones'}}}},"
+				+ "'Outputs':{'BucketArn':{'Value':{'Fn::GetAtt':['Bucket','Arn']}}}}");
+		assertEquals(expectedChild, split.getChildren().get("NestedBucket"));
+
+		split.setTemplateUrl("NestedBucket", "https://some.url");
+		ObjectNode expectedParent = json("{'AWSTemplateFormatVersion':'2010-09-09',"
+				+ "'Parameters':{'Stack':{'Type':'String'},'Zones':{'Type':'CommaDelimitedList'},'Unused':{'Type':'String'}},"
+				+ "'Resources':{'Alone':{'Type':'AWS::SNS::Topic'},"
+				+ "'NestedBucket':{'Type':'AWS::CloudFormation::Stack','Properties':{"
+				+ "'Parameters':{'Stack':{'Ref':'Stack'},'Zones':{'Fn::Join':[',',{'Ref':'Zones'}]}},"
+				+ "'TemplateURL':'https://some.url'}}},"
+				+ "'Outputs':{'BucketArn':{'Value':{'Fn::GetAtt':['NestedBucket','Outputs.BucketArn']},'Export':{'Name':'bucket-arn'}}}}");
+		assertEquals(expectedParent, split.getParent());
+	}
+
+	@Test
+	public void testSplitWithMultipleGroups() throws Exception {
+		ObjectNode template = json("{'Resources':{"
+				+ "'B1':{'Type':'x','DependsOn':'B2'},'B2':{'Type':'x'},"
+				+ "'A1':{'Type':'x','Properties':{'P':{'Fn::GetAtt':'A2.Arn'}}},'A2':{'Type':'x'}}}");
+		// call under test
+		SplitTemplate split = splitter.split(template).get();
+		assertEquals(List.of("NestedA1", "NestedB1"), List.copyOf(split.getChildren().keySet()));
+		assertEquals(Set.of("A1", "A2"), NestedStackSplitter.fieldNames(split.getChildren().get("NestedA1").get("Resources")));
+		assertEquals(Set.of("NestedA1", "NestedB1"), NestedStackSplitter.fieldNames(split.getParent().get("Resources")));
+	}
+
+	@Test
+	public void testSplitWithMappings() throws Exception {
+		ObjectNode template = json("{'Mappings':{'M':{'k':{'v':'1'}}},'Resources':{"
+				+ "'A1':{'Type':'x','Properties':{'P':{'Fn::FindInMap':['M','k','v']}}},"
+				+ "'A2':{'Type':'x','DependsOn':['A1']}}}");
+		// call under test
+		SplitTemplate split = splitter.split(template).get();
+		assertEquals(template.get("Mappings"), split.getChildren().get("NestedA1").get("Mappings"));
+	}
+
+	@Test
+	public void testSplitWithRetainedResource() throws Exception {
+		ObjectNode template = json("{'Resources':{"
+				+ "'A1':{'Type':'x','DeletionPolicy':'Retain'},'A2':{'Type':'x','DependsOn':'A1'}}}");
+		// call under test
+		assertEquals(Optional.empty(), splitter.split(template));
+	}
+
+	@Test
+	public void testSplitWithDeletePolicy() throws Exception {
+		ObjectNode template = json("{'Resources':{"
+				+ "'A1':{'Type':'x','DeletionPolicy':'Delete'},'A2':{'Type':'x','DependsOn':'A1'}}}");
+		// call under test
+		assertTrue(splitter.split(template).isPresent());
+	}
+
+	@Test
+	public void testSplitWithCondition() throws Exception {
+		ObjectNode template = json("{'Conditions':{'C':{'Fn::Equals':['a','b']}},'Resources':{"
+				+ "'A1':{'Type':'x','Condition':'C'},'A2':{'Type':'x','DependsOn':'A1'},"
+				+ "'B1':{'Type':'x','Properties':{'P':{'Fn::If':['C','a','b']}}},'B2':{'Type':'x','DependsOn':'B1'}}}");
+		// call under test
+		assertEquals(Optional.empty(), splitter.split(template));
+	}
+
+	@Test
+	public void testSplitWithOutputSpanningGroups() throws Exception {
+		ObjectNode template = json("{'Resources':{"
+				+ "'A1':{'Type':'x'},'A2':{'Type':'x','DependsOn':'A1'},"
+				+ "'B1':{'Type':'x'},'B2':{'Type':'x','DependsOn':'B1'}},"
+				+ "'Outputs':{'O':{'Value':{'Fn::Sub':'${A1}-${B1.Arn}'}}}}");
+		// call under test
+		assertEquals(Optional.empty(), splitter.split(template));
+	}
+
+	@Test
+	public void testSplitWithTooManyResources() throws Exception {
+		splitter = new NestedStackSplitter(10_000, 1);
+		ObjectNode template = json("{'Resources':{'A1':{'Type':'x'},'A2':{'Type':'x','DependsOn':'A1'}}}");
+		// call under test
+		assertEquals(Optional.empty(), splitter.split(template));
+	}
+
+	@Test
+	public void testSplitWithTooManyBytes() throws Exception {
+		splitter = new NestedStackSplitter(10, 10);
+		ObjectNode template = json("{'Resources':{'A1':{'Type':'x'},'A2':{'Type':'x','DependsOn':'A1'}}}");
+		// call under test
+		assertEquals(Optional.empty(), splitter.split(template));
+	}
+
+	@Test
+	public void testSplitWithTransform() throws Exception {
+		ObjectNode template = json("{'Transform':'AWS::Serverless-2016-10-31','Resources':{"
+				+ "'A1':{'Type':'x'},'A2':{'Type':'x','DependsOn':'A1'}}}");
+		// call under test
+		assertEquals(Optional.empty(), splitter.split(template));
+	}
+
+	@Test
+	public void testSplitWithUniqueStackId() throws Exception {
+		ObjectNode template = json("{'Resources':{'NestedA1':{'Type':'x'},"
+				+ "'A1':{'Type':'x'},'A2':{'Type':'x','DependsOn':'A1'}}}");
+		// call under test
+		SplitTemplate split = splitter.split(template).get();
+		assertEquals(Set.of("NestedA12"), split.getChildren().keySet());
+	}
+
+	@Test
+	public void testSplitKeepsDeployedNestedStacks() throws Exception {
+		ResourceLocations deployed = new ResourceLocations();
+		deployed.addToNestedStack("A1", "NestedA1");
+		deployed.addToNestedStack("A2", "NestedA1");
+		deployed.addToNestedStack("B1", "NestedB1");
+		deployed.addToNestedStack("B2", "NestedB1");
+		deployed.addToParent("C1");
+		deployed.addToParent("C2");
+		// A0 is new, B2 was removed and C1 now references C2.
+		ObjectNode template = json("{'Resources':{"
+				+ "'A0':{'Type':'x','DependsOn':'A1'},'A1':{'Type':'x'},'A2':{'Type':'x','DependsOn':'A1'},"
+				+ "'B1':{'Type':'x'},'C1':{'Type':'x','DependsOn':'C2'},'C2':{'Type':'x'},"
+				+ "'E1':{'Type':'x'},'E2':{'Type':'x','DependsOn':'E1'}},"
+				+ "'Outputs':{'O':{'Value':{'Ref':'B1'}}}}");
+		// call under test
+		SplitTemplate split = splitter.split(template, deployed).get();
+		assertEquals(List.of("NestedA1", "NestedB1", "NestedE1"), List.copyOf(split.getChildren().keySet()));
+		assertEquals(Set.of("A0", "A1", "A2"), NestedStackSplitter.fieldNames(split.getChildren().get("NestedA1").get("Resources")));
+		// a single resource stays in its nested stack and its output follows it.
+		assertEquals(Set.of("B1"), NestedStackSplitter.fieldNames(split.getChildren().get("NestedB1").get("Resources")));
+		assertEquals(Set.of("O"), NestedStackSplitter.fieldNames(split.getChildren().get("NestedB1").get("Outputs")));
+		// only the group of new resources gets a new nested stack.
+		assertEquals(Set.of("E1", "E2"), NestedStackSplitter.fieldNames(split.getChildren().get("NestedE1").get("Resources")));
+		assertEquals(Set.of("C1", "C2", "NestedA1", "NestedB1", "NestedE1"),
+				NestedStackSplitter.fieldNames(split.getParent().get("Resources")));
+	}
+
+	@Test
+	public void testSplitWithDeployedGroupsJoined() throws Exception {
+		ResourceLocations deployed = new ResourceLocations();
+		deployed.addToNestedStack("A1", "NestedA1");
+		deployed.addToNestedStack("B1", "NestedB1");
+		ObjectNode template = json("{'Resources':{'A1':{'Type':'x','DependsOn':'B1'},'B1':{'Type':'x'}}}");
+		String message = assertThrows(IllegalStateException.class, () -> {
+			// call under test
+			splitter.split(template, deployed);
+		}).getMessage();
+		assertEquals("Resources: [A1, B1] reference each other but are deployed in different stacks: [NestedA1, NestedB1]."
+				+ " Moving a resource to another stack would replace it.", message);
+	}
+
+	@Test
+	public void testSplitWithOutputSpanningDeployedStacks() throws Exception {
+		ResourceLocations deployed = new ResourceLocations();
+		deployed.addToNestedStack("A1", "NestedA1");
+		deployed.addToParent("C");
+		ObjectNode template = json("{'Resources':{'A1':{'Type':'x'},'C':{'Type':'x'}},"
+				+ "'Outputs':{'O':{'Value':{'Fn::Sub':'${A1}-${C}'}}}}");
+		String message = assertThrows(IllegalStateException.class, () -> {
+			// call under test
+			splitter.split(template, deployed);
+		}).getMessage();
+		assertEquals("Output: 'O' references resources deployed in: [(parent), NestedA1]."
+				+ " Moving a resource to another stack would replace it.", message);
+	}
+
+	@Test
+	public void testSplitWithDeployedNestedStackMadeConditional() throws Exception {
+		ResourceLocations deployed = new ResourceLocations();
+		deployed.addToNestedStack("A1", "NestedA1");
+		deployed.addToNestedStack("A2", "NestedA1");
+		ObjectNode template = json("{'Conditions':{'C':{'Fn::Equals':['a','b']}},'Resources':{"
+				+ "'A1':{'Type':'x','Condition':'C'},'A2':{'Type':'x','DependsOn':'A1'}}}");
+		assertThrows(IllegalStateException.class, () -> {
+			// call under test
+			splitter.split(template, deployed);
+		});
+	}
+
+	@Test
+	public void testSplitWithNewStackIdOfDeployedStack() throws Exception {
+		ResourceLocations deployed = new ResourceLocations();
+		deployed.addToNestedStack("X", "NestedA1");
+		// the new A group would be named after a deployed nested stack.
+		ObjectNode template = json("{'Resources':{'X':{'Type':'x'},"
+				+ "'A1':{'Type':'x'},'A2':{'Type':'x','DependsOn':'A1'}}}");
+		// call under test
+		SplitTemplate split = splitter.split(template, deployed).get();
+		assertEquals(List.of("NestedA1", "NestedA12"), List.copyOf(split.getChildren().keySet()));
+		assertEquals(Set.of("X"), NestedStackSplitter.fieldNames(split.getChildren().get("NestedA1").get("Resources")));
+	}
+
+	@Test
+	public void testFindReferences() throws Exception {
+		ObjectNode node = json("{'a':{'Ref':'R'},'b':[{'Fn::GetAtt':['G','Arn']},{'Fn::GetAtt':'H.Arn'}],"
+				+ "'c':{'Fn::Sub':['${S}-${L}-${!Literal}-${AWS::Region}',{'L':{'Ref':'V'}}]},'DependsOn':['D']}");
+		// call under test
+		Set<String> references = NestedStackSplitter.findReferences(node);
+		assertEquals(Set.of("R", "G", "H", "S", "V", "AWS::Region", "D"), references);
+		assertFalse(references.contains("L"));
+	}
+}
@@ -0,0 +1,300 @@
+package org.sagebionetworks.template.nested;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_TEMPLATE_SPLIT_EXISTING_STACKS;
+import static org.sagebionetworks.template.Constants.PROPERTY_KEY_TEMPLATE_SPLIT_THRESHOLD_PERCENT;
+import static org.sagebionetworks.template.Constants.TAG_KEY_NESTED_STACK_SPLIT;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.ConfigurationPropertyNotFound;
+import org.sagebionetworks.template.LoggerFactory;
+import org.sagebionetworks.template.config.Configuration;
+
+import com.amazonaws.services.cloudformation.AmazonCloudFormation;
+import com.amazonaws.services.cloudformation.model.ListStackResourcesRequest;
+import com.amazonaws.services.cloudformation.model.ListStackResourcesResult;
+import com.amazonaws.services.cloudformation.model.Stack;
+import com.amazonaws.services.cloudformation.model.StackResourceSummary;
+import com.amazonaws.services.cloudformation.model.Tag;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+@ExtendWith(MockitoExtension.class)
+public class TemplateSizeGuardImplTest {
+
+	@Mock
+	private AmazonCloudFormation mockCloudFormationClient;
+	@Mock
+	private Configuration mockConfig;
+	@Mock
+	private LoggerFactory mockLoggerFactory;
+	@Mock
+	private Logger mockLogger;
+	@Mock
+	private BiFunction<String, String, String> mockUploader;
+
+	private TemplateSizeGuardImpl guard;
+
+	private String stackName;
+	// six resources are over 1% of the resource limit
+	private String largeTemplate;
+	private String smallTemplate;
+
+	@BeforeEach
+	public void before() {
+		stackName = "some-stack";
+		largeTemplate = "{\"Resources\":{\"A1\":{\"Type\":\"x\"},\"A2\":{\"Type\":\"x\",\"DependsOn\":\"A1\"},"
+				+ "\"B1\":{\"Type\":\"x\"},\"B2\":{\"Type\":\"x\",\"DependsOn\":\"B1\"},"
+				+ "\"C\":{\"Type\":\"x\"},\"D\":{\"Type\":\"x\"}}}";
+		smallTemplate = "{\"Resources\":{\"A1\":{\"Type\":\"x\"},\"A2\":{\"Type\":\"x\",\"DependsOn\":\"A1\"}}}";
+	}
+
+	void setupConfig(int thresholdPercent, boolean splitExisting) {
+		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
+		when(mockConfig.getIntegerProperty(PROPERTY_KEY_TEMPLATE_SPLIT_THRESHOLD_PERCENT)).thenReturn(thresholdPercent);
+		when(mockConfig.getBooleanProperty(PROPERTY_KEY_TEMPLATE_SPLIT_EXISTING_STACKS)).thenReturn(splitExisting);
+		guard = new TemplateSizeGuardImpl(mockCloudFormationClient, mockConfig, mockLoggerFactory);
+	}
+
+	static Stack splitStack() {
+		return new Stack().withStackId("parent-id")
+				.withTags(new Tag().withKey(TAG_KEY_NESTED_STACK_SPLIT).withValue("true"));
+	}
+
+	static StackResourceSummary resource(String logicalId, String type, String physicalId) {
+		return new StackResourceSummary().withLogicalResourceId(logicalId).withResourceType(type)
+				.withPhysicalResourceId(physicalId);
+	}
+
+	void setupResources(String stackId, StackResourceSummary... resources) {
+		when(mockCloudFormationClient.listStackResources(new ListStackResourcesRequest().withStackName(stackId)))
+				.thenReturn(new ListStackResourcesResult().withStackResourceSummaries(resources));
+	}
+
+	/**
+	 * The resources of the large template as it was deployed when it was split.
+	 */
+	void setupDeployedLargeTemplate() {
+		setupResources("parent-id", resource("C", "x", "c"), resource("D", "x", "d"),
+				resource("NestedA1", NestedStackSplitter.NESTED_STACK_TYPE, "nested-a1-id"),
+				resource("NestedB1", NestedStackSplitter.NESTED_STACK_TYPE, "nested-b1-id"));
+		setupResources("nested-a1-id", resource("A1", "x", "a1"), resource("A2", "x", "a2"));
+		setupResources("nested-b1-id", resource("B1", "x", "b1"), resource("B2", "x", "b2"));
+	}
+
+	@Test
+	public void testGuardBelowThreshold() {
+		setupConfig(1, false);
+		// call under test
+		assertEquals(Optional.empty(), guard.guard(stackName, smallTemplate, Optional.empty(), mockUploader));
+		verifyNoInteractions(mockUploader);
+	}
+
+	@Test
+	public void testGuardWithNewStack() {
+		setupConfig(1, false);
+		when(mockUploader.apply(anyString(), anyString())).thenReturn("https://a.url", "https://b.url");
+		// call under test
+		Optional<String> parent = guard.guard(stackName, largeTemplate, Optional.empty(), mockUploader);
+		assertEquals(Optional.of("{\"Resources\":{\"C\":{\"Type\":\"x\"},\"D\":{\"Type\":\"x\"},"
+				+ "\"NestedA1\":{\"Type\":\"AWS::CloudFormation::Stack\",\"Properties\":{\"TemplateURL\":\"https://a.url\"}},"
+				+ "\"NestedB1\":{\"Type\":\"AWS::CloudFormation::Stack\",\"Properties\":{\"TemplateURL\":\"https://b.url\"}}}}"),
+				parent);
+		verify(mockUploader).apply("some-stack-NestedA1",
+				"{\"Description\":\"Nested resources of group: A1\",\"Resources\":{\"A1\":{\"Type\":\"x\"},\"A2\":{\"Type\":\"x\",\"DependsOn\":\"A1\"}}}");
+		verify(mockUploader).apply(eq("some-stack-NestedB1"), anyString());
+		verify(mockLogger).info("Template for stack: 'some-stack' is 155 bytes with 6 resources, 1% of the CloudFormation limits."
+				+ " Split it into 2 nested stacks: [NestedA1, NestedB1], the parent is 237 bytes with 4 resources");
+	}
+
+	@Test
+	public void testGuardWithExistingStack() {
+		setupConfig(1, false);
+		// call under test
+		assertEquals(Optional.empty(), guard.guard(stackName, largeTemplate, Optional.of(new Stack()), mockUploader));
+		verifyNoInteractions(mockUploader);
+		verify(mockLogger).warn("Template for stack: 'some-stack' is 155 bytes with 6 resources, 1% of the CloudFormation limits."
+				+ " Set " + PROPERTY_KEY_TEMPLATE_SPLIT_EXISTING_STACKS
+				+ " to split it into nested stacks, which replaces the moved resources.");
+	}
+
+	@Test
+	public void testGuardWithExistingStackOptedIn() {
+		setupConfig(1, true);
+		when(mockUploader.apply(anyString(), anyString())).thenReturn("https://a.url");
+		// call under test
+		Optional<String> parent = guard.guard(stackName, largeTemplate, Optional.of(new Stack()), mockUploader);
+		assertTrue(parent.isPresent());
+	}
+
+	@Test
+	public void testGuardWithSplitStackBelowThreshold() {
+		setupConfig(80, false);
+		setupResources("parent-id", resource("NestedA1", NestedStackSplitter.NESTED_STACK_TYPE, "nested-a1-id"));
+		setupResources("nested-a1-id", resource("A1", "x", "a1"), resource("A2", "x", "a2"));
+		when(mockUploader.apply(anyString(), anyString())).thenReturn("https://a.url");
+		// call under test
+		Optional<String> parent = guard.guard(stackName, smallTemplate, Optional.of(splitStack()), mockUploader);
+		// once split a stack stays split
+		assertEquals(Optional.of("{\"Resources\":{\"NestedA1\":{\"Type\":\"AWS::CloudFormation::Stack\","
+				+ "\"Properties\":{\"TemplateURL\":\"https://a.url\"}}}}"), parent);
+	}
+
+	@Test
+	public void testGuardWithNothingMovable() {
+		setupConfig(1, false);
+		String template = "{\"Resources\":{\"A\":{\"Type\":\"x\"},\"B\":{\"Type\":\"x\"},\"C\":{\"Type\":\"x\"},"
+				+ "\"D\":{\"Type\":\"x\"},\"E\":{\"Type\":\"x\"},\"F\":{\"Type\":\"x\"}}}";
+		// call under test
+		assertEquals(Optional.empty(), guard.guard(stackName, template, Optional.empty(), mockUploader));
+		verifyNoInteractions(mockUploader);
+		verify(mockLogger).warn(
+				"Template for stack: 'some-stack' is 117 bytes with 6 resources, 1% of the CloudFormation limits,"
+						+ " but none of its resource groups can be moved to a nested stack.");
+	}
+
+	@Test
+	public void testGuardWithSplitStackNothingMovable() {
+		setupConfig(80, false);
+		setupResources("parent-id", resource("A", "x", "a"), resource("B", "x", "b"));
+		String template = "{\"Resources\":{\"A\":{\"Type\":\"x\"},\"B\":{\"Type\":\"x\"}}}";
+		// call under test
+		assertEquals(Optional.empty(), guard.guard(stackName, template, Optional.of(splitStack()), mockUploader));
+		verifyNoInteractions(mockUploader);
+		verify(mockLogger).warn("Template for stack: 'some-stack' is 49 bytes with 2 resources, 0% of the CloudFormation limits."
+				+ " None of its resources are in nested stacks any more, so it is no longer split.");
+	}
+
+	@Test
+	public void testGuardRedeployChangedSplitStack() {
+		setupConfig(1, false);
+		setupDeployedLargeTemplate();
+		when(mockUploader.apply(anyString(), anyString())).thenReturn("https://a.url", "https://b.url");
+		// A0 is new and becomes the first ID of the A group, B2 was removed so B1 is alone.
+		String changed = "{\"Resources\":{\"A0\":{\"Type\":\"x\",\"DependsOn\":\"A1\"},\"A1\":{\"Type\":\"x\"},"
+				+ "\"A2\":{\"Type\":\"x\",\"DependsOn\":\"A1\"},\"B1\":{\"Type\":\"x\"},"
+				+ "\"C\":{\"Type\":\"x\"},\"D\":{\"Type\":\"x\"}}}";
+		// call under test
+		Optional<String> parent = guard.guard(stackName, changed, Optional.of(splitStack()), mockUploader);
+		// each resource stays in the nested stack it is deployed in.
+		assertEquals(Optional.of("{\"Resources\":{\"C\":{\"Type\":\"x\"},\"D\":{\"Type\":\"x\"},"
+				+ "\"NestedA1\":{\"Type\":\"AWS::CloudFormation::Stack\",\"Properties\":{\"TemplateURL\":\"https://a.url\"}},"
+				+ "\"NestedB1\":{\"Type\":\"AWS::CloudFormation::Stack\",\"Properties\":{\"TemplateURL\":\"https://b.url\"}}}}"),
+				parent);
+		verify(mockUploader).apply("some-stack-NestedA1", "{\"Description\":\"Nested resources of group: A0\","
+				+ "\"Resources\":{\"A0\":{\"Type\":\"x\",\"DependsOn\":\"A1\"},\"A1\":{\"Type\":\"x\"},"
+				+ "\"A2\":{\"Type\":\"x\",\"DependsOn\":\"A1\"}}}");
+		verify(mockUploader).apply("some-stack-NestedB1",
+				"{\"Description\":\"Nested resources of group: B1\",\"Resources\":{\"B1\":{\"Type\":\"x\"}}}");
+	}
+
+	@Test
+	public void testGuardRedeployWithResourceMovedBetweenStacks() {
+		setupConfig(1, false);
+		setupDeployedLargeTemplate();
+		// C now references A1, so C could only be deployed by moving it into NestedA1.
+		String changed = largeTemplate.replace("\"C\":{\"Type\":\"x\"}", "\"C\":{\"Type\":\"x\",\"DependsOn\":\"A1\"}");
+		String message = assertThrows(IllegalStateException.class, () -> {
+			// call under test
+			guard.guard(stackName, changed, Optional.of(splitStack()), mockUploader);
+		}).getMessage();
+		assertEquals("Resources: [A1, A2, C] reference each other but are deployed in different stacks: [(parent), NestedA1]."
+				+ " Moving a resource to another stack would replace it.", message);
+		verifyNoInteractions(mockUploader);
+	}
+
+	@Test
+	public void testReadLocations() throws Exception {
+		setupConfig(1, false);
+		setupDeployedLargeTemplate();
+		ObjectNode template = (ObjectNode) new ObjectMapper().readTree(largeTemplate);
+		// call under test
+		ResourceLocations locations = guard.readLocations(splitStack(), template);
+		assertEquals(Optional.of("NestedA1"), locations.getNestedStackId("A2"));
+		assertEquals(Optional.of("NestedB1"), locations.getNestedStackId("B1"));
+		assertTrue(locations.isInParent("C"));
+		assertFalse(locations.isInParent("NestedA1"));
+		assertEquals(Optional.empty(), locations.getNestedStackId("C"));
+	}
+
+	@Test
+	public void testListStackResourcesWithPages() {
+		setupConfig(1, false);
+		when(mockCloudFormationClient.listStackResources(new ListStackResourcesRequest().withStackName("parent-id")))
+				.thenReturn(new ListStackResourcesResult().withStackResourceSummaries(resource("A", "x", "a"))
+						.withNextToken("next"));
+		when(mockCloudFormationClient
+				.listStackResources(new ListStackResourcesRequest().withStackName("parent-id").withNextToken("next")))
+						.thenReturn(new ListStackResourcesResult().withStackResourceSummaries(resource("B", "x", "b")));
+		// call under test
+		assertEquals(List.of(resource("A", "x", "a"), resource("B", "x", "b")), guard.listStackResources("parent-id"));
+	}
+
+	@Test
+	public void testGuardWithSplitStackAndYaml() {
+		setupConfig(80, false);
+		assertThrows(IllegalStateException.class, () -> {
+			// call under test
+			guard.guard(stackName, "Resources:\n  A:\n    Type: x", Optional.of(splitStack()), mockUploader);
+		});
+		verifyNoInteractions(mockUploader);
+	}
+
+	@Test
+	public void testGuardWithYaml() {
+		setupConfig(1, false);
+		// call under test
+		assertEquals(Optional.empty(), guard.guard(stackName, "Resources:\n  A:\n    Type: x", Optional.empty(), mockUploader));
+		verifyNoInteractions(mockUploader);
+	}
+
+	@Test
+	public void testGetThresholdPercentDefault() {
+		when(mockConfig.getIntegerProperty(any())).thenThrow(new ConfigurationPropertyNotFound("key"));
+		// call under test
+		assertEquals(TemplateSizeGuardImpl.DEFAULT_THRESHOLD_PERCENT, TemplateSizeGuardImpl.getThresholdPercent(mockConfig));
+	}
+
+	@Test
+	public void testGetThresholdPercentOutOfRange() {
+		when(mockConfig.getIntegerProperty(any())).thenReturn(101);
+		String message = assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			TemplateSizeGuardImpl.getThresholdPercent(mockConfig);
+		}).getMessage();
+		assertEquals(PROPERTY_KEY_TEMPLATE_SPLIT_THRESHOLD_PERCENT + " must be between 1 and 100 but was: 101", message);
+	}
+
+	@Test
+	public void testGetSplitExistingStacksDefault() {
+		when(mockConfig.getBooleanProperty(any())).thenThrow(new ConfigurationPropertyNotFound("key"));
+		// call under test
+		assertFalse(TemplateSizeGuardImpl.getSplitExistingStacks(mockConfig));
+	}
+
+	@Test
+	public void testIsSplit() {
+		assertTrue(TemplateSizeGuardImpl.isSplit(splitStack()));
+		assertFalse(TemplateSizeGuardImpl.isSplit(new Stack()));
+		assertFalse(TemplateSizeGuardImpl.isSplit(
+				new Stack().withTags(new Tag().withKey(TAG_KEY_NESTED_STACK_SPLIT).withValue("false"))));
+	}
+}
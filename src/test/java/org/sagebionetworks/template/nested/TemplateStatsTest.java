@@ -0,0 +1,60 @@
+package org.sagebionetworks.template.nested;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+public class TemplateStatsTest {
+
+	@Test
+	public void testMeasure() {
+		String template = "{\"Description\":\"\u00e9\",\"Resources\":{\"A\":{\"Type\":\"x\",\"Properties\":{\"B\":{\"Ref\":\"C\"}}},\"B\":{}},\"Outputs\":{\"O\":{}}}";
+		// call under test
+		Optional<TemplateStats> stats = TemplateStats.measure(template);
+		// the multi-byte character is counted as two bytes
+		assertEquals(Optional.of(new TemplateStats(template.length() + 1, 2)), stats);
+	}
+
+	@Test
+	public void testMeasureWithNoResources() {
+		// call under test
+		assertEquals(Optional.of(new TemplateStats(2, 0)), TemplateStats.measure("{}"));
+	}
+
+	@Test
+	public void testMeasureWithYaml() {
+		// call under test
+		assertEquals(Optional.empty(), TemplateStats.measure("Resources:\n  A:\n    Type: x"));
+	}
+
+	@Test
+	public void testMeasureWithArray() {
+		// call under test
+		assertEquals(Optional.empty(), TemplateStats.measure("[]"));
+	}
+
+	@Test
+	public void testMeasureWithNull() {
+		// call under test
+		assertEquals(Optional.empty(), TemplateStats.measure(null));
+	}
+
+	@Test
+	public void testPercentOfLimitsBytes() {
+		// call under test
+		assertEquals(85, new TemplateStats(850, 10).percentOfLimits(1000, 100));
+	}
+
+	@Test
+	public void testPercentOfLimitsResources() {
+		// call under test
+		assertEquals(90, new TemplateStats(10, 450).percentOfLimits(1000, 500));
+	}
+
+	@Test
+	public void testToString() {
+		assertEquals("10 bytes with 2 resources", new TemplateStats(10, 2).toString());
+	}
+}
@@ -12,7 +12,6 @@ import static org.sagebionetworks.template.Constants.PROPERTY_KEY_STACK;
 import java.util.Set;
 
 import org.apache.logging.log4j.Logger;
-import org.apache.velocity.app.VelocityEngine;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -27,7 +26,11 @@ import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.LoggerFactory;
 import org.sagebionetworks.template.StackTagsProvider;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.TemplateRenderer;
+import org.sagebionetworks.template.TemplateRendererImpl;
+import org.sagebionetworks.template.ThreadProviderImp;
 import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.timing.DeploymentTimelineImpl;
 
 @ExtendWith(MockitoExtension.class)
 public class BindNetworkLoadBalancerBuilderImplTest {
@@ -37,7 +40,7 @@ public class BindNetworkLoadBalancerBuilderImplTest {
 	@Mock
 	private CloudFormationClient mockCloudFormationClient;
 
-	private VelocityEngine velocityEngine = new TemplateGuiceModule().velocityEngineProvider();
+	private TemplateRenderer templateRenderer = new TemplateRendererImpl(new TemplateGuiceModule().velocityEngineProvider(), new DeploymentTimelineImpl(new ThreadProviderImp()));
 	@Mock
 	private LoggerFactory mockLoggerFactory;
 	@Mock
@@ -54,7 +57,7 @@ public class BindNetworkLoadBalancerBuilderImplTest {
 	@BeforeEach
 	public void before() {
 		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
-		builder = new BindNetworkLoadBalancerBuilderImpl(mockCloudFormationClient, velocityEngine, mockConfig,
+		builder = new BindNetworkLoadBalancerBuilderImpl(mockCloudFormationClient, templateRenderer, mockConfig,
 				mockLoggerFactory, mockStackTagsProvider);
 	}
 
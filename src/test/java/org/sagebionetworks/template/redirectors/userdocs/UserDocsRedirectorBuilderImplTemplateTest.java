@@ -2,7 +2,6 @@ package org.sagebionetworks.template.redirectors.userdocs;
 
 import com.amazonaws.services.cloudformation.model.Stack;
 import com.amazonaws.services.cloudformation.model.Tag;
-import org.apache.velocity.app.VelocityEngine;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,7 +14,11 @@ import org.sagebionetworks.template.CloudFormationClient;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.StackTagsProvider;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.TemplateRenderer;
+import org.sagebionetworks.template.TemplateRendererImpl;
+import org.sagebionetworks.template.ThreadProviderImp;
 import org.sagebionetworks.template.config.RepoConfiguration;
+import org.sagebionetworks.template.timing.DeploymentTimelineImpl;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -41,15 +44,15 @@ public class UserDocsRedirectorBuilderImplTemplateTest {
 	@Captor
 	private ArgumentCaptor<CreateOrUpdateStackRequest> createOrUpdateStackRequestArgumentCaptor;
 
-	VelocityEngine velocityEngine;
+	TemplateRenderer templateRenderer;
 	UserDocsRedirectorBuilderImpl builder;
 
 	@BeforeEach
 	void setUp() {
 		when(mockConfig.getProperty("org.sagebionetworks.beanstalk.ssl.arn.portal")).thenReturn("acmarn");
 		when(mockConfig.getProperty("org.sagebionetworks.stack.instance.alias")).thenReturn("tst");
-		velocityEngine = new TemplateGuiceModule().velocityEngineProvider();
-		builder = new UserDocsRedirectorBuilderImpl(mockConfig, mockCloudFormationClient, mockStackTagsProvider, velocityEngine);
+		templateRenderer = new TemplateRendererImpl(new TemplateGuiceModule().velocityEngineProvider(), new DeploymentTimelineImpl(new ThreadProviderImp()));
+		builder = new UserDocsRedirectorBuilderImpl(mockConfig, mockCloudFormationClient, mockStackTagsProvider, templateRenderer);
 	}
 
 	@AfterEach
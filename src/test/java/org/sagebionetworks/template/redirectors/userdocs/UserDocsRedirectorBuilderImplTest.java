@@ -2,9 +2,7 @@ package org.sagebionetworks.template.redirectors.userdocs;
 
 import com.amazonaws.services.cloudformation.model.Stack;
 import com.amazonaws.services.cloudformation.model.Tag;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,15 +11,13 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.mockito.stubbing.Answer;
 import org.sagebionetworks.template.CloudFormationClient;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.StackTagsProvider;
+import org.sagebionetworks.template.TemplateRenderer;
 import org.sagebionetworks.template.config.RepoConfiguration;
 
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -29,7 +25,6 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -46,10 +41,7 @@ class UserDocsRedirectorBuilderImplTest {
 	private StackTagsProvider mockStackTagsProvider;
 
 	@Mock
-	private VelocityEngine mockVelocityEngine;
-
-	@Mock
-	private Template mockTemplate;
+	private TemplateRenderer mockTemplateRenderer;
 
 	@Captor
 	private ArgumentCaptor<CreateOrUpdateStackRequest> createOrUpdateStackRequestArgumentCaptor;
@@ -82,15 +74,7 @@ class UserDocsRedirectorBuilderImplTest {
 
 	@Test
 	void testBuildStack() throws Exception {
-		when(mockVelocityEngine.getTemplate(any())).thenReturn(mockTemplate);
-		doAnswer(new Answer<Void>() {
-			@Override
-			public Void answer(InvocationOnMock invocation) throws Throwable {
-				StringWriter writer = (StringWriter) invocation.getArgument(1);
-				writer.append("someYamlTemplate");
-				return null;
-			}
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.render(any(), any())).thenReturn("someYamlTemplate");
 		List<Tag> expectedTags = new ArrayList<>();
 		Tag tag = new Tag().withKey("aKey").withValue("aValue");
 		expectedTags.add(tag);
@@ -103,7 +87,7 @@ class UserDocsRedirectorBuilderImplTest {
 		// call under test
 		Optional<Stack> optStack = builder.buildStack();
 
-		verify(mockVelocityEngine).getTemplate("templates/redirectors/user_docs_redirector.yaml.vtp");
+		verify(mockTemplateRenderer).render(eq("templates/redirectors/user_docs_redirector.yaml.vtp"), any());
 		verify(mockCloudFormationClient).waitForStackToComplete("tst-docs-synapse");
 		verify(mockCloudFormationClient).describeStack("tst-docs-synapse");
 		verify(mockCloudFormationClient).createOrUpdateStack(createOrUpdateStackRequestArgumentCaptor.capture());
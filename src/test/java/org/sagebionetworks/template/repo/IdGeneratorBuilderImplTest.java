@@ -11,7 +11,6 @@ import static org.sagebionetworks.template.Constants.*;
 import static org.sagebionetworks.template.Constants.PROPERTY_KEY_STACK;
 
 import org.apache.logging.log4j.Logger;
-import org.apache.velocity.app.VelocityEngine;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
@@ -21,11 +20,15 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.sagebionetworks.template.CloudFormationClient;
+import org.sagebionetworks.template.TemplateRenderer;
+import org.sagebionetworks.template.TemplateRendererImpl;
+import org.sagebionetworks.template.ThreadProviderImp;
 import org.sagebionetworks.template.config.Configuration;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.LoggerFactory;
 import org.sagebionetworks.template.TemplateGuiceModule;
 import org.sagebionetworks.template.repo.beanstalk.SecretBuilder;
+import org.sagebionetworks.template.timing.DeploymentTimelineImpl;
 
 import com.amazonaws.services.cloudformation.model.Parameter;
 
@@ -43,7 +46,7 @@ public class IdGeneratorBuilderImplTest {
 	@Mock
 	SecretBuilder mockSecretBuilder;
 
-	VelocityEngine velocityEngine;
+	TemplateRenderer templateRenderer;
 	IdGeneratorBuilderImpl builder;
 
 	@Captor
@@ -51,8 +54,8 @@ public class IdGeneratorBuilderImplTest {
 
 	@Before
 	public void before() {
-		// use a real velocity engine
-		velocityEngine = new TemplateGuiceModule().velocityEngineProvider();
+		// use a real renderer and velocity engine
+		templateRenderer = new TemplateRendererImpl(new TemplateGuiceModule().velocityEngineProvider(), new DeploymentTimelineImpl(new ThreadProviderImp()));
 
 		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
 
@@ -62,7 +65,7 @@ public class IdGeneratorBuilderImplTest {
 		when(config.getProperty(PROPERTY_KEY_ID_GENERATOR_HOSTED_ZONE_ID)).thenReturn("hostedZoneId");
 		when(config.getProperty(PROPERTY_KEY_OLD_VPC_CIDR)).thenReturn("1.2.3.4/16");
 
-		builder = new IdGeneratorBuilderImpl(mockCloudFormationClient, velocityEngine, config, mockLoggerFactory, mockSecretBuilder);
+		builder = new IdGeneratorBuilderImpl(mockCloudFormationClient, templateRenderer, config, mockLoggerFactory, mockSecretBuilder);
 	}
 
 	@Test
@@ -70,7 +73,7 @@ public class IdGeneratorBuilderImplTest {
 		when(config.getProperty(PROPERTY_KEY_STACK)).thenReturn("prod");
 		when(config.getProperty(PROPERTY_KEY_VPC_SUBNET_COLOR)).thenReturn("Green");
 		when(mockSecretBuilder.getIdGeneratorPassword()).thenReturn("somePassword");
-		builder = new IdGeneratorBuilderImpl(mockCloudFormationClient, velocityEngine, config, mockLoggerFactory, mockSecretBuilder);
+		builder = new IdGeneratorBuilderImpl(mockCloudFormationClient, templateRenderer, config, mockLoggerFactory, mockSecretBuilder);
 
 		// call under test
 		builder.buildAndDeploy();
@@ -3,13 +3,17 @@ package org.sagebionetworks.template.repo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -69,16 +73,17 @@ import static org.sagebionetworks.template.Constants.TEMPALTE_BEAN_STALK_ENVIRON
 import static org.sagebionetworks.template.Constants.VPC_EXPORT_PREFIX;
 import static org.sagebionetworks.template.Constants.VPC_SUBNET_COLOR;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
@@ -90,6 +95,7 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.sagebionetworks.template.CloudFormationClient;
+import org.sagebionetworks.template.CloudFormationClientAsync;
 import org.sagebionetworks.template.ConfigurationPropertyNotFound;
 import org.sagebionetworks.template.Constants;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
@@ -97,7 +103,10 @@ import org.sagebionetworks.template.Ec2Client;
 import org.sagebionetworks.template.LoggerFactory;
 import org.sagebionetworks.template.StackTagsProvider;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.TemplateRenderer;
+import org.sagebionetworks.template.TemplateRendererImpl;
 import org.sagebionetworks.template.config.RepoConfiguration;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
 import org.sagebionetworks.template.config.TimeToLive;
 import org.sagebionetworks.template.repo.beanstalk.ArtifactCopy;
 import org.sagebionetworks.template.repo.beanstalk.ElasticBeanstalkSolutionStackNameProvider;
@@ -153,10 +162,14 @@ public class RepositoryTemplateBuilderImplTest {
 	private CloudwatchLogsVelocityContextProvider mockCwlContextProvider;
 	@Mock
 	private TimeToLive mockTimeToLive;
+	@Mock
+	private CloudFormationClientAsync mockCloudFormationClientAsync;
+	@Mock
+	private DeploymentTimeline mockTimeline;
 	@Captor
 	private ArgumentCaptor<CreateOrUpdateStackRequest> requestCaptor;
 
-	private VelocityEngine velocityEngine;
+	private TemplateRenderer templateRenderer;
 	private RepositoryTemplateBuilderImpl builder;
 	private RepositoryTemplateBuilderImpl builderSpy;
 
@@ -176,18 +189,18 @@ public class RepositoryTemplateBuilderImplTest {
 
 	@BeforeEach
 	public void before() throws InterruptedException {
-		// use a real velocity engine
-		velocityEngine = new TemplateGuiceModule().velocityEngineProvider();
+		// use a real renderer and velocity engine
+		templateRenderer = new TemplateRendererImpl(new TemplateGuiceModule().velocityEngineProvider(), mockTimeline);
 
 		expectedTags = new LinkedList<>();
 		Tag t = new Tag().withKey("aKey").withValue("aValue");
 		expectedTags.add(t);
 
 		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
-		builder = new RepositoryTemplateBuilderImpl(mockCloudFormationClient, velocityEngine, config, mockLoggerFactory,
+		builder = new RepositoryTemplateBuilderImpl(mockCloudFormationClient, templateRenderer, config, mockLoggerFactory,
 				mockArtifactCopy, mockSecretBuilder, Sets.newHashSet(mockContextProvider1, mockContextProvider2),
 				mockElasticBeanstalkSolutionStackNameProvider, mockStackTagsProvider, mockCwlContextProvider,
-				mockEc2Client, mockBeanstalkClient, mockTimeToLive);
+				mockEc2Client, mockBeanstalkClient, mockTimeToLive, mockCloudFormationClientAsync);
 		builderSpy = Mockito.spy(builder);
 
 		stack = "dev";
@@ -228,6 +241,9 @@ public class RepositoryTemplateBuilderImplTest {
 
 		when(mockCloudFormationClient.waitForStackToComplete(any(String.class)))
 				.thenReturn(Optional.of(sharedResouces));
+		when(mockCloudFormationClientAsync.waitAsync(any(String.class)))
+				.thenReturn(CompletableFuture.completedFuture(new Stack()));
+		when(mockCloudFormationClient.propagatePlanning(any())).thenAnswer(i -> i.getArgument(0));
 	}
 
 	@Test
@@ -1338,6 +1354,7 @@ public class RepositoryTemplateBuilderImplTest {
 	@Test
 	public void testBuildEnvironmentsWithoutTTL() {
 
+		when(mockCloudFormationClient.propagatePlanning(any())).thenAnswer(i -> i.getArgument(0));
 		when(mockSecretBuilder.createSecrets()).thenReturn(secretsSouce);
 		when(mockTimeToLive.createTimeToLiveParameter()).thenReturn(Optional.empty());
 
@@ -1348,22 +1365,29 @@ public class RepositoryTemplateBuilderImplTest {
 		VelocityContext mockContext = Mockito.mock(VelocityContext.class);
 		doReturn(mockContext).when(builderSpy).createEnvironmentContext(any(), any());
 
-		doNothing().when(builderSpy).buildAndDeployStack(any(), any(), any(), any());
+		doReturn("{}").when(builderSpy).renderTemplate(any(), any(), any());
+		doNothing().when(builderSpy).deployStack(any(), any(), any());
+		when(mockCloudFormationClientAsync.waitAsync(any())).thenReturn(CompletableFuture.completedFuture(new Stack()));
 
 		// call under test
-		builderSpy.buildEnvironments(sharedResouces);
+		assertEquals(List.of("repo", "portal"), builderSpy.buildEnvironments(sharedResouces));
 
 		verify(mockSecretBuilder).createSecrets();
 		verify(mockTimeToLive).createTimeToLiveParameter();
 		verify(builderSpy).createEnvironments(secretsSouce);
-		verify(builderSpy, times(2)).buildAndDeployStack(any(), any(), any(), any());
-		verify(builderSpy).buildAndDeployStack(mockContext, e1.getName(), TEMPALTE_BEAN_STALK_ENVIRONMENT, null);
-		verify(builderSpy).buildAndDeployStack(mockContext, e2.getName(), TEMPALTE_BEAN_STALK_ENVIRONMENT, null);
+		verify(builderSpy, times(2)).deployStack(any(), any(), any());
+		verify(builderSpy).renderTemplate(mockContext, e1.getName(), TEMPALTE_BEAN_STALK_ENVIRONMENT);
+		verify(builderSpy).renderTemplate(mockContext, e2.getName(), TEMPALTE_BEAN_STALK_ENVIRONMENT);
+		verify(builderSpy).deployStack(e1.getName(), "{}", null);
+		verify(builderSpy).deployStack(e2.getName(), "{}", null);
+		verify(mockCloudFormationClientAsync).waitAsync(e1.getName());
+		verify(mockCloudFormationClientAsync).waitAsync(e2.getName());
 	}
 	
 	@Test
 	public void testBuildEnvironmentsWithTTL() {
 
+		when(mockCloudFormationClient.propagatePlanning(any())).thenAnswer(i -> i.getArgument(0));
 		when(mockSecretBuilder.createSecrets()).thenReturn(secretsSouce);
 		Parameter ttl = new Parameter().withParameterKey("ttl").withParameterValue("value");
 		when(mockTimeToLive.createTimeToLiveParameter()).thenReturn(Optional.of(ttl));
@@ -1375,20 +1399,220 @@ public class RepositoryTemplateBuilderImplTest {
 		VelocityContext mockContext = Mockito.mock(VelocityContext.class);
 		doReturn(mockContext).when(builderSpy).createEnvironmentContext(any(), any());
 
-		doNothing().when(builderSpy).buildAndDeployStack(any(), any(), any(), any());
+		doReturn("{}").when(builderSpy).renderTemplate(any(), any(), any());
+		doNothing().when(builderSpy).deployStack(any(), any(), any());
+		when(mockCloudFormationClientAsync.waitAsync(any())).thenReturn(CompletableFuture.completedFuture(new Stack()));
 
 		// call under test
-		builderSpy.buildEnvironments(sharedResouces);
+		assertEquals(List.of("repo", "portal"), builderSpy.buildEnvironments(sharedResouces));
 
 		verify(mockSecretBuilder).createSecrets();
 		verify(mockTimeToLive).createTimeToLiveParameter();
 		verify(builderSpy).createEnvironments(secretsSouce);
-		verify(builderSpy, times(2)).buildAndDeployStack(any(), any(), any(), any());
-		verify(builderSpy).buildAndDeployStack(mockContext, e1.getName(), TEMPALTE_BEAN_STALK_ENVIRONMENT, ttl);
-		verify(builderSpy).buildAndDeployStack(mockContext, e2.getName(), TEMPALTE_BEAN_STALK_ENVIRONMENT, ttl);
+		verify(builderSpy, times(2)).deployStack(any(), any(), any());
+		verify(builderSpy).renderTemplate(mockContext, e1.getName(), TEMPALTE_BEAN_STALK_ENVIRONMENT);
+		verify(builderSpy).renderTemplate(mockContext, e2.getName(), TEMPALTE_BEAN_STALK_ENVIRONMENT);
+		verify(builderSpy).deployStack(e1.getName(), "{}", ttl);
+		verify(builderSpy).deployStack(e2.getName(), "{}", ttl);
+		verify(mockCloudFormationClientAsync).waitAsync(e1.getName());
+		verify(mockCloudFormationClientAsync).waitAsync(e2.getName());
 	}
 	
 
+	/**
+	 * When the shared resources stack already exists its CMK can be used to create
+	 * the secrets while the stack is updated.
+	 */
+	@Test
+	public void testBuildAndDeployWithExistingSharedStack() throws InterruptedException {
+		when(mockCloudFormationClient.propagatePlanning(any())).thenAnswer(i -> i.getArgument(0));
+		VelocityContext mockContext = Mockito.mock(VelocityContext.class);
+		doReturn(mockContext).when(builderSpy).createSharedContext();
+		doReturn(new Parameter[0]).when(builderSpy).createSharedParameters();
+		doReturn("dev-101-shared-resources").when(builderSpy).createSharedResourcesStackName();
+		doNothing().when(builderSpy).buildAndDeployStack(any(), any(), any(), any());
+		when(mockCloudFormationClient.describeStack(any())).thenReturn(Optional.of(sharedResouces));
+		when(mockCloudFormationClient.waitForStackToComplete(any())).thenReturn(Optional.of(sharedResouces));
+		EnvironmentDescriptor repo = new EnvironmentDescriptor().withName("repo").withType(EnvironmentType.REPOSITORY_SERVICES);
+		EnvironmentDescriptor portal = new EnvironmentDescriptor().withName("portal").withType(EnvironmentType.PORTAL);
+		doReturn(List.of(repo, portal)).when(builderSpy).prepareEnvironments();
+		when(mockSecretBuilder.createSecrets()).thenReturn(secretsSouce);
+		doReturn(List.of("repo", "portal")).when(builderSpy).deployEnvironments(any(), any());
+
+		// call under test
+		builderSpy.buildAndDeploy();
+
+		verify(mockCloudFormationClient).describeStack("dev-101-shared-resources");
+		verify(builderSpy).buildAndDeployStack(mockContext, "dev-101-shared-resources",
+				TEMPALTE_SHARED_RESOUCES_MAIN_JSON_VTP, new Parameter[0]);
+		verify(mockSecretBuilder).createSecrets();
+		verify(builderSpy).deployEnvironments(sharedResouces, List.of(repo, portal));
+		assertEquals(secretsSouce, repo.getSecretsSource());
+		assertEquals(null, portal.getSecretsSource());
+	}
+
+	@Test
+	public void testBuildAndDeployWithArtifactFailure() throws InterruptedException {
+		when(mockCloudFormationClient.propagatePlanning(any())).thenAnswer(i -> i.getArgument(0));
+		VelocityContext mockContext = Mockito.mock(VelocityContext.class);
+		doReturn(mockContext).when(builderSpy).createSharedContext();
+		doReturn(new Parameter[0]).when(builderSpy).createSharedParameters();
+		doReturn("dev-101-shared-resources").when(builderSpy).createSharedResourcesStackName();
+		doNothing().when(builderSpy).buildAndDeployStack(any(), any(), any(), any());
+		when(mockCloudFormationClient.waitForStackToComplete(any())).thenReturn(Optional.of(sharedResouces));
+		IllegalStateException error = new IllegalStateException("download failed");
+		doThrow(error).when(builderSpy).prepareEnvironments();
+		when(mockSecretBuilder.createSecrets()).thenReturn(secretsSouce);
+
+		IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> {
+			// call under test
+			builderSpy.buildAndDeploy();
+		});
+		assertSame(error, thrown);
+		verify(builderSpy, never()).deployEnvironments(any(), any());
+	}
+
+	@Test
+	public void testBuildAndDeployStack() {
+		when(config.getProperty(PROPERTY_KEY_STACK)).thenReturn("dev");
+		when(mockStackTagsProvider.getStackTags()).thenReturn(expectedTags);
+		// call under test
+		builder.buildAndDeployStack(new VelocityContext(), "some-stack", "s3/s3-bucket-policy-test.json");
+		verify(mockCloudFormationClient).createOrUpdateStack(requestCaptor.capture());
+		CreateOrUpdateStackRequest request = requestCaptor.getValue();
+		assertEquals("some-stack", request.getStackName());
+		assertEquals(expectedTags, request.getTags());
+	}
+
+	/**
+	 * Each template is rendered on the calling thread, in the order of the
+	 * environments, so the renders can be recorded and replayed.
+	 */
+	@Test
+	public void testDeployEnvironmentsRendersOnCallingThread() {
+		when(mockCloudFormationClient.propagatePlanning(any())).thenAnswer(i -> i.getArgument(0));
+		when(mockTimeToLive.createTimeToLiveParameter()).thenReturn(Optional.empty());
+		EnvironmentDescriptor e1 = new EnvironmentDescriptor().withName("repo");
+		EnvironmentDescriptor e2 = new EnvironmentDescriptor().withName("portal");
+		VelocityContext mockContext = Mockito.mock(VelocityContext.class);
+		doReturn(mockContext).when(builderSpy).createEnvironmentContext(any(), any());
+		Thread caller = Thread.currentThread();
+		List<String> rendered = new ArrayList<>();
+		doAnswer(invocation -> {
+			assertSame(caller, Thread.currentThread());
+			rendered.add(invocation.getArgument(1));
+			return "{}";
+		}).when(builderSpy).renderTemplate(any(), any(), any());
+		doNothing().when(builderSpy).deployStack(any(), any(), any());
+		when(mockCloudFormationClientAsync.waitAsync(any())).thenReturn(CompletableFuture.completedFuture(new Stack()));
+
+		// call under test
+		builderSpy.deployEnvironments(sharedResouces, List.of(e1, e2));
+
+		assertEquals(List.of("repo", "portal"), rendered);
+	}
+
+	@Test
+	public void testCreateSecrets() {
+		when(mockSecretBuilder.createSecrets()).thenReturn(secretsSouce);
+		// call under test
+		assertSame(secretsSouce, builder.createSecrets());
+		verify(mockSecretBuilder, never()).getSecretsSourceBundle();
+	}
+
+	@Test
+	public void testCreateSecretsWhilePlanning() {
+		when(mockCloudFormationClient.isPlanning()).thenReturn(true);
+		when(mockSecretBuilder.getSecretsSourceBundle()).thenReturn(secretsSouce);
+		// call under test
+		assertSame(secretsSouce, builder.createSecrets());
+		verify(mockSecretBuilder, never()).createSecrets();
+	}
+
+	@Test
+	public void testPrepareEnvironmentsWhilePlanning() {
+		when(mockCloudFormationClient.isPlanning()).thenReturn(true);
+		when(config.getProperty(PROPERTY_KEY_STACK)).thenReturn(stack);
+		when(config.getProperty(PROPERTY_KEY_INSTANCE)).thenReturn(instance);
+		for (EnvironmentType type : EnvironmentType.values()) {
+			when(config.getIntegerProperty(PROPERTY_KEY_BEANSTALK_NUMBER + type.getShortName())).thenReturn(0);
+			when(config.getProperty(PROPERTY_KEY_BEANSTALK_VERSION + type.getShortName()))
+					.thenReturn("version-" + type.getShortName());
+			when(config.getProperty(PROPERTY_KEY_BEANSTALK_HEALTH_CHECK_URL + type.getShortName()))
+					.thenReturn("url-" + type.getShortName());
+			when(config.getIntegerProperty(PROPERTY_KEY_BEANSTALK_MIN_INSTANCES + type.getShortName())).thenReturn(1);
+			when(config.getIntegerProperty(PROPERTY_KEY_BEANSTALK_MAX_INSTANCES + type.getShortName())).thenReturn(2);
+			when(config.getProperty(PROPERTY_KEY_BEANSTALK_SSL_ARN + type.getShortName())).thenReturn("the:ssl:arn");
+			when(config.getProperty(PROPERTY_KEY_ROUTE_53_HOSTED_ZONE + type.getShortName())).thenReturn("synapes.org");
+		}
+		SourceBundle bundle = new SourceBundle("bucket", "key-one");
+		when(mockArtifactCopy.getSourceBundle(any(), any(), anyInt())).thenReturn(bundle);
+
+		// call under test
+		List<EnvironmentDescriptor> descriptors = builder.prepareEnvironments();
+
+		assertEquals(3, descriptors.size());
+		assertSame(bundle, descriptors.get(0).getSourceBundle());
+		verify(mockArtifactCopy).getSourceBundle(EnvironmentType.REPOSITORY_SERVICES, "version-repo", 0);
+		verify(mockArtifactCopy, never()).copyArtifactIfNeeded(any(), any(), anyInt());
+	}
+
+	@Test
+	public void testAttachSecrets() {
+		EnvironmentDescriptor repo = new EnvironmentDescriptor().withName("repo").withType(EnvironmentType.REPOSITORY_SERVICES);
+		EnvironmentDescriptor workers = new EnvironmentDescriptor().withName("workers").withType(EnvironmentType.REPOSITORY_WORKERS);
+		EnvironmentDescriptor portal = new EnvironmentDescriptor().withName("portal").withType(EnvironmentType.PORTAL);
+		// call under test
+		RepositoryTemplateBuilderImpl.attachSecrets(List.of(repo, workers, portal), secretsSouce);
+		assertEquals(secretsSouce, repo.getSecretsSource());
+		assertEquals(secretsSouce, workers.getSecretsSource());
+		assertEquals(null, portal.getSecretsSource());
+	}
+
+	/**
+	 * A failure of one environment must not stop the others from being deployed
+	 * and waited on.
+	 */
+	@Test
+	public void testBuildEnvironmentsWithFailures() {
+
+		when(mockCloudFormationClient.propagatePlanning(any())).thenAnswer(i -> i.getArgument(0));
+		when(mockSecretBuilder.createSecrets()).thenReturn(secretsSouce);
+		when(mockTimeToLive.createTimeToLiveParameter()).thenReturn(Optional.empty());
+
+		EnvironmentDescriptor e1 = new EnvironmentDescriptor().withName("repo");
+		EnvironmentDescriptor e2 = new EnvironmentDescriptor().withName("workers");
+		EnvironmentDescriptor e3 = new EnvironmentDescriptor().withName("portal");
+		doReturn(List.of(e1, e2, e3)).when(builderSpy).createEnvironments(any());
+
+		VelocityContext mockContext = Mockito.mock(VelocityContext.class);
+		doReturn(mockContext).when(builderSpy).createEnvironmentContext(any(), any());
+
+		IllegalArgumentException submitError = new IllegalArgumentException("bad template");
+		doThrow(submitError).when(builderSpy).renderTemplate(any(), eq("repo"), any());
+		doReturn("{}").when(builderSpy).renderTemplate(any(), eq("workers"), any());
+		doReturn("{}").when(builderSpy).renderTemplate(any(), eq("portal"), any());
+		doNothing().when(builderSpy).deployStack(any(), any(), any());
+		RuntimeException waitError = new RuntimeException("rolled back");
+		CompletableFuture<Stack> failed = new CompletableFuture<>();
+		failed.completeExceptionally(waitError);
+		when(mockCloudFormationClientAsync.waitAsync("workers")).thenReturn(failed);
+		when(mockCloudFormationClientAsync.waitAsync("portal")).thenReturn(CompletableFuture.completedFuture(new Stack()));
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> {
+			// call under test
+			builderSpy.buildEnvironments(sharedResouces);
+		});
+		assertEquals("Failed to deploy environments: repo, workers", e.getMessage());
+		assertSame(submitError, e.getCause());
+		assertSame(waitError, e.getSuppressed()[0]);
+		verify(mockCloudFormationClientAsync, never()).waitAsync("repo");
+		verify(builderSpy, never()).deployStack(eq("repo"), any(), any());
+		verify(mockLogger).info("Environment: 'portal' is complete");
+		verify(mockLogger).error("Environment: 'repo' failed: bad template", submitError);
+		verify(mockLogger).error("Environment: 'workers' failed: rolled back", waitError);
+	}
+
 	private void setupValidBeanstalkConfig() {
 		when(config.getProperty(PROPERTY_KEY_ELASTICBEANSTALK_IMAGE_VERSION_JAVA)).thenReturn("11");
 		when(config.getProperty(PROPERTY_KEY_ELASTICBEANSTALK_IMAGE_VERSION_TOMCAT)).thenReturn("9.0");
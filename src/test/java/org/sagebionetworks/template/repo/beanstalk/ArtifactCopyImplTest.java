@@ -22,6 +22,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.sagebionetworks.template.LoggerFactory;
 import org.sagebionetworks.template.config.Configuration;
 import org.sagebionetworks.template.repo.beanstalk.ssl.ElasticBeanstalkExtentionBuilder;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
+import org.sagebionetworks.template.timing.Phase;
 import org.sagebionetworks.template.utils.ArtifactDownload;
 
 import com.amazonaws.AmazonServiceException;
@@ -46,6 +48,10 @@ public class ArtifactCopyImplTest {
 	Logger mockLogger;
 	@Mock
 	ElasticBeanstalkExtentionBuilder mockEbBuilder;
+	@Mock
+	DeploymentTimeline mockTimeline;
+	@Mock
+	DeploymentTimeline.Span mockSpan;
 	
 	ArtifactCopyImpl copier;
 	
@@ -69,7 +75,7 @@ public class ArtifactCopyImplTest {
 		s3Key = environment.createS3Key(version, beanstalkNumber);
 		artifactoryUrl = environment.createArtifactoryUrl(version);
 		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
-		copier = new ArtifactCopyImpl(mockS3Client, mockPropertyProvider, mockDownloader, mockLoggerFactory, mockEbBuilder);
+		copier = new ArtifactCopyImpl(mockS3Client, mockPropertyProvider, mockDownloader, mockLoggerFactory, mockEbBuilder, mockTimeline);
 	}
 	
 	@Test
@@ -96,6 +102,21 @@ public class ArtifactCopyImplTest {
 		verify(mockCopy).delete();
 	}
 	
+	@Test
+	public void testCopyArtifactIfNeededIsTimed() {
+		when(mockTimeline.start(any(), any())).thenReturn(mockSpan);
+		when(mockDownloader.downloadFile(any(String.class))).thenReturn(mockFile);
+		when(mockEbBuilder.copyWarWithExtensions(eq(mockFile), any(EnvironmentType.class))).thenReturn(mockCopy);
+		when(mockPropertyProvider.getConfigurationBucket()).thenReturn(bucket);
+		when(mockS3Client.doesObjectExist(any(), any())).thenReturn(false);
+		// call under test
+		copier.copyArtifactIfNeeded(environment, version, beanstalkNumber);
+		verify(mockTimeline).start(Phase.ARTIFACT_DOWNLOAD, s3Key);
+		verify(mockTimeline).start(Phase.ARTIFACT_REPACK, s3Key);
+		verify(mockTimeline).start(Phase.ARTIFACT_UPLOAD, s3Key);
+		verify(mockSpan, times(3)).close();
+	}
+
 	@Test
 	public void testCopyArtifactIfNeededUplodFails() {
 		when(mockDownloader.downloadFile(any(String.class))).thenReturn(mockFile);
@@ -135,4 +156,17 @@ public class ArtifactCopyImplTest {
 		verify(mockFile, never()).delete();
 		verify(mockLogger, never()).info(any(String.class));
 	}
+
+	@Test
+	public void testGetSourceBundle() {
+		when(mockPropertyProvider.getConfigurationBucket()).thenReturn(bucket);
+
+		// call under test
+		SourceBundle result = copier.getSourceBundle(environment, version, beanstalkNumber);
+		assertEquals(bucket, result.getBucket());
+		assertEquals(s3Key, result.getKey());
+
+		verify(mockS3Client, never()).doesObjectExist(any(), any());
+		verify(mockDownloader, never()).downloadFile(any());
+	}
 }
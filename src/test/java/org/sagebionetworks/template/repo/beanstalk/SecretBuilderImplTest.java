@@ -1,8 +1,13 @@
 package org.sagebionetworks.template.repo.beanstalk;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.template.Constants.PROPERTY_KEY_INSTANCE;
@@ -21,7 +26,10 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.sagebionetworks.template.FingerprintUtils;
 import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.deploy.CheckpointJournal;
+import org.sagebionetworks.template.timing.DeploymentTimeline;
 
 import com.amazonaws.services.kms.AWSKMS;
 import com.amazonaws.services.kms.model.EncryptRequest;
@@ -44,6 +52,10 @@ public class SecretBuilderImplTest {
 	AWSKMS mockKeyManager;
 	@Mock
 	AmazonS3 mockS3Client;
+	@Mock
+	CheckpointJournal mockJournal;
+	@Mock
+	DeploymentTimeline mockTimeline;
 	
 	@Captor
 	ArgumentCaptor<GetSecretValueRequest> secretRequestCaptor;
@@ -75,10 +87,10 @@ public class SecretBuilderImplTest {
 		when(mockConfig.getComaSeparatedProperty(PROPERTY_KEY_SECRET_KEYS_CSV)).thenReturn(new String[] {key});
 		
 		
-		builder = new SecretBuilderImpl(mockConfig, mockSecretManager, mockKeyManager, mockS3Client);
+		builder = new SecretBuilderImpl(mockConfig, mockSecretManager, mockKeyManager, mockS3Client, mockJournal, mockTimeline);
 		
 		secretString = "super secret";
-		when(mockSecretManager.getSecretValue(any(GetSecretValueRequest.class))).thenReturn(new GetSecretValueResult().withSecretString(secretString));
+		when(mockSecretManager.getSecretValue(any(GetSecretValueRequest.class))).thenReturn(new GetSecretValueResult().withSecretString(secretString).withVersionId("version-one"));
 		encryptedSecretValue = "pretend this is encrypted";
 		secretBuffer = SecretBuilderImpl.stringToByteBuffer(encryptedSecretValue);
 		when(mockKeyManager.encrypt(any(EncryptRequest.class))).thenReturn(new EncryptResult().withCiphertextBlob(secretBuffer));
@@ -147,6 +159,15 @@ public class SecretBuilderImplTest {
 		assertEquals(expectedS3Key, key);
 	}
 	
+	@Test
+	public void testGetSecretsSourceBundle() {
+		// call under test
+		SourceBundle bundle = builder.getSecretsSourceBundle();
+		assertEquals(s3Bucket, bundle.getBucket());
+		assertEquals(expectedS3Key, bundle.getKey());
+		verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+	}
+
 	@Test
 	public void testUploadSecretsToS3() {
 		Properties toUpload = new Properties();
@@ -173,6 +194,45 @@ public class SecretBuilderImplTest {
 		assertNotNull(bundle);
 		assertEquals(s3Bucket, bundle.getBucket());
 		assertEquals(expectedS3Key, bundle.getKey());
+		verify(mockS3Client).putObject(any(PutObjectRequest.class));
+		String expectedFingerprint = FingerprintUtils.fingerprint("alias/synapse/dev/299/cmk", s3Bucket,
+				expectedS3Key, key, "version-one");
+		verify(mockJournal).recordComplete(expectedS3Key, expectedFingerprint);
+	}
+	
+	@Test
+	public void testCreateSecretsWithChangedValue() {
+		builder.createSecrets();
+		when(mockSecretManager.getSecretValue(any(GetSecretValueRequest.class)))
+				.thenReturn(new GetSecretValueResult().withSecretString("rotated secret").withVersionId("version-two"));
+		// Call under test
+		builder.createSecrets();
+		ArgumentCaptor<String> fingerprintCaptor = ArgumentCaptor.forClass(String.class);
+		verify(mockJournal, times(2)).recordComplete(eq(expectedS3Key), fingerprintCaptor.capture());
+		assertNotEquals(fingerprintCaptor.getAllValues().get(0), fingerprintCaptor.getAllValues().get(1));
+	}
+	
+	@Test
+	public void testCreateSecretsResume() {
+		when(mockJournal.isComplete(anyString(), anyString())).thenReturn(true);
+		when(mockS3Client.doesObjectExist(s3Bucket, expectedS3Key)).thenReturn(true);
+		// Call under test
+		SourceBundle bundle = builder.createSecrets();
+		assertEquals(s3Bucket, bundle.getBucket());
+		assertEquals(expectedS3Key, bundle.getKey());
+		verify(mockKeyManager, never()).encrypt(any(EncryptRequest.class));
+		verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+		verify(mockJournal, never()).recordComplete(anyString(), anyString());
+	}
+	
+	@Test
+	public void testCreateSecretsResumeWithMissingObject() {
+		when(mockJournal.isComplete(anyString(), anyString())).thenReturn(true);
+		when(mockS3Client.doesObjectExist(s3Bucket, expectedS3Key)).thenReturn(false);
+		// Call under test
+		SourceBundle bundle = builder.createSecrets();
+		assertEquals(expectedS3Key, bundle.getKey());
+		verify(mockS3Client).putObject(any(PutObjectRequest.class));
 	}
 	
 	/**
@@ -16,7 +16,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.function.Consumer;
 
-import org.apache.velocity.app.VelocityEngine;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -29,7 +28,10 @@ import org.mockito.stubbing.Answer;
 import org.sagebionetworks.template.Constants;
 import org.sagebionetworks.template.FileProvider;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.TemplateRenderer;
+import org.sagebionetworks.template.TemplateRendererImpl;
 import org.sagebionetworks.template.TemplateUtils;
+import org.sagebionetworks.template.ThreadProviderImp;
 import org.sagebionetworks.template.config.Configuration;
 import org.sagebionetworks.template.repo.beanstalk.EnvironmentType;
 import org.sagebionetworks.template.repo.beanstalk.LoadBalancerAlarm;
@@ -37,6 +39,7 @@ import org.sagebionetworks.template.repo.beanstalk.LoadBalancerAlarmsConfig;
 import org.sagebionetworks.template.repo.cloudwatchlogs.CloudwatchLogsVelocityContextProvider;
 import org.sagebionetworks.template.repo.cloudwatchlogs.LogDescriptor;
 import org.sagebionetworks.template.repo.cloudwatchlogs.LogType;
+import org.sagebionetworks.template.timing.DeploymentTimelineImpl;
 import org.sagebionetworks.war.WarAppender;
 
 import com.amazonaws.services.cloudwatch.model.ComparisonOperator;
@@ -48,7 +51,7 @@ public class ElasticBeanstalkExtentionBuilderImplTest {
 	@Mock
 	CertificateBuilder certifiateBuilder;
 	// use the actual engine
-	VelocityEngine velocityEngine;
+	TemplateRenderer templateRenderer;
 	@Mock
 	Configuration configuration;
 	@Mock
@@ -94,8 +97,8 @@ public class ElasticBeanstalkExtentionBuilderImplTest {
 		when(configuration.getProperty(Constants.PROPERTY_KEY_STACK)).thenReturn("dev");
 		when(configuration.getProperty(Constants.PROPERTY_KEY_INSTANCE)).thenReturn("123");
 		// Use the actual velocity entity
-		velocityEngine = new TemplateGuiceModule().velocityEngineProvider();
-		builder = new ElasticBeanstalkExtentionBuilderImpl(certifiateBuilder, velocityEngine, configuration,
+		templateRenderer = new TemplateRendererImpl(new TemplateGuiceModule().velocityEngineProvider(), new DeploymentTimelineImpl(new ThreadProviderImp()));
+		builder = new ElasticBeanstalkExtentionBuilderImpl(certifiateBuilder, templateRenderer, configuration,
 				warAppender, fileProvider, mockCwlVelocityContextProvider, mockLoadBalanacerAlarmsConfig);
 		// call accept on the consumer.
 		doAnswer(new Answer<File>() {
@@ -8,7 +8,6 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -19,7 +18,6 @@ import static org.sagebionetworks.template.Constants.CAPABILITY_NAMED_IAM;
 import static org.sagebionetworks.template.Constants.PROPERTY_KEY_STACK;
 
 import java.io.File;
-import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -28,9 +26,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.List;
 
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -45,6 +41,7 @@ import org.sagebionetworks.template.CloudFormationClient;
 import org.sagebionetworks.template.Constants;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.StackTagsProvider;
+import org.sagebionetworks.template.TemplateRenderer;
 import org.sagebionetworks.template.config.RepoConfiguration;
 import org.sagebionetworks.template.utils.ArtifactDownload;
 
@@ -101,7 +98,7 @@ public class S3BucketBuilderImplTest {
 	private AWSLambda mockLambdaClient;
 
 	@Mock
-	private VelocityEngine mockVelocity;
+	private TemplateRenderer mockTemplateRenderer;
 	
 	@Mock
 	private CloudFormationClient mockCloudFormationClient;
@@ -118,9 +115,6 @@ public class S3BucketBuilderImplTest {
 	@Mock
 	private GetCallerIdentityResult mockGetCallerIdentityResult;
 	
-	@Mock
-	private Template mockTemplate;
-
 	@Mock
 	private File mockFile;
 
@@ -161,12 +155,7 @@ public class S3BucketBuilderImplTest {
 		String expectedBucketName = stack + ".bucket";
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -180,7 +169,7 @@ public class S3BucketBuilderImplTest {
 		verify(mockS3Client).getBucketEncryption(expectedBucketName);
 		verify(mockS3Client).getBucketLifecycleConfiguration(expectedBucketName);
 		verify(mockS3Client).setBucketLifecycleConfiguration(eq(expectedBucketName), bucketLifeCycleConfigurationCaptor.capture());
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -225,12 +214,7 @@ public class S3BucketBuilderImplTest {
 		String expectedBucketName = stack + ".bucket";
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -256,7 +240,7 @@ public class S3BucketBuilderImplTest {
 		verify(mockS3Client, never()).setBucketPolicy(any(), any());
 		verify(mockS3Client, never()).setBucketLifecycleConfiguration(any(), any());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -282,12 +266,7 @@ public class S3BucketBuilderImplTest {
 		String expectedBucketName = stack + ".bucket";
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -327,7 +306,7 @@ public class S3BucketBuilderImplTest {
 		verify(mockS3Client, never()).deleteBucketInventoryConfiguration(any(), any());
 		verify(mockS3Client, never()).setBucketPolicy(any(), any());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -350,12 +329,7 @@ public class S3BucketBuilderImplTest {
 		bucket.setName("${stack}.bucket");
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -392,7 +366,7 @@ public class S3BucketBuilderImplTest {
 		verify(mockS3Client, never()).deleteBucketInventoryConfiguration(any(), any());
 		verify(mockS3Client, never()).setBucketPolicy(any(), any());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -448,12 +422,7 @@ public class S3BucketBuilderImplTest {
 		// No inventory configuration set
 		doThrow(notFound).when(mockS3Client).getBucketInventoryConfiguration(anyString(), anyString());
 
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -491,7 +460,7 @@ public class S3BucketBuilderImplTest {
 		assertEquals(S3BucketBuilderImpl.INVENTORY_FORMAT, destination.getFormat());
 		verify(mockS3Client, never()).deleteBucketInventoryConfiguration(any(), any());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 		VelocityContext context = velocityContextCaptor.getValue();
 		assertEquals(context.get(Constants.STACK), stack);
 		String expectedStackName = stack + "-synapse-bucket-policies";
@@ -526,12 +495,7 @@ public class S3BucketBuilderImplTest {
 						.withEnabled(true))
 		);
 		
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -554,7 +518,7 @@ public class S3BucketBuilderImplTest {
 		verify(mockS3Client, never()).setBucketInventoryConfiguration(any(), any());
 		verify(mockS3Client, never()).deleteBucketInventoryConfiguration(expectedBucketName, S3BucketBuilderImpl.INVENTORY_ID);
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 		VelocityContext context = velocityContextCaptor.getValue();
 		assertEquals(context.get(Constants.STACK), stack);
 		String expectedStackName = stack + "-synapse-bucket-policies";
@@ -588,12 +552,7 @@ public class S3BucketBuilderImplTest {
 		// No inventory configuration set
 		doThrow(notFound).when(mockS3Client).getBucketInventoryConfiguration(anyString(), anyString());
 
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -614,7 +573,7 @@ public class S3BucketBuilderImplTest {
 		verify(mockS3Client, never()).setBucketEncryption(any());
 		verify(mockS3Client, never()).setBucketInventoryConfiguration(any(), any());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 		VelocityContext context = velocityContextCaptor.getValue();
 		assertEquals(context.get(Constants.STACK), stack);
 		String expectedStackName = stack + "-synapse-bucket-policies";
@@ -650,12 +609,7 @@ public class S3BucketBuilderImplTest {
 						.withEnabled(true))
 		);
 
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -677,7 +631,7 @@ public class S3BucketBuilderImplTest {
 		verify(mockS3Client, never()).setBucketInventoryConfiguration(any(), any());
 		verify(mockS3Client).deleteBucketInventoryConfiguration(expectedBucketName, S3BucketBuilderImpl.INVENTORY_ID);
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 		VelocityContext context = velocityContextCaptor.getValue();
 		assertEquals(context.get(Constants.STACK), stack);
 		String expectedStackName = stack + "-synapse-bucket-policies";
@@ -701,12 +655,7 @@ public class S3BucketBuilderImplTest {
 		String expectedBucketName = stack + ".bucket";
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -738,7 +687,7 @@ public class S3BucketBuilderImplTest {
 		assertNotNull(rule.getFilter());
 		assertNull(rule.getFilter().getPredicate());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -765,12 +714,7 @@ public class S3BucketBuilderImplTest {
 		String expectedBucketName = stack + ".bucket";
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -798,7 +742,7 @@ public class S3BucketBuilderImplTest {
 		
 		verify(mockS3Client, never()).setBucketLifecycleConfiguration(any(), any());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -825,12 +769,7 @@ public class S3BucketBuilderImplTest {
 		String expectedBucketName = stack + ".bucket";
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -870,7 +809,7 @@ public class S3BucketBuilderImplTest {
 		assertNotNull(rule.getFilter());
 		assertNull(rule.getFilter().getPredicate());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -901,12 +840,7 @@ public class S3BucketBuilderImplTest {
 		String expectedBucketName = stack + ".bucket";
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -941,7 +875,7 @@ public class S3BucketBuilderImplTest {
 		assertNotNull(rule.getFilter());
 		assertNull(rule.getFilter().getPredicate());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -972,12 +906,7 @@ public class S3BucketBuilderImplTest {
 		String expectedBucketName = stack + ".bucket";
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1003,7 +932,7 @@ public class S3BucketBuilderImplTest {
 		
 		verify(mockS3Client, never()).setBucketLifecycleConfiguration(any(), any());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -1034,12 +963,7 @@ public class S3BucketBuilderImplTest {
 		String expectedBucketName = stack + ".bucket";
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1078,7 +1002,7 @@ public class S3BucketBuilderImplTest {
 		assertNotNull(intRule.getFilter());
 		assertNull(intRule.getFilter().getPredicate());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -1116,12 +1040,7 @@ public class S3BucketBuilderImplTest {
 		String expectedBucketName = stack + ".bucket";
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1183,7 +1102,7 @@ public class S3BucketBuilderImplTest {
 		assertNotNull(iaRule.getFilter());
 		assertNull(iaRule.getFilter().getPredicate());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -1218,12 +1137,7 @@ public class S3BucketBuilderImplTest {
 		String expectedBucketName = stack + ".bucket";
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1266,7 +1180,7 @@ public class S3BucketBuilderImplTest {
 		assertNotNull(arcRule.getFilter());
 		assertNull(arcRule.getFilter().getPredicate());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -1297,12 +1211,7 @@ public class S3BucketBuilderImplTest {
 		String expectedBucketName = stack + ".bucket";
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1321,7 +1230,7 @@ public class S3BucketBuilderImplTest {
 		verify(mockS3Client, never()).deleteBucketInventoryConfiguration(any(), any());
 		verify(mockS3Client, never()).setBucketPolicy(any(), any());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -1351,12 +1260,7 @@ public class S3BucketBuilderImplTest {
 		bucket.setDevOnly(true);
 
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1368,7 +1272,7 @@ public class S3BucketBuilderImplTest {
 		
 		verifyNoMoreInteractions(mockS3Client);
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -1406,12 +1310,7 @@ public class S3BucketBuilderImplTest {
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
 		doThrow(notFound).when(mockS3Client).getBucketIntelligentTieringConfiguration(any(), any());
 
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1437,7 +1336,7 @@ public class S3BucketBuilderImplTest {
 		assertEquals("test",  tag.getKey());
 		assertEquals("tag",  tag.getValue());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -1537,12 +1436,7 @@ public class S3BucketBuilderImplTest {
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
 		doThrow(notFound).when(mockS3Client).getBucketIntelligentTieringConfiguration(any(), any());
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1565,7 +1459,7 @@ public class S3BucketBuilderImplTest {
 		
 		assertNull(config.getFilter().getPredicate());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -1599,12 +1493,7 @@ public class S3BucketBuilderImplTest {
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
 		doThrow(notFound).when(mockS3Client).getBucketIntelligentTieringConfiguration(any(), any());
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1626,7 +1515,7 @@ public class S3BucketBuilderImplTest {
 		
 		assertNull(config.getFilter().getPredicate());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -1659,12 +1548,7 @@ public class S3BucketBuilderImplTest {
 		
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
 		when(mockS3Client.getBucketIntelligentTieringConfiguration(any(), any())).thenReturn(new GetBucketIntelligentTieringConfigurationResult().withIntelligentTieringConfiguration(new IntelligentTieringConfiguration()));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1677,7 +1561,7 @@ public class S3BucketBuilderImplTest {
 		verify(mockS3Client).getBucketIntelligentTieringConfiguration(expectedBucketName, S3BucketBuilderImpl.INT_ARCHIVE_ID);
 		verify(mockS3Client, never()).setBucketIntelligentTieringConfiguration(any(), any());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -1714,12 +1598,7 @@ public class S3BucketBuilderImplTest {
 
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
 		when(mockCloudFormationClient.getOutput(any(), any())).thenReturn(expectedTopicArn);
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1745,7 +1624,7 @@ public class S3BucketBuilderImplTest {
 		assertEquals(expectedTopicArn, snsConfig.getTopicARN());
 		assertEquals(events, snsConfig.getEvents());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -1786,12 +1665,7 @@ public class S3BucketBuilderImplTest {
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
 		when(mockCloudFormationClient.getOutput(any(), any())).thenReturn(expectedTopicArn);
 		when(mockS3Client.getBucketNotificationConfiguration(anyString())).thenReturn(existingConfig);
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1817,7 +1691,7 @@ public class S3BucketBuilderImplTest {
 		assertEquals(expectedTopicArn, snsConfig.getTopicARN());
 		assertEquals(events, snsConfig.getEvents());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -1860,12 +1734,7 @@ public class S3BucketBuilderImplTest {
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
 		when(mockCloudFormationClient.getOutput(any(), any())).thenReturn(expectedTopicArn);
 		when(mockS3Client.getBucketNotificationConfiguration(anyString())).thenReturn(existingConfig);
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1891,7 +1760,7 @@ public class S3BucketBuilderImplTest {
 		assertEquals(expectedTopicArn, snsConfig.getTopicARN());
 		assertEquals(events, snsConfig.getEvents());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -1934,12 +1803,7 @@ public class S3BucketBuilderImplTest {
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
 		when(mockCloudFormationClient.getOutput(any(), any())).thenReturn(expectedTopicArn);
 		when(mockS3Client.getBucketNotificationConfiguration(anyString())).thenReturn(existingConfig);
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -1965,7 +1829,7 @@ public class S3BucketBuilderImplTest {
 		assertEquals(expectedTopicArn, snsConfig.getTopicARN());
 		assertEquals(events, snsConfig.getEvents());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -2008,12 +1872,7 @@ public class S3BucketBuilderImplTest {
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
 		when(mockCloudFormationClient.getOutput(any(), any())).thenReturn(expectedTopicArn);
 		when(mockS3Client.getBucketNotificationConfiguration(anyString())).thenReturn(existingConfig);
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -2039,7 +1898,7 @@ public class S3BucketBuilderImplTest {
 		assertEquals(expectedTopicArn, snsConfig.getTopicARN());
 		assertEquals(events, snsConfig.getEvents());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -2082,12 +1941,7 @@ public class S3BucketBuilderImplTest {
 		when(mockS3Config.getBuckets()).thenReturn(Arrays.asList(bucket));
 		when(mockCloudFormationClient.getOutput(any(), any())).thenReturn(expectedTopicArn);
 		when(mockS3Client.getBucketNotificationConfiguration(anyString())).thenReturn(existingConfig);
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -2101,7 +1955,7 @@ public class S3BucketBuilderImplTest {
 		verify(mockS3Client).getBucketNotificationConfiguration(expectedBucketName);
 		verify(mockS3Client, never()).setBucketNotificationConfiguration(any(), any());
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
@@ -2173,12 +2027,7 @@ public class S3BucketBuilderImplTest {
 		
 		when(mockS3Config.getVirusScannerConfig()).thenReturn(virusScannerConfig);
 		when(mockDownloader.downloadFile(any())).thenReturn(mockFile);
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-		
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 		
 		Stack virusScannerStack = new Stack().withOutputs(
 			new Output().withOutputKey(S3BucketBuilderImpl.CF_OUTPUT_VIRUS_TRIGGER_TOPIC).withOutputValue("snsTopicArn"),
@@ -2197,7 +2046,7 @@ public class S3BucketBuilderImplTest {
 		verify(mockDownloader).downloadFile("https://some-url/lambda-name.zip");
 		verify(mockS3Client).putObject(expectedBucket, expectedKey, mockFile);
 		verify(mockFile).delete();
-		verify(mockTemplate, times(2)).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer, times(2)).renderJson(any(), velocityContextCaptor.capture());
 		
 		List<VelocityContext> contexts = velocityContextCaptor.getAllValues();
 		VelocityContext virusScannerBuilderContext = contexts.get(0);
@@ -2279,12 +2128,7 @@ public class S3BucketBuilderImplTest {
 		
 		when(mockS3Config.getVirusScannerConfig()).thenReturn(virusScannerConfig);
 		when(mockDownloader.downloadFile(any())).thenReturn(new File("tmpFile"));
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-		
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -2322,7 +2166,7 @@ public class S3BucketBuilderImplTest {
 		// Make sure the config was removed
 		assertTrue(configuration.getConfigurations().isEmpty());
 
-		verify(mockTemplate, times(2)).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer, times(2)).renderJson(any(), velocityContextCaptor.capture());
 		List<VelocityContext> contexts = velocityContextCaptor.getAllValues();
 		VelocityContext virusScannerBuilderContext = contexts.get(0);
 		VelocityContext bucketPolicyBuilderContext = contexts.get(1);
@@ -2377,12 +2221,7 @@ public class S3BucketBuilderImplTest {
 		
 		when(mockS3Config.getVirusScannerConfig()).thenReturn(virusScannerConfig);
 
-		when(mockVelocity.getTemplate(any())).thenReturn(mockTemplate);
-
-		doAnswer(invocation -> {
-			((StringWriter) invocation.getArgument(1)).append("{}");
-			return null;
-		}).when(mockTemplate).merge(any(), any());
+		when(mockTemplateRenderer.renderJson(any(), any())).thenReturn("{}");
 
 		Stack bucketPolicyStack = new Stack();
 
@@ -2392,7 +2231,7 @@ public class S3BucketBuilderImplTest {
 		// Call under test
 		builder.buildAllBuckets();
 
-		verify(mockTemplate).merge(velocityContextCaptor.capture(), any());
+		verify(mockTemplateRenderer).renderJson(any(), velocityContextCaptor.capture());
 
 		VelocityContext context = velocityContextCaptor.getValue();
 
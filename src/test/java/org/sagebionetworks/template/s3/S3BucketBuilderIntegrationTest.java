@@ -10,7 +10,6 @@ import java.util.Collections;
 import java.util.Optional;
 
 import com.amazonaws.services.cloudformation.model.Stack;
-import org.apache.velocity.app.VelocityEngine;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,6 +19,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.sagebionetworks.template.CloudFormationClient;
 import org.sagebionetworks.template.StackTagsProvider;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.TemplateRenderer;
 import org.sagebionetworks.template.TemplateUtils;
 import org.sagebionetworks.template.config.RepoConfiguration;
 import org.sagebionetworks.template.utils.ArtifactDownload;
@@ -69,12 +69,12 @@ public class S3BucketBuilderIntegrationTest {
     @BeforeEach
     public void before() {
         Injector injector = Guice.createInjector(new TemplateGuiceModule());
-        VelocityEngine velocityEngine = injector.getInstance(VelocityEngine.class);
+        TemplateRenderer templateRenderer = injector.getInstance(TemplateRenderer.class);
 
         // Validate the real S3Config
         injector.getInstance(S3Config.class);
 
-        builder = new S3BucketBuilderImpl(mockS3Client, mockStsClient, mockLambdaClient, mockConfig, mockS3Config, velocityEngine, mockCloudFormationClient, mockTagsProvider, mockDownloader);
+        builder = new S3BucketBuilderImpl(mockS3Client, mockStsClient, mockLambdaClient, mockConfig, mockS3Config, templateRenderer, mockCloudFormationClient, mockTagsProvider, mockDownloader);
 
         stack = "dev";
         accountId = "12345";
@@ -0,0 +1,62 @@
+package org.sagebionetworks.template.timing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.template.ThreadProvider;
+
+@ExtendWith(MockitoExtension.class)
+public class DeploymentTimelineImplTest {
+
+	@Mock
+	ThreadProvider mockThreadProvider;
+
+	DeploymentTimelineImpl timeline;
+
+	@BeforeEach
+	public void before() {
+		timeline = new DeploymentTimelineImpl(mockThreadProvider);
+	}
+
+	@Test
+	public void testStartAndClose() {
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(100L, 350L);
+		// call under test
+		try (DeploymentTimeline.Span span = timeline.start(Phase.RENDER, "repo-dev-101-0")) {
+			assertTrue(timeline.drain().isEmpty());
+		}
+		List<TimingSpan> spans = timeline.drain();
+		assertEquals(List.of(new TimingSpan(Phase.RENDER, "repo-dev-101-0", Thread.currentThread().getName(), 100L,
+				350L)), spans);
+		assertEquals(250L, spans.get(0).getDurationMs());
+	}
+
+	@Test
+	public void testCloseTwice() {
+		when(mockThreadProvider.currentTimeMillis()).thenReturn(100L, 200L, 300L);
+		DeploymentTimeline.Span span = timeline.start(Phase.WAIT, "stack");
+		// call under test
+		span.close();
+		span.close();
+		List<TimingSpan> spans = timeline.drain();
+		assertEquals(1, spans.size());
+		assertEquals(200L, spans.get(0).getEndMs());
+	}
+
+	@Test
+	public void testDrain() {
+		timeline.start(Phase.WAIT, "one").close();
+		timeline.start(Phase.WAIT, "two").close();
+		// call under test
+		assertEquals(2, timeline.drain().size());
+		assertTrue(timeline.drain().isEmpty());
+	}
+}
@@ -0,0 +1,67 @@
+package org.sagebionetworks.template.timing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+public class TimingReportTest {
+
+	List<TimingSpan> spans = List.of(new TimingSpan(Phase.WAIT, "vpc", "deployment-0", 1500L, 4000L),
+			new TimingSpan(Phase.NODE, "vpc", "deployment-0", 1000L, 5000L),
+			new TimingSpan(Phase.NODE, "cdn", "deployment-1", 2000L, 2500L),
+			new TimingSpan(Phase.WAIT, "cdn", "deployment-1", 2000L, 2400L));
+
+	@Test
+	public void testToJson() {
+		// call under test
+		JSONObject json = TimingReport.toJson(spans, List.of("vpc"), 4000L);
+		assertEquals(1000L, json.getLong("startEpochMs"));
+		JSONArray array = json.getJSONArray("spans");
+		assertEquals(4, array.length());
+		// sorted by start time
+		JSONObject first = array.getJSONObject(0);
+		assertEquals("NODE", first.getString("phase"));
+		assertEquals("vpc", first.getString("name"));
+		assertEquals(0L, first.getLong("startMs"));
+		assertEquals(4000L, first.getLong("durationMs"));
+		// the longer span comes first when both start together.
+		assertEquals("NODE", array.getJSONObject(2).getString("phase"));
+		JSONObject totals = json.getJSONObject("phaseTotalsMs");
+		assertEquals(4500L, totals.getLong("NODE"));
+		assertEquals(2900L, totals.getLong("WAIT"));
+		JSONObject criticalPath = json.getJSONObject("criticalPath");
+		assertEquals("vpc", criticalPath.getJSONArray("nodes").getString(0));
+		assertEquals(4000L, criticalPath.getLong("durationMs"));
+	}
+
+	@Test
+	public void testToTraceEvents() {
+		// call under test
+		JSONObject json = TimingReport.toTraceEvents(spans);
+		JSONArray events = json.getJSONArray("traceEvents");
+		// one process name, two thread names and four spans
+		assertEquals(7, events.length());
+		assertEquals("process_name", events.getJSONObject(0).getString("name"));
+		assertEquals("thread_name", events.getJSONObject(1).getString("name"));
+		assertEquals("deployment-0", events.getJSONObject(1).getJSONObject("args").getString("name"));
+		JSONObject vpc = events.getJSONObject(3);
+		assertEquals("X", vpc.getString("ph"));
+		assertEquals("vpc", vpc.getString("name"));
+		assertEquals("NODE", vpc.getString("cat"));
+		assertEquals(0L, vpc.getLong("ts"));
+		assertEquals(4000000L, vpc.getLong("dur"));
+		assertEquals(1, vpc.getInt("tid"));
+		assertEquals(2, events.getJSONObject(6).getInt("tid"));
+	}
+
+	@Test
+	public void testToJsonWithNoSpans() {
+		// call under test
+		JSONObject json = TimingReport.toJson(List.of(), List.of(), 0L);
+		assertEquals(0, json.getJSONArray("spans").length());
+	}
+}
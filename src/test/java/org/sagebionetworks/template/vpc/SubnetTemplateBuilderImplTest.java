@@ -1,9 +1,9 @@
 package org.sagebionetworks.template.vpc;
 
+import com.amazonaws.services.cloudformation.model.Stack;
 import com.amazonaws.services.cloudformation.model.Tag;
 import org.apache.logging.log4j.Logger;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
@@ -13,17 +13,27 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.sagebionetworks.template.CloudFormationClient;
+import org.sagebionetworks.template.CloudFormationClientAsync;
 import org.sagebionetworks.template.CreateOrUpdateStackRequest;
 import org.sagebionetworks.template.LoggerFactory;
 import org.sagebionetworks.template.StackTagsProvider;
 import org.sagebionetworks.template.TemplateGuiceModule;
+import org.sagebionetworks.template.TemplateRenderer;
+import org.sagebionetworks.template.TemplateRendererImpl;
+import org.sagebionetworks.template.ThreadProviderImp;
 import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.timing.DeploymentTimelineImpl;
 
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -43,11 +53,13 @@ public class SubnetTemplateBuilderImplTest {
     Logger mockLogger;
     @Mock
     StackTagsProvider mockStackTagsProvider;
+    @Mock
+    CloudFormationClientAsync mockCloudFormationClientAsync;
 
     @Captor
     ArgumentCaptor<CreateOrUpdateStackRequest> requestCaptor;
 
-    VelocityEngine velocityEngine;
+    TemplateRenderer templateRenderer;
     SubnetTemplateBuilderImpl builder;
 
     String subnetPrefix;
@@ -64,8 +76,8 @@ public class SubnetTemplateBuilderImplTest {
 
     @Before
     public void before() {
-        // use a real velocity engine
-        velocityEngine = new TemplateGuiceModule().velocityEngineProvider();
+        // use a real renderer and velocity engine
+        templateRenderer = new TemplateRendererImpl(new TemplateGuiceModule().velocityEngineProvider(), new DeploymentTimelineImpl(new ThreadProviderImp()));
 
         when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
 
@@ -73,7 +85,7 @@ public class SubnetTemplateBuilderImplTest {
         Tag t = new Tag().withKey("aKey").withValue("aValue");
         when(mockStackTagsProvider.getStackTags()).thenReturn(expectedTags);
 
-        builder = new SubnetTemplateBuilderImpl(mockCloudFormationClient, velocityEngine, mockConfig, mockLoggerFactory, mockStackTagsProvider);
+        builder = new SubnetTemplateBuilderImpl(mockCloudFormationClient, templateRenderer, mockConfig, mockLoggerFactory, mockStackTagsProvider, mockCloudFormationClientAsync);
 
         colors = new String[] {"Red", "Green"};
         subnetPrefix = "10.24";
@@ -152,6 +164,67 @@ public class SubnetTemplateBuilderImplTest {
 
         JSONObject templateJson = new JSONObject(requests.get(0).getTemplateBody());
         System.out.println(templateJson.toString(JSON_INDENT));
+        verify(mockCloudFormationClient).waitForStackToComplete("synapse-dev-vpc-2-private-subnets-Red");
+        verify(mockCloudFormationClient).waitForStackToComplete("synapse-dev-vpc-2-private-subnets-Green");
+        verify(mockCloudFormationClientAsync, never()).waitAsync(anyString());
+    }
+
+    @Test
+    public void testBuildAndDeployPrivateSubnetsParallel() throws Exception {
+        when(mockConfig.getBooleanProperty(PROPERTY_KEY_VPC_PRIVATE_SUBNETS_PARALLEL)).thenReturn(true);
+        when(mockCloudFormationClientAsync.waitAsync(anyString())).thenReturn(CompletableFuture.completedFuture(new Stack()));
+        // call under test
+        builder.buildAndDeployPrivateSubnets();
+
+        verify(mockCloudFormationClient, times(2)).createOrUpdateStack(requestCaptor.capture());
+        List<CreateOrUpdateStackRequest> requests = requestCaptor.getAllValues();
+        assertEquals("synapse-dev-vpc-2-private-subnets-Red", requests.get(0).getStackName());
+        assertEquals("synapse-dev-vpc-2-private-subnets-Green", requests.get(1).getStackName());
+        // each color is rendered with its own index.
+        assertNotEquals(requests.get(0).getTemplateBody(), requests.get(1).getTemplateBody());
+        verify(mockCloudFormationClientAsync).waitAsync("synapse-dev-vpc-2-private-subnets-Red");
+        verify(mockCloudFormationClientAsync).waitAsync("synapse-dev-vpc-2-private-subnets-Green");
+        verify(mockCloudFormationClient, never()).waitForStackToComplete(anyString());
+    }
+
+    @Test
+    public void testBuildAndDeployPrivateSubnetsParallelWithFailure() throws Exception {
+        when(mockConfig.getBooleanProperty(PROPERTY_KEY_VPC_PRIVATE_SUBNETS_PARALLEL)).thenReturn(true);
+        RuntimeException error = new RuntimeException("rolled back");
+        CompletableFuture<Stack> failed = new CompletableFuture<>();
+        failed.completeExceptionally(error);
+        when(mockCloudFormationClientAsync.waitAsync("synapse-dev-vpc-2-private-subnets-Red")).thenReturn(failed);
+        when(mockCloudFormationClientAsync.waitAsync("synapse-dev-vpc-2-private-subnets-Green"))
+                .thenReturn(CompletableFuture.completedFuture(new Stack()));
+        try {
+            // call under test
+            builder.buildAndDeployPrivateSubnets();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Failed to deploy private subnet stacks: [synapse-dev-vpc-2-private-subnets-Red]", e.getMessage());
+            assertSame(error, e.getCause());
+        }
+        // the other color is still submitted and waited on.
+        verify(mockCloudFormationClient, times(2)).createOrUpdateStack(any(CreateOrUpdateStackRequest.class));
+        verify(mockLogger).error("Private subnet stack: 'synapse-dev-vpc-2-private-subnets-Red' failed", error);
+    }
+
+    @Test
+    public void testWaitForPrivateSubnetsWithMultipleFailures() {
+        RuntimeException red = new RuntimeException("red rolled back");
+        RuntimeException green = new RuntimeException("green rolled back");
+        Map<String, CompletableFuture<Stack>> waits = new LinkedHashMap<>();
+        waits.put("red", CompletableFuture.failedFuture(red));
+        waits.put("green", CompletableFuture.failedFuture(green));
+        try {
+            // call under test
+            builder.waitForPrivateSubnets(waits);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Failed to deploy private subnet stacks: [red, green]", e.getMessage());
+            assertSame(red, e.getCause());
+            assertSame(green, e.getSuppressed()[0]);
+        }
     }
 
 }
\ No newline at end of file
@@ -24,7 +24,6 @@ import static org.sagebionetworks.template.Constants.VPC_CIDR;
 import com.amazonaws.services.cloudformation.model.Tag;
 import org.apache.logging.log4j.Logger;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
@@ -35,6 +34,7 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.sagebionetworks.template.*;
 import org.sagebionetworks.template.config.Configuration;
+import org.sagebionetworks.template.timing.DeploymentTimelineImpl;
 
 import com.amazonaws.services.cloudformation.model.Parameter;
 
@@ -62,7 +62,7 @@ public class VpcTemplateBuilderImplTest {
 	@Captor
 	ArgumentCaptor<String> topicCaptor;
 
-	VelocityEngine velocityEngine;
+	TemplateRenderer templateRenderer;
 	VpcTemplateBuilderImpl builder;
 	
 	String subnetPrefix;
@@ -79,8 +79,8 @@ public class VpcTemplateBuilderImplTest {
 
 	@Before
 	public void before() {
-		// use a real velocity engine
-		velocityEngine = new TemplateGuiceModule().velocityEngineProvider();
+		// use a real renderer and velocity engine
+		templateRenderer = new TemplateRendererImpl(new TemplateGuiceModule().velocityEngineProvider(), new DeploymentTimelineImpl(new ThreadProviderImp()));
 		
 		when(mockLoggerFactory.getLogger(any())).thenReturn(mockLogger);
 
@@ -88,7 +88,7 @@ public class VpcTemplateBuilderImplTest {
 		Tag t = new Tag().withKey("aKey").withValue("aValue");
 		when(mockStackTagsProvider.getStackTags()).thenReturn(expectedTags);
 
-		builder = new VpcTemplateBuilderImpl(mockCloudFormationClient, velocityEngine, mockConfig, mockLoggerFactory, mockStackTagsProvider);
+		builder = new VpcTemplateBuilderImpl(mockCloudFormationClient, templateRenderer, mockConfig, mockLoggerFactory, mockStackTagsProvider);
 		subnetPrefix = "10.21";
 		avialabilityZones = new String[] {"us-east-1a","us-east-1b"};
 		vpnCider = "10.1.0.0/16";